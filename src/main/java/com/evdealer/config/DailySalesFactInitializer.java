@@ -0,0 +1,53 @@
+package com.evdealer.config;
+
+import com.evdealer.entity.ReportDataChangeListener;
+import com.evdealer.enums.ReportDataDomain;
+import com.evdealer.repository.DailySalesFactRepository;
+import com.evdealer.service.DailySalesFactService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Backfill daily_sales_fact khi khởi động: bảng mới tạo thì rỗng nên tổng hợp theo tháng / theo năm đọc ra 0.
+ * Chỉ chạy khi bảng rỗng (backfill theo từng đoạn ngày, mỗi đoạn một transaction - xem DailySalesFactService);
+ * không có order thì không làm gì. Runner chạy trước khi ứng dụng chuyển sang ACCEPTING_TRAFFIC (readiness).
+ */
+@Component
+public class DailySalesFactInitializer implements ApplicationRunner {
+    private static final Logger log = LoggerFactory.getLogger(DailySalesFactInitializer.class);
+
+    private final DailySalesFactRepository factRepository;
+    private final DailySalesFactService factService;
+    private final boolean enabled;
+
+    public DailySalesFactInitializer(DailySalesFactRepository factRepository,
+                                     DailySalesFactService factService,
+                                     @Value("${app.reports.daily-sales-fact.backfill-on-startup:true}") boolean enabled) {
+        this.factRepository = factRepository;
+        this.factService = factService;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (factRepository.count() > 0) {
+                return;
+            }
+            int buckets = factService.backfill();
+            if (buckets > 0) {
+                // Kết quả báo cáo đã cache trong lúc fact table còn rỗng không còn đúng
+                ReportDataChangeListener.notifyHandlers(ReportDataDomain.ORDERS);
+            }
+        } catch (Exception e) {
+            log.warn("Daily sales fact backfill failed ({}). Monthly and yearly summaries stay incomplete until POST /api/reports/sales-timeseries/backfill is run.", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.evdealer.config;
+
+import com.evdealer.entity.ReportDataChangeListener;
+import com.evdealer.enums.OrderStatus;
+import com.evdealer.enums.ReportDataDomain;
+import com.evdealer.repository.DealerSalesRollupRepository;
+import com.evdealer.service.DealerSalesRollupService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Backfill dealer_sales_rollup khi khởi động: bảng mới tạo (ddl-auto=update) thì rỗng trong khi orders đã có
+ * dữ liệu, báo cáo dealer performance chỉ đọc rollup nên sẽ trả doanh số 0. Chỉ rebuild khi rollup rỗng và có
+ * order tính doanh số; các lần khởi động sau rollup đã được cập nhật theo từng order nên bỏ qua.
+ * Runner chạy trước khi ứng dụng chuyển sang ACCEPTING_TRAFFIC (readiness).
+ */
+@Component
+public class DealerSalesRollupInitializer implements ApplicationRunner {
+    private static final Logger log = LoggerFactory.getLogger(DealerSalesRollupInitializer.class);
+
+    private final DealerSalesRollupRepository rollupRepository;
+    private final DealerSalesRollupService rollupService;
+    private final boolean enabled;
+
+    public DealerSalesRollupInitializer(DealerSalesRollupRepository rollupRepository,
+                                        DealerSalesRollupService rollupService,
+                                        @Value("${app.reports.dealer-sales-rollup.backfill-on-startup:true}") boolean enabled) {
+        this.rollupRepository = rollupRepository;
+        this.rollupService = rollupService;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (rollupRepository.count() > 0
+                    || !rollupRepository.existsRevenueRecognizedOrders(OrderStatus.revenueRecognizedValues())) {
+                return;
+            }
+            log.info("Dealer sales rollup is empty but revenue orders exist; rebuilding from orders.");
+            rollupService.rebuild();
+            // Kết quả báo cáo đã cache trong lúc rollup còn rỗng không còn đúng
+            ReportDataChangeListener.notifyHandlers(ReportDataDomain.ORDERS);
+        } catch (Exception e) {
+            log.warn("Dealer sales rollup backfill failed ({}). Dealer performance report stays empty until POST /api/reports/dealer-performance/rebuild is run.", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.evdealer.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Tạo index trigram (pg_trgm, GIN) cho vin, chassis_number, license_plate của vehicle_inventory.
+ * ddl-auto=update không tạo được index GIN nên script db/inventory_trigram_indexes.sql chạy khi khởi động
+ * (sau khi Hibernate đã cập nhật schema). Script idempotent; lỗi (vd. thiếu quyền CREATE EXTENSION) chỉ
+ * được log, tìm kiếm vẫn chạy nhưng quét tuần tự.
+ */
+@Component
+public class InventorySearchIndexInitializer implements ApplicationRunner {
+    private static final Logger log = LoggerFactory.getLogger(InventorySearchIndexInitializer.class);
+
+    private static final String SCRIPT = "db/inventory_trigram_indexes.sql";
+
+    private final DataSource dataSource;
+    private final boolean enabled;
+
+    public InventorySearchIndexInitializer(DataSource dataSource,
+                                           @Value("${app.inventory.search.create-trigram-indexes:true}") boolean enabled) {
+        this.dataSource = dataSource;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        // CREATE INDEX CONCURRENTLY không chạy được trong transaction: populator dùng connection auto-commit
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(new ClassPathResource(SCRIPT));
+        try {
+            populator.execute(dataSource);
+            log.info("Trigram search indexes on vehicle_inventory are in place.");
+        } catch (Exception e) {
+            log.warn("Could not create trigram search indexes on vehicle_inventory ({}). Inventory search will fall back to sequential scans; run {} as a privileged role.", e.getMessage(), SCRIPT);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.evdealer.config;
 
 import com.evdealer.enums.Role;
 import com.evdealer.util.JwtUtil;
+import com.evdealer.util.VerifiedToken;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -40,7 +41,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         final String authorizationHeader = request.getHeader("Authorization");
         
         String username = null;
-        String jwt = null;
+        VerifiedToken verifiedToken = null;
         boolean invalidToken = false;
         
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
@@ -48,10 +49,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             final String raw = authorizationHeader.substring(7);
             final String token = raw == null ? null : raw.trim();
             if (token != null && !token.isEmpty()) {
-                jwt = token;
-                logger.info("JWT Filter: Extracting username from token...");
+                logger.info("JWT Filter: Verifying token...");
                 try {
-                    username = jwtUtil.extractUsername(jwt);
+                    // Parse + verify chữ ký đúng một lần cho mỗi request
+                    verifiedToken = jwtUtil.verify(token);
+                    username = verifiedToken.getUsername();
                     logger.info("JWT Filter: Username extracted: {}", username);
                 } catch (ExpiredJwtException e) {
                     invalidToken = true;
@@ -82,39 +84,34 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         
         if (username != null) {
-            logger.info("JWT Filter: Validating token for user: {}", username);
-            if (jwtUtil.validateToken(jwt)) {
-                String roleStr = jwtUtil.getRoleFromToken(jwt);
-                String userId = jwtUtil.getUserIdFromToken(jwt);
-                
-                // Normalize role: chuyển đổi role string thành Role enum và lấy authority
-                Role role = Role.fromString(roleStr);
-                String normalizedRole = role != null ? role.getValue() : Role.normalize(roleStr);
-                String authority = role != null ? role.getAuthority() : "ROLE_" + normalizedRole;
-                
-                logger.info("JWT validated successfully for user: {}, role: {} (normalized: {}), userId: {}", 
-                    username, roleStr, normalizedRole, userId);
-                
-                UsernamePasswordAuthenticationToken authToken = 
-                    new UsernamePasswordAuthenticationToken(
-                        username, 
-                        null, 
-                        Collections.singletonList(new SimpleGrantedAuthority(authority))
-                    );
-                
-                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authToken);
-                
-                // Add user info to request attributes for easy access (normalized role)
-                request.setAttribute("userId", userId);
-                request.setAttribute("userRole", normalizedRole);
-                
-                logger.info("Authentication set in SecurityContext for user: {}, role: {}, authority: {}", 
-                    username, normalizedRole, authority);
-            } else {
-                logger.warn("JWT token validation failed for user: {}", username);
-                invalidToken = true;
-            }
+            logger.info("JWT Filter: Token verified for user: {}", username);
+            String roleStr = verifiedToken.getRole();
+            String userId = verifiedToken.getUserId();
+            
+            // Normalize role: chuyển đổi role string thành Role enum và lấy authority
+            Role role = Role.fromString(roleStr);
+            String normalizedRole = role != null ? role.getValue() : Role.normalize(roleStr);
+            String authority = role != null ? role.getAuthority() : "ROLE_" + normalizedRole;
+            
+            logger.info("JWT validated successfully for user: {}, role: {} (normalized: {}), userId: {}", 
+                username, roleStr, normalizedRole, userId);
+            
+            UsernamePasswordAuthenticationToken authToken = 
+                new UsernamePasswordAuthenticationToken(
+                    username, 
+                    null, 
+                    Collections.singletonList(new SimpleGrantedAuthority(authority))
+                );
+            
+            authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            SecurityContextHolder.getContext().setAuthentication(authToken);
+            
+            // Add user info to request attributes for easy access (normalized role)
+            request.setAttribute("userId", userId);
+            request.setAttribute("userRole", normalizedRole);
+            
+            logger.info("Authentication set in SecurityContext for user: {}, role: {}, authority: {}", 
+                username, normalizedRole, authority);
         } else if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
             logger.warn("JWT Filter: Authorization header present but username extraction failed");
             invalidToken = true;
@@ -4,8 +4,11 @@ import com.evdealer.dto.LoginRequest;
 import com.evdealer.dto.LoginResponse;
 import com.evdealer.dto.RegistrationRequest;
 import com.evdealer.entity.User;
+import com.evdealer.service.PasswordHashingService;
 import com.evdealer.service.UserService;
 import com.evdealer.util.JwtUtil;
+import com.evdealer.util.VerifiedToken;
+import io.jsonwebtoken.JwtException;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -14,15 +17,18 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -37,10 +43,9 @@ public class AuthController {
     private JwtUtil jwtUtil;
     
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
     
     @PostMapping("/login")
-    @Transactional
     @Operation(summary = "Đăng nhập người dùng", description = "Xác thực và trả về token JWT")
     @ApiResponses(value = {
         @ApiResponse(
@@ -67,6 +72,14 @@ public class AuthController {
                 schema = @Schema(example = "{\"error\": \"Invalid request data\"}")
             )
         ),
+        @ApiResponse(
+            responseCode = "503", 
+            description = "Hệ thống đang quá tải xử lý đăng nhập, thử lại sau Retry-After giây",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(example = "{\"error\": \"Login service is busy, please retry later\"}")
+            )
+        ),
         @ApiResponse(
             responseCode = "500", 
             description = "Lỗi máy chủ nội bộ",
@@ -76,18 +89,15 @@ public class AuthController {
             )
         )
     })
-    public ResponseEntity<?> login(@Valid @RequestBody LoginRequest loginRequest) {
+    public CompletableFuture<ResponseEntity<?>> login(@Valid @RequestBody LoginRequest loginRequest) {
         try {
-            // Find user by username or email
-            Optional<User> userOpt = userService.getUserByUsername(loginRequest.getUsername());
-            if (userOpt.isEmpty()) {
-                userOpt = userService.getUserByEmail(loginRequest.getUsername());
-            }
+            // Find user by username or email (single query)
+            Optional<User> userOpt = userService.getUserByUsernameOrEmail(loginRequest.getUsername());
             
             if (userOpt.isEmpty()) {
                 Map<String, String> error = new HashMap<>();
                 error.put("error", "Invalid username or password");
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
+                return completed(ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error));
             }
             
             User user = userOpt.get();
@@ -96,35 +106,55 @@ public class AuthController {
             if (!user.getIsActive()) {
                 Map<String, String> error = new HashMap<>();
                 error.put("error", "Account is deactivated");
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
+                return completed(ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error));
             }
             
-            // Verify password
-            if (!passwordEncoder.matches(loginRequest.getPassword(), user.getPasswordHash())) {
-                Map<String, String> error = new HashMap<>();
-                error.put("error", "Invalid username or password");
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
-            }
-            
-            // Generate JWT token
-            String role = user.getUserType() != null ? user.getUserType().toString() : "USER";
-            String token = jwtUtil.generateToken(user.getUsername(), role, user.getUserId().toString());
-            
-            // Create login response
-            LoginResponse response = new LoginResponse();
-            response.setAccessToken(token);
-            response.setExpiresIn(jwtUtil.getExpirationTime());
-            response.setUserId(user.getUserId().toString());
-            response.setUsername(user.getUsername());
-            response.setRole(role);
-            
-            return ResponseEntity.ok(response);
-            
+            // Verify password trên hashing pool riêng; request thread được trả về Tomcat trong lúc chờ BCrypt
+            return passwordHashingService.matchesAsync(loginRequest.getPassword(), user.getPasswordHash())
+                .handle((matched, error) -> error != null ? loginFailure(error) : loginResult(user, matched));
         } catch (Exception e) {
+            return completed(loginFailure(e));
+        }
+    }
+    
+    private ResponseEntity<?> loginResult(User user, boolean passwordMatches) {
+        if (!passwordMatches) {
             Map<String, String> error = new HashMap<>();
-            error.put("error", "Login failed: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+            error.put("error", "Invalid username or password");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
+        }
+        
+        // Generate JWT token
+        String role = user.getUserType() != null ? user.getUserType().toString() : "USER";
+        String token = jwtUtil.generateToken(user.getUsername(), role, user.getUserId().toString());
+        
+        // Create login response
+        LoginResponse response = new LoginResponse();
+        response.setAccessToken(token);
+        response.setExpiresIn(jwtUtil.getExpirationTime());
+        response.setUserId(user.getUserId().toString());
+        response.setUsername(user.getUsername());
+        response.setRole(role);
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    private ResponseEntity<?> loginFailure(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof RejectedExecutionException) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Login service is busy, please retry later");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(passwordHashingService.getRetryAfterSeconds()))
+                .body(error);
         }
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "Login failed: " + cause.getMessage());
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+    }
+    
+    private static CompletableFuture<ResponseEntity<?>> completed(ResponseEntity<?> response) {
+        return CompletableFuture.completedFuture(response);
     }
     
     @PostMapping("/register")
@@ -228,19 +258,18 @@ public class AuthController {
             
             String token = authHeader.substring(7);
             
-            if (jwtUtil.validateToken(token)) {
-                Map<String, Object> response = new HashMap<>();
-                response.put("valid", true);
-                response.put("username", jwtUtil.extractUsername(token));
-                response.put("role", jwtUtil.getRoleFromToken(token));
-                response.put("userId", jwtUtil.getUserIdFromToken(token));
-                return ResponseEntity.ok(response);
-            } else {
-                Map<String, String> error = new HashMap<>();
-                error.put("error", "Invalid or expired token");
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
-            }
+            VerifiedToken verifiedToken = jwtUtil.verify(token);
+            Map<String, Object> response = new HashMap<>();
+            response.put("valid", true);
+            response.put("username", verifiedToken.getUsername());
+            response.put("role", verifiedToken.getRole());
+            response.put("userId", verifiedToken.getUserId());
+            return ResponseEntity.ok(response);
             
+        } catch (JwtException | IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Invalid or expired token");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Token validation failed: " + e.getMessage());
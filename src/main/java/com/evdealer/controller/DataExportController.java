@@ -1,16 +1,28 @@
 package com.evdealer.controller;
 
+import com.evdealer.entity.User;
+import com.evdealer.enums.ExportMode;
+import com.evdealer.enums.StatisticsMode;
 import com.evdealer.service.DataExportService;
+import com.evdealer.service.DataExportStreamService;
 import com.evdealer.util.SecurityUtils;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/data-export")
@@ -21,6 +33,9 @@ public class DataExportController {
     @Autowired
     private DataExportService dataExportService;
     
+    @Autowired
+    private DataExportStreamService dataExportStreamService;
+    
     @Autowired
     private SecurityUtils securityUtils;
     
@@ -58,9 +73,128 @@ public class DataExportController {
         }
     }
     
+    @GetMapping(value = "/stream", produces = "application/x-ndjson")
+    @Operation(summary = "Export toàn bộ dữ liệu (NDJSON)", description = "Stream toàn bộ dữ liệu dạng NDJSON (mỗi dòng một record). Đọc từng bảng bằng cursor nên bộ nhớ server không tăng theo kích thước dữ liệu. Quan hệ tới entity khác được ghi dưới dạng id. Mọi bảng đọc trên cùng một snapshot; parallel=true (mặc định) đọc nhiều bảng song song. Dòng cuối (manifest) chứa số dòng và thời gian đọc từng bảng.")
+    public ResponseEntity<?> streamAllData(
+            @RequestParam(value = "parallel", defaultValue = "true") boolean parallel) {
+        try {
+            // Kiểm tra authentication
+            if (!securityUtils.getCurrentUser().isPresent()) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Authentication required");
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
+            }
+            
+            // Chỉ ADMIN mới có thể export toàn bộ dữ liệu
+            if (!securityUtils.isAdmin()) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Access denied. Only admin can export all data");
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(error);
+            }
+            
+            if (!dataExportStreamService.tryAcquireSlot()) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Too many exports in progress, please retry later");
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(error);
+            }
+            
+            StreamingResponseBody body = out -> {
+                try {
+                    dataExportStreamService.exportAll(out, parallel);
+                } finally {
+                    dataExportStreamService.releaseSlot();
+                }
+            };
+            String fileName = "ev-dealer-export-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".ndjson";
+            return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Failed to export data: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+    
+    @GetMapping(value = "/archive", produces = "application/zip")
+    @Operation(summary = "Export archive (zip)", description = "Archive zip gồm mỗi entity một file NDJSON và manifest.json (số dòng, SHA-256). mode=full|delta; delta chỉ lấy dòng có updatedAt/createdAt sau since (mặc định: watermark của lần export gần nhất). Mọi bảng đọc trên cùng một snapshot.")
+    public ResponseEntity<?> exportArchive(
+            @RequestParam(value = "mode", defaultValue = "full") String mode,
+            @RequestParam(value = "since", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+            @RequestParam(value = "parallel", defaultValue = "true") boolean parallel) {
+        try {
+            // Kiểm tra authentication
+            Optional<User> currentUser = securityUtils.getCurrentUser();
+            if (!currentUser.isPresent()) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Authentication required");
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
+            }
+            
+            // Chỉ ADMIN mới có thể export toàn bộ dữ liệu
+            if (!securityUtils.isAdmin()) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Access denied. Only admin can export all data");
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(error);
+            }
+            
+            ExportMode exportMode = ExportMode.fromString(mode);
+            LocalDateTime deltaSince = exportMode == ExportMode.DELTA ? dataExportStreamService.resolveDeltaSince(since) : null;
+            UUID userId = currentUser.get().getUserId();
+            
+            if (!dataExportStreamService.tryAcquireSlot()) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Too many exports in progress, please retry later");
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(error);
+            }
+            
+            StreamingResponseBody body = out -> {
+                try {
+                    dataExportStreamService.exportArchive(out, exportMode, deltaSince, parallel, userId);
+                } finally {
+                    dataExportStreamService.releaseSlot();
+                }
+            };
+            String fileName = "ev-dealer-export-" + exportMode.getValue() + "-"
+                + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".zip";
+            return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .body(body);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Failed to export data: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+    
+    @GetMapping("/runs")
+    @Operation(summary = "Lịch sử export archive", description = "Các lần export archive đã hoàn tất gần nhất (watermark dùng làm mốc cho delta)")
+    public ResponseEntity<?> getExportRuns() {
+        try {
+            if (!securityUtils.isAdmin()) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Access denied. Only admin can view export history");
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(error);
+            }
+            return ResponseEntity.ok(dataExportStreamService.getRecentRuns());
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Failed to retrieve export history: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+    
     @GetMapping("/statistics")
-    @Operation(summary = "Thống kê dữ liệu", description = "Thống kê số lượng records cho từng entity và phân loại entities có dữ liệu vs entities rỗng")
-    public ResponseEntity<?> getDataStatistics() {
+    @Operation(summary = "Thống kê dữ liệu", description = "Thống kê số lượng records cho từng entity và phân loại entities có dữ liệu vs entities rỗng. mode=exact (mặc định, COUNT song song có timeout) hoặc estimated (ước lượng từ catalog PostgreSQL kèm kích thước bảng, không quét bảng). Kết quả được cache ngắn hạn; refresh=true để tính lại.")
+    public ResponseEntity<?> getDataStatistics(
+            @RequestParam(value = "mode", defaultValue = "exact") String mode,
+            @RequestParam(value = "refresh", defaultValue = "false") boolean refresh) {
         try {
             // Kiểm tra authentication
             if (!securityUtils.getCurrentUser().isPresent()) {
@@ -76,7 +210,7 @@ public class DataExportController {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).body(error);
             }
             
-            Map<String, Object> statistics = dataExportService.getDataStatistics();
+            Map<String, Object> statistics = dataExportService.getDataStatistics(StatisticsMode.fromString(mode), refresh);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -84,6 +218,10 @@ public class DataExportController {
             response.putAll(statistics);
             
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Failed to get statistics: " + e.getMessage());
@@ -92,7 +230,7 @@ public class DataExportController {
     }
     
     @DeleteMapping("/delete-all")
-    @Operation(summary = "Xóa toàn bộ dữ liệu", description = "Xóa tất cả dữ liệu từ tất cả các bảng trong database. Chỉ giữ lại tài khoản admin (username: admin). Xóa theo thứ tự đúng để tránh lỗi foreign key constraint.")
+    @Operation(summary = "Xóa toàn bộ dữ liệu", description = "Xóa tất cả dữ liệu từ tất cả các bảng trong database. Chỉ giữ lại tài khoản admin (username: admin). Thứ tự xóa lấy từ quan hệ khóa ngoại; các bảng xóa được bằng TRUNCATE (số dòng trong truncatedEntities là ước lượng), còn lại bằng DELETE, tất cả trong một transaction.")
     public ResponseEntity<?> deleteAllData() {
         try {
             // Kiểm tra authentication
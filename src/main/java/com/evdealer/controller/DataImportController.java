@@ -0,0 +1,109 @@
+package com.evdealer.controller;
+
+import com.evdealer.enums.ImportMode;
+import com.evdealer.service.DataImportService;
+import com.evdealer.util.SecurityUtils;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/data-import")
+@CrossOrigin(origins = "*")
+@Tag(name = "Data Import", description = "APIs để nạp lại dữ liệu từ export archive")
+public class DataImportController {
+
+    @Autowired
+    private DataImportService dataImportService;
+
+    @Autowired
+    private SecurityUtils securityUtils;
+
+    @PostMapping(consumes = {MediaType.MULTIPART_FORM_DATA_VALUE, MediaType.APPLICATION_FORM_URLENCODED_VALUE})
+    @Operation(summary = "Import export archive", description = "Nạp archive zip (GET /api/data-export/archive) bằng PostgreSQL COPY, theo thứ tự khóa ngoại, trong một transaction. Upload file hoặc chỉ định tên file nằm trong app.import.dir (cho archive lớn). mode=insert|upsert|replace; disableTriggers=true tắt trigger/kiểm tra khóa ngoại khi nạp (cần quyền superuser). Sau khi import các bảng báo cáo dẫn xuất được dựng lại.")
+    public ResponseEntity<?> importArchive(
+            @Parameter(description = "File archive zip") @RequestParam(value = "file", required = false) MultipartFile file,
+            @Parameter(description = "Tên file archive trong app.import.dir") @RequestParam(value = "archive", required = false) String archive,
+            @RequestParam(value = "mode", defaultValue = "insert") String mode,
+            @RequestParam(value = "disableTriggers", defaultValue = "false") boolean disableTriggers,
+            @Parameter(description = "Chỉ import các entity này (mặc định: tất cả entity trong archive)") @RequestParam(value = "entities", required = false) List<String> entities) {
+        Path uploaded = null;
+        boolean slotAcquired = false;
+        try {
+            // Kiểm tra authentication
+            if (!securityUtils.getCurrentUser().isPresent()) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Authentication required");
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
+            }
+
+            // Chỉ ADMIN mới có thể import dữ liệu
+            if (!securityUtils.isAdmin()) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Access denied. Only admin can import data");
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(error);
+            }
+
+            ImportMode importMode = ImportMode.fromString(mode);
+            boolean hasFile = file != null && !file.isEmpty();
+            boolean hasArchive = archive != null && !archive.trim().isEmpty();
+            if (hasFile == hasArchive) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Provide either an uploaded file or an archive name");
+                return ResponseEntity.badRequest().body(error);
+            }
+            Path path = hasArchive ? dataImportService.resolveArchive(archive.trim()) : null;
+
+            if (!dataImportService.tryAcquireSlot()) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Another import is in progress, please retry later");
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+            }
+            slotAcquired = true;
+
+            if (hasFile) {
+                uploaded = Files.createTempFile("ev-dealer-import-", ".zip");
+                file.transferTo(uploaded);
+                path = uploaded;
+            }
+
+            Map<String, Object> result = dataImportService.importArchive(path, importMode, disableTriggers, entities);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("timestamp", java.time.LocalDateTime.now());
+            response.put("result", result);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Failed to import data: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        } finally {
+            if (slotAcquired) {
+                dataImportService.releaseSlot();
+            }
+            if (uploaded != null) {
+                try {
+                    Files.deleteIfExists(uploaded);
+                } catch (Exception ignored) {
+                    // File tạm sẽ được hệ điều hành dọn
+                }
+            }
+        }
+    }
+}
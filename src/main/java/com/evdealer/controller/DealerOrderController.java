@@ -2,10 +2,12 @@ package com.evdealer.controller;
 
 import com.evdealer.dto.CreateDealerOrderRequest;
 import com.evdealer.dto.CreateDealerOrderResponse;
+import com.evdealer.dto.DealerOrderAllocationDTO;
 import com.evdealer.entity.DealerOrder;
 import com.evdealer.entity.DealerOrderItem;
 import com.evdealer.enums.ApprovalStatus;
 import com.evdealer.enums.DealerOrderStatus;
+import com.evdealer.service.DealerOrderAllocationService;
 import com.evdealer.service.DealerOrderService;
 import com.evdealer.service.DealerOrderItemService;
 import com.evdealer.util.SecurityUtils;
@@ -53,6 +55,9 @@ public class DealerOrderController {
     @Autowired
     private DealerService dealerService;
     
+    @Autowired
+    private DealerOrderAllocationService dealerOrderAllocationService;
+    
     @GetMapping
     @Operation(summary = "Lấy danh sách đơn hàng đại lý", description = "Lấy tất cả đơn hàng đại lý")
     public ResponseEntity<?> getAllDealerOrders() {
@@ -775,6 +780,70 @@ public class DealerOrderController {
         }
     }
     
+    @PostMapping("/{dealerOrderId}/allocate")
+    @Operation(summary = "Phân bổ xe trong kho cho đơn hàng", description = "Giữ chỗ xe AVAILABLE (theo variant, màu) cho các dòng chưa đủ của đơn hàng đại lý, mỗi dòng một câu lệnh (FOR UPDATE SKIP LOCKED). Có thể ưu tiên một kho; kết quả báo số xe thiếu của từng dòng (phân bổ một phần). allowPartial=false: không đủ xe thì không phân bổ gì (409).")
+    public ResponseEntity<?> allocateInventory(
+            @PathVariable UUID dealerOrderId,
+            @RequestParam(required = false) @Parameter(description = "Kho ưu tiên lấy xe trước") UUID preferredWarehouseId,
+            @RequestParam(defaultValue = "true") @Parameter(description = "Cho phép phân bổ một phần") boolean allowPartial) {
+        try {
+            // Kiểm tra authentication
+            if (!securityUtils.getCurrentUser().isPresent()) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Authentication required");
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
+            }
+            
+            // Kiểm tra phân quyền: Chỉ EVM_STAFF hoặc ADMIN có thể phân bổ xe
+            if (!securityUtils.hasAnyRole("EVM_STAFF", "ADMIN")) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Access denied. Only EVM staff or admin can allocate inventory");
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(error);
+            }
+            
+            DealerOrderAllocationDTO result = dealerOrderAllocationService.allocate(dealerOrderId, preferredWarehouseId, allowPartial);
+            return ResponseEntity.ok(result);
+        } catch (IllegalStateException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Failed to allocate inventory: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+    }
+    
+    @PostMapping("/{dealerOrderId}/allocation/release")
+    @Operation(summary = "Trả xe đã phân bổ", description = "Trả các xe đã phân bổ (còn RESERVED) của đơn hàng đại lý về AVAILABLE")
+    public ResponseEntity<?> releaseInventoryAllocation(@PathVariable UUID dealerOrderId) {
+        try {
+            // Kiểm tra authentication
+            if (!securityUtils.getCurrentUser().isPresent()) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Authentication required");
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
+            }
+            
+            // Kiểm tra phân quyền: Chỉ EVM_STAFF hoặc ADMIN có thể trả xe đã phân bổ
+            if (!securityUtils.hasAnyRole("EVM_STAFF", "ADMIN")) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Access denied. Only EVM staff or admin can release allocated inventory");
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(error);
+            }
+            
+            int released = dealerOrderAllocationService.releaseAllocation(dealerOrderId);
+            Map<String, Object> response = new HashMap<>();
+            response.put("dealerOrderId", dealerOrderId);
+            response.put("released", released);
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Failed to release allocated inventory: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+    }
+    
     @GetMapping("/{dealerOrderId}/summary")
     @Operation(summary = "Lấy tóm tắt đơn hàng", description = "Lấy thông tin tóm tắt đơn hàng đại lý")
     public ResponseEntity<?> getDealerOrderSummary(@PathVariable UUID dealerOrderId) {
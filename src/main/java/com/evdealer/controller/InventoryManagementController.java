@@ -2,6 +2,8 @@ package com.evdealer.controller;
 
 import com.evdealer.entity.VehicleInventory;
 import com.evdealer.enums.VehicleStatus;
+import com.evdealer.service.InventorySearchService;
+import com.evdealer.service.InventoryStatusCounterService;
 import com.evdealer.service.VehicleInventoryService;
 import com.evdealer.util.SecurityUtils;
 import io.swagger.v3.oas.annotations.Operation;
@@ -12,7 +14,9 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import com.evdealer.dto.InventoryStatusCountsDTO;
 import com.evdealer.dto.VehicleInventoryRequest;
+import com.evdealer.dto.VinSuggestionDTO;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.HashMap;
@@ -32,6 +36,12 @@ public class InventoryManagementController {
     @Autowired
     private SecurityUtils securityUtils;
     
+    @Autowired
+    private InventoryStatusCounterService inventoryStatusCounterService;
+    
+    @Autowired
+    private InventorySearchService inventorySearchService;
+    
     private Map<String, Object> inventoryToMap(VehicleInventory inventory) {
         Map<String, Object> map = new HashMap<>();
         if (inventory == null) {
@@ -563,48 +573,65 @@ public class InventoryManagementController {
     }
 
     @GetMapping("/search")
-    @Operation(summary = "Search inventory", description = "Search for inventory by VIN, chassis number, or other criteria")
+    @Operation(summary = "Search inventory", description = "Search for inventory by partial VIN, chassis number or license plate. Results are ranked: exact match, then prefix match, then contains; VIN matches before chassis number before license plate.")
     public ResponseEntity<?> searchInventory(
-            @RequestParam @Parameter(description = "Search keyword", example = "1HGBH41JXMN109186") String keyword) {
-        List<VehicleInventory> inventory = vehicleInventoryService.searchByVin(keyword);
-        List<Map<String, Object>> inventoryList = inventory.stream()
-                .map(this::inventoryToMap)
-                .collect(java.util.stream.Collectors.toList());
-        return ResponseEntity.ok(inventoryList);
+            @RequestParam @Parameter(description = "Search keyword", example = "1HGBH41JXMN109186") String keyword,
+            @RequestParam(required = false) @Parameter(description = "Maximum number of results (default 50, max 200)") Integer limit) {
+        try {
+            List<VehicleInventory> inventory = inventorySearchService.search(keyword, limit);
+            List<Map<String, Object>> inventoryList = inventory.stream()
+                    .map(this::inventoryToMap)
+                    .collect(java.util.stream.Collectors.toList());
+            return ResponseEntity.ok(inventoryList);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+    }
+    
+    @GetMapping("/search/typeahead")
+    @Operation(summary = "VIN typeahead", description = "Lightweight VIN suggestions while typing: returns only inventoryId and VIN, VINs starting with the keyword first")
+    public ResponseEntity<?> typeaheadVin(
+            @RequestParam @Parameter(description = "Partial VIN", example = "1HGBH") String q,
+            @RequestParam(required = false) @Parameter(description = "Maximum number of suggestions (default 10, max 50)") Integer limit) {
+        try {
+            List<VinSuggestionDTO> suggestions = inventorySearchService.suggestVins(q, limit);
+            return ResponseEntity.ok(suggestions);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
     }
 
     @GetMapping("/statuses")
     @Operation(summary = "Get all available statuses", description = "Retrieve all unique statuses used in vehicle inventory")
     public ResponseEntity<List<String>> getAllStatuses() {
-        List<VehicleInventory> allInventory = vehicleInventoryService.getAllVehicleInventory();
-        List<String> statuses = allInventory.stream()
-                .map(inv -> inv.getStatus() != null ? inv.getStatus().getValue() : null)
-                .filter(status -> status != null)
-                .distinct()
-                .sorted()
-                .collect(java.util.stream.Collectors.toList());
+        List<String> statuses = new java.util.ArrayList<>(inventoryStatusCounterService.getCounts().getStatusCounts().keySet());
         return ResponseEntity.ok(statuses);
     }
     
     @GetMapping("/status-summary")
     @Operation(summary = "Get status summary", description = "Get count of vehicles for each status")
     public ResponseEntity<Map<String, Object>> getStatusSummary() {
-        List<VehicleInventory> allInventory = vehicleInventoryService.getAllVehicleInventory();
-        Map<String, Long> statusCounts = allInventory.stream()
-                .filter(inv -> inv.getStatus() != null)
-                .collect(java.util.stream.Collectors.groupingBy(
-                    inv -> inv.getStatus().getValue(),
-                    java.util.stream.Collectors.counting()
-                ));
+        InventoryStatusCountsDTO counts = inventoryStatusCounterService.getCounts();
+        Map<String, Long> statusCounts = counts.getStatusCounts();
         
         Map<String, Object> summary = new HashMap<>();
-        summary.put("totalVehicles", allInventory.size());
+        summary.put("totalVehicles", counts.getTotalVehicles());
         summary.put("statusCounts", statusCounts);
-        summary.put("availableStatuses", statusCounts.keySet().stream().sorted().collect(java.util.stream.Collectors.toList()));
+        summary.put("availableStatuses", new java.util.ArrayList<>(statusCounts.keySet()));
         
         return ResponseEntity.ok(summary);
     }
     
+    @GetMapping("/status-counts")
+    @Operation(summary = "Get status counts breakdown", description = "Số xe theo trạng thái: tổng, theo warehouse, theo variant và theo dealer giữ chỗ")
+    public ResponseEntity<InventoryStatusCountsDTO> getStatusCounts() {
+        return ResponseEntity.ok(inventoryStatusCounterService.getCounts());
+    }
+    
     @PostMapping("/normalize-statuses")
     @Operation(summary = "Normalize all status values", description = "Fix case sensitivity and normalize all existing status values in the database")
     public ResponseEntity<Map<String, Object>> normalizeAllStatuses() {
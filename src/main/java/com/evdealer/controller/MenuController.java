@@ -3,13 +3,20 @@ package com.evdealer.controller;
 import com.evdealer.enums.Role;
 import com.evdealer.util.RolePermissionManager;
 import com.evdealer.util.SecurityUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 
 @RestController
@@ -21,6 +28,29 @@ public class MenuController {
     @Autowired
     private SecurityUtils securityUtils;
     
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    // Response JSON đã serialize sẵn theo role (menu và permissions không đổi khi runtime)
+    private final Map<Role, CachedResponse> menuResponses = new EnumMap<>(Role.class);
+    private final Map<Role, CachedResponse> permissionResponses = new EnumMap<>(Role.class);
+    
+    @PostConstruct
+    public void init() throws JsonProcessingException {
+        for (Role role : Role.values()) {
+            Map<String, Object> menu = new LinkedHashMap<>();
+            menu.put("role", role.getValue());
+            menu.put("menuItems", getMenuItemsByRole(role));
+            menu.put("permissions", RolePermissionManager.getPermissionMap(role));
+            menuResponses.put(role, new CachedResponse(objectMapper.writeValueAsBytes(menu)));
+            
+            Map<String, Object> permissions = new LinkedHashMap<>();
+            permissions.put("role", role.getValue());
+            permissions.put("permissions", RolePermissionManager.getPermissionMap(role));
+            permissionResponses.put(role, new CachedResponse(objectMapper.writeValueAsBytes(permissions)));
+        }
+    }
+    
     @GetMapping
     @Operation(summary = "Lấy menu items theo role", description = "Trả về danh sách menu items dựa trên role của user hiện tại")
     public ResponseEntity<?> getMenuItems() {
@@ -40,15 +70,7 @@ public class MenuController {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).body(error);
             }
             
-            Role role = roleOpt.get();
-            List<Map<String, Object>> menuItems = getMenuItemsByRole(role);
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("role", role.getValue());
-            response.put("menuItems", menuItems);
-            response.put("permissions", getPermissionsByRole(role));
-            
-            return ResponseEntity.ok(response);
+            return menuResponses.get(roleOpt.get()).toResponseEntity();
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Failed to get menu items: " + e.getMessage());
@@ -75,14 +97,7 @@ public class MenuController {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).body(error);
             }
             
-            Role role = roleOpt.get();
-            Map<String, List<String>> permissions = getPermissionsByRole(role);
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("role", role.getValue());
-            response.put("permissions", permissions);
-            
-            return ResponseEntity.ok(response);
+            return permissionResponses.get(roleOpt.get()).toResponseEntity();
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Failed to get permissions: " + e.getMessage());
@@ -119,21 +134,6 @@ public class MenuController {
         return menuItems;
     }
     
-    /**
-     * Lấy permissions theo role
-     */
-    private Map<String, List<String>> getPermissionsByRole(Role role) {
-        String permissionsJson = RolePermissionManager.createPermissionsForRole(role.getValue());
-        try {
-            com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
-            com.fasterxml.jackson.databind.type.MapType mapType = com.fasterxml.jackson.databind.type.TypeFactory.defaultInstance()
-                .constructMapType(HashMap.class, String.class, List.class);
-            return mapper.readValue(permissionsJson, mapType);
-        } catch (Exception e) {
-            return new HashMap<>();
-        }
-    }
-    
     /**
      * Menu items cho ADMIN
      */
@@ -340,5 +340,39 @@ public class MenuController {
         item.put("path", path);
         return item;
     }
+    
+    /**
+     * Body JSON đã serialize kèm strong ETag (SHA-256 của body).
+     * Spring MVC tự trả 304 khi If-None-Match khớp ETag.
+     */
+    private static final class CachedResponse {
+        private final byte[] body;
+        private final String etag;
+        
+        private CachedResponse(byte[] body) {
+            this.body = body;
+            this.etag = "\"" + sha256Hex(body) + "\"";
+        }
+        
+        private ResponseEntity<byte[]> toResponseEntity() {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .eTag(etag)
+                    .body(body);
+        }
+        
+        private static String sha256Hex(byte[] bytes) {
+            try {
+                byte[] hash = MessageDigest.getInstance("SHA-256").digest(bytes);
+                StringBuilder sb = new StringBuilder(hash.length * 2);
+                for (byte b : hash) {
+                    sb.append(String.format("%02x", b));
+                }
+                return sb.toString();
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+    }
 }
-
@@ -64,6 +64,24 @@ public class OrderController {
         }
     }
     
+    @GetMapping("/cursor")
+    @Operation(summary = "Lấy đơn hàng theo cursor", description = "Phân trang keyset theo orderDate giảm dần. Params: cursor (nextCursor của trang trước), size (tối đa 200)")
+    public ResponseEntity<?> getOrdersByCursor(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(orderService.getOrdersPage(cursor, size, this::toDTO));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Failed to retrieve orders: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+    
     @GetMapping("/{orderId}")
     @Operation(summary = "Lấy đơn hàng theo ID", description = "Lấy thông tin đơn hàng theo ID")
     public ResponseEntity<?> getOrderById(@PathVariable UUID orderId) {
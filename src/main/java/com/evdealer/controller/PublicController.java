@@ -8,16 +8,19 @@ import com.evdealer.dto.VehicleVariantDTO;
 import com.evdealer.dto.VehicleColorDTO;
 import com.evdealer.dto.VehicleInventoryDTO;
 import com.evdealer.dto.PromotionDTO;
+import com.evdealer.dto.VehicleSearchFilter;
 import com.evdealer.entity.VehicleBrand;
 import com.evdealer.entity.VehicleModel;
 import com.evdealer.entity.VehicleVariant;
 import com.evdealer.entity.VehicleColor;
 import com.evdealer.entity.VehicleInventory;
 import com.evdealer.entity.Promotion;
+import com.evdealer.enums.VehicleSearchSort;
 import com.evdealer.service.VehicleService;
 import com.evdealer.service.VehicleInventoryService;
 import com.evdealer.service.PromotionService;
 import com.evdealer.service.VehicleComparisonService;
+import com.evdealer.service.VehicleSearchService;
 import com.evdealer.util.UrlProcessor;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -26,6 +29,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -50,6 +54,9 @@ public class PublicController {
     @Autowired
     private VehicleComparisonService vehicleComparisonService;
     
+    @Autowired
+    private VehicleSearchService vehicleSearchService;
+    
     @Autowired
     private UrlProcessor urlProcessor;
     
@@ -118,30 +125,33 @@ public class PublicController {
     }
     
     @GetMapping("/search")
-    @Operation(summary = "Tìm kiếm", description = "Tìm kiếm xe theo tiêu chí")
+    @Operation(summary = "Tìm kiếm", description = "Tìm kiếm xe còn hàng theo brand, model, variant, color (nhiều giá trị cách nhau bởi dấu phẩy) và khoảng giá. Kết quả phân trang (page từ 0, size tối đa 100), sort=newest|price_asc|price_desc|name, kèm tổng số và số đếm theo facet (brand, model, variant, color, warehouse, khoảng giá; lấy từ facet index trong bộ nhớ); facets=false để bỏ phần đếm.")
     public ResponseEntity<?> searchVehicles(
             @RequestParam(required = false) String brand,
             @RequestParam(required = false) String model,
             @RequestParam(required = false) String variant,
             @RequestParam(required = false) String color,
             @RequestParam(required = false) Double minPrice,
-            @RequestParam(required = false) Double maxPrice) {
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "" + VehicleSearchService.DEFAULT_PAGE_SIZE) int size,
+            @RequestParam(required = false) String sort,
+            @RequestParam(defaultValue = "true") boolean facets) {
         try {
-            // Validate price range if both provided
-            if (minPrice != null && maxPrice != null && minPrice > maxPrice) {
-                Map<String, String> error = new HashMap<>();
-                error.put("error", "minPrice cannot be greater than maxPrice");
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
-            }
-            
-            Map<String, Object> searchResults = new HashMap<>();
-            
-            // Get all available inventory
-            List<VehicleInventory> allInventory = vehicleInventoryService.getInventoryByStatus("available");
-            searchResults.put("results", allInventory.stream().map(this::toInventoryDTO).toList());
-            searchResults.put("totalCount", allInventory.size());
+            VehicleSearchFilter filter = new VehicleSearchFilter();
+            filter.setBrands(VehicleSearchFilter.parseValues(brand));
+            filter.setModels(VehicleSearchFilter.parseValues(model));
+            filter.setVariants(VehicleSearchFilter.parseValues(variant));
+            filter.setColors(VehicleSearchFilter.parseValues(color));
+            filter.setMinPrice(minPrice != null ? BigDecimal.valueOf(minPrice) : null);
+            filter.setMaxPrice(maxPrice != null ? BigDecimal.valueOf(maxPrice) : null);
             
-            return ResponseEntity.ok(searchResults);
+            return ResponseEntity.ok(vehicleSearchService.search(filter, page, size,
+                    VehicleSearchSort.fromString(sort), facets, this::toInventoryDTO));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Failed to search vehicles: " + e.getMessage());
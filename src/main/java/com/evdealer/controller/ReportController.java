@@ -1,7 +1,13 @@
 package com.evdealer.controller;
 
 import com.evdealer.dto.*;
+import com.evdealer.enums.ReportDataDomain;
+import com.evdealer.enums.SalesCubeDimension;
+import com.evdealer.enums.TimeBucket;
 import com.evdealer.service.ReportService;
+import com.evdealer.service.SalesCubeService;
+import com.evdealer.util.ReportCache;
+import com.evdealer.util.SecurityUtils;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.http.ResponseEntity;
@@ -9,11 +15,21 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import org.springframework.http.HttpStatus;
 
 @RestController
@@ -21,17 +37,40 @@ import org.springframework.http.HttpStatus;
 @CrossOrigin(origins = "*")
 @Tag(name = "Report Management", description = "APIs for generating reports")
 public class ReportController {
+    // Nhóm dữ liệu nguồn của từng loại báo cáo (dùng để invalidate report cache)
+    private static final Set<ReportDataDomain> SALES_DATA = EnumSet.of(ReportDataDomain.ORDERS, ReportDataDomain.MASTER_DATA);
+    private static final Set<ReportDataDomain> ORDER_DATA = EnumSet.of(ReportDataDomain.ORDERS);
+    private static final Set<ReportDataDomain> DEBT_DATA = EnumSet.of(ReportDataDomain.PAYMENTS, ReportDataDomain.CUSTOMERS, ReportDataDomain.MASTER_DATA);
+    private static final Set<ReportDataDomain> DELIVERY_DATA = EnumSet.of(ReportDataDomain.DELIVERIES, ReportDataDomain.ORDERS, ReportDataDomain.INVENTORY);
+
     private final ReportService reportService;
+    private final SecurityUtils securityUtils;
+    private final ReportCache reportCache;
+    private final SalesCubeService salesCubeService;
 
-    public ReportController(ReportService reportService) {
+    public ReportController(ReportService reportService, SecurityUtils securityUtils, ReportCache reportCache,
+                            SalesCubeService salesCubeService) {
         this.reportService = reportService;
+        this.securityUtils = securityUtils;
+        this.reportCache = reportCache;
+        this.salesCubeService = salesCubeService;
     }
 
     @GetMapping("/sales-by-staff")
-    @Operation(summary = "Get sales by staff report", description = "Generate sales report by staff")
-    public ResponseEntity<?> getSalesByStaffReport() {
+    @Operation(summary = "Get sales by staff report", description = "Generate sales report by staff. Optional filters: startDate, endDate (yyyy-MM-dd), dealerId")
+    public ResponseEntity<?> getSalesByStaffReport(
+            @RequestParam(value = "startDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(value = "endDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(value = "dealerId", required = false) UUID dealerId) {
         try {
-            return ResponseEntity.ok(reportService.getSalesReportByStaff());
+            if (startDate != null && endDate != null && startDate.isAfter(endDate)) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Start date cannot be after end date");
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+            }
+            return ResponseEntity.ok(reportCache.get("sales-by-staff", SALES_DATA,
+                () -> reportService.getSalesReportByStaff(startDate, endDate, dealerId),
+                startDate, endDate, dealerId));
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Failed to retrieve sales by staff report: " + e.getMessage());
@@ -52,10 +91,31 @@ public class ReportController {
     }
     
     @GetMapping("/customer-debt")
-    @Operation(summary = "Get customer debt report", description = "Generate customer debt report")
-    public ResponseEntity<?> getCustomerDebtReport() {
+    @Operation(summary = "Get customer debt report", description = "Generate customer debt report. Optional filters: overdueOnly, minRemaining, maxRemaining. Truyền page/size để lấy kết quả phân trang")
+    public ResponseEntity<?> getCustomerDebtReport(
+            @RequestParam(value = "overdueOnly", defaultValue = "false") boolean overdueOnly,
+            @RequestParam(value = "minRemaining", required = false) BigDecimal minRemaining,
+            @RequestParam(value = "maxRemaining", required = false) BigDecimal maxRemaining,
+            @RequestParam(value = "page", required = false) Integer page,
+            @RequestParam(value = "size", required = false, defaultValue = "50") int size) {
         try {
-            return ResponseEntity.ok(reportService.getCustomerDebtReport());
+            if (minRemaining != null && maxRemaining != null && minRemaining.compareTo(maxRemaining) > 0) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "minRemaining cannot be greater than maxRemaining");
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+            }
+            if (page != null && (page < 0 || size < 1 || size > 500)) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Page must be >= 0 and size between 1 and 500");
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+            }
+            Pageable pageable = page != null ? PageRequest.of(page, size) : Pageable.unpaged();
+            // Quá hạn tính theo ngày: sang ngày mới thì kết quả đã cache không còn đúng dù dữ liệu không đổi
+            LocalDate today = LocalDate.now();
+            return ResponseEntity.ok(reportCache.get("customer-debt", DEBT_DATA, () -> {
+                Page<CustomerDebtItemDTO> result = reportService.getCustomerDebtReport(today, overdueOnly, minRemaining, maxRemaining, pageable);
+                return page != null ? result : result.getContent();
+            }, today, overdueOnly, minRemaining, maxRemaining, page, page != null ? size : null));
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Failed to retrieve customer debt report: " + e.getMessage());
@@ -67,7 +127,7 @@ public class ReportController {
     @Operation(summary = "Get dealer performance report", description = "Dealer performance metrics")
     public ResponseEntity<?> getDealerPerformance() {
         try {
-            return ResponseEntity.ok(reportService.getDealerPerformanceReport());
+            return ResponseEntity.ok(reportCache.get("dealer-performance", SALES_DATA, reportService::getDealerPerformanceReport));
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Failed to retrieve dealer performance report: " + e.getMessage());
@@ -75,11 +135,45 @@ public class ReportController {
         }
     }
     
+    @PostMapping("/dealer-performance/rebuild")
+    @Operation(summary = "Rebuild dealer sales rollup", description = "Dựng lại bảng tổng hợp doanh số dealer theo tháng từ toàn bộ orders (chỉ ADMIN)")
+    public ResponseEntity<?> rebuildDealerSalesRollup() {
+        try {
+            if (!securityUtils.isAdmin()) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Access denied. Only admin can rebuild report data");
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(error);
+            }
+            
+            int buckets = reportService.rebuildDealerSalesRollup();
+            reportCache.invalidate(ReportDataDomain.ORDERS);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("buckets", buckets);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Failed to rebuild dealer sales rollup: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+    
     @GetMapping("/sales-by-role/{role}")
-    @Operation(summary = "Get sales by role", description = "Sales aggregated by user role")
-    public ResponseEntity<?> getSalesByRole(@PathVariable("role") String role) {
+    @Operation(summary = "Get sales by role", description = "Sales aggregated by user role. Optional filters: startDate, endDate (yyyy-MM-dd), dealerId")
+    public ResponseEntity<?> getSalesByRole(
+            @PathVariable("role") String role,
+            @RequestParam(value = "startDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(value = "endDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(value = "dealerId", required = false) UUID dealerId) {
         try {
-            return ResponseEntity.ok(reportService.getSalesReportByRole(role));
+            if (startDate != null && endDate != null && startDate.isAfter(endDate)) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Start date cannot be after end date");
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+            }
+            return ResponseEntity.ok(reportCache.get("sales-by-role", SALES_DATA,
+                () -> reportService.getSalesReportByRole(role, startDate, endDate, dealerId),
+                role, startDate, endDate, dealerId));
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Failed to retrieve sales by role report: " + e.getMessage());
@@ -92,7 +186,8 @@ public class ReportController {
     public ResponseEntity<?> getAllDeliveries() {
         try {
             // keeping entity-list for all deliveries would be heavy; here we align to DTO list by status/date instead
-            return ResponseEntity.ok(reportService.getDeliveriesByStatus("SCHEDULED"));
+            return ResponseEntity.ok(reportCache.get("deliveries-by-status", DELIVERY_DATA,
+                () -> reportService.getDeliveriesByStatus("SCHEDULED"), "SCHEDULED"));
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Failed to retrieve deliveries: " + e.getMessage());
@@ -104,7 +199,8 @@ public class ReportController {
     @Operation(summary = "Get deliveries by status", description = "Filter deliveries by status")
     public ResponseEntity<?> getDeliveriesByStatus(@PathVariable("status") String status) {
         try {
-            return ResponseEntity.ok(reportService.getDeliveriesByStatus(status));
+            return ResponseEntity.ok(reportCache.get("deliveries-by-status", DELIVERY_DATA,
+                () -> reportService.getDeliveriesByStatus(status), status));
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Failed to retrieve deliveries: " + e.getMessage());
@@ -125,7 +221,8 @@ public class ReportController {
                 error.put("providedDate", date);
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
             }
-            return ResponseEntity.ok(reportService.getDeliveriesByDate(parsedDate));
+            return ResponseEntity.ok(reportCache.get("deliveries-by-date", DELIVERY_DATA,
+                () -> reportService.getDeliveriesByDate(parsedDate), parsedDate));
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Failed to retrieve deliveries: " + e.getMessage());
@@ -134,25 +231,28 @@ public class ReportController {
     }
     
     @GetMapping("/monthly-sales")
-    @Operation(summary = "Get monthly sales report", description = "Monthly sales summary")
+    @Operation(summary = "Get monthly sales report", description = "Monthly sales summary. Không truyền year/month = tháng hiện tại")
     public ResponseEntity<?> getMonthlySales(
-            @RequestParam("year") Integer year,
-            @RequestParam("month") Integer month) {
+            @RequestParam(value = "year", required = false) Integer year,
+            @RequestParam(value = "month", required = false) Integer month) {
         try {
             // Validate year and month
-            if (year == null || year <= 0) {
+            if (year != null && year <= 0) {
                 Map<String, String> error = new HashMap<>();
                 error.put("error", "Year must be a positive integer");
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
             }
             
-            if (month == null || month < 1 || month > 12) {
+            if (month != null && (month < 1 || month > 12)) {
                 Map<String, String> error = new HashMap<>();
                 error.put("error", "Month must be between 1 and 12");
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
             }
             
-            return ResponseEntity.ok(reportService.getMonthlySalesSummary(year, month));
+            // "Tháng hiện tại" được chuẩn hóa thành tháng cụ thể nên key tự đổi khi sang tháng mới
+            YearMonth period = ReportCache.monthBucket(year, month);
+            return ResponseEntity.ok(reportCache.get("monthly-sales", ORDER_DATA,
+                () -> reportService.getMonthlySalesSummary(period.getYear(), period.getMonthValue()), period));
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Failed to retrieve monthly sales report: " + e.getMessage());
@@ -160,6 +260,152 @@ public class ReportController {
         }
     }
 
+    @GetMapping("/sales-timeseries")
+    @Operation(summary = "Get sales time series", description = "Số order, doanh thu và tiền cọc theo ngày/tuần/tháng/quý trong khoảng [from, to]. Optional filters: dealerId, variantId")
+    public ResponseEntity<?> getSalesTimeSeries(
+            @RequestParam(value = "granularity", defaultValue = "day") String granularity,
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "dealerId", required = false) UUID dealerId,
+            @RequestParam(value = "variantId", required = false) UUID variantId) {
+        try {
+            if (from.isAfter(to)) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "From date cannot be after to date");
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+            }
+            TimeBucket bucket = TimeBucket.fromString(granularity);
+            return ResponseEntity.ok(reportCache.get("sales-timeseries", ORDER_DATA,
+                () -> reportService.getSalesTimeSeries(bucket, from, to, dealerId, variantId),
+                bucket, from, to, dealerId, variantId));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Failed to retrieve sales time series: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+    
+    @PostMapping("/sales-timeseries/backfill")
+    @Operation(summary = "Backfill daily sales fact", description = "Dựng lại bảng daily_sales_fact từ orders theo từng đoạn ngày (chỉ ADMIN). Không truyền from/to = toàn bộ lịch sử")
+    public ResponseEntity<?> backfillDailySalesFact(
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            if (!securityUtils.isAdmin()) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Access denied. Only admin can rebuild report data");
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(error);
+            }
+            if ((from == null) != (to == null) || (from != null && from.isAfter(to))) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Both from and to must be provided, with from not after to");
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+            }
+            
+            int buckets = reportService.backfillDailySalesFact(from, to);
+            reportCache.invalidate(ReportDataDomain.ORDERS);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("buckets", buckets);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Failed to backfill daily sales fact: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+
+    @GetMapping("/cube")
+    @Operation(summary = "Query sales cube", description = "Group-by tùy ý (tối đa 3 chiều: dealer, staff, variant, model, brand, status, day, week, month, quarter, year) trên sales cube trong bộ nhớ. Optional filters: dealerId, staffId, variantId, modelId, brandId, status (nhiều giá trị), from, to")
+    public ResponseEntity<?> querySalesCube(
+            @RequestParam(value = "groupBy", required = false) List<String> groupBy,
+            @RequestParam(value = "dealerId", required = false) List<String> dealerIds,
+            @RequestParam(value = "staffId", required = false) List<String> staffIds,
+            @RequestParam(value = "variantId", required = false) List<String> variantIds,
+            @RequestParam(value = "modelId", required = false) List<String> modelIds,
+            @RequestParam(value = "brandId", required = false) List<String> brandIds,
+            @RequestParam(value = "status", required = false) List<String> statuses,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "limit", defaultValue = "1000") int limit) {
+        try {
+            if (from != null && to != null && from.isAfter(to)) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "From date cannot be after to date");
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+            }
+            if (limit < 1 || limit > 10000) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Limit must be between 1 and 10000");
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+            }
+
+            List<SalesCubeDimension> dimensions = new ArrayList<>();
+            if (groupBy != null) {
+                for (String value : groupBy) {
+                    SalesCubeDimension dimension = SalesCubeDimension.fromString(value);
+                    if (dimensions.contains(dimension)) {
+                        throw new IllegalArgumentException("Duplicate group-by dimension: " + value);
+                    }
+                    dimensions.add(dimension);
+                }
+            }
+            Map<SalesCubeDimension, Set<String>> filters = new EnumMap<>(SalesCubeDimension.class);
+            addCubeFilter(filters, SalesCubeDimension.DEALER, dealerIds);
+            addCubeFilter(filters, SalesCubeDimension.STAFF, staffIds);
+            addCubeFilter(filters, SalesCubeDimension.VARIANT, variantIds);
+            addCubeFilter(filters, SalesCubeDimension.MODEL, modelIds);
+            addCubeFilter(filters, SalesCubeDimension.BRAND, brandIds);
+            addCubeFilter(filters, SalesCubeDimension.STATUS, statuses);
+
+            return ResponseEntity.ok(salesCubeService.query(dimensions, filters, from, to, limit));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Failed to query sales cube: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+
+    @PostMapping("/cube/refresh")
+    @Operation(summary = "Rebuild sales cube", description = "Dựng lại toàn bộ sales cube trong bộ nhớ từ bảng orders (chỉ ADMIN)")
+    public ResponseEntity<?> refreshSalesCube() {
+        try {
+            if (!securityUtils.isAdmin()) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Access denied. Only admin can rebuild report data");
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(error);
+            }
+
+            salesCubeService.refresh(true);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Failed to rebuild sales cube: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+
+    private static void addCubeFilter(Map<SalesCubeDimension, Set<String>> filters, SalesCubeDimension dimension, List<String> values) {
+        if (values == null || values.isEmpty()) {
+            return;
+        }
+        Set<String> normalized = new HashSet<>();
+        for (String value : values) {
+            normalized.add(value.trim().toLowerCase());
+        }
+        filters.put(dimension, normalized);
+    }
+
     @GetMapping("/walk-in-purchases")
     @Operation(summary = "Get walk-in customer purchases", description = "Orders without quotations (khách vãng lai mua xe). Optional filters: startDate, endDate, status")
     public ResponseEntity<?> getWalkInPurchases(
@@ -202,7 +448,12 @@ public class ReportController {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
             }
             
-            return ResponseEntity.ok(reportService.getWalkInPurchases(s, e, (status != null && !status.isBlank()) ? status : null));
+            LocalDate startFilter = s;
+            LocalDate endFilter = e;
+            String statusFilter = (status != null && !status.isBlank()) ? status : null;
+            return ResponseEntity.ok(reportCache.get("walk-in-purchases", ORDER_DATA,
+                () -> reportService.getWalkInPurchases(startFilter, endFilter, statusFilter),
+                startFilter, endFilter, statusFilter));
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Failed to retrieve walk-in purchases: " + e.getMessage());
@@ -282,4 +533,31 @@ public class ReportController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
         }
     }
-}
\ No newline at end of file
+
+    @GetMapping("/walk-in-purchases/cursor")
+    @Operation(summary = "Get walk-in purchases (cursor)", description = "Orders without quotations (khách vãng lai), sắp theo orderDate giảm dần. Params: startDate, endDate, status, cursor (nextCursor của trang trước), size (tối đa 200)")
+    public ResponseEntity<?> getWalkInPurchasesByCursor(
+            @RequestParam(value = "startDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(value = "endDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(value = "status", required = false) String status,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size) {
+        try {
+            if (startDate != null && endDate != null && startDate.isAfter(endDate)) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Start date cannot be after end date");
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+            }
+            return ResponseEntity.ok(reportService.getWalkInPurchasesPage(startDate, endDate,
+                (status != null && !status.isBlank()) ? status : null, cursor, size));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Failed to retrieve walk-in purchases: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.evdealer.controller;
+
+import com.evdealer.dto.ReportJobRequest;
+import com.evdealer.entity.ReportJob;
+import com.evdealer.enums.ReportJobType;
+import com.evdealer.service.ReportJobService;
+import com.evdealer.util.SecurityUtils;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+
+@RestController
+@RequestMapping("/api/reports/jobs")
+@CrossOrigin(origins = "*")
+@Tag(name = "Report Jobs", description = "Chạy báo cáo nặng ở background: submit, theo dõi tiến độ, tải kết quả")
+public class ReportJobController {
+    private final ReportJobService reportJobService;
+    private final SecurityUtils securityUtils;
+
+    public ReportJobController(ReportJobService reportJobService, SecurityUtils securityUtils) {
+        this.reportJobService = reportJobService;
+        this.securityUtils = securityUtils;
+    }
+
+    @PostMapping
+    @Operation(summary = "Submit report job", description = "Tạo job báo cáo chạy nền. reportType: sales_by_year_range, sales_timeseries, sales_by_staff, dealer_performance, customer_debt, deliveries, deliveries_by_status, walk_in_purchases")
+    public ResponseEntity<?> submitJob(@Valid @RequestBody ReportJobRequest request) {
+        Optional<UUID> userId = currentUserId();
+        if (userId.isEmpty()) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Authentication required");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
+        }
+        try {
+            ReportJobType type = ReportJobType.fromString(request.getReportType());
+            Map<String, String> parameters = request.getParameters() != null ? request.getParameters() : new HashMap<>();
+            ReportJob job = reportJobService.submit(type, parameters, userId.get());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(jobToMap(job));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        } catch (IllegalStateException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(error);
+        } catch (RejectedExecutionException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Report job queue is full, please retry later");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Failed to submit report job: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+
+    @GetMapping
+    @Operation(summary = "List my report jobs", description = "50 job gần nhất của user hiện tại")
+    public ResponseEntity<?> getMyJobs() {
+        Optional<UUID> userId = currentUserId();
+        if (userId.isEmpty()) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Authentication required");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
+        }
+        List<Map<String, Object>> jobs = reportJobService.getJobsForUser(userId.get())
+            .stream().map(this::jobToMap).toList();
+        return ResponseEntity.ok(jobs);
+    }
+
+    @GetMapping("/{jobId}")
+    @Operation(summary = "Get report job status", description = "Trạng thái và tiến độ (0-100) của job")
+    public ResponseEntity<?> getJob(@PathVariable("jobId") UUID jobId) {
+        Optional<ReportJob> job = reportJobService.getJob(jobId);
+        if (job.isEmpty() || !canAccess(job.get())) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Report job not found");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+        }
+        return ResponseEntity.ok(jobToMap(job.get()));
+    }
+
+    @GetMapping("/{jobId}/result")
+    @Operation(summary = "Download report job result", description = "Tải kết quả JSON khi job đã hoàn thành")
+    public ResponseEntity<?> downloadResult(@PathVariable("jobId") UUID jobId) {
+        Optional<ReportJob> job = reportJobService.getJob(jobId);
+        if (job.isEmpty() || !canAccess(job.get())) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Report job not found");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+        }
+        Optional<Path> result = reportJobService.getResultFile(job.get());
+        if (result.isEmpty()) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Report result is not available (status: " + job.get().getStatus().getValue() + ")");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+        }
+        String filename = job.get().getReportType().getValue() + "-" + jobId + ".json";
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+            .body(new FileSystemResource(result.get()));
+    }
+
+    private Optional<UUID> currentUserId() {
+        try {
+            return securityUtils.getCurrentUserId().map(UUID::fromString);
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    // Chỉ người tạo job hoặc ADMIN được xem job
+    private boolean canAccess(ReportJob job) {
+        Optional<UUID> userId = currentUserId();
+        return securityUtils.isAdmin() || (userId.isPresent() && userId.get().equals(job.getRequestedBy()));
+    }
+
+    private Map<String, Object> jobToMap(ReportJob job) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("jobId", job.getJobId());
+        map.put("reportType", job.getReportType().getValue());
+        map.put("status", job.getStatus().getValue());
+        map.put("progress", job.getProgress());
+        map.put("createdAt", job.getCreatedAt());
+        map.put("startedAt", job.getStartedAt());
+        map.put("completedAt", job.getCompletedAt());
+        map.put("expiresAt", job.getExpiresAt());
+        map.put("resultSize", job.getResultSize());
+        map.put("errorMessage", job.getErrorMessage());
+        map.put("resultUrl", "/api/reports/jobs/" + job.getJobId() + "/result");
+        return map;
+    }
+}
@@ -6,16 +6,21 @@ import java.util.UUID;
 public class CustomerDebtItemDTO {
     private UUID customerId;
     private String customerName;
+    private UUID planId;
     private BigDecimal totalAmount;
     private BigDecimal paidAmount;
     private BigDecimal remainingAmount;
     private Integer installmentCount;
     private String planType;
+    private long overdueInstallments;
+    private BigDecimal overdueAmount;
 
     public UUID getCustomerId() { return customerId; }
     public void setCustomerId(UUID customerId) { this.customerId = customerId; }
     public String getCustomerName() { return customerName; }
     public void setCustomerName(String customerName) { this.customerName = customerName; }
+    public UUID getPlanId() { return planId; }
+    public void setPlanId(UUID planId) { this.planId = planId; }
     public BigDecimal getTotalAmount() { return totalAmount; }
     public void setTotalAmount(BigDecimal totalAmount) { this.totalAmount = totalAmount; }
     public BigDecimal getPaidAmount() { return paidAmount; }
@@ -26,6 +31,10 @@ public class CustomerDebtItemDTO {
     public void setInstallmentCount(Integer installmentCount) { this.installmentCount = installmentCount; }
     public String getPlanType() { return planType; }
     public void setPlanType(String planType) { this.planType = planType; }
+    public long getOverdueInstallments() { return overdueInstallments; }
+    public void setOverdueInstallments(long overdueInstallments) { this.overdueInstallments = overdueInstallments; }
+    public BigDecimal getOverdueAmount() { return overdueAmount; }
+    public void setOverdueAmount(BigDecimal overdueAmount) { this.overdueAmount = overdueAmount; }
 }
 
 
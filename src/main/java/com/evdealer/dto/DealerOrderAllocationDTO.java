@@ -0,0 +1,35 @@
+package com.evdealer.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Kết quả phân bổ xe trong kho cho một đơn hàng đại lý. fullyAllocated = false khi có dòng chưa đủ xe (phân bổ một phần).
+ */
+public class DealerOrderAllocationDTO {
+    private UUID dealerOrderId;
+    private UUID preferredWarehouseId;
+    private int requested;
+    private int allocated;
+    private int allocatedNow;
+    private int shortfall;
+    private boolean fullyAllocated;
+    private List<DealerOrderAllocationLineDTO> lines;
+
+    public UUID getDealerOrderId() { return dealerOrderId; }
+    public void setDealerOrderId(UUID dealerOrderId) { this.dealerOrderId = dealerOrderId; }
+    public UUID getPreferredWarehouseId() { return preferredWarehouseId; }
+    public void setPreferredWarehouseId(UUID preferredWarehouseId) { this.preferredWarehouseId = preferredWarehouseId; }
+    public int getRequested() { return requested; }
+    public void setRequested(int requested) { this.requested = requested; }
+    public int getAllocated() { return allocated; }
+    public void setAllocated(int allocated) { this.allocated = allocated; }
+    public int getAllocatedNow() { return allocatedNow; }
+    public void setAllocatedNow(int allocatedNow) { this.allocatedNow = allocatedNow; }
+    public int getShortfall() { return shortfall; }
+    public void setShortfall(int shortfall) { this.shortfall = shortfall; }
+    public boolean isFullyAllocated() { return fullyAllocated; }
+    public void setFullyAllocated(boolean fullyAllocated) { this.fullyAllocated = fullyAllocated; }
+    public List<DealerOrderAllocationLineDTO> getLines() { return lines; }
+    public void setLines(List<DealerOrderAllocationLineDTO> lines) { this.lines = lines; }
+}
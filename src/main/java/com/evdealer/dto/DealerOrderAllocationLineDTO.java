@@ -0,0 +1,39 @@
+package com.evdealer.dto;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Kết quả phân bổ xe cho một dòng đơn hàng đại lý (variant, color, số lượng).
+ */
+public class DealerOrderAllocationLineDTO {
+    private UUID itemId;
+    private Integer variantId;
+    private Integer colorId;
+    private int requested;
+    private int previouslyAllocated;
+    private int allocatedNow;
+    private int shortfall;
+    private List<UUID> allocatedInventoryIds;
+    private Map<UUID, Integer> allocatedByWarehouse;
+
+    public UUID getItemId() { return itemId; }
+    public void setItemId(UUID itemId) { this.itemId = itemId; }
+    public Integer getVariantId() { return variantId; }
+    public void setVariantId(Integer variantId) { this.variantId = variantId; }
+    public Integer getColorId() { return colorId; }
+    public void setColorId(Integer colorId) { this.colorId = colorId; }
+    public int getRequested() { return requested; }
+    public void setRequested(int requested) { this.requested = requested; }
+    public int getPreviouslyAllocated() { return previouslyAllocated; }
+    public void setPreviouslyAllocated(int previouslyAllocated) { this.previouslyAllocated = previouslyAllocated; }
+    public int getAllocatedNow() { return allocatedNow; }
+    public void setAllocatedNow(int allocatedNow) { this.allocatedNow = allocatedNow; }
+    public int getShortfall() { return shortfall; }
+    public void setShortfall(int shortfall) { this.shortfall = shortfall; }
+    public List<UUID> getAllocatedInventoryIds() { return allocatedInventoryIds; }
+    public void setAllocatedInventoryIds(List<UUID> allocatedInventoryIds) { this.allocatedInventoryIds = allocatedInventoryIds; }
+    public Map<UUID, Integer> getAllocatedByWarehouse() { return allocatedByWarehouse; }
+    public void setAllocatedByWarehouse(Map<UUID, Integer> allocatedByWarehouse) { this.allocatedByWarehouse = allocatedByWarehouse; }
+}
@@ -11,6 +11,20 @@ public class DealerPerformanceItemDTO {
     private BigDecimal actualSales;
     private double achievementRate;
 
+    public DealerPerformanceItemDTO() {}
+
+    // Constructor cho JPQL projection (DealerSalesRollupRepository.findDealerPerformance)
+    public DealerPerformanceItemDTO(UUID dealerId, String dealerName, Integer targetYear, BigDecimal targetRevenue, BigDecimal actualSales) {
+        this.dealerId = dealerId;
+        this.dealerName = dealerName;
+        this.targetYear = targetYear;
+        this.targetRevenue = targetRevenue;
+        this.actualSales = actualSales != null ? actualSales : BigDecimal.ZERO;
+        this.achievementRate = targetRevenue != null && targetRevenue.doubleValue() > 0
+            ? (this.actualSales.doubleValue() / targetRevenue.doubleValue()) * 100
+            : 0.0;
+    }
+
     public UUID getDealerId() { return dealerId; }
     public void setDealerId(UUID dealerId) { this.dealerId = dealerId; }
     public String getDealerName() { return dealerName; }
@@ -0,0 +1,39 @@
+package com.evdealer.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigDecimal;
+
+/**
+ * Số kết quả cho một giá trị facet. Khoảng giá: from (bao gồm) - to (không bao gồm), null = không giới hạn.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FacetCountDTO {
+    private String value;
+    private long count;
+    private BigDecimal from;
+    private BigDecimal to;
+
+    public FacetCountDTO() {}
+
+    public FacetCountDTO(String value, long count) {
+        this.value = value;
+        this.count = count;
+    }
+
+    public FacetCountDTO(String value, long count, BigDecimal from, BigDecimal to) {
+        this.value = value;
+        this.count = count;
+        this.from = from;
+        this.to = to;
+    }
+
+    public String getValue() { return value; }
+    public void setValue(String value) { this.value = value; }
+    public long getCount() { return count; }
+    public void setCount(long count) { this.count = count; }
+    public BigDecimal getFrom() { return from; }
+    public void setFrom(BigDecimal from) { this.from = from; }
+    public BigDecimal getTo() { return to; }
+    public void setTo(BigDecimal to) { this.to = to; }
+}
@@ -0,0 +1,45 @@
+package com.evdealer.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Một trang kết quả tìm kiếm kèm số đếm theo facet (facet -> danh sách giá trị)
+ */
+public class FacetedPageDTO<T> {
+    private List<T> results;
+    private long totalCount;
+    private int page;
+    private int size;
+    private int totalPages;
+    private String sort;
+    private Map<String, List<FacetCountDTO>> facets;
+
+    public FacetedPageDTO() {}
+
+    public FacetedPageDTO(List<T> results, long totalCount, int page, int size, String sort,
+                          Map<String, List<FacetCountDTO>> facets) {
+        this.results = results;
+        this.totalCount = totalCount;
+        this.page = page;
+        this.size = size;
+        this.totalPages = size > 0 ? (int) ((totalCount + size - 1) / size) : 0;
+        this.sort = sort;
+        this.facets = facets;
+    }
+
+    public List<T> getResults() { return results; }
+    public void setResults(List<T> results) { this.results = results; }
+    public long getTotalCount() { return totalCount; }
+    public void setTotalCount(long totalCount) { this.totalCount = totalCount; }
+    public int getPage() { return page; }
+    public void setPage(int page) { this.page = page; }
+    public int getSize() { return size; }
+    public void setSize(int size) { this.size = size; }
+    public int getTotalPages() { return totalPages; }
+    public void setTotalPages(int totalPages) { this.totalPages = totalPages; }
+    public String getSort() { return sort; }
+    public void setSort(String sort) { this.sort = sort; }
+    public Map<String, List<FacetCountDTO>> getFacets() { return facets; }
+    public void setFacets(Map<String, List<FacetCountDTO>> facets) { this.facets = facets; }
+}
@@ -0,0 +1,23 @@
+package com.evdealer.dto;
+
+import java.util.Map;
+import java.util.UUID;
+
+public class InventoryStatusCountsDTO {
+    private long totalVehicles;
+    private Map<String, Long> statusCounts;
+    private Map<UUID, Map<String, Long>> byWarehouse;
+    private Map<Integer, Map<String, Long>> byVariant;
+    private Map<UUID, Map<String, Long>> byReservedDealer;
+
+    public long getTotalVehicles() { return totalVehicles; }
+    public void setTotalVehicles(long totalVehicles) { this.totalVehicles = totalVehicles; }
+    public Map<String, Long> getStatusCounts() { return statusCounts; }
+    public void setStatusCounts(Map<String, Long> statusCounts) { this.statusCounts = statusCounts; }
+    public Map<UUID, Map<String, Long>> getByWarehouse() { return byWarehouse; }
+    public void setByWarehouse(Map<UUID, Map<String, Long>> byWarehouse) { this.byWarehouse = byWarehouse; }
+    public Map<Integer, Map<String, Long>> getByVariant() { return byVariant; }
+    public void setByVariant(Map<Integer, Map<String, Long>> byVariant) { this.byVariant = byVariant; }
+    public Map<UUID, Map<String, Long>> getByReservedDealer() { return byReservedDealer; }
+    public void setByReservedDealer(Map<UUID, Map<String, Long>> byReservedDealer) { this.byReservedDealer = byReservedDealer; }
+}
@@ -0,0 +1,18 @@
+package com.evdealer.dto;
+
+import jakarta.validation.constraints.NotBlank;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class ReportJobRequest {
+    @NotBlank(message = "Report type is required")
+    private String reportType;
+
+    private Map<String, String> parameters = new HashMap<>();
+
+    public String getReportType() { return reportType; }
+    public void setReportType(String reportType) { this.reportType = reportType; }
+    public Map<String, String> getParameters() { return parameters; }
+    public void setParameters(Map<String, String> parameters) { this.parameters = parameters; }
+}
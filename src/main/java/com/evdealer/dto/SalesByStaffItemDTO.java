@@ -1,5 +1,7 @@
 package com.evdealer.dto;
 
+import com.evdealer.enums.UserType;
+
 import java.math.BigDecimal;
 import java.util.UUID;
 
@@ -20,6 +22,15 @@ public class SalesByStaffItemDTO {
         this.totalSales = totalSales;
     }
 
+    // Constructor cho JPQL projection (aggregate query trong OrderRepository)
+    public SalesByStaffItemDTO(UUID staffId, String firstName, String lastName, UserType userType, Long totalOrders, BigDecimal totalSales) {
+        this.staffId = staffId;
+        this.staffName = firstName + " " + lastName;
+        this.role = userType != null ? userType.toString() : "UNKNOWN";
+        this.totalOrders = totalOrders != null ? totalOrders.intValue() : 0;
+        this.totalSales = totalSales != null ? totalSales : BigDecimal.ZERO;
+    }
+
     public UUID getStaffId() { return staffId; }
     public void setStaffId(UUID staffId) { this.staffId = staffId; }
     public String getStaffName() { return staffName; }
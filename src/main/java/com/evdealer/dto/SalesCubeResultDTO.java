@@ -0,0 +1,26 @@
+package com.evdealer.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class SalesCubeResultDTO {
+    private List<String> groupBy;
+    private List<SalesCubeRowDTO> rows;
+    private int totalGroups;
+    private long scannedRows;
+    private long elapsedMillis;
+    private LocalDateTime refreshedAt;
+
+    public List<String> getGroupBy() { return groupBy; }
+    public void setGroupBy(List<String> groupBy) { this.groupBy = groupBy; }
+    public List<SalesCubeRowDTO> getRows() { return rows; }
+    public void setRows(List<SalesCubeRowDTO> rows) { this.rows = rows; }
+    public int getTotalGroups() { return totalGroups; }
+    public void setTotalGroups(int totalGroups) { this.totalGroups = totalGroups; }
+    public long getScannedRows() { return scannedRows; }
+    public void setScannedRows(long scannedRows) { this.scannedRows = scannedRows; }
+    public long getElapsedMillis() { return elapsedMillis; }
+    public void setElapsedMillis(long elapsedMillis) { this.elapsedMillis = elapsedMillis; }
+    public LocalDateTime getRefreshedAt() { return refreshedAt; }
+    public void setRefreshedAt(LocalDateTime refreshedAt) { this.refreshedAt = refreshedAt; }
+}
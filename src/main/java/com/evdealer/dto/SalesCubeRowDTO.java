@@ -0,0 +1,20 @@
+package com.evdealer.dto;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+public class SalesCubeRowDTO {
+    private Map<String, Object> keys;
+    private Map<String, String> labels;
+    private long orderCount;
+    private BigDecimal revenue;
+
+    public Map<String, Object> getKeys() { return keys; }
+    public void setKeys(Map<String, Object> keys) { this.keys = keys; }
+    public Map<String, String> getLabels() { return labels; }
+    public void setLabels(Map<String, String> labels) { this.labels = labels; }
+    public long getOrderCount() { return orderCount; }
+    public void setOrderCount(long orderCount) { this.orderCount = orderCount; }
+    public BigDecimal getRevenue() { return revenue; }
+    public void setRevenue(BigDecimal revenue) { this.revenue = revenue; }
+}
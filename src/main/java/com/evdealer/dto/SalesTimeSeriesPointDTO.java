@@ -0,0 +1,29 @@
+package com.evdealer.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public class SalesTimeSeriesPointDTO {
+    private LocalDate bucketStart;
+    private long orderCount;
+    private BigDecimal totalRevenue;
+    private BigDecimal totalDeposit;
+
+    public SalesTimeSeriesPointDTO() {}
+
+    public SalesTimeSeriesPointDTO(LocalDate bucketStart, long orderCount, BigDecimal totalRevenue, BigDecimal totalDeposit) {
+        this.bucketStart = bucketStart;
+        this.orderCount = orderCount;
+        this.totalRevenue = totalRevenue;
+        this.totalDeposit = totalDeposit;
+    }
+
+    public LocalDate getBucketStart() { return bucketStart; }
+    public void setBucketStart(LocalDate bucketStart) { this.bucketStart = bucketStart; }
+    public long getOrderCount() { return orderCount; }
+    public void setOrderCount(long orderCount) { this.orderCount = orderCount; }
+    public BigDecimal getTotalRevenue() { return totalRevenue; }
+    public void setTotalRevenue(BigDecimal totalRevenue) { this.totalRevenue = totalRevenue; }
+    public BigDecimal getTotalDeposit() { return totalDeposit; }
+    public void setTotalDeposit(BigDecimal totalDeposit) { this.totalDeposit = totalDeposit; }
+}
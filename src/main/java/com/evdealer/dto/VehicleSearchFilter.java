@@ -0,0 +1,51 @@
+package com.evdealer.dto;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bộ lọc tìm kiếm xe trong kho (trang công khai). Mỗi danh sách là các giá trị được chọn của một facet
+ * (OR trong cùng facet, AND giữa các facet); so khớp tên không phân biệt hoa thường.
+ * Giá so với selling_price, nếu chưa có thì price_base của phiên bản.
+ */
+public class VehicleSearchFilter {
+    private List<String> brands = new ArrayList<>();
+    private List<String> models = new ArrayList<>();
+    private List<String> variants = new ArrayList<>();
+    private List<String> colors = new ArrayList<>();
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+
+    public VehicleSearchFilter() {}
+
+    /**
+     * Tách giá trị dạng "a,b,c" (query param) thành danh sách đã chuẩn hóa (trim, lowercase, bỏ giá trị rỗng)
+     */
+    public static List<String> parseValues(String raw) {
+        List<String> values = new ArrayList<>();
+        if (raw == null) {
+            return values;
+        }
+        for (String part : raw.split(",")) {
+            String value = part.trim().toLowerCase();
+            if (!value.isEmpty() && !values.contains(value)) {
+                values.add(value);
+            }
+        }
+        return values;
+    }
+
+    public List<String> getBrands() { return brands; }
+    public void setBrands(List<String> brands) { this.brands = brands; }
+    public List<String> getModels() { return models; }
+    public void setModels(List<String> models) { this.models = models; }
+    public List<String> getVariants() { return variants; }
+    public void setVariants(List<String> variants) { this.variants = variants; }
+    public List<String> getColors() { return colors; }
+    public void setColors(List<String> colors) { this.colors = colors; }
+    public BigDecimal getMinPrice() { return minPrice; }
+    public void setMinPrice(BigDecimal minPrice) { this.minPrice = minPrice; }
+    public BigDecimal getMaxPrice() { return maxPrice; }
+    public void setMaxPrice(BigDecimal maxPrice) { this.maxPrice = maxPrice; }
+}
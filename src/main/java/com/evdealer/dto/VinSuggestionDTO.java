@@ -0,0 +1,23 @@
+package com.evdealer.dto;
+
+import java.util.UUID;
+
+/**
+ * Gợi ý VIN cho ô nhập (typeahead): chỉ id và VIN.
+ */
+public class VinSuggestionDTO {
+    private UUID inventoryId;
+    private String vin;
+
+    public VinSuggestionDTO() {}
+
+    public VinSuggestionDTO(UUID inventoryId, String vin) {
+        this.inventoryId = inventoryId;
+        this.vin = vin;
+    }
+
+    public UUID getInventoryId() { return inventoryId; }
+    public void setInventoryId(UUID inventoryId) { this.inventoryId = inventoryId; }
+    public String getVin() { return vin; }
+    public void setVin(String vin) { this.vin = vin; }
+}
@@ -11,6 +11,7 @@ import java.util.UUID;
 
 @Entity
 @Table(name = "customers")
+@EntityListeners(ReportDataChangeListener.class)
 public class Customer {
     
     @Id
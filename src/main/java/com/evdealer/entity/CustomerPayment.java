@@ -12,6 +12,7 @@ import java.util.UUID;
 
 @Entity
 @Table(name = "customer_payments")
+@EntityListeners(ReportDataChangeListener.class)
 public class CustomerPayment {
     
     @Id
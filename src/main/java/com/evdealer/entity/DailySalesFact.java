@@ -0,0 +1,123 @@
+package com.evdealer.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Số order / tổng tiền / tiền đặt cọc theo ngày × dealer × variant (tính trên mọi order, mọi trạng thái).
+ * Order không có dealer hoặc variant được ghi vào {@link #UNASSIGNED} để unique constraint vẫn áp dụng.
+ * Được cập nhật trong cùng transaction khi Order thay đổi (xem DailySalesFactService).
+ */
+@Entity
+@Table(
+    name = "daily_sales_fact",
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uk_daily_sales_fact_bucket", columnNames = {"sales_date", "dealer_id", "variant_id"})
+    },
+    indexes = {
+        @Index(name = "idx_daily_sales_fact_dealer_date", columnList = "dealer_id, sales_date"),
+        @Index(name = "idx_daily_sales_fact_variant_date", columnList = "variant_id, sales_date")
+    }
+)
+public class DailySalesFact {
+
+    public static final UUID UNASSIGNED = new UUID(0L, 0L);
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(name = "fact_id")
+    private UUID factId;
+
+    @Column(name = "sales_date", nullable = false)
+    private LocalDate salesDate;
+
+    @Column(name = "dealer_id", nullable = false)
+    private UUID dealerId;
+
+    @Column(name = "variant_id", nullable = false)
+    private UUID variantId;
+
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount = 0L;
+
+    @Column(name = "total_revenue", nullable = false, precision = 17, scale = 2)
+    private BigDecimal totalRevenue = BigDecimal.ZERO;
+
+    @Column(name = "total_deposit", nullable = false, precision = 17, scale = 2)
+    private BigDecimal totalDeposit = BigDecimal.ZERO;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    // Constructors
+    public DailySalesFact() {}
+
+    // Getters and Setters
+    public UUID getFactId() {
+        return factId;
+    }
+
+    public void setFactId(UUID factId) {
+        this.factId = factId;
+    }
+
+    public LocalDate getSalesDate() {
+        return salesDate;
+    }
+
+    public void setSalesDate(LocalDate salesDate) {
+        this.salesDate = salesDate;
+    }
+
+    public UUID getDealerId() {
+        return dealerId;
+    }
+
+    public void setDealerId(UUID dealerId) {
+        this.dealerId = dealerId;
+    }
+
+    public UUID getVariantId() {
+        return variantId;
+    }
+
+    public void setVariantId(UUID variantId) {
+        this.variantId = variantId;
+    }
+
+    public Long getOrderCount() {
+        return orderCount;
+    }
+
+    public void setOrderCount(Long orderCount) {
+        this.orderCount = orderCount;
+    }
+
+    public BigDecimal getTotalRevenue() {
+        return totalRevenue;
+    }
+
+    public void setTotalRevenue(BigDecimal totalRevenue) {
+        this.totalRevenue = totalRevenue;
+    }
+
+    public BigDecimal getTotalDeposit() {
+        return totalDeposit;
+    }
+
+    public void setTotalDeposit(BigDecimal totalDeposit) {
+        this.totalDeposit = totalDeposit;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
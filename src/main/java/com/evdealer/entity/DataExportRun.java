@@ -0,0 +1,105 @@
+package com.evdealer.entity;
+
+import com.evdealer.enums.ExportMode;
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Một lần export archive đã hoàn tất đầy đủ. watermark của lần gần nhất là mốc mặc định cho delta export kế tiếp.
+ */
+@Entity
+@Table(
+    name = "data_export_runs",
+    indexes = {
+        @Index(name = "idx_data_export_runs_watermark", columnList = "watermark")
+    }
+)
+public class DataExportRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(name = "run_id")
+    private UUID runId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "mode", length = 20, nullable = false)
+    private ExportMode mode;
+
+    // Mốc delta đã dùng (null với full export)
+    @Column(name = "since")
+    private LocalDateTime since;
+
+    @Column(name = "watermark", nullable = false)
+    private LocalDateTime watermark;
+
+    @Column(name = "total_records", nullable = false)
+    private Long totalRecords = 0L;
+
+    @Column(name = "requested_by")
+    private UUID requestedBy;
+
+    @Column(name = "completed_at", nullable = false)
+    private LocalDateTime completedAt;
+
+    // Constructors
+    public DataExportRun() {}
+
+    // Getters and Setters
+    public UUID getRunId() {
+        return runId;
+    }
+
+    public void setRunId(UUID runId) {
+        this.runId = runId;
+    }
+
+    public ExportMode getMode() {
+        return mode;
+    }
+
+    public void setMode(ExportMode mode) {
+        this.mode = mode;
+    }
+
+    public LocalDateTime getSince() {
+        return since;
+    }
+
+    public void setSince(LocalDateTime since) {
+        this.since = since;
+    }
+
+    public LocalDateTime getWatermark() {
+        return watermark;
+    }
+
+    public void setWatermark(LocalDateTime watermark) {
+        this.watermark = watermark;
+    }
+
+    public Long getTotalRecords() {
+        return totalRecords;
+    }
+
+    public void setTotalRecords(Long totalRecords) {
+        this.totalRecords = totalRecords;
+    }
+
+    public UUID getRequestedBy() {
+        return requestedBy;
+    }
+
+    public void setRequestedBy(UUID requestedBy) {
+        this.requestedBy = requestedBy;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+}
@@ -11,6 +11,7 @@ import java.util.UUID;
 
 @Entity
 @Table(name = "dealers")
+@EntityListeners(ReportDataChangeListener.class)
 public class Dealer {
     
     @Id
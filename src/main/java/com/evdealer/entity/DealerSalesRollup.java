@@ -0,0 +1,104 @@
+package com.evdealer.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Doanh số đã ghi nhận theo dealer × năm × tháng.
+ * Được cập nhật trong cùng transaction khi Order thay đổi (xem DealerSalesRollupService).
+ */
+@Entity
+@Table(
+    name = "dealer_sales_rollup",
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uk_dealer_sales_rollup_bucket", columnNames = {"dealer_id", "sales_year", "sales_month"})
+    }
+)
+public class DealerSalesRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(name = "rollup_id")
+    private UUID rollupId;
+
+    @Column(name = "dealer_id", nullable = false)
+    private UUID dealerId;
+
+    @Column(name = "sales_year", nullable = false)
+    private Integer salesYear;
+
+    @Column(name = "sales_month", nullable = false)
+    private Integer salesMonth;
+
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount = 0L;
+
+    @Column(name = "total_revenue", nullable = false, precision = 17, scale = 2)
+    private BigDecimal totalRevenue = BigDecimal.ZERO;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    // Constructors
+    public DealerSalesRollup() {}
+
+    // Getters and Setters
+    public UUID getRollupId() {
+        return rollupId;
+    }
+
+    public void setRollupId(UUID rollupId) {
+        this.rollupId = rollupId;
+    }
+
+    public UUID getDealerId() {
+        return dealerId;
+    }
+
+    public void setDealerId(UUID dealerId) {
+        this.dealerId = dealerId;
+    }
+
+    public Integer getSalesYear() {
+        return salesYear;
+    }
+
+    public void setSalesYear(Integer salesYear) {
+        this.salesYear = salesYear;
+    }
+
+    public Integer getSalesMonth() {
+        return salesMonth;
+    }
+
+    public void setSalesMonth(Integer salesMonth) {
+        this.salesMonth = salesMonth;
+    }
+
+    public Long getOrderCount() {
+        return orderCount;
+    }
+
+    public void setOrderCount(Long orderCount) {
+        this.orderCount = orderCount;
+    }
+
+    public BigDecimal getTotalRevenue() {
+        return totalRevenue;
+    }
+
+    public void setTotalRevenue(BigDecimal totalRevenue) {
+        this.totalRevenue = totalRevenue;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -10,6 +10,7 @@ import java.util.UUID;
 
 @Entity
 @Table(name = "dealer_targets")
+@EntityListeners(ReportDataChangeListener.class)
 public class DealerTarget {
     
     @Id
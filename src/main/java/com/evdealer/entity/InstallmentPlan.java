@@ -9,7 +9,14 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "installment_plans")
+@Table(
+    name = "installment_plans",
+    indexes = {
+        @Index(name = "idx_installment_plans_status", columnList = "plan_status"),
+        @Index(name = "idx_installment_plans_customer", columnList = "customer_id")
+    }
+)
+@EntityListeners(ReportDataChangeListener.class)
 public class InstallmentPlan {
     
     @Id
@@ -9,7 +9,14 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "installment_schedules")
+@Table(
+    name = "installment_schedules",
+    indexes = {
+        @Index(name = "idx_installment_schedules_plan", columnList = "plan_id"),
+        @Index(name = "idx_installment_schedules_due_date", columnList = "due_date, status")
+    }
+)
+@EntityListeners(ReportDataChangeListener.class)
 public class InstallmentSchedule {
     
     @Id
@@ -0,0 +1,68 @@
+package com.evdealer.entity;
+
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * JPA entity listener của VehicleInventory: báo cho facet index khi status / variant / color /
+ * warehouse / giá bán của một xe thay đổi.
+ * Handler được các service đăng ký lúc khởi động (listener do Hibernate tạo, không phải Spring bean).
+ */
+public class InventoryFacetListener {
+
+    /**
+     * Nhận thay đổi của VehicleInventory. previous = null khi insert, current = null khi delete.
+     * Được gọi trong lúc flush nên handler không được query/flush lại EntityManager.
+     */
+    public interface Handler {
+        void onInventoryFacetChanged(InventoryFacetSnapshot previous, InventoryFacetSnapshot current);
+    }
+
+    private static final List<Handler> handlers = new CopyOnWriteArrayList<>();
+
+    public static void register(Handler handler) {
+        handlers.add(handler);
+    }
+
+    @PostLoad
+    public void onLoad(VehicleInventory inventory) {
+        inventory.setLoadedFacetSnapshot(InventoryFacetSnapshot.of(inventory));
+    }
+
+    @PostPersist
+    public void onPersist(VehicleInventory inventory) {
+        InventoryFacetSnapshot current = InventoryFacetSnapshot.of(inventory);
+        notifyHandlers(null, current);
+        inventory.setLoadedFacetSnapshot(current);
+    }
+
+    @PostUpdate
+    public void onUpdate(VehicleInventory inventory) {
+        InventoryFacetSnapshot previous = inventory.getLoadedFacetSnapshot();
+        InventoryFacetSnapshot current = InventoryFacetSnapshot.of(inventory);
+        if (!current.equals(previous)) {
+            notifyHandlers(previous, current);
+        }
+        inventory.setLoadedFacetSnapshot(current);
+    }
+
+    @PostRemove
+    public void onRemove(VehicleInventory inventory) {
+        InventoryFacetSnapshot previous = inventory.getLoadedFacetSnapshot();
+        notifyHandlers(previous != null ? previous : InventoryFacetSnapshot.of(inventory), null);
+    }
+
+    /**
+     * Báo thay đổi cho các handler. Cũng dùng cho UPDATE hàng loạt bằng SQL (không qua entity), gọi trong transaction đó.
+     */
+    public static void notifyHandlers(InventoryFacetSnapshot previous, InventoryFacetSnapshot current) {
+        for (Handler handler : handlers) {
+            handler.onInventoryFacetChanged(previous, current);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.evdealer.entity;
+
+import com.evdealer.enums.VehicleStatus;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Ảnh chụp (immutable) các field của VehicleInventory dùng cho facet index của trang công khai.
+ * Chỉ đọc id của các quan hệ LAZY nên không kích hoạt lazy loading.
+ */
+public final class InventoryFacetSnapshot {
+
+    private final UUID inventoryId;
+    private final VehicleStatus status;
+    private final Integer variantId;
+    private final Integer colorId;
+    private final UUID warehouseId;
+    private final BigDecimal sellingPrice;
+
+    public InventoryFacetSnapshot(UUID inventoryId, VehicleStatus status, Integer variantId, Integer colorId,
+                                  UUID warehouseId, BigDecimal sellingPrice) {
+        this.inventoryId = inventoryId;
+        this.status = status;
+        this.variantId = variantId;
+        this.colorId = colorId;
+        this.warehouseId = warehouseId;
+        this.sellingPrice = sellingPrice;
+    }
+
+    public static InventoryFacetSnapshot of(VehicleInventory inventory) {
+        return new InventoryFacetSnapshot(
+            inventory.getInventoryId(),
+            inventory.getStatus(),
+            inventory.getVariant() != null ? inventory.getVariant().getVariantId() : null,
+            inventory.getColor() != null ? inventory.getColor().getColorId() : null,
+            inventory.getWarehouse() != null ? inventory.getWarehouse().getWarehouseId() : null,
+            inventory.getSellingPrice());
+    }
+
+    public UUID getInventoryId() {
+        return inventoryId;
+    }
+
+    public VehicleStatus getStatus() {
+        return status;
+    }
+
+    public Integer getVariantId() {
+        return variantId;
+    }
+
+    public Integer getColorId() {
+        return colorId;
+    }
+
+    public UUID getWarehouseId() {
+        return warehouseId;
+    }
+
+    public BigDecimal getSellingPrice() {
+        return sellingPrice;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof InventoryFacetSnapshot)) return false;
+        InventoryFacetSnapshot that = (InventoryFacetSnapshot) o;
+        return Objects.equals(inventoryId, that.inventoryId)
+            && status == that.status
+            && Objects.equals(variantId, that.variantId)
+            && Objects.equals(colorId, that.colorId)
+            && Objects.equals(warehouseId, that.warehouseId)
+            && (sellingPrice == null ? that.sellingPrice == null
+                : that.sellingPrice != null && sellingPrice.compareTo(that.sellingPrice) == 0);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(inventoryId, status, variantId, colorId, warehouseId,
+            sellingPrice != null ? sellingPrice.stripTrailingZeros() : null);
+    }
+}
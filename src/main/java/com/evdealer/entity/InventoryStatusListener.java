@@ -0,0 +1,68 @@
+package com.evdealer.entity;
+
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * JPA entity listener của VehicleInventory: báo cho bộ đếm trạng thái tồn kho khi
+ * status / warehouse / variant / dealer giữ chỗ của một xe thay đổi.
+ * Handler được các service đăng ký lúc khởi động (listener do Hibernate tạo, không phải Spring bean).
+ */
+public class InventoryStatusListener {
+
+    /**
+     * Nhận thay đổi của VehicleInventory. previous = null khi insert, current = null khi delete.
+     * Được gọi trong lúc flush nên handler không được query/flush lại EntityManager.
+     */
+    public interface Handler {
+        void onInventoryChanged(InventoryStatusSnapshot previous, InventoryStatusSnapshot current);
+    }
+
+    private static final List<Handler> handlers = new CopyOnWriteArrayList<>();
+
+    public static void register(Handler handler) {
+        handlers.add(handler);
+    }
+
+    @PostLoad
+    public void onLoad(VehicleInventory inventory) {
+        inventory.setLoadedStatusSnapshot(InventoryStatusSnapshot.of(inventory));
+    }
+
+    @PostPersist
+    public void onPersist(VehicleInventory inventory) {
+        InventoryStatusSnapshot current = InventoryStatusSnapshot.of(inventory);
+        notifyHandlers(null, current);
+        inventory.setLoadedStatusSnapshot(current);
+    }
+
+    @PostUpdate
+    public void onUpdate(VehicleInventory inventory) {
+        InventoryStatusSnapshot previous = inventory.getLoadedStatusSnapshot();
+        InventoryStatusSnapshot current = InventoryStatusSnapshot.of(inventory);
+        if (!current.equals(previous)) {
+            notifyHandlers(previous, current);
+        }
+        inventory.setLoadedStatusSnapshot(current);
+    }
+
+    @PostRemove
+    public void onRemove(VehicleInventory inventory) {
+        InventoryStatusSnapshot previous = inventory.getLoadedStatusSnapshot();
+        notifyHandlers(previous != null ? previous : InventoryStatusSnapshot.of(inventory), null);
+    }
+
+    /**
+     * Báo thay đổi cho các handler. Cũng dùng cho UPDATE hàng loạt bằng SQL (không qua entity), gọi trong transaction đó.
+     */
+    public static void notifyHandlers(InventoryStatusSnapshot previous, InventoryStatusSnapshot current) {
+        for (Handler handler : handlers) {
+            handler.onInventoryChanged(previous, current);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.evdealer.entity;
+
+import com.evdealer.enums.VehicleStatus;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Ảnh chụp (immutable) các field của VehicleInventory dùng cho bộ đếm trạng thái tồn kho.
+ * Chỉ đọc id của các quan hệ LAZY nên không kích hoạt lazy loading.
+ */
+public final class InventoryStatusSnapshot {
+
+    private final VehicleStatus status;
+    private final UUID warehouseId;
+    private final Integer variantId;
+    private final UUID reservedDealerId;
+
+    public InventoryStatusSnapshot(VehicleStatus status, UUID warehouseId, Integer variantId, UUID reservedDealerId) {
+        this.status = status;
+        this.warehouseId = warehouseId;
+        this.variantId = variantId;
+        this.reservedDealerId = reservedDealerId;
+    }
+
+    public static InventoryStatusSnapshot of(VehicleInventory inventory) {
+        return new InventoryStatusSnapshot(
+            inventory.getStatus(),
+            inventory.getWarehouse() != null ? inventory.getWarehouse().getWarehouseId() : null,
+            inventory.getVariant() != null ? inventory.getVariant().getVariantId() : null,
+            inventory.getReservedForDealer() != null ? inventory.getReservedForDealer().getDealerId() : null);
+    }
+
+    public VehicleStatus getStatus() {
+        return status;
+    }
+
+    public UUID getWarehouseId() {
+        return warehouseId;
+    }
+
+    public Integer getVariantId() {
+        return variantId;
+    }
+
+    public UUID getReservedDealerId() {
+        return reservedDealerId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof InventoryStatusSnapshot)) return false;
+        InventoryStatusSnapshot that = (InventoryStatusSnapshot) o;
+        return status == that.status
+            && Objects.equals(warehouseId, that.warehouseId)
+            && Objects.equals(variantId, that.variantId)
+            && Objects.equals(reservedDealerId, that.reservedDealerId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(status, warehouseId, variantId, reservedDealerId);
+    }
+}
@@ -25,9 +25,13 @@ import java.util.UUID;
         @Index(name = "idx_orders_user", columnList = "user_id"),
         @Index(name = "idx_orders_inventory", columnList = "inventory_id"),
         @Index(name = "idx_orders_order_date", columnList = "order_date"),
-        @Index(name = "idx_orders_status", columnList = "status")
+        @Index(name = "idx_orders_order_date_id", columnList = "order_date, order_id"),
+        @Index(name = "idx_orders_status", columnList = "status"),
+        @Index(name = "idx_orders_status_order_date_id", columnList = "status, order_date, order_id"),
+        @Index(name = "idx_orders_updated_at", columnList = "updated_at, order_id")
     }
 )
+@EntityListeners({OrderSalesListener.class, ReportDataChangeListener.class})
 public class Order {
     
     @Id
@@ -118,6 +122,10 @@ public class Order {
     @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt;
     
+    // Trạng thái lúc load/flush gần nhất, dùng bởi OrderSalesListener (không lưu DB)
+    @Transient
+    private OrderSalesSnapshot loadedSalesSnapshot;
+    
     // Constructors
     public Order() {}
     
@@ -335,6 +343,14 @@ public class Order {
         this.fulfillmentReferenceId = fulfillmentReferenceId;
     }
 
+    OrderSalesSnapshot getLoadedSalesSnapshot() {
+        return loadedSalesSnapshot;
+    }
+    
+    void setLoadedSalesSnapshot(OrderSalesSnapshot loadedSalesSnapshot) {
+        this.loadedSalesSnapshot = loadedSalesSnapshot;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,65 @@
+package com.evdealer.entity;
+
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * JPA entity listener của Order: so sánh trạng thái lúc load với lúc flush và báo cho
+ * các bảng tổng hợp doanh số (rollup) khi có thay đổi liên quan.
+ * Handler được các service đăng ký lúc khởi động (listener do Hibernate tạo, không phải Spring bean).
+ */
+public class OrderSalesListener {
+
+    /**
+     * Nhận thay đổi của Order. previous = null khi insert, current = null khi delete.
+     * Được gọi trong lúc flush nên handler không được query/flush lại EntityManager.
+     */
+    public interface Handler {
+        void onOrderChanged(OrderSalesSnapshot previous, OrderSalesSnapshot current);
+    }
+
+    private static final List<Handler> handlers = new CopyOnWriteArrayList<>();
+
+    public static void register(Handler handler) {
+        handlers.add(handler);
+    }
+
+    @PostLoad
+    public void onLoad(Order order) {
+        order.setLoadedSalesSnapshot(OrderSalesSnapshot.of(order));
+    }
+
+    @PostPersist
+    public void onPersist(Order order) {
+        OrderSalesSnapshot current = OrderSalesSnapshot.of(order);
+        notifyHandlers(null, current);
+        order.setLoadedSalesSnapshot(current);
+    }
+
+    @PostUpdate
+    public void onUpdate(Order order) {
+        OrderSalesSnapshot previous = order.getLoadedSalesSnapshot();
+        OrderSalesSnapshot current = OrderSalesSnapshot.of(order);
+        if (!current.equals(previous)) {
+            notifyHandlers(previous, current);
+        }
+        order.setLoadedSalesSnapshot(current);
+    }
+
+    @PostRemove
+    public void onRemove(Order order) {
+        OrderSalesSnapshot previous = order.getLoadedSalesSnapshot();
+        notifyHandlers(previous != null ? previous : OrderSalesSnapshot.of(order), null);
+    }
+
+    private void notifyHandlers(OrderSalesSnapshot previous, OrderSalesSnapshot current) {
+        for (Handler handler : handlers) {
+            handler.onOrderChanged(previous, current);
+        }
+    }
+}
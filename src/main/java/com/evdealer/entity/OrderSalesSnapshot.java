@@ -0,0 +1,95 @@
+package com.evdealer.entity;
+
+import com.evdealer.enums.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Ảnh chụp (immutable) các field của Order ảnh hưởng tới bảng tổng hợp doanh số.
+ * Chỉ đọc id của các quan hệ LAZY nên không kích hoạt lazy loading.
+ */
+public final class OrderSalesSnapshot {
+
+    private final UUID orderId;
+    private final UUID userId;
+    private final UUID inventoryId;
+    private final LocalDate orderDate;
+    private final OrderStatus status;
+    private final BigDecimal totalAmount;
+    private final BigDecimal depositAmount;
+
+    private OrderSalesSnapshot(Order order) {
+        this.orderId = order.getOrderId();
+        this.userId = order.getUser() != null ? order.getUser().getUserId() : null;
+        this.inventoryId = order.getInventory() != null ? order.getInventory().getInventoryId() : null;
+        this.orderDate = order.getOrderDate();
+        this.status = order.getStatus();
+        this.totalAmount = order.getTotalAmount();
+        this.depositAmount = order.getDepositAmount();
+    }
+
+    public static OrderSalesSnapshot of(Order order) {
+        return new OrderSalesSnapshot(order);
+    }
+
+    public UUID getOrderId() {
+        return orderId;
+    }
+
+    public UUID getUserId() {
+        return userId;
+    }
+
+    public UUID getInventoryId() {
+        return inventoryId;
+    }
+
+    public LocalDate getOrderDate() {
+        return orderDate;
+    }
+
+    public OrderStatus getStatus() {
+        return status;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    public BigDecimal getDepositAmount() {
+        return depositAmount;
+    }
+
+    public boolean isRevenueRecognized() {
+        return status != null && status.isRevenueRecognized();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        OrderSalesSnapshot that = (OrderSalesSnapshot) o;
+        return Objects.equals(orderId, that.orderId)
+                && Objects.equals(userId, that.userId)
+                && Objects.equals(inventoryId, that.inventoryId)
+                && Objects.equals(orderDate, that.orderDate)
+                && status == that.status
+                && compareAmount(totalAmount, that.totalAmount)
+                && compareAmount(depositAmount, that.depositAmount);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(orderId, userId, inventoryId, orderDate, status);
+    }
+
+    private static boolean compareAmount(BigDecimal a, BigDecimal b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return a.compareTo(b) == 0;
+    }
+}
@@ -0,0 +1,72 @@
+package com.evdealer.entity;
+
+import com.evdealer.enums.ReportDataDomain;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * JPA entity listener cho các entity là nguồn dữ liệu của báo cáo: báo nhóm dữ liệu
+ * ({@link ReportDataDomain}) vừa thay đổi để report cache invalidate các kết quả liên quan.
+ * Handler được các service đăng ký lúc khởi động (listener do Hibernate tạo, không phải Spring bean).
+ */
+public class ReportDataChangeListener {
+
+    /**
+     * Được gọi trong lúc flush nên handler không được query/flush lại EntityManager.
+     */
+    public interface Handler {
+        void onReportDataChanged(ReportDataDomain domain);
+    }
+
+    private static final List<Handler> handlers = new CopyOnWriteArrayList<>();
+
+    public static void register(Handler handler) {
+        handlers.add(handler);
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        ReportDataDomain domain = domainOf(entity);
+        if (domain == null) {
+            return;
+        }
+        notifyHandlers(domain);
+    }
+
+    /**
+     * Báo thay đổi cho các handler. Cũng dùng cho UPDATE hàng loạt bằng SQL (không qua entity), gọi trong transaction đó.
+     */
+    public static void notifyHandlers(ReportDataDomain domain) {
+        for (Handler handler : handlers) {
+            handler.onReportDataChanged(domain);
+        }
+    }
+
+    private static ReportDataDomain domainOf(Object entity) {
+        if (entity instanceof Order) {
+            return ReportDataDomain.ORDERS;
+        }
+        if (entity instanceof CustomerPayment || entity instanceof InstallmentPlan || entity instanceof InstallmentSchedule) {
+            return ReportDataDomain.PAYMENTS;
+        }
+        if (entity instanceof VehicleDelivery) {
+            return ReportDataDomain.DELIVERIES;
+        }
+        if (entity instanceof VehicleInventory) {
+            return ReportDataDomain.INVENTORY;
+        }
+        if (entity instanceof Customer) {
+            return ReportDataDomain.CUSTOMERS;
+        }
+        if (entity instanceof User || entity instanceof Dealer || entity instanceof DealerTarget) {
+            return ReportDataDomain.MASTER_DATA;
+        }
+        return null;
+    }
+}
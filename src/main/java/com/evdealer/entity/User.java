@@ -13,6 +13,7 @@ import java.util.UUID;
 
 @Entity
 @Table(name = "users")
+@EntityListeners(ReportDataChangeListener.class)
 public class User {
     
     @Id
@@ -25,6 +25,7 @@ import java.util.UUID;
         @Index(name = "idx_vehicle_delivery_status", columnList = "delivery_status")
     }
 )
+@EntityListeners(ReportDataChangeListener.class)
 public class VehicleDelivery {
     
     @Id
@@ -23,9 +23,12 @@ import java.util.UUID;
         @Index(name = "idx_vehicle_inventory_variant", columnList = "variant_id"),
         @Index(name = "idx_vehicle_inventory_color", columnList = "color_id"),
         @Index(name = "idx_vehicle_inventory_warehouse", columnList = "warehouse_id"),
-        @Index(name = "idx_vehicle_inventory_status", columnList = "status")
+        @Index(name = "idx_vehicle_inventory_status", columnList = "status"),
+        @Index(name = "idx_vehicle_inventory_status_expiry", columnList = "status, reserved_expiry_date"),
+        @Index(name = "idx_vehicle_inventory_allocated_item", columnList = "allocated_order_item_id")
     }
 )
+@EntityListeners({InventoryStatusListener.class, InventoryFacetListener.class, ReportDataChangeListener.class})
 public class VehicleInventory {
     
     @Id
@@ -110,6 +113,10 @@ public class VehicleInventory {
     @Column(name = "reserved_expiry_date")
     private LocalDateTime reservedExpiryDate;
     
+    // Dòng đơn hàng đại lý (DealerOrderItem) mà xe được phân bổ cho; không tạo khóa ngoại để xóa item không bị chặn
+    @Column(name = "allocated_order_item_id")
+    private UUID allocatedOrderItemId;
+    
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -118,6 +125,14 @@ public class VehicleInventory {
     @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt;
     
+    // Trạng thái lúc load/flush gần nhất, dùng bởi InventoryStatusListener (không lưu DB)
+    @Transient
+    private InventoryStatusSnapshot loadedStatusSnapshot;
+    
+    // Giá trị facet lúc load/flush gần nhất, dùng bởi InventoryFacetListener (không lưu DB)
+    @Transient
+    private InventoryFacetSnapshot loadedFacetSnapshot;
+    
     // Constructors
     public VehicleInventory() {}
     
@@ -321,6 +336,14 @@ public class VehicleInventory {
         this.reservedExpiryDate = reservedExpiryDate;
     }
     
+    public UUID getAllocatedOrderItemId() {
+        return allocatedOrderItemId;
+    }
+    
+    public void setAllocatedOrderItemId(UUID allocatedOrderItemId) {
+        this.allocatedOrderItemId = allocatedOrderItemId;
+    }
+    
     public Long getVersion() {
         return version;
     }
@@ -350,6 +373,22 @@ public class VehicleInventory {
         return warehouse != null ? warehouse.getWarehouseId() : null;
     }
 
+    InventoryStatusSnapshot getLoadedStatusSnapshot() {
+        return loadedStatusSnapshot;
+    }
+    
+    void setLoadedStatusSnapshot(InventoryStatusSnapshot loadedStatusSnapshot) {
+        this.loadedStatusSnapshot = loadedStatusSnapshot;
+    }
+    
+    InventoryFacetSnapshot getLoadedFacetSnapshot() {
+        return loadedFacetSnapshot;
+    }
+    
+    void setLoadedFacetSnapshot(InventoryFacetSnapshot loadedFacetSnapshot) {
+        this.loadedFacetSnapshot = loadedFacetSnapshot;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
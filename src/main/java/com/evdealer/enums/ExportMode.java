@@ -0,0 +1,41 @@
+package com.evdealer.enums;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * Chế độ export archive: toàn bộ dữ liệu hoặc chỉ các dòng thay đổi sau watermark của lần export trước
+ */
+public enum ExportMode {
+    FULL("full", "Toàn bộ dữ liệu"),
+    DELTA("delta", "Chỉ dữ liệu thay đổi");
+
+    private final String value;
+    private final String description;
+
+    ExportMode(String value, String description) {
+        this.value = value;
+        this.description = description;
+    }
+
+    @JsonValue
+    public String getValue() {
+        return value;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public static ExportMode fromString(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return FULL;
+        }
+        String normalized = value.trim().toLowerCase();
+        for (ExportMode mode : values()) {
+            if (mode.value.equals(normalized)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Invalid export mode: " + value + ". Expected full or delta");
+    }
+}
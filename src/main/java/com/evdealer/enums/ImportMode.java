@@ -0,0 +1,42 @@
+package com.evdealer.enums;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * Cách nạp dữ liệu khi import export archive
+ */
+public enum ImportMode {
+    INSERT("insert", "Chỉ thêm mới (lỗi nếu trùng khóa)"),
+    UPSERT("upsert", "Thêm mới hoặc cập nhật theo khóa chính"),
+    REPLACE("replace", "Xóa dữ liệu cũ của các bảng được import rồi nạp lại");
+
+    private final String value;
+    private final String description;
+
+    ImportMode(String value, String description) {
+        this.value = value;
+        this.description = description;
+    }
+
+    @JsonValue
+    public String getValue() {
+        return value;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public static ImportMode fromString(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return INSERT;
+        }
+        String normalized = value.trim().toLowerCase();
+        for (ImportMode mode : values()) {
+            if (mode.value.equals(normalized)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Invalid import mode: " + value + ". Expected insert, upsert or replace");
+    }
+}
@@ -33,6 +33,26 @@ public enum OrderStatus {
         return description;
     }
     
+    /**
+     * Đơn hàng ở trạng thái này được tính vào doanh số (paid, delivered, completed)
+     */
+    public boolean isRevenueRecognized() {
+        return this == PAID || this == DELIVERED || this == COMPLETED;
+    }
+    
+    /**
+     * Danh sách value (lowercase) của các trạng thái được tính doanh số, dùng cho native query
+     */
+    public static java.util.List<String> revenueRecognizedValues() {
+        java.util.List<String> values = new java.util.ArrayList<>();
+        for (OrderStatus status : values()) {
+            if (status.isRevenueRecognized()) {
+                values.add(status.value);
+            }
+        }
+        return values;
+    }
+    
     /**
      * Chuyển đổi string thành OrderStatus enum
      * @param statusString chuỗi trạng thái
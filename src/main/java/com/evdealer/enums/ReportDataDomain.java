@@ -0,0 +1,29 @@
+package com.evdealer.enums;
+
+/**
+ * Nhóm dữ liệu nguồn của báo cáo, dùng để invalidate report cache khi dữ liệu thay đổi
+ */
+public enum ReportDataDomain {
+    ORDERS("orders", "Đơn hàng"),
+    PAYMENTS("payments", "Thanh toán / trả góp"),
+    DELIVERIES("deliveries", "Giao xe"),
+    INVENTORY("inventory", "Tồn kho"),
+    CUSTOMERS("customers", "Khách hàng"),
+    MASTER_DATA("master_data", "Nhân viên, đại lý, chỉ tiêu");
+
+    private final String value;
+    private final String description;
+
+    ReportDataDomain(String value, String description) {
+        this.value = value;
+        this.description = description;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,34 @@
+package com.evdealer.enums;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * Enum định nghĩa các trạng thái của report job chạy nền
+ */
+public enum ReportJobStatus {
+    QUEUED("queued", "Đang chờ"),
+    RUNNING("running", "Đang chạy"),
+    COMPLETED("completed", "Hoàn thành"),
+    FAILED("failed", "Lỗi");
+
+    private final String value;
+    private final String description;
+
+    ReportJobStatus(String value, String description) {
+        this.value = value;
+        this.description = description;
+    }
+
+    @JsonValue
+    public String getValue() {
+        return value;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public boolean isActive() {
+        return this == QUEUED || this == RUNNING;
+    }
+}
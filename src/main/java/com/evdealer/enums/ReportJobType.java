@@ -0,0 +1,53 @@
+package com.evdealer.enums;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * Enum định nghĩa các loại báo cáo có thể chạy nền qua report job API
+ */
+public enum ReportJobType {
+    SALES_BY_YEAR_RANGE("sales_by_year_range", "Doanh số theo khoảng năm (startYear, endYear)"),
+    SALES_TIMESERIES("sales_timeseries", "Doanh số theo bucket thời gian (granularity, from, to, dealerId, variantId)"),
+    SALES_BY_STAFF("sales_by_staff", "Doanh số theo nhân viên (startDate, endDate, dealerId)"),
+    DEALER_PERFORMANCE("dealer_performance", "Hiệu suất đại lý"),
+    CUSTOMER_DEBT("customer_debt", "Công nợ khách hàng"),
+    DELIVERIES("deliveries", "Toàn bộ lịch giao xe"),
+    DELIVERIES_BY_STATUS("deliveries_by_status", "Lịch giao xe theo trạng thái (status)"),
+    WALK_IN_PURCHASES("walk_in_purchases", "Khách vãng lai mua xe (startDate, endDate, status)");
+
+    private final String value;
+    private final String description;
+
+    ReportJobType(String value, String description) {
+        this.value = value;
+        this.description = description;
+    }
+
+    @JsonValue
+    public String getValue() {
+        return value;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Chuyển đổi string thành ReportJobType enum
+     * @param value chuỗi loại báo cáo
+     * @return ReportJobType enum
+     * @throws IllegalArgumentException nếu không hợp lệ
+     */
+    public static ReportJobType fromString(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException("Report type is required");
+        }
+        String normalized = value.toLowerCase().trim().replace('-', '_');
+        for (ReportJobType type : values()) {
+            if (type.value.equals(normalized)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Invalid report type: " + value);
+    }
+}
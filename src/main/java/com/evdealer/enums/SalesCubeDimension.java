@@ -0,0 +1,55 @@
+package com.evdealer.enums;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * Các chiều có thể group-by / filter trên sales cube (/api/reports/cube).
+ * Chiều dictionary được mã hóa thành int code; chiều thời gian tính từ order_date.
+ */
+public enum SalesCubeDimension {
+    DEALER("dealer", true),
+    STAFF("staff", true),
+    VARIANT("variant", true),
+    MODEL("model", true),
+    BRAND("brand", true),
+    STATUS("status", true),
+    DAY("day", false),
+    WEEK("week", false),
+    MONTH("month", false),
+    QUARTER("quarter", false),
+    YEAR("year", false);
+
+    private final String value;
+    private final boolean dictionary;
+
+    SalesCubeDimension(String value, boolean dictionary) {
+        this.value = value;
+        this.dictionary = dictionary;
+    }
+
+    @JsonValue
+    public String getValue() {
+        return value;
+    }
+
+    public boolean isDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Chuyển đổi string thành SalesCubeDimension enum
+     * @throws IllegalArgumentException nếu không hợp lệ
+     */
+    public static SalesCubeDimension fromString(String value) {
+        if (value != null) {
+            String normalized = value.toLowerCase().trim();
+            for (SalesCubeDimension dimension : values()) {
+                if (dimension.value.equals(normalized)) {
+                    return dimension;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Invalid cube dimension: " + value
+            + ". Must be one of: dealer, staff, variant, model, brand, status, day, week, month, quarter, year");
+    }
+}
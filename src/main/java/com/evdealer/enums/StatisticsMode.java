@@ -0,0 +1,41 @@
+package com.evdealer.enums;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * Cách tính số dòng cho thống kê dữ liệu: đếm chính xác hoặc ước lượng từ catalog của PostgreSQL
+ */
+public enum StatisticsMode {
+    EXACT("exact", "Đếm chính xác (COUNT song song, có timeout)"),
+    ESTIMATED("estimated", "Ước lượng từ pg_class/pg_stat_user_tables");
+
+    private final String value;
+    private final String description;
+
+    StatisticsMode(String value, String description) {
+        this.value = value;
+        this.description = description;
+    }
+
+    @JsonValue
+    public String getValue() {
+        return value;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public static StatisticsMode fromString(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return EXACT;
+        }
+        String normalized = value.trim().toLowerCase();
+        for (StatisticsMode mode : values()) {
+            if (mode.value.equals(normalized)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Invalid statistics mode: " + value + ". Expected exact or estimated");
+    }
+}
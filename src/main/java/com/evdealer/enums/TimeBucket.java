@@ -0,0 +1,87 @@
+package com.evdealer.enums;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Độ chi tiết thời gian cho báo cáo time-series.
+ * value trùng với đơn vị của PostgreSQL date_trunc (tuần bắt đầu từ thứ Hai).
+ */
+public enum TimeBucket {
+    DAY("day", "Ngày"),
+    WEEK("week", "Tuần"),
+    MONTH("month", "Tháng"),
+    QUARTER("quarter", "Quý");
+
+    private final String value;
+    private final String description;
+
+    TimeBucket(String value, String description) {
+        this.value = value;
+        this.description = description;
+    }
+
+    @JsonValue
+    public String getValue() {
+        return value;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Ngày bắt đầu của bucket chứa date
+     */
+    public LocalDate truncate(LocalDate date) {
+        switch (this) {
+            case WEEK:
+                return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH:
+                return date.withDayOfMonth(1);
+            case QUARTER:
+                int firstMonth = ((date.getMonthValue() - 1) / 3) * 3 + 1;
+                return LocalDate.of(date.getYear(), firstMonth, 1);
+            default:
+                return date;
+        }
+    }
+
+    /**
+     * Ngày bắt đầu của bucket kế tiếp (bucketStart phải đã được truncate)
+     */
+    public LocalDate next(LocalDate bucketStart) {
+        switch (this) {
+            case WEEK:
+                return bucketStart.plusWeeks(1);
+            case MONTH:
+                return bucketStart.plusMonths(1);
+            case QUARTER:
+                return bucketStart.plusMonths(3);
+            default:
+                return bucketStart.plusDays(1);
+        }
+    }
+
+    /**
+     * Chuyển đổi string thành TimeBucket enum
+     * @param value chuỗi granularity (day, week, month, quarter)
+     * @return TimeBucket enum
+     * @throws IllegalArgumentException nếu không hợp lệ
+     */
+    public static TimeBucket fromString(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return DAY;
+        }
+        String normalized = value.toLowerCase().trim();
+        for (TimeBucket bucket : values()) {
+            if (bucket.value.equals(normalized)) {
+                return bucket;
+            }
+        }
+        throw new IllegalArgumentException("Invalid granularity: " + value + ". Must be one of: day, week, month, quarter");
+    }
+}
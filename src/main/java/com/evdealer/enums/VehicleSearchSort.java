@@ -0,0 +1,43 @@
+package com.evdealer.enums;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * Thứ tự sắp xếp kết quả tìm kiếm xe
+ */
+public enum VehicleSearchSort {
+    NEWEST("newest", "Xe mới nhập kho trước"),
+    PRICE_ASC("price_asc", "Giá tăng dần"),
+    PRICE_DESC("price_desc", "Giá giảm dần"),
+    NAME("name", "Theo thương hiệu, mẫu xe, phiên bản");
+
+    private final String value;
+    private final String description;
+
+    VehicleSearchSort(String value, String description) {
+        this.value = value;
+        this.description = description;
+    }
+
+    @JsonValue
+    public String getValue() {
+        return value;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public static VehicleSearchSort fromString(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return NEWEST;
+        }
+        String normalized = value.trim().toLowerCase();
+        for (VehicleSearchSort sort : values()) {
+            if (sort.value.equals(normalized)) {
+                return sort;
+            }
+        }
+        throw new IllegalArgumentException("Invalid sort: " + value + ". Expected newest, price_asc, price_desc or name");
+    }
+}
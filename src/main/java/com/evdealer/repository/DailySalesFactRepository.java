@@ -0,0 +1,128 @@
+package com.evdealer.repository;
+
+import com.evdealer.entity.DailySalesFact;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface DailySalesFactRepository extends JpaRepository<DailySalesFact, UUID> {
+    
+    @Query(value = "SELECT user_id, dealer_id FROM users WHERE user_id IN (:userIds) AND dealer_id IS NOT NULL", nativeQuery = true)
+    List<Object[]> findDealerIdsByUserIds(@Param("userIds") Collection<UUID> userIds);
+    
+    @Query(value = "SELECT inventory_id, variant_id FROM vehicle_inventory WHERE inventory_id IN (:inventoryIds) AND variant_id IS NOT NULL", nativeQuery = true)
+    List<Object[]> findVariantIdsByInventoryIds(@Param("inventoryIds") Collection<UUID> inventoryIds);
+    
+    @Modifying
+    @Query(value = """
+        INSERT INTO daily_sales_fact (fact_id, sales_date, dealer_id, variant_id, order_count, total_revenue, total_deposit, updated_at)
+        VALUES (gen_random_uuid(), :salesDate, :dealerId, :variantId, 0, 0, 0, now())
+        ON CONFLICT (sales_date, dealer_id, variant_id) DO NOTHING
+    """, nativeQuery = true)
+    int insertBucketIfAbsent(@Param("salesDate") LocalDate salesDate,
+                             @Param("dealerId") UUID dealerId,
+                             @Param("variantId") UUID variantId);
+    
+    // Khóa bucket để các transaction cùng cập nhật một ngày/dealer/variant chạy tuần tự
+    @Query(value = """
+        SELECT fact_id FROM daily_sales_fact
+        WHERE sales_date = :salesDate AND dealer_id = :dealerId AND variant_id = :variantId
+        FOR UPDATE
+    """, nativeQuery = true)
+    UUID lockBucket(@Param("salesDate") LocalDate salesDate,
+                    @Param("dealerId") UUID dealerId,
+                    @Param("variantId") UUID variantId);
+    
+    // Tính lại một bucket từ orders (order không có dealer/variant thuộc bucket :unassigned)
+    @Modifying
+    @Query(value = """
+        UPDATE daily_sales_fact f
+        SET order_count = s.order_count, total_revenue = s.total_revenue, total_deposit = s.total_deposit, updated_at = now()
+        FROM (
+            SELECT COUNT(o.order_id) AS order_count,
+                   COALESCE(SUM(o.total_amount), 0) AS total_revenue,
+                   COALESCE(SUM(o.deposit_amount), 0) AS total_deposit
+            FROM orders o
+            LEFT JOIN users u ON u.user_id = o.user_id
+            LEFT JOIN vehicle_inventory vi ON vi.inventory_id = o.inventory_id
+            WHERE o.order_date = :salesDate
+              AND COALESCE(u.dealer_id, :unassigned) = :dealerId
+              AND COALESCE(vi.variant_id, :unassigned) = :variantId
+        ) s
+        WHERE f.sales_date = :salesDate AND f.dealer_id = :dealerId AND f.variant_id = :variantId
+    """, nativeQuery = true)
+    int recomputeBucket(@Param("salesDate") LocalDate salesDate,
+                        @Param("dealerId") UUID dealerId,
+                        @Param("variantId") UUID variantId,
+                        @Param("unassigned") UUID unassigned);
+    
+    @Modifying
+    @Query(value = "DELETE FROM daily_sales_fact WHERE sales_date >= :fromDate AND sales_date < :toDate", nativeQuery = true)
+    int deleteRange(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+    
+    // Backfill một khoảng ngày từ orders (ON CONFLICT: bucket vừa được tạo bởi transaction khác)
+    @Modifying
+    @Query(value = """
+        INSERT INTO daily_sales_fact (fact_id, sales_date, dealer_id, variant_id, order_count, total_revenue, total_deposit, updated_at)
+        SELECT gen_random_uuid(), s.sales_date, s.dealer_id, s.variant_id, s.order_count, s.total_revenue, s.total_deposit, now()
+        FROM (
+            SELECT o.order_date AS sales_date,
+                   COALESCE(u.dealer_id, :unassigned) AS dealer_id,
+                   COALESCE(vi.variant_id, :unassigned) AS variant_id,
+                   COUNT(o.order_id) AS order_count,
+                   COALESCE(SUM(o.total_amount), 0) AS total_revenue,
+                   COALESCE(SUM(o.deposit_amount), 0) AS total_deposit
+            FROM orders o
+            LEFT JOIN users u ON u.user_id = o.user_id
+            LEFT JOIN vehicle_inventory vi ON vi.inventory_id = o.inventory_id
+            WHERE o.order_date >= :fromDate AND o.order_date < :toDate
+            GROUP BY 1, 2, 3
+        ) s
+        ON CONFLICT (sales_date, dealer_id, variant_id) DO UPDATE
+        SET order_count = EXCLUDED.order_count,
+            total_revenue = EXCLUDED.total_revenue,
+            total_deposit = EXCLUDED.total_deposit,
+            updated_at = now()
+    """, nativeQuery = true)
+    int rebuildRange(@Param("fromDate") LocalDate fromDate,
+                     @Param("toDate") LocalDate toDate,
+                     @Param("unassigned") UUID unassigned);
+    
+    @Query("SELECT MIN(o.orderDate), MAX(o.orderDate) FROM Order o")
+    List<Object[]> findOrderDateRange();
+    
+    // [orderCount, totalRevenue, totalDeposit] trong khoảng [fromDate, toDate)
+    @Query("""
+        SELECT COALESCE(SUM(f.orderCount), 0), COALESCE(SUM(f.totalRevenue), 0), COALESCE(SUM(f.totalDeposit), 0)
+        FROM DailySalesFact f
+        WHERE f.salesDate >= :fromDate AND f.salesDate < :toDate
+    """)
+    List<Object[]> sumRange(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+    
+    // [bucketStart, orderCount, totalRevenue, totalDeposit] theo bucket (unit: day/week/month/quarter)
+    @Query(value = """
+        SELECT CAST(date_trunc(:unit, CAST(f.sales_date AS timestamp)) AS date) AS bucket_start,
+               SUM(f.order_count) AS order_count,
+               SUM(f.total_revenue) AS total_revenue,
+               SUM(f.total_deposit) AS total_deposit
+        FROM daily_sales_fact f
+        WHERE f.sales_date >= :fromDate AND f.sales_date < :toDate
+          AND (CAST(:dealerId AS uuid) IS NULL OR f.dealer_id = CAST(:dealerId AS uuid))
+          AND (CAST(:variantId AS uuid) IS NULL OR f.variant_id = CAST(:variantId AS uuid))
+        GROUP BY 1
+        ORDER BY 1
+    """, nativeQuery = true)
+    List<Object[]> findTimeSeries(@Param("unit") String unit,
+                                  @Param("fromDate") LocalDate fromDate,
+                                  @Param("toDate") LocalDate toDate,
+                                  @Param("dealerId") UUID dealerId,
+                                  @Param("variantId") UUID variantId);
+}
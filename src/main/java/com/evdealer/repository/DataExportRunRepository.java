@@ -0,0 +1,17 @@
+package com.evdealer.repository;
+
+import com.evdealer.entity.DataExportRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface DataExportRunRepository extends JpaRepository<DataExportRun, UUID> {
+    
+    Optional<DataExportRun> findTopByOrderByWatermarkDesc();
+    
+    List<DataExportRun> findTop20ByOrderByCompletedAtDesc();
+}
@@ -6,10 +6,12 @@ import com.evdealer.enums.DealerOrderStatus;
 import com.evdealer.enums.DealerOrderType;
 import com.evdealer.enums.Priority;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.LockModeType;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
@@ -23,6 +25,11 @@ public interface DealerOrderRepository extends JpaRepository<DealerOrder, UUID>
     
     Optional<DealerOrder> findByDealerOrderNumber(String dealerOrderNumber);
     
+    // Khóa đơn hàng để các lần phân bổ xe cho cùng một đơn chạy tuần tự
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT do FROM DealerOrder do WHERE do.dealerOrderId = :dealerOrderId")
+    Optional<DealerOrder> lockById(@Param("dealerOrderId") UUID dealerOrderId);
+    
     @Query("SELECT do FROM DealerOrder do LEFT JOIN FETCH do.dealer d LEFT JOIN FETCH do.evmStaff e WHERE do.dealerOrderId = :dealerOrderId")
     Optional<DealerOrder> findByIdWithDetails(@Param("dealerOrderId") UUID dealerOrderId);
     
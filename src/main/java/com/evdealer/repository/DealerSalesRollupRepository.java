@@ -0,0 +1,111 @@
+package com.evdealer.repository;
+
+import com.evdealer.dto.DealerPerformanceItemDTO;
+import com.evdealer.entity.DealerSalesRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface DealerSalesRollupRepository extends JpaRepository<DealerSalesRollup, UUID> {
+    
+    // dealer_id của các user (order -> user -> dealer)
+    @Query(value = "SELECT user_id, dealer_id FROM users WHERE user_id IN (:userIds) AND dealer_id IS NOT NULL", nativeQuery = true)
+    List<Object[]> findDealerIdsByUserIds(@Param("userIds") Collection<UUID> userIds);
+    
+    @Modifying
+    @Query(value = """
+        INSERT INTO dealer_sales_rollup (rollup_id, dealer_id, sales_year, sales_month, order_count, total_revenue, updated_at)
+        VALUES (gen_random_uuid(), :dealerId, :year, :month, 0, 0, now())
+        ON CONFLICT (dealer_id, sales_year, sales_month) DO NOTHING
+    """, nativeQuery = true)
+    int insertBucketIfAbsent(@Param("dealerId") UUID dealerId, @Param("year") int year, @Param("month") int month);
+    
+    // Khóa bucket để các transaction cùng cập nhật một dealer/tháng chạy tuần tự
+    @Query(value = """
+        SELECT rollup_id FROM dealer_sales_rollup
+        WHERE dealer_id = :dealerId AND sales_year = :year AND sales_month = :month
+        FOR UPDATE
+    """, nativeQuery = true)
+    UUID lockBucket(@Param("dealerId") UUID dealerId, @Param("year") int year, @Param("month") int month);
+    
+    // Tính lại một bucket từ orders (chạy sau lockBucket để thấy dữ liệu đã commit mới nhất)
+    @Modifying
+    @Query(value = """
+        UPDATE dealer_sales_rollup r
+        SET order_count = s.order_count, total_revenue = s.total_revenue, updated_at = now()
+        FROM (
+            SELECT COUNT(o.order_id) AS order_count, COALESCE(SUM(o.total_amount), 0) AS total_revenue
+            FROM orders o
+            JOIN users u ON u.user_id = o.user_id
+            WHERE u.dealer_id = :dealerId
+              AND o.order_date >= :fromDate AND o.order_date < :toDate
+              AND o.status IN (:statuses)
+        ) s
+        WHERE r.dealer_id = :dealerId AND r.sales_year = :year AND r.sales_month = :month
+    """, nativeQuery = true)
+    int recomputeBucket(@Param("dealerId") UUID dealerId,
+                        @Param("year") int year,
+                        @Param("month") int month,
+                        @Param("fromDate") LocalDate fromDate,
+                        @Param("toDate") LocalDate toDate,
+                        @Param("statuses") Collection<String> statuses);
+    
+    @Modifying
+    @Query(value = "LOCK TABLE dealer_sales_rollup IN EXCLUSIVE MODE", nativeQuery = true)
+    void lockTable();
+    
+    @Modifying
+    @Query(value = "DELETE FROM dealer_sales_rollup", nativeQuery = true)
+    int deleteAllRows();
+    
+    // Backfill toàn bộ rollup từ orders
+    @Modifying
+    @Query(value = """
+        INSERT INTO dealer_sales_rollup (rollup_id, dealer_id, sales_year, sales_month, order_count, total_revenue, updated_at)
+        SELECT gen_random_uuid(), s.dealer_id, s.sales_year, s.sales_month, s.order_count, s.total_revenue, now()
+        FROM (
+            SELECT u.dealer_id,
+                   CAST(EXTRACT(YEAR FROM o.order_date) AS INTEGER) AS sales_year,
+                   CAST(EXTRACT(MONTH FROM o.order_date) AS INTEGER) AS sales_month,
+                   COUNT(o.order_id) AS order_count,
+                   COALESCE(SUM(o.total_amount), 0) AS total_revenue
+            FROM orders o
+            JOIN users u ON u.user_id = o.user_id
+            WHERE u.dealer_id IS NOT NULL
+              AND o.status IN (:statuses)
+            GROUP BY u.dealer_id, sales_year, sales_month
+        ) s
+    """, nativeQuery = true)
+    int rebuildFromOrders(@Param("statuses") Collection<String> statuses);
+    
+    // Có order tính doanh số của nhân viên dealer (rollup rỗng trong khi điều này đúng nghĩa là chưa backfill)
+    @Query(value = """
+        SELECT EXISTS (
+            SELECT 1 FROM orders o
+            JOIN users u ON u.user_id = o.user_id
+            WHERE u.dealer_id IS NOT NULL AND o.status IN (:statuses)
+        )
+    """, nativeQuery = true)
+    boolean existsRevenueRecognizedOrders(@Param("statuses") Collection<String> statuses);
+    
+    // Dealer performance: target join rollup (target không có tháng = cả năm)
+    @Query("""
+        SELECT new com.evdealer.dto.DealerPerformanceItemDTO(
+            d.dealerId, d.dealerName, t.targetYear, t.targetAmount, SUM(r.totalRevenue))
+        FROM DealerTarget t
+        JOIN t.dealer d
+        LEFT JOIN DealerSalesRollup r ON r.dealerId = d.dealerId
+            AND r.salesYear = t.targetYear
+            AND (t.targetMonth IS NULL OR r.salesMonth = t.targetMonth)
+        GROUP BY t.targetId, d.dealerId, d.dealerName, t.targetYear, t.targetAmount
+    """)
+    List<DealerPerformanceItemDTO> findDealerPerformance();
+}
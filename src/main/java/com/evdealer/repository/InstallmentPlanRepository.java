@@ -1,11 +1,15 @@
 package com.evdealer.repository;
 
 import com.evdealer.entity.InstallmentPlan;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -37,4 +41,47 @@ public interface InstallmentPlanRepository extends JpaRepository<InstallmentPlan
     List<InstallmentPlan> findByDealerDealerId(@Param("dealerId") UUID dealerId);
     
     List<InstallmentPlan> findByPlanType(String planType);
-}
\ No newline at end of file
+    
+    // Công nợ theo plan đang active: plan + customer + tổng đã trả từ installment_schedules (một lần quét, không lazy load)
+    String CUSTOMER_DEBT_FROM = """
+        FROM (
+            SELECT c.customer_id,
+                   CONCAT(c.first_name, ' ', c.last_name) AS customer_name,
+                   p.plan_id,
+                   p.total_amount,
+                   p.down_payment_amount + COALESCE(s.paid_amount, 0) AS paid_amount,
+                   p.total_amount - p.down_payment_amount - COALESCE(s.paid_amount, 0) AS remaining_amount,
+                   p.loan_term_months,
+                   p.plan_type,
+                   COALESCE(s.overdue_installments, 0) AS overdue_installments,
+                   COALESCE(s.overdue_amount, 0) AS overdue_amount
+            FROM installment_plans p
+            JOIN customers c ON c.customer_id = p.customer_id
+            LEFT JOIN (
+                SELECT plan_id,
+                       SUM(COALESCE(paid_amount, 0)) AS paid_amount,
+                       COUNT(*) FILTER (WHERE due_date < :today AND status <> 'paid') AS overdue_installments,
+                       SUM(amount - COALESCE(paid_amount, 0)) FILTER (WHERE due_date < :today AND status <> 'paid') AS overdue_amount
+                FROM installment_schedules
+                GROUP BY plan_id
+            ) s ON s.plan_id = p.plan_id
+            WHERE p.plan_status = 'active'
+        ) d
+        WHERE (:overdueOnly = false OR d.overdue_installments > 0)
+          AND (CAST(:minRemaining AS numeric) IS NULL OR d.remaining_amount >= CAST(:minRemaining AS numeric))
+          AND (CAST(:maxRemaining AS numeric) IS NULL OR d.remaining_amount <= CAST(:maxRemaining AS numeric))
+    """;
+    
+    // [customerId, customerName, planId, totalAmount, paidAmount, remainingAmount, loanTermMonths, planType, overdueInstallments, overdueAmount]
+    @Query(value = "SELECT d.customer_id, d.customer_name, d.plan_id, d.total_amount, d.paid_amount, d.remaining_amount, "
+            + "d.loan_term_months, d.plan_type, d.overdue_installments, d.overdue_amount "
+            + CUSTOMER_DEBT_FROM
+            + " ORDER BY d.remaining_amount DESC, d.plan_id",
+           countQuery = "SELECT COUNT(*) " + CUSTOMER_DEBT_FROM,
+           nativeQuery = true)
+    Page<Object[]> findCustomerDebts(@Param("today") LocalDate today,
+                                     @Param("overdueOnly") boolean overdueOnly,
+                                     @Param("minRemaining") BigDecimal minRemaining,
+                                     @Param("maxRemaining") BigDecimal maxRemaining,
+                                     Pageable pageable);
+}
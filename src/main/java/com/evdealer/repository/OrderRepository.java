@@ -1,18 +1,23 @@
 package com.evdealer.repository;
 
+import com.evdealer.dto.SalesByStaffItemDTO;
 import com.evdealer.entity.Order;
 import com.evdealer.enums.OrderStatus;
 import com.evdealer.enums.OrderType;
 import com.evdealer.enums.PaymentStatus;
 import com.evdealer.enums.DeliveryStatus;
+import com.evdealer.enums.UserType;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -49,10 +54,36 @@ public interface OrderRepository extends JpaRepository<Order, UUID> {
     @Query("SELECT o FROM Order o WHERE o.customer.customerId = :customerId AND o.status = :status")
     List<Order> findByCustomerAndStatus(@Param("customerId") UUID customerId, @Param("status") OrderStatus status);
     
+    // Khóa các order của các xe ở các trạng thái cho trước (vd. order chưa xác nhận của xe vừa hết hạn giữ chỗ).
+    // Order vừa được xác nhận bởi transaction khác thì không còn khớp điều kiện sau khi chờ khóa
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.inventory.inventoryId IN :inventoryIds AND o.status IN :statuses")
+    List<Order> findByInventoryIdsAndStatuses(@Param("inventoryIds") Collection<UUID> inventoryIds,
+                                              @Param("statuses") Collection<OrderStatus> statuses);
+    
     @Query("SELECT o FROM Order o WHERE o.user.userId = :userId")
     List<Order> findByUserId(@Param("userId") UUID userId);
     
     boolean existsByOrderNumber(String orderNumber);
+    
+    // Sales theo user: đếm và tổng totalAmount trong một GROUP BY (user không có order vẫn xuất hiện)
+    @Query("""
+        SELECT new com.evdealer.dto.SalesByStaffItemDTO(
+            u.userId, u.firstName, u.lastName, u.userType, COUNT(o.orderId), SUM(o.totalAmount))
+        FROM User u
+        LEFT JOIN Order o ON o.user = u
+            AND (:startDate IS NULL OR o.orderDate >= :startDate)
+            AND (:endDate   IS NULL OR o.orderDate <= :endDate)
+        WHERE u.userType = :userType
+          AND (:dealerId IS NULL OR u.dealer.dealerId = :dealerId)
+        GROUP BY u.userId, u.firstName, u.lastName, u.userType
+        ORDER BY COALESCE(SUM(o.totalAmount), 0) DESC
+    """)
+    List<SalesByStaffItemDTO> aggregateSalesByUserType(
+            @Param("userType") UserType userType,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            @Param("dealerId") UUID dealerId);
 
     @Query("SELECT o FROM Order o WHERE o.quotation IS NULL AND o.customer IS NOT NULL")
     List<Order> findWalkInOrders();
@@ -83,6 +114,54 @@ public interface OrderRepository extends JpaRepository<Order, UUID> {
             @Param("endDate") LocalDate endDate,
             @Param("status") OrderStatus status,
             Pageable pageable);
+
+    // Keyset pagination theo (orderDate DESC, orderId DESC), dùng index idx_orders_order_date_id.
+    // Pageable chỉ dùng làm LIMIT (xem OrderCursor.fetchLimit); trang sau lọc theo dòng cuối của trang trước
+    @Query("SELECT o FROM Order o ORDER BY o.orderDate DESC, o.orderId DESC")
+    List<Order> findOrderPageFirst(Pageable limit);
+
+    @Query("""
+        SELECT o FROM Order o
+        WHERE (o.orderDate, o.orderId) < (:afterDate, :afterId)
+        ORDER BY o.orderDate DESC, o.orderId DESC
+    """)
+    List<Order> findOrderPageAfter(
+            @Param("afterDate") LocalDate afterDate,
+            @Param("afterId") UUID afterId,
+            Pageable limit);
+
+    @Query("""
+        SELECT o FROM Order o
+        WHERE o.quotation IS NULL
+          AND o.customer IS NOT NULL
+          AND (:startDate IS NULL OR o.orderDate >= :startDate)
+          AND (:endDate   IS NULL OR o.orderDate <= :endDate)
+          AND (:status    IS NULL OR o.status = :status)
+        ORDER BY o.orderDate DESC, o.orderId DESC
+    """)
+    List<Order> findWalkInOrderPageFirst(
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            @Param("status") OrderStatus status,
+            Pageable limit);
+
+    @Query("""
+        SELECT o FROM Order o
+        WHERE o.quotation IS NULL
+          AND o.customer IS NOT NULL
+          AND (:startDate IS NULL OR o.orderDate >= :startDate)
+          AND (:endDate   IS NULL OR o.orderDate <= :endDate)
+          AND (:status    IS NULL OR o.status = :status)
+          AND (o.orderDate, o.orderId) < (:afterDate, :afterId)
+        ORDER BY o.orderDate DESC, o.orderId DESC
+    """)
+    List<Order> findWalkInOrderPageAfter(
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            @Param("status") OrderStatus status,
+            @Param("afterDate") LocalDate afterDate,
+            @Param("afterId") UUID afterId,
+            Pageable limit);
     
     // Tìm Order theo Quotation ID
     @Query("SELECT o FROM Order o WHERE o.quotation.quotationId = :quotationId")
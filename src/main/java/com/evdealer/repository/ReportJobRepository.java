@@ -0,0 +1,42 @@
+package com.evdealer.repository;
+
+import com.evdealer.entity.ReportJob;
+import com.evdealer.enums.ReportJobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface ReportJobRepository extends JpaRepository<ReportJob, UUID> {
+    
+    List<ReportJob> findTop50ByRequestedByOrderByCreatedAtDesc(UUID requestedBy);
+    
+    List<ReportJob> findByExpiresAtBefore(LocalDateTime time);
+    
+    @Modifying
+    @Transactional
+    @Query("UPDATE ReportJob j SET j.progress = :progress WHERE j.jobId = :jobId AND j.progress < :progress")
+    int updateProgress(@Param("jobId") UUID jobId, @Param("progress") int progress);
+    
+    // Job chưa xong khi ứng dụng dừng sẽ không bao giờ chạy tiếp
+    @Modifying
+    @Transactional
+    @Query("""
+        UPDATE ReportJob j
+        SET j.status = :failed, j.errorMessage = :message, j.completedAt = :now, j.expiresAt = :expiresAt
+        WHERE j.status IN :activeStatuses
+    """)
+    int failActiveJobs(@Param("activeStatuses") Collection<ReportJobStatus> activeStatuses,
+                       @Param("failed") ReportJobStatus failed,
+                       @Param("message") String message,
+                       @Param("now") LocalDateTime now,
+                       @Param("expiresAt") LocalDateTime expiresAt);
+}
@@ -0,0 +1,51 @@
+package com.evdealer.repository;
+
+import com.evdealer.entity.Order;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Các query đọc dữ liệu cho SalesCubeService (chỉ đọc, native SQL).
+ */
+@org.springframework.stereotype.Repository
+@Transactional(readOnly = true)
+public interface SalesCubeRepository extends org.springframework.data.repository.Repository<Order, UUID> {
+    
+    // Order đã thay đổi sau (updatedAt, orderId), keyset theo (updated_at, order_id)
+    // [orderId, updatedAt, orderDate, status, totalAmount, userId, dealerId, variantId, modelId, brandId]
+    @Query(value = """
+        SELECT o.order_id, o.updated_at, o.order_date, o.status, o.total_amount,
+               o.user_id, u.dealer_id, vi.variant_id, vv.model_id, vm.brand_id
+        FROM orders o
+        LEFT JOIN users u ON u.user_id = o.user_id
+        LEFT JOIN vehicle_inventory vi ON vi.inventory_id = o.inventory_id
+        LEFT JOIN vehicle_variants vv ON vv.variant_id = vi.variant_id
+        LEFT JOIN vehicle_models vm ON vm.model_id = vv.model_id
+        WHERE (o.updated_at, o.order_id) > (:afterTime, :afterId)
+        ORDER BY o.updated_at, o.order_id
+        LIMIT :batchSize
+    """, nativeQuery = true)
+    List<Object[]> findOrdersUpdatedAfter(@Param("afterTime") LocalDateTime afterTime,
+                                          @Param("afterId") UUID afterId,
+                                          @Param("batchSize") int batchSize);
+    
+    @Query(value = "SELECT dealer_id, dealer_name FROM dealers", nativeQuery = true)
+    List<Object[]> findDealerNames();
+    
+    @Query(value = "SELECT user_id, CONCAT(first_name, ' ', last_name) FROM users", nativeQuery = true)
+    List<Object[]> findStaffNames();
+    
+    @Query(value = "SELECT variant_id, variant_name FROM vehicle_variants", nativeQuery = true)
+    List<Object[]> findVariantNames();
+    
+    @Query(value = "SELECT model_id, model_name FROM vehicle_models", nativeQuery = true)
+    List<Object[]> findModelNames();
+    
+    @Query(value = "SELECT brand_id, brand_name FROM vehicle_brands", nativeQuery = true)
+    List<Object[]> findBrandNames();
+}
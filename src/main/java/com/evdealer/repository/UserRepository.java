@@ -29,6 +29,11 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     @Query("SELECT u FROM User u LEFT JOIN FETCH u.dealer WHERE u.username = :username")
     Optional<User> findByUsernameWithDealer(@Param("username") String username);
     
+    // Login bằng username hoặc email trong một query; match theo username được ưu tiên
+    @Query("SELECT u FROM User u LEFT JOIN FETCH u.dealer WHERE u.username = :login OR u.email = :login " +
+           "ORDER BY CASE WHEN u.username = :login THEN 0 ELSE 1 END")
+    List<User> findByUsernameOrEmailWithDealer(@Param("login") String login);
+    
     @Query("SELECT u FROM User u WHERE u.status = com.evdealer.enums.UserStatus.ACTIVE")
     List<User> findByIsActiveTrue();
     
@@ -11,6 +11,7 @@ import org.springframework.stereotype.Repository;
 import jakarta.persistence.LockModeType;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -35,6 +36,28 @@ public interface VehicleInventoryRepository extends JpaRepository<VehicleInvento
     @Query("SELECT DISTINCT vi FROM VehicleInventory vi LEFT JOIN FETCH vi.variant v LEFT JOIN FETCH v.model m LEFT JOIN FETCH m.brand LEFT JOIN FETCH vi.color LEFT JOIN FETCH vi.warehouse WHERE vi.status = :status")
     List<VehicleInventory> findByStatus(@Param("status") VehicleStatus status);
     
+    // Số xe theo (status, warehouse, variant, dealer giữ chỗ) - seed/reconcile cho bộ đếm trạng thái
+    @Query("""
+        SELECT vi.status, w.warehouseId, v.variantId, d.dealerId, COUNT(vi)
+        FROM VehicleInventory vi
+        LEFT JOIN vi.warehouse w
+        LEFT JOIN vi.variant v
+        LEFT JOIN vi.reservedForDealer d
+        GROUP BY vi.status, w.warehouseId, v.variantId, d.dealerId
+    """)
+    List<Object[]> countByStatusGroups();
+    
+    // Các xe theo trạng thái dạng projection (id, variant, color, warehouse, giá bán) - seed cho facet index
+    @Query("""
+        SELECT vi.inventoryId, v.variantId, c.colorId, w.warehouseId, vi.sellingPrice
+        FROM VehicleInventory vi
+        LEFT JOIN vi.variant v
+        LEFT JOIN vi.color c
+        LEFT JOIN vi.warehouse w
+        WHERE vi.status = :status
+    """)
+    List<Object[]> findFacetRowsByStatus(@Param("status") VehicleStatus status);
+    
     @Query("SELECT DISTINCT vi FROM VehicleInventory vi LEFT JOIN FETCH vi.variant v LEFT JOIN FETCH v.model m LEFT JOIN FETCH m.brand LEFT JOIN FETCH vi.color LEFT JOIN FETCH vi.warehouse WHERE vi.variant.variantId = :variantId")
     List<VehicleInventory> findByVariantVariantId(@Param("variantId") Integer variantId);
     
@@ -67,16 +90,138 @@ public interface VehicleInventoryRepository extends JpaRepository<VehicleInvento
     @Query("SELECT vi FROM VehicleInventory vi WHERE vi.arrivalDate BETWEEN :startDate AND :endDate")
     List<VehicleInventory> findByArrivalDateRange(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
     
-    @Query("SELECT DISTINCT vi FROM VehicleInventory vi LEFT JOIN FETCH vi.variant v LEFT JOIN FETCH v.model m LEFT JOIN FETCH m.brand LEFT JOIN FETCH vi.color LEFT JOIN FETCH vi.warehouse WHERE vi.vin LIKE %:vin%")
-    List<VehicleInventory> findByVinContaining(@Param("vin") String vin);
-    
-    @Query("SELECT DISTINCT vi FROM VehicleInventory vi LEFT JOIN FETCH vi.variant v LEFT JOIN FETCH v.model m LEFT JOIN FETCH m.brand LEFT JOIN FETCH vi.color LEFT JOIN FETCH vi.warehouse WHERE vi.chassisNumber LIKE %:chassisNumber%")
-    List<VehicleInventory> findByChassisNumberContaining(@Param("chassisNumber") String chassisNumber);
+    @Query("SELECT DISTINCT vi FROM VehicleInventory vi LEFT JOIN FETCH vi.variant v LEFT JOIN FETCH v.model m LEFT JOIN FETCH m.brand LEFT JOIN FETCH vi.color LEFT JOIN FETCH vi.warehouse WHERE vi.inventoryId IN :ids")
+    List<VehicleInventory> findAllWithRelationshipsByIdIn(@Param("ids") java.util.Collection<UUID> ids);
+    
+    // Tìm theo một phần VIN / số khung / biển số (pattern ILIKE đã escape, dùng index trigram GIN).
+    // Xếp hạng: khớp chính xác, khớp đầu chuỗi, chứa; rồi ưu tiên VIN > số khung > biển số. Chỉ trả id, entity load sau.
+    @Query(value = """
+        SELECT vi.inventory_id
+        FROM vehicle_inventory vi
+        WHERE vi.vin ILIKE :pattern OR vi.chassis_number ILIKE :pattern OR vi.license_plate ILIKE :pattern
+        ORDER BY
+            CASE
+                WHEN upper(vi.vin) = :keyword OR upper(vi.chassis_number) = :keyword OR upper(vi.license_plate) = :keyword THEN 0
+                WHEN vi.vin ILIKE :prefix OR vi.chassis_number ILIKE :prefix OR vi.license_plate ILIKE :prefix THEN 1
+                ELSE 2
+            END,
+            CASE WHEN vi.vin ILIKE :pattern THEN 0 WHEN vi.chassis_number ILIKE :pattern THEN 1 ELSE 2 END,
+            vi.vin, vi.inventory_id
+        LIMIT :limit
+    """, nativeQuery = true)
+    List<UUID> searchRankedIds(@Param("keyword") String keyword, @Param("pattern") String pattern,
+                               @Param("prefix") String prefix, @Param("limit") int limit);
+    
+    @Query(value = """
+        SELECT vi.inventory_id
+        FROM vehicle_inventory vi
+        WHERE vi.vin ILIKE :pattern
+        ORDER BY CASE WHEN vi.vin ILIKE :prefix THEN 0 ELSE 1 END, vi.vin
+        LIMIT :limit
+    """, nativeQuery = true)
+    List<UUID> searchIdsByVin(@Param("pattern") String pattern, @Param("prefix") String prefix, @Param("limit") int limit);
+    
+    @Query(value = """
+        SELECT vi.inventory_id
+        FROM vehicle_inventory vi
+        WHERE vi.chassis_number ILIKE :pattern
+        ORDER BY CASE WHEN vi.chassis_number ILIKE :prefix THEN 0 ELSE 1 END, vi.chassis_number, vi.inventory_id
+        LIMIT :limit
+    """, nativeQuery = true)
+    List<UUID> searchIdsByChassisNumber(@Param("pattern") String pattern, @Param("prefix") String prefix, @Param("limit") int limit);
+    
+    // Typeahead: projection (id, VIN), không join
+    @Query(value = """
+        SELECT vi.inventory_id, vi.vin
+        FROM vehicle_inventory vi
+        WHERE vi.vin ILIKE :pattern
+        ORDER BY CASE WHEN vi.vin ILIKE :prefix THEN 0 ELSE 1 END, vi.vin
+        LIMIT :limit
+    """, nativeQuery = true)
+    List<Object[]> findVinSuggestions(@Param("pattern") String pattern, @Param("prefix") String prefix, @Param("limit") int limit);
     
     // Additional method for dealer order items
     @Query("SELECT vi FROM VehicleInventory vi WHERE vi.variant.variantId = :variantId AND vi.color.colorId = :colorId AND vi.status = :status")
     List<VehicleInventory> findByVariantVariantIdAndColorColorIdAndStatus(@Param("variantId") Integer variantId, @Param("colorId") Integer colorId, @Param("status") VehicleStatus status);
     
+    @Query("SELECT COUNT(vi) FROM VehicleInventory vi WHERE vi.variant.variantId = :variantId AND vi.color.colorId = :colorId AND vi.status = :status")
+    long countByVariantColorAndStatus(@Param("variantId") Integer variantId, @Param("colorId") Integer colorId, @Param("status") VehicleStatus status);
+    
+    // Các xe giữ chỗ đã hết hạn, khóa theo lô; dòng đang bị transaction khác khóa (vd. đang tạo order) thì bỏ qua.
+    // Xe có order đã xác nhận / đã trả tiền (một phần hoặc đủ) không bao giờ bị nhả
+    @Query(value = """
+        SELECT vi.inventory_id
+        FROM vehicle_inventory vi
+        WHERE vi.status = :status AND vi.reserved_expiry_date <= :now
+          AND NOT EXISTS (
+              SELECT 1 FROM orders o
+              WHERE o.inventory_id = vi.inventory_id
+                AND (o.status IN (:committedOrderStatuses) OR o.payment_status IN (:paidPaymentStatuses))
+          )
+        ORDER BY vi.reserved_expiry_date
+        LIMIT :limit
+        FOR UPDATE OF vi SKIP LOCKED
+    """, nativeQuery = true)
+    List<UUID> lockExpiredReservationIds(@Param("status") String status,
+                                         @Param("now") java.time.LocalDateTime now,
+                                         @Param("committedOrderStatuses") Collection<String> committedOrderStatuses,
+                                         @Param("paidPaymentStatuses") Collection<String> paidPaymentStatuses,
+                                         @Param("limit") int limit);
+    
+    // Phân bổ tối đa :quantity xe (variant, color) còn AVAILABLE cho một dòng đơn hàng đại lý trong một câu lệnh:
+    // khóa bằng FOR UPDATE SKIP LOCKED (xe đang bị transaction khác khóa thì bỏ qua), ưu tiên kho :warehouseId,
+    // xe về kho sớm trước. Trả về (inventory_id, warehouse_id, variant_id, color_id, selling_price, reserved_for_dealer cũ)
+    @Query(value = """
+        WITH picked AS (
+            SELECT vi.inventory_id, vi.reserved_for_dealer AS previous_dealer
+            FROM vehicle_inventory vi
+            WHERE vi.variant_id = :variantId AND vi.color_id = :colorId AND vi.status = :availableStatus
+            ORDER BY CASE WHEN vi.warehouse_id = :warehouseId THEN 0 ELSE 1 END, vi.arrival_date NULLS LAST, vi.inventory_id
+            LIMIT :quantity
+            FOR UPDATE OF vi SKIP LOCKED
+        )
+        UPDATE vehicle_inventory vi
+        SET status = :reservedStatus, reserved_for_dealer = :dealerId, reserved_date = :now,
+            reserved_expiry_date = NULL, allocated_order_item_id = :itemId, version = COALESCE(vi.version, 0) + 1
+        FROM picked
+        WHERE vi.inventory_id = picked.inventory_id
+        RETURNING vi.inventory_id, vi.warehouse_id, vi.variant_id, vi.color_id, vi.selling_price, picked.previous_dealer
+    """, nativeQuery = true)
+    List<Object[]> allocateUnits(@Param("itemId") UUID itemId, @Param("dealerId") UUID dealerId,
+                                 @Param("variantId") Integer variantId, @Param("colorId") Integer colorId,
+                                 @Param("warehouseId") UUID warehouseId, @Param("quantity") int quantity,
+                                 @Param("availableStatus") String availableStatus, @Param("reservedStatus") String reservedStatus,
+                                 @Param("now") java.time.LocalDateTime now);
+    
+    // Số xe đã phân bổ cho từng dòng đơn hàng đại lý
+    @Query(value = """
+        SELECT vi.allocated_order_item_id, COUNT(*)
+        FROM vehicle_inventory vi
+        WHERE vi.allocated_order_item_id IN (:itemIds)
+        GROUP BY vi.allocated_order_item_id
+    """, nativeQuery = true)
+    List<Object[]> countAllocatedByItemIds(@Param("itemIds") java.util.Collection<UUID> itemIds);
+    
+    // Trả các xe đã phân bổ (còn RESERVED) của các dòng đơn hàng về AVAILABLE.
+    // Trả về (inventory_id, warehouse_id, variant_id, color_id, selling_price, reserved_for_dealer cũ)
+    @Query(value = """
+        WITH picked AS (
+            SELECT vi.inventory_id, vi.reserved_for_dealer AS previous_dealer
+            FROM vehicle_inventory vi
+            WHERE vi.allocated_order_item_id IN (:itemIds) AND vi.status = :reservedStatus
+            FOR UPDATE OF vi
+        )
+        UPDATE vehicle_inventory vi
+        SET status = :availableStatus, reserved_for_dealer = NULL, reserved_date = NULL,
+            allocated_order_item_id = NULL, version = COALESCE(vi.version, 0) + 1
+        FROM picked
+        WHERE vi.inventory_id = picked.inventory_id
+        RETURNING vi.inventory_id, vi.warehouse_id, vi.variant_id, vi.color_id, vi.selling_price, picked.previous_dealer
+    """, nativeQuery = true)
+    List<Object[]> releaseAllocatedUnits(@Param("itemIds") java.util.Collection<UUID> itemIds,
+                                         @Param("reservedStatus") String reservedStatus,
+                                         @Param("availableStatus") String availableStatus);
+    
     // Lock method for concurrent inventory reservation
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("SELECT vi FROM VehicleInventory vi WHERE vi.inventoryId = :id")
@@ -37,6 +37,9 @@ public class CustomerPaymentService {
     @Autowired
     private SalesContractService salesContractService;
     
+    @Autowired
+    private ReservationService reservationService;
+    
     @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<CustomerPayment> getAllCustomerPayments() {
         // Dùng native query để tránh lỗi khi customer/order đã bị xóa
@@ -126,6 +129,11 @@ public class CustomerPaymentService {
             if (order.getTotalAmount() == null || order.getTotalAmount().compareTo(BigDecimal.ZERO) <= 0) {
                 throw new RuntimeException("Order must have a valid total amount before payment");
             }
+            
+            // Xe của order phải còn giữ cho khách (giữ chỗ có thể đã hết hạn và xe thuộc về khách khác)
+            if (customerPayment.getStatus() == CustomerPaymentStatus.COMPLETED) {
+                ensureVehicleHeldForOrder(order.getOrderId());
+            }
         }
         
         CustomerPayment savedPayment = customerPaymentRepository.save(customerPayment);
@@ -175,6 +183,11 @@ public class CustomerPaymentService {
                 .orElseThrow(() -> new RuntimeException("Customer payment not found with ID: " + paymentId));
         
         CustomerPaymentStatus statusEnum = CustomerPaymentStatus.fromString(status);
+        // Kiểm tra xe trước khi ghi nhận: lỗi ở đây từ chối cả việc chuyển payment sang COMPLETED
+        if (statusEnum == CustomerPaymentStatus.COMPLETED && customerPayment.getStatus() != CustomerPaymentStatus.COMPLETED
+                && customerPayment.getOrder() != null) {
+            ensureVehicleHeldForOrder(customerPayment.getOrder().getOrderId());
+        }
         customerPayment.setStatus(statusEnum);
         
         CustomerPayment savedPayment = customerPaymentRepository.save(customerPayment);
@@ -205,6 +218,14 @@ public class CustomerPaymentService {
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
     }
     
+    private void ensureVehicleHeldForOrder(UUID orderId) {
+        Order order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new RuntimeException("Order not found with id: " + orderId));
+        if (order.getInventory() != null) {
+            reservationService.ensureHeldFor(order.getInventory(), order.getCustomer());
+        }
+    }
+    
     /**
      * Update Order status and Inventory status after payment
      */
@@ -232,12 +253,18 @@ public class CustomerPaymentService {
             order.setPaymentStatus(PaymentStatus.PAID);
             order.setStatus(OrderStatus.PAID);
             
+            // Xe phải còn giữ cho khách của order trước khi chuyển sang SOLD (lỗi không bị nuốt bên dưới)
+            if (order.getInventory() != null) {
+                reservationService.ensureHeldFor(order.getInventory(), order.getCustomer());
+            }
+            
             // Update Inventory status to "sold" if fully paid
             try {
                 if (order.getInventory() != null) {
                     VehicleInventory inventory = order.getInventory();
                     if (inventory != null) {
                         inventory.setStatus(VehicleStatus.SOLD);
+                        inventory.setReservedExpiryDate(null);
                         vehicleInventoryRepository.save(inventory);
                     }
                 }
@@ -257,6 +284,12 @@ public class CustomerPaymentService {
             // Partially paid
             order.setPaymentStatus(PaymentStatus.PARTIAL);
             order.setStatus(OrderStatus.CONFIRMED);
+            
+            // Đã đặt cọc: giữ xe cho đến khi thanh toán đủ, không để hết hạn giữ chỗ
+            if (order.getInventory() != null) {
+                reservationService.ensureHeldFor(order.getInventory(), order.getCustomer());
+                reservationService.confirmPaidHold(order.getInventory());
+            }
         }
         
         try {
@@ -0,0 +1,198 @@
+package com.evdealer.service;
+
+import com.evdealer.entity.DailySalesFact;
+import com.evdealer.entity.OrderSalesSnapshot;
+import com.evdealer.repository.DailySalesFactRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Duy trì bảng daily_sales_fact (ngày × dealer × variant).
+ * Bucket liên quan tới Order thay đổi được tính lại ngay trước commit; backfill dữ liệu cũ
+ * chạy theo từng đoạn ngày, mỗi đoạn một transaction riêng.
+ */
+@Service
+public class DailySalesFactService extends OrderSalesAggregator<DailySalesFactService.FactKey> {
+
+    private static final Logger logger = LoggerFactory.getLogger(DailySalesFactService.class);
+
+    private final DailySalesFactRepository factRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int backfillChunkDays;
+
+    public DailySalesFactService(DailySalesFactRepository factRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${app.reports.daily-sales-fact.backfill-chunk-days:31}") int backfillChunkDays) {
+        this.factRepository = factRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Mỗi đoạn commit riêng kể cả khi được gọi từ trong một transaction khác
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.backfillChunkDays = Math.max(1, backfillChunkDays);
+    }
+
+    @Override
+    protected void collectKeys(OrderSalesSnapshot previous, OrderSalesSnapshot current, Set<FactKey> keys) {
+        if (previous != null && previous.getOrderDate() != null) {
+            keys.add(new FactKey(previous.getOrderDate(), previous.getUserId(), previous.getInventoryId()));
+        }
+        if (current != null && current.getOrderDate() != null) {
+            keys.add(new FactKey(current.getOrderDate(), current.getUserId(), current.getInventoryId()));
+        }
+    }
+
+    @Override
+    protected void apply(Set<FactKey> pending) {
+        Set<UUID> userIds = new HashSet<>();
+        Set<UUID> inventoryIds = new HashSet<>();
+        for (FactKey key : pending) {
+            if (key.userId != null) {
+                userIds.add(key.userId);
+            }
+            if (key.inventoryId != null) {
+                inventoryIds.add(key.inventoryId);
+            }
+        }
+
+        Map<UUID, UUID> dealerByUser = new HashMap<>();
+        if (!userIds.isEmpty()) {
+            for (Object[] row : factRepository.findDealerIdsByUserIds(userIds)) {
+                dealerByUser.put((UUID) row[0], (UUID) row[1]);
+            }
+        }
+        Map<UUID, UUID> variantByInventory = new HashMap<>();
+        if (!inventoryIds.isEmpty()) {
+            for (Object[] row : factRepository.findVariantIdsByInventoryIds(inventoryIds)) {
+                variantByInventory.put((UUID) row[0], (UUID) row[1]);
+            }
+        }
+
+        // Sắp xếp bucket để các transaction luôn khóa theo cùng thứ tự (tránh deadlock)
+        Set<Bucket> buckets = new TreeSet<>();
+        for (FactKey key : pending) {
+            UUID dealerId = dealerByUser.getOrDefault(key.userId, DailySalesFact.UNASSIGNED);
+            UUID variantId = variantByInventory.getOrDefault(key.inventoryId, DailySalesFact.UNASSIGNED);
+            buckets.add(new Bucket(key.orderDate, dealerId, variantId));
+        }
+
+        for (Bucket bucket : buckets) {
+            factRepository.insertBucketIfAbsent(bucket.salesDate, bucket.dealerId, bucket.variantId);
+            factRepository.lockBucket(bucket.salesDate, bucket.dealerId, bucket.variantId);
+            factRepository.recomputeBucket(bucket.salesDate, bucket.dealerId, bucket.variantId, DailySalesFact.UNASSIGNED);
+        }
+    }
+
+    /**
+     * Dựng lại fact table cho toàn bộ khoảng ngày có order
+     *
+     * @return số bucket đã ghi
+     */
+    public int backfill() {
+        List<Object[]> range = factRepository.findOrderDateRange();
+        if (range.isEmpty() || range.get(0)[0] == null) {
+            return 0;
+        }
+        return backfill((LocalDate) range.get(0)[0], (LocalDate) range.get(0)[1]);
+    }
+
+    /**
+     * Dựng lại fact table cho [fromDate, toDate] (tính cả hai đầu), mỗi đoạn
+     * backfill-chunk-days ngày chạy trong một transaction riêng để không giữ lock lâu.
+     *
+     * @return số bucket đã ghi
+     */
+    public int backfill(LocalDate fromDate, LocalDate toDate) {
+        LocalDate endExclusive = toDate.plusDays(1);
+        int total = 0;
+        for (LocalDate chunkStart = fromDate; chunkStart.isBefore(endExclusive); chunkStart = chunkStart.plusDays(backfillChunkDays)) {
+            LocalDate chunkEnd = chunkStart.plusDays(backfillChunkDays);
+            if (chunkEnd.isAfter(endExclusive)) {
+                chunkEnd = endExclusive;
+            }
+            LocalDate start = chunkStart;
+            LocalDate end = chunkEnd;
+            Integer written = transactionTemplate.execute(status -> {
+                factRepository.deleteRange(start, end);
+                return factRepository.rebuildRange(start, end, DailySalesFact.UNASSIGNED);
+            });
+            total += written != null ? written : 0;
+            logger.debug("Daily sales fact backfilled for [{}, {}): {} buckets", start, end, written);
+        }
+        logger.info("Daily sales fact backfilled from {} to {}: {} buckets", fromDate, toDate, total);
+        return total;
+    }
+
+    static final class FactKey {
+        private final LocalDate orderDate;
+        private final UUID userId;
+        private final UUID inventoryId;
+
+        private FactKey(LocalDate orderDate, UUID userId, UUID inventoryId) {
+            this.orderDate = orderDate;
+            this.userId = userId;
+            this.inventoryId = inventoryId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof FactKey)) return false;
+            FactKey that = (FactKey) o;
+            return orderDate.equals(that.orderDate)
+                && Objects.equals(userId, that.userId)
+                && Objects.equals(inventoryId, that.inventoryId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(orderDate, userId, inventoryId);
+        }
+    }
+
+    private static final class Bucket implements Comparable<Bucket> {
+        private final LocalDate salesDate;
+        private final UUID dealerId;
+        private final UUID variantId;
+
+        private Bucket(LocalDate salesDate, UUID dealerId, UUID variantId) {
+            this.salesDate = salesDate;
+            this.dealerId = dealerId;
+            this.variantId = variantId;
+        }
+
+        @Override
+        public int compareTo(Bucket other) {
+            int cmp = salesDate.compareTo(other.salesDate);
+            if (cmp != 0) return cmp;
+            cmp = dealerId.compareTo(other.dealerId);
+            return cmp != 0 ? cmp : variantId.compareTo(other.variantId);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Bucket)) return false;
+            Bucket that = (Bucket) o;
+            return salesDate.equals(that.salesDate) && dealerId.equals(that.dealerId) && variantId.equals(that.variantId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(salesDate, dealerId, variantId);
+        }
+    }
+}
@@ -1,18 +1,41 @@
 package com.evdealer.service;
 
 import com.evdealer.entity.*;
+import com.evdealer.enums.StatisticsMode;
 import com.evdealer.repository.*;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 @Transactional
 public class DataExportService {
     
+    private static final Logger logger = LoggerFactory.getLogger(DataExportService.class);
+    
     // Inject all repositories
     @Autowired
     private CustomerRepository customerRepository;
@@ -79,6 +102,63 @@ public class DataExportService {
     @Autowired
     private DealerInstallmentPlanRepository dealerInstallmentPlanRepository;
     
+    private static final String[] STATISTICS_ENTITY_NAMES = {
+        "Customer", "Order", "Quotation", "Dealer", "DealerOrder", "DealerQuotation",
+        "DealerInvoice", "DealerPayment", "CustomerPayment", "VehicleDelivery",
+        "Appointment", "SalesContract", "VehicleInventory", "InstallmentPlan",
+        "InstallmentSchedule", "Promotion", "PricingPolicy", "DealerTarget",
+        "DealerContract", "CustomerFeedback", "User", "VehicleBrand",
+        "VehicleModel", "VehicleVariant", "VehicleColor", "Warehouse",
+        "DealerDiscountPolicy", "DealerInstallmentSchedule", "DealerOrderItem",
+        "DealerQuotationItem", "TestDriveSchedule", "DealerInstallmentPlan"
+    };
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private DataPurgeService dataPurgeService;
+    
+    // Thống kê: số COUNT chạy song song, timeout mỗi query, thời gian cache kết quả
+    @Value("${app.export.statistics.parallelism:4}")
+    private int statisticsParallelism;
+    @Value("${app.export.statistics.query-timeout-seconds:10}")
+    private int statisticsQueryTimeoutSeconds;
+    @Value("${app.export.statistics.cache-ttl-seconds:30}")
+    private int statisticsCacheTtlSeconds;
+    
+    private ExecutorService statisticsExecutor;
+    private TransactionTemplate countTransaction;
+    private final Map<StatisticsMode, CachedStatistics> statisticsCache = new ConcurrentHashMap<>();
+    private final Map<StatisticsMode, Object> statisticsLocks = new EnumMap<>(StatisticsMode.class);
+    
+    @PostConstruct
+    public void initStatistics() {
+        statisticsParallelism = Math.max(1, statisticsParallelism);
+        statisticsQueryTimeoutSeconds = Math.max(1, statisticsQueryTimeoutSeconds);
+        for (StatisticsMode mode : StatisticsMode.values()) {
+            statisticsLocks.put(mode, new Object());
+        }
+        AtomicInteger counter = new AtomicInteger();
+        statisticsExecutor = Executors.newFixedThreadPool(statisticsParallelism, runnable -> {
+            Thread thread = new Thread(runnable, "data-statistics-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Timeout của transaction được Spring áp vào query JPA (statement timeout phía JDBC)
+        countTransaction = new TransactionTemplate(transactionManager);
+        countTransaction.setReadOnly(true);
+        countTransaction.setTimeout(statisticsQueryTimeoutSeconds);
+    }
+    
+    @PreDestroy
+    public void shutdownStatistics() {
+        statisticsExecutor.shutdownNow();
+    }
+    
     @Transactional(readOnly = true, propagation = Propagation.NOT_SUPPORTED)
     public Map<String, Object> getAllData() {
         Map<String, Object> allData = new HashMap<>();
@@ -225,61 +305,175 @@ public class DataExportService {
         }
     }
     
+    /**
+     * Thống kê số dòng theo chế độ mặc định (exact)
+     */
     @Transactional(readOnly = true, propagation = Propagation.NOT_SUPPORTED)
     public Map<String, Object> getDataStatistics() {
+        return getDataStatistics(StatisticsMode.EXACT, false);
+    }
+    
+    /**
+     * Thống kê số dòng của từng entity.
+     * ESTIMATED: một query duy nhất vào pg_class/pg_stat_user_tables, không quét bảng.
+     * EXACT: COUNT(*) song song trên statisticsExecutor, mỗi query có timeout riêng; bảng bị timeout được
+     * đánh dấu lỗi thay vì làm chậm cả request.
+     * Kết quả được cache trong app.export.statistics.cache-ttl-seconds (refresh = true để bỏ qua cache).
+     */
+    @Transactional(readOnly = true, propagation = Propagation.NOT_SUPPORTED)
+    public Map<String, Object> getDataStatistics(StatisticsMode mode, boolean refresh) {
+        long now = System.currentTimeMillis();
+        CachedStatistics cached = statisticsCache.get(mode);
+        if (!refresh && cached != null && now - cached.computedAt < statisticsCacheTtlSeconds * 1000L) {
+            return cached.withCacheInfo(true);
+        }
+        // Request đồng thời cùng mode chỉ tính một lần
+        synchronized (statisticsLocks.get(mode)) {
+            cached = statisticsCache.get(mode);
+            if (!refresh && cached != null && now - cached.computedAt < statisticsCacheTtlSeconds * 1000L) {
+                return cached.withCacheInfo(true);
+            }
+            long started = System.currentTimeMillis();
+            Map<String, Map<String, Object>> entityStats = mode == StatisticsMode.ESTIMATED
+                ? estimateEntityCounts() : countEntitiesInParallel();
+            Map<String, Object> statistics = buildStatistics(entityStats);
+            statistics.put("mode", mode.getValue());
+            statistics.put("elapsedMillis", System.currentTimeMillis() - started);
+            cached = new CachedStatistics(System.currentTimeMillis(), statistics);
+            statisticsCache.put(mode, cached);
+            return cached.withCacheInfo(false);
+        }
+    }
+    
+    private Map<String, Object> buildStatistics(Map<String, Map<String, Object>> entityStats) {
         Map<String, Object> statistics = new HashMap<>();
-        Map<String, Map<String, Object>> entityStats = new HashMap<>();
         List<String> entitiesWithData = new ArrayList<>();
         List<String> entitiesWithoutData = new ArrayList<>();
-        
-        // Count records for each entity
-        String[] entityNames = {
-            "Customer", "Order", "Quotation", "Dealer", "DealerOrder", "DealerQuotation",
-            "DealerInvoice", "DealerPayment", "CustomerPayment", "VehicleDelivery",
-            "Appointment", "SalesContract", "VehicleInventory", "InstallmentPlan",
-            "InstallmentSchedule", "Promotion", "PricingPolicy", "DealerTarget",
-            "DealerContract", "CustomerFeedback", "User", "VehicleBrand",
-            "VehicleModel", "VehicleVariant", "VehicleColor", "Warehouse",
-            "DealerDiscountPolicy", "DealerInstallmentSchedule", "DealerOrderItem",
-            "DealerQuotationItem", "TestDriveSchedule", "DealerInstallmentPlan"
-        };
-        
-        for (String entityName : entityNames) {
-            try {
-                long count = getEntityCount(entityName);
-                boolean hasData = count > 0;
-                
-                Map<String, Object> entityStat = new HashMap<>();
-                entityStat.put("count", count);
-                entityStat.put("hasData", hasData);
-                entityStats.put(entityName, entityStat);
-                
-                if (hasData) {
-                    entitiesWithData.add(entityName);
-                } else {
-                    entitiesWithoutData.add(entityName);
-                }
-            } catch (Exception e) {
-                System.err.println("DataExportService: Error counting " + entityName + ": " + e.getMessage());
-                Map<String, Object> entityStat = new HashMap<>();
-                entityStat.put("count", 0);
-                entityStat.put("hasData", false);
-                entityStat.put("error", e.getMessage());
-                entityStats.put(entityName, entityStat);
+        for (String entityName : STATISTICS_ENTITY_NAMES) {
+            Map<String, Object> entityStat = entityStats.get(entityName);
+            if (Boolean.TRUE.equals(entityStat.get("hasData"))) {
+                entitiesWithData.add(entityName);
+            } else {
                 entitiesWithoutData.add(entityName);
             }
         }
         
-        statistics.put("totalEntities", entityNames.length);
+        statistics.put("totalEntities", STATISTICS_ENTITY_NAMES.length);
         statistics.put("entitiesWithData", entitiesWithData);
         statistics.put("entitiesWithoutData", entitiesWithoutData);
         statistics.put("statistics", entityStats);
         statistics.put("totalRecordsWithData", entitiesWithData.size());
         statistics.put("totalRecordsWithoutData", entitiesWithoutData.size());
-        
         return statistics;
     }
     
+    private Map<String, Map<String, Object>> countEntitiesInParallel() {
+        Map<String, Future<Long>> futures = new LinkedHashMap<>();
+        for (String entityName : STATISTICS_ENTITY_NAMES) {
+            futures.put(entityName, statisticsExecutor.submit(() -> countTransaction.execute(status -> getEntityCount(entityName))));
+        }
+        
+        // Deadline chung: các query chạy song song nên cả request không chờ quá timeout của một query (cộng thời gian xếp hàng)
+        int rounds = (STATISTICS_ENTITY_NAMES.length + statisticsParallelism - 1) / statisticsParallelism;
+        long deadline = System.currentTimeMillis() + (statisticsQueryTimeoutSeconds * 1000L + 1000L) * rounds;
+        Map<String, Map<String, Object>> entityStats = new HashMap<>();
+        for (Map.Entry<String, Future<Long>> entry : futures.entrySet()) {
+            String entityName = entry.getKey();
+            Map<String, Object> entityStat = new HashMap<>();
+            try {
+                long count = entry.getValue().get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                entityStat.put("count", count);
+                entityStat.put("hasData", count > 0);
+            } catch (TimeoutException e) {
+                entry.getValue().cancel(true);
+                entityStat.put("count", 0);
+                entityStat.put("hasData", false);
+                entityStat.put("error", "Count timed out");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                entry.getValue().cancel(true);
+                entityStat.put("count", 0);
+                entityStat.put("hasData", false);
+                entityStat.put("error", "Interrupted");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                logger.warn("Error counting {}: {}", entityName, cause.getMessage());
+                entityStat.put("count", 0);
+                entityStat.put("hasData", false);
+                entityStat.put("error", cause.getMessage());
+            }
+            entityStats.put(entityName, entityStat);
+        }
+        return entityStats;
+    }
+    
+    /**
+     * Ước lượng số dòng giống planner: reltuples/relpages nhân với số page hiện tại của bảng
+     * (nên vẫn đúng khi bảng đã lớn lên kể từ lần ANALYZE cuối). Bảng chưa từng được ANALYZE
+     * (reltuples = -1) dùng n_live_tup của pg_stat_user_tables.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Map<String, Object>> estimateEntityCounts() {
+        Map<String, String> tableToEntity = new HashMap<>();
+        for (String entityName : STATISTICS_ENTITY_NAMES) {
+            tableToEntity.put(tableName(DataExportStreamService.EXPORT_ENTITIES.get(entityName)), entityName);
+        }
+        
+        List<Object[]> rows = entityManager.createNativeQuery(
+                "SELECT c.relname, " +
+                "       CASE WHEN c.reltuples >= 0 AND c.relpages > 0 " +
+                "            THEN (c.reltuples / c.relpages * (pg_relation_size(c.oid) / current_setting('block_size')::int))::bigint " +
+                "            WHEN c.reltuples >= 0 AND pg_relation_size(c.oid) = 0 THEN 0 " +
+                "            ELSE COALESCE(s.n_live_tup, 0) END AS estimated_rows, " +
+                "       s.n_live_tup, s.n_dead_tup, pg_total_relation_size(c.oid) AS total_bytes, " +
+                "       GREATEST(s.last_analyze, s.last_autoanalyze) AS last_analyzed " +
+                "FROM pg_class c " +
+                "JOIN pg_namespace n ON n.oid = c.relnamespace " +
+                "LEFT JOIN pg_stat_user_tables s ON s.relid = c.oid " +
+                "WHERE c.relkind IN ('r', 'p') AND n.nspname = current_schema() AND c.relname IN (:tables)")
+            .setParameter("tables", tableToEntity.keySet())
+            .getResultList();
+        
+        Map<String, Map<String, Object>> entityStats = new HashMap<>();
+        for (Object[] row : rows) {
+            String entityName = tableToEntity.get((String) row[0]);
+            if (entityName == null) {
+                continue;
+            }
+            long estimated = row[1] != null ? ((Number) row[1]).longValue() : 0L;
+            Map<String, Object> entityStat = new HashMap<>();
+            entityStat.put("table", row[0]);
+            entityStat.put("count", estimated);
+            entityStat.put("hasData", estimated > 0);
+            entityStat.put("estimated", true);
+            entityStat.put("liveTuples", row[2] != null ? ((Number) row[2]).longValue() : null);
+            entityStat.put("deadTuples", row[3] != null ? ((Number) row[3]).longValue() : null);
+            entityStat.put("totalBytes", row[4] != null ? ((Number) row[4]).longValue() : null);
+            entityStat.put("lastAnalyzed", row[5]);
+            entityStats.put(entityName, entityStat);
+        }
+        for (String entityName : STATISTICS_ENTITY_NAMES) {
+            if (!entityStats.containsKey(entityName)) {
+                Map<String, Object> entityStat = new HashMap<>();
+                entityStat.put("count", 0);
+                entityStat.put("hasData", false);
+                entityStat.put("estimated", true);
+                entityStat.put("error", "Table not found");
+                entityStats.put(entityName, entityStat);
+            }
+        }
+        return entityStats;
+    }
+    
+    private String tableName(Class<?> type) {
+        AbstractEntityPersister persister = (AbstractEntityPersister) entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+            .getMappingMetamodel().getEntityDescriptor(type);
+        String table = persister.getTableName();
+        table = table.substring(table.lastIndexOf('.') + 1);
+        // relname trong pg_class: tên trần, PostgreSQL hạ chữ thường nếu tên không được quote
+        return table.startsWith("\"") ? table.replace("\"", "") : table.toLowerCase();
+    }
+    
     private long getEntityCount(String entityName) {
         switch (entityName) {
             case "Customer": return customerRepository.count();
@@ -318,103 +512,30 @@ public class DataExportService {
         }
     }
     
-    @Transactional
+    /**
+     * Xóa toàn bộ dữ liệu (giữ lại tài khoản admin) bằng TRUNCATE/DELETE set-based, xem DataPurgeService
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Map<String, Object> deleteAllData() {
-        Map<String, Object> result = new HashMap<>();
-        Map<String, Long> deletedCounts = new HashMap<>();
-        List<String> errors = new ArrayList<>();
-        
-        try {
-            // 1. Child records (có nhiều foreign keys)
-            deletedCounts.put("CustomerPayment", deleteSafely("CustomerPayment", () -> customerPaymentRepository.deleteAll()));
-            deletedCounts.put("DealerPayment", deleteSafely("DealerPayment", () -> dealerPaymentRepository.deleteAll()));
-            deletedCounts.put("VehicleDelivery", deleteSafely("VehicleDelivery", () -> vehicleDeliveryRepository.deleteAll()));
-            deletedCounts.put("Appointment", deleteSafely("Appointment", () -> appointmentRepository.deleteAll()));
-            deletedCounts.put("SalesContract", deleteSafely("SalesContract", () -> salesContractRepository.deleteAll()));
-            deletedCounts.put("CustomerFeedback", deleteSafely("CustomerFeedback", () -> customerFeedbackRepository.deleteAll()));
-            deletedCounts.put("InstallmentSchedule", deleteSafely("InstallmentSchedule", () -> installmentScheduleRepository.deleteAll()));
-            deletedCounts.put("DealerInstallmentSchedule", deleteSafely("DealerInstallmentSchedule", () -> dealerInstallmentScheduleRepository.deleteAll()));
-            deletedCounts.put("InstallmentPlan", deleteSafely("InstallmentPlan", () -> installmentPlanRepository.deleteAll()));
-            deletedCounts.put("DealerInstallmentPlan", deleteSafely("DealerInstallmentPlan", () -> dealerInstallmentPlanRepository.deleteAll()));
-            deletedCounts.put("TestDriveSchedule", deleteSafely("TestDriveSchedule", () -> testDriveScheduleRepository.deleteAll()));
-            
-            // 2. Items
-            deletedCounts.put("DealerOrderItem", deleteSafely("DealerOrderItem", () -> dealerOrderItemRepository.deleteAll()));
-            deletedCounts.put("DealerQuotationItem", deleteSafely("DealerQuotationItem", () -> dealerQuotationItemRepository.deleteAll()));
-            
-            // 3. Intermediate tables
-            deletedCounts.put("DealerInvoice", deleteSafely("DealerInvoice", () -> dealerInvoiceRepository.deleteAll()));
-            deletedCounts.put("DealerQuotation", deleteSafely("DealerQuotation", () -> dealerQuotationRepository.deleteAll()));
-            deletedCounts.put("Quotation", deleteSafely("Quotation", () -> quotationRepository.deleteAll()));
-            deletedCounts.put("Order", deleteSafely("Order", () -> orderRepository.deleteAll()));
-            deletedCounts.put("DealerOrder", deleteSafely("DealerOrder", () -> dealerOrderRepository.deleteAll()));
-            
-            // 4. Parent tables
-            deletedCounts.put("VehicleInventory", deleteSafely("VehicleInventory", () -> vehicleInventoryRepository.deleteAll()));
-            deletedCounts.put("Promotion", deleteSafely("Promotion", () -> promotionRepository.deleteAll()));
-            deletedCounts.put("PricingPolicy", deleteSafely("PricingPolicy", () -> pricingPolicyRepository.deleteAll()));
-            deletedCounts.put("DealerTarget", deleteSafely("DealerTarget", () -> dealerTargetRepository.deleteAll()));
-            deletedCounts.put("DealerContract", deleteSafely("DealerContract", () -> dealerContractRepository.deleteAll()));
-            deletedCounts.put("Customer", deleteSafely("Customer", () -> customerRepository.deleteAll()));
-            deletedCounts.put("Dealer", deleteSafely("Dealer", () -> dealerRepository.deleteAll()));
-            
-            // 5. User (trừ admin) - Xóa tất cả users trừ username = "admin"
-            long userCountBefore = userRepository.count();
-            try {
-                List<User> allUsers = userRepository.findAll();
-                for (User user : allUsers) {
-                    if (user.getUsername() != null && !user.getUsername().equals("admin")) {
-                        userRepository.delete(user);
-                    }
-                }
-                long userCountAfter = userRepository.count();
-                deletedCounts.put("User", userCountBefore - userCountAfter);
-            } catch (Exception e) {
-                String errorMsg = "Error deleting users: " + e.getMessage();
-                errors.add(errorMsg);
-                System.err.println("DataExportService.deleteAllData() - " + errorMsg);
-                deletedCounts.put("User", 0L);
-            }
-            
-            // 6. Vehicle
-            deletedCounts.put("VehicleVariant", deleteSafely("VehicleVariant", () -> vehicleVariantRepository.deleteAll()));
-            deletedCounts.put("VehicleModel", deleteSafely("VehicleModel", () -> vehicleModelRepository.deleteAll()));
-            deletedCounts.put("VehicleBrand", deleteSafely("VehicleBrand", () -> vehicleBrandRepository.deleteAll()));
-            deletedCounts.put("VehicleColor", deleteSafely("VehicleColor", () -> vehicleColorRepository.deleteAll()));
-            
-            // 7. Warehouse
-            deletedCounts.put("Warehouse", deleteSafely("Warehouse", () -> warehouseRepository.deleteAll()));
-            
-            // 8. DealerDiscountPolicy
-            deletedCounts.put("DealerDiscountPolicy", deleteSafely("DealerDiscountPolicy", () -> dealerDiscountPolicyRepository.deleteAll()));
-            
-        } catch (Exception e) {
-            String errorMsg = "Error in deleteAllData: " + e.getMessage();
-            errors.add(errorMsg);
-            System.err.println("DataExportService.deleteAllData() - " + errorMsg);
-            e.printStackTrace();
-        }
-        
-        result.put("deletedCounts", deletedCounts);
-        result.put("totalDeleted", deletedCounts.values().stream().mapToLong(Long::longValue).sum());
-        result.put("errors", errors);
-        result.put("adminUserPreserved", userRepository.findByUsername("admin").isPresent());
-        
+        Map<String, Object> result = dataPurgeService.purgeAll();
+        statisticsCache.clear();
         return result;
     }
     
-    private long deleteSafely(String entityName, Runnable deleteAction) {
-        try {
-            long countBefore = getEntityCount(entityName);
-            deleteAction.run();
-            long countAfter = getEntityCount(entityName);
-            long deleted = countBefore - countAfter;
-            System.out.println("DataExportService: Deleted " + deleted + " records from " + entityName);
-            return deleted;
-        } catch (Exception e) {
-            System.err.println("DataExportService: Error deleting " + entityName + ": " + e.getMessage());
-            e.printStackTrace();
-            return 0L;
+    private static final class CachedStatistics {
+        private final long computedAt;
+        private final Map<String, Object> statistics;
+        
+        private CachedStatistics(long computedAt, Map<String, Object> statistics) {
+            this.computedAt = computedAt;
+            this.statistics = statistics;
+        }
+        
+        private Map<String, Object> withCacheInfo(boolean fromCache) {
+            Map<String, Object> result = new HashMap<>(statistics);
+            result.put("cached", fromCache);
+            result.put("computedAt", java.time.Instant.ofEpochMilli(computedAt));
+            return result;
         }
     }
 }
@@ -0,0 +1,712 @@
+package com.evdealer.service;
+
+import com.evdealer.entity.*;
+import com.evdealer.enums.ExportMode;
+import com.evdealer.repository.DataExportRunRepository;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.OneToOne;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceUnitUtil;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.metamodel.EntityType;
+import org.hibernate.Session;
+import org.hibernate.jpa.HibernateHints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Export toàn bộ dữ liệu dạng NDJSON (mỗi dòng một record), đọc từng bảng bằng cursor phía server
+ * (fetch size) và ghi thẳng ra OutputStream nên bộ nhớ không phụ thuộc kích thước bảng.
+ * Persistence context được clear định kỳ; quan hệ tới entity khác chỉ ghi id (không load thêm).
+ * <p>
+ * Mọi bảng được đọc trên cùng một snapshot PostgreSQL (pg_export_snapshot / SET TRANSACTION SNAPSHOT)
+ * nên kết quả nhất quán tại một thời điểm. Ở chế độ song song, app.export.parallelism worker đọc các bảng
+ * đồng thời, mỗi bảng ghi ra file tạm rồi được chép ra response theo thứ tự cố định.
+ * <p>
+ * Định dạng: một dòng header, sau đó với mỗi entity là các dòng {"entity", "data"} và một dòng
+ * {"type": "end", "entity", "count"} (hoặc {"type": "error", ...} nếu bảng đó lỗi), cuối cùng là dòng
+ * manifest với số dòng và thời gian đọc của từng bảng.
+ * <p>
+ * Archive (zip): mỗi entity một file NDJSON và manifest.json (số dòng, số byte, SHA-256, thời gian từng bảng).
+ * Chế độ delta chỉ lấy các dòng có updatedAt (hoặc createdAt nếu bảng không có updatedAt) sau watermark của
+ * lần export trước; bảng không có cột thời gian được export đầy đủ. Dòng bị xóa không xuất hiện trong delta.
+ */
+@Service
+public class DataExportStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataExportStreamService.class);
+
+    // Thứ tự export, giống DataExportService.getAllData
+    public static final Map<String, Class<?>> EXPORT_ENTITIES = exportEntities();
+
+    private static final Pattern SNAPSHOT_ID = Pattern.compile("[0-9A-Fa-f-]+");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ObjectMapper exportMapper;
+    private final DataSource dataSource;
+    private final DataExportRunRepository dataExportRunRepository;
+    // Cột dùng cho delta theo entity (updatedAt, createdAt hoặc không có)
+    private final Map<Class<?>, String> deltaColumns = new HashMap<>();
+    private final TransactionTemplate snapshotTransaction;
+    private final Semaphore exportSlots;
+    private final int fetchSize;
+    private final int clearInterval;
+    private final int parallelism;
+    private final long deltaOverlapSeconds;
+    private final int compressionLevel;
+
+    public DataExportStreamService(ObjectMapper objectMapper,
+                                   EntityManagerFactory entityManagerFactory,
+                                   PlatformTransactionManager transactionManager,
+                                   DataSource dataSource,
+                                   DataExportRunRepository dataExportRunRepository,
+                                   @Value("${app.export.fetch-size:500}") int fetchSize,
+                                   @Value("${app.export.clear-interval:1000}") int clearInterval,
+                                   @Value("${app.export.max-concurrent:2}") int maxConcurrent,
+                                   @Value("${app.export.parallelism:4}") int parallelism,
+                                   @Value("${app.export.delta-overlap-seconds:300}") long deltaOverlapSeconds,
+                                   @Value("${app.export.compression-level:6}") int compressionLevel) {
+        this.exportMapper = createExportMapper(objectMapper, entityManagerFactory.getPersistenceUnitUtil());
+        this.dataSource = dataSource;
+        this.dataExportRunRepository = dataExportRunRepository;
+        this.deltaOverlapSeconds = Math.max(0, deltaOverlapSeconds);
+        this.compressionLevel = compressionLevel;
+        for (Class<?> type : EXPORT_ENTITIES.values()) {
+            deltaColumns.put(type, findDeltaColumn(entityManagerFactory.getMetamodel().entity(type)));
+        }
+        this.fetchSize = Math.max(1, fetchSize);
+        this.clearInterval = Math.max(1, clearInterval);
+        this.exportSlots = new Semaphore(Math.max(1, maxConcurrent));
+        this.parallelism = Math.max(1, parallelism);
+
+        // Mỗi bảng một transaction read-only riêng (lỗi ở một bảng không làm hỏng các bảng còn lại),
+        // REPEATABLE READ để import được snapshot chung
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setReadOnly(true);
+        this.snapshotTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    /**
+     * ObjectMapper dùng để ghi record (DataImportService dùng để ánh xạ field JSON về thuộc tính entity)
+     */
+    public ObjectMapper getExportMapper() {
+        return exportMapper;
+    }
+
+    /**
+     * Giữ một slot export; trả về false nếu đã có quá nhiều export đang chạy.
+     * Phải gọi {@link #releaseSlot()} sau khi export xong.
+     */
+    public boolean tryAcquireSlot() {
+        return exportSlots.tryAcquire();
+    }
+
+    public void releaseSlot() {
+        exportSlots.release();
+    }
+
+    /**
+     * Ghi toàn bộ dữ liệu ra out dạng NDJSON.
+     *
+     * @param parallel true = đọc các bảng song song bằng app.export.parallelism worker
+     * @return kết quả (số dòng, thời gian, lỗi) theo từng bảng
+     * @throws IOException nếu không ghi được ra client (vd. client ngắt kết nối)
+     */
+    public Map<String, TableResult> exportAll(OutputStream out, boolean parallel) throws IOException {
+        Map<String, TableResult> results = new LinkedHashMap<>();
+        long started = System.currentTimeMillis();
+        int workers = parallel ? Math.min(parallelism, EXPORT_ENTITIES.size()) : 1;
+
+        try (ExportedSnapshot snapshot = ExportedSnapshot.open(dataSource);
+             JsonGenerator gen = createGenerator(out)) {
+            gen.writeStartObject();
+            gen.writeStringField("type", "header");
+            gen.writeObjectField("timestamp", LocalDateTime.now());
+            gen.writeStringField("snapshot", snapshot.id);
+            gen.writeNumberField("parallelism", workers);
+            gen.writeObjectField("entities", List.copyOf(EXPORT_ENTITIES.keySet()));
+            gen.writeEndObject();
+            gen.writeRaw('\n');
+
+            if (workers <= 1) {
+                exportSequential(gen, snapshot.id, results);
+            } else {
+                exportParallel(gen, out, snapshot.id, workers, results);
+            }
+
+            long totalRecords = results.values().stream().mapToLong(TableResult::getCount).sum();
+            gen.writeStartObject();
+            gen.writeStringField("type", "manifest");
+            gen.writeStringField("snapshot", snapshot.id);
+            gen.writeNumberField("parallelism", workers);
+            gen.writeObjectField("tables", results);
+            gen.writeNumberField("totalRecords", totalRecords);
+            gen.writeNumberField("elapsedMillis", System.currentTimeMillis() - started);
+            gen.writeEndObject();
+            gen.writeRaw('\n');
+            logger.info("Data export finished: {} records, {} workers, {} ms",
+                totalRecords, workers, System.currentTimeMillis() - started);
+        }
+        return results;
+    }
+
+    /**
+     * Mốc delta cho lần export kế tiếp: since do client truyền, mặc định là watermark của lần export đầy đủ gần nhất
+     *
+     * @throws IllegalStateException nếu chưa có lần export nào để làm mốc
+     */
+    public LocalDateTime resolveDeltaSince(LocalDateTime since) {
+        if (since != null) {
+            return since;
+        }
+        return dataExportRunRepository.findTopByOrderByWatermarkDesc()
+            .map(DataExportRun::getWatermark)
+            .orElseThrow(() -> new IllegalStateException("No previous export found. Run a full export first or pass since"));
+    }
+
+    public List<DataExportRun> getRecentRuns() {
+        return dataExportRunRepository.findTop20ByOrderByCompletedAtDesc();
+    }
+
+    /**
+     * Ghi archive zip ra out: mỗi entity một file NDJSON, cuối cùng là manifest.json.
+     * Lần export chỉ được ghi nhận (làm mốc cho delta sau) khi mọi bảng export thành công.
+     *
+     * @param since mốc delta (bắt buộc với DELTA, bỏ qua với FULL)
+     * @return manifest đã ghi vào archive
+     * @throws IOException nếu không ghi được ra client
+     */
+    public Map<String, Object> exportArchive(OutputStream out, ExportMode mode, LocalDateTime since,
+                                             boolean parallel, UUID requestedBy) throws IOException {
+        long started = System.currentTimeMillis();
+        int workers = parallel ? Math.min(parallelism, EXPORT_ENTITIES.size()) : 1;
+        LocalDateTime deltaSince = mode == ExportMode.DELTA ? since : null;
+        // Lùi mốc để không bỏ sót transaction commit sau snapshot trước nhưng có updated_at sớm hơn watermark
+        LocalDateTime effectiveSince = deltaSince != null ? deltaSince.minusSeconds(deltaOverlapSeconds) : null;
+        // Lấy trước khi mở snapshot: mọi thay đổi sau thời điểm này sẽ nằm trong lần delta kế tiếp
+        LocalDateTime watermark = LocalDateTime.now();
+
+        Map<String, Object> tables = new LinkedHashMap<>();
+        long[] totals = new long[2];
+        Map<String, Object> manifest = new LinkedHashMap<>();
+        try (ExportedSnapshot snapshot = ExportedSnapshot.open(dataSource);
+             ZipOutputStream zip = new ZipOutputStream(out)) {
+            zip.setLevel(compressionLevel);
+            readTables(snapshot.id, workers, effectiveSince, (name, result) -> {
+                Map<String, Object> table = new LinkedHashMap<>();
+                String deltaColumn = deltaColumns.get(EXPORT_ENTITIES.get(name));
+                table.put("delta", effectiveSince != null && deltaColumn != null);
+                table.put("deltaColumn", deltaColumn);
+                if (result.error == null) {
+                    String fileName = name + ".ndjson";
+                    zip.putNextEntry(new ZipEntry(fileName));
+                    MessageDigest digest = sha256();
+                    long bytes = copy(result.file, zip, digest);
+                    zip.closeEntry();
+                    table.put("file", fileName);
+                    table.put("rows", result.count);
+                    table.put("bytes", bytes);
+                    table.put("sha256", HexFormat.of().formatHex(digest.digest()));
+                    totals[0] += result.count;
+                } else {
+                    table.put("error", result.error);
+                    totals[1]++;
+                }
+                table.put("elapsedMillis", result.elapsedMillis);
+                tables.put(name, table);
+            });
+
+            manifest.put("mode", mode.getValue());
+            manifest.put("format", "ndjson");
+            manifest.put("createdAt", LocalDateTime.now());
+            manifest.put("snapshot", snapshot.id);
+            manifest.put("since", deltaSince);
+            manifest.put("deltaOverlapSeconds", deltaSince != null ? deltaOverlapSeconds : null);
+            manifest.put("watermark", watermark);
+            manifest.put("parallelism", workers);
+            manifest.put("totalRecords", totals[0]);
+            manifest.put("failedTables", totals[1]);
+            manifest.put("elapsedMillis", System.currentTimeMillis() - started);
+            manifest.put("tables", tables);
+            zip.putNextEntry(new ZipEntry("manifest.json"));
+            zip.write(exportMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(manifest));
+            zip.closeEntry();
+            zip.finish();
+        }
+
+        if (totals[1] == 0) {
+            DataExportRun run = new DataExportRun();
+            run.setMode(mode);
+            run.setSince(deltaSince);
+            run.setWatermark(watermark);
+            run.setTotalRecords(totals[0]);
+            run.setRequestedBy(requestedBy);
+            run.setCompletedAt(LocalDateTime.now());
+            dataExportRunRepository.save(run);
+        } else {
+            logger.warn("Data export archive: {} tables failed, watermark not recorded", totals[1]);
+        }
+        logger.info("Data export archive ({}) finished: {} records, {} ms", mode.getValue(), totals[0],
+            System.currentTimeMillis() - started);
+        return manifest;
+    }
+
+    private void exportSequential(JsonGenerator gen, String snapshotId, Map<String, TableResult> results) throws IOException {
+        for (Map.Entry<String, Class<?>> entity : EXPORT_ENTITIES.entrySet()) {
+            String name = entity.getKey();
+            long started = System.currentTimeMillis();
+            TableResult result;
+            try {
+                long count = exportEntity(name, entity.getValue(), gen, snapshotId, null);
+                result = TableResult.completed(count, System.currentTimeMillis() - started);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } catch (RuntimeException e) {
+                // Dòng đã ghi của bảng này vẫn được giữ; client dựa vào dòng error để biết bảng không đầy đủ
+                logger.warn("Data export: failed to export {}: {}", name, e.getMessage());
+                result = TableResult.failed(e.getMessage(), System.currentTimeMillis() - started);
+            }
+            results.put(name, result);
+            writeTableEnd(gen, name, result);
+            gen.flush();
+        }
+    }
+
+    private void exportParallel(JsonGenerator gen, OutputStream out, String snapshotId, int workers,
+                                Map<String, TableResult> results) throws IOException {
+        readTables(snapshotId, workers, null, (name, result) -> {
+            if (result.file != null) {
+                gen.flush();
+                Files.copy(result.file, out);
+            }
+            results.put(name, result);
+            writeTableEnd(gen, name, result);
+            gen.flush();
+        });
+    }
+
+    /**
+     * Đọc mọi bảng song song ra file tạm, gọi consumer theo thứ tự cố định của EXPORT_ENTITIES.
+     * File tạm bị xóa sau khi consumer xử lý xong.
+     */
+    private void readTables(String snapshotId, int workers, LocalDateTime since, TableConsumer consumer) throws IOException {
+        Path dir = Files.createTempDirectory("data-export-");
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "data-export-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Map<String, Future<TableResult>> futures = new LinkedHashMap<>();
+            for (Map.Entry<String, Class<?>> entity : EXPORT_ENTITIES.entrySet()) {
+                String name = entity.getKey();
+                Class<?> type = entity.getValue();
+                futures.put(name, executor.submit(() -> exportToFile(name, type, dir, snapshotId, since)));
+            }
+
+            // Xử lý theo thứ tự cố định; các bảng sau vẫn được đọc song song trong lúc chờ
+            for (Map.Entry<String, Future<TableResult>> entry : futures.entrySet()) {
+                TableResult result = await(entry.getValue());
+                consumer.accept(entry.getKey(), result);
+                if (result.file != null) {
+                    Files.deleteIfExists(result.file);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            deleteDirectory(dir);
+        }
+    }
+
+    private TableResult exportToFile(String name, Class<?> type, Path dir, String snapshotId, LocalDateTime since) {
+        long started = System.currentTimeMillis();
+        Path file = dir.resolve(name + ".ndjson");
+        try {
+            long count;
+            try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(file));
+                 JsonGenerator gen = createGenerator(os)) {
+                count = exportEntity(name, type, gen, snapshotId, since);
+            }
+            return TableResult.completed(count, System.currentTimeMillis() - started).withFile(file);
+        } catch (IOException | RuntimeException e) {
+            String message = e instanceof UncheckedIOException ? e.getCause().getMessage() : e.getMessage();
+            logger.warn("Data export: failed to export {}: {}", name, message);
+            deleteQuietly(file);
+            return TableResult.failed(message, System.currentTimeMillis() - started);
+        }
+    }
+
+    /**
+     * Ghi các dòng của một entity ra gen. since khác null = chỉ dòng có cột delta lớn hơn since.
+     */
+    private <T> long exportEntity(String name, Class<T> type, JsonGenerator gen, String snapshotId, LocalDateTime since) {
+        Long count = snapshotTransaction.execute(status -> {
+            // Phải là câu lệnh đầu tiên của transaction
+            entityManager.unwrap(Session.class).doWork(connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("SET TRANSACTION SNAPSHOT '" + snapshotId + "'");
+                }
+            });
+
+            CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+            CriteriaQuery<T> query = cb.createQuery(type);
+            Root<T> root = query.from(type);
+            query.select(root);
+            String deltaColumn = deltaColumns.get(type);
+            if (since != null && deltaColumn != null) {
+                query.where(cb.greaterThan(root.<LocalDateTime>get(deltaColumn), since));
+            }
+            long written = 0;
+            try (Stream<T> rows = entityManager.createQuery(query)
+                    .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                    .setHint(HibernateHints.HINT_READ_ONLY, true)
+                    .getResultStream()) {
+                Iterator<T> iterator = rows.iterator();
+                while (iterator.hasNext()) {
+                    T row = iterator.next();
+                    gen.writeStartObject();
+                    gen.writeStringField("entity", name);
+                    gen.writeObjectField("data", row);
+                    gen.writeEndObject();
+                    gen.writeRaw('\n');
+                    if (++written % clearInterval == 0) {
+                        // Bỏ các entity đã ghi khỏi persistence context để heap không tăng theo kích thước bảng
+                        entityManager.clear();
+                        gen.flush();
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return written;
+        });
+        return count != null ? count : 0L;
+    }
+
+    private JsonGenerator createGenerator(OutputStream out) throws IOException {
+        JsonGenerator gen = exportMapper.getFactory().createGenerator(out);
+        // Mỗi record tự kết thúc bằng '\n'
+        gen.setRootValueSeparator(null);
+        return gen;
+    }
+
+    private static void writeTableEnd(JsonGenerator gen, String name, TableResult result) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("type", result.error == null ? "end" : "error");
+        gen.writeStringField("entity", name);
+        if (result.error == null) {
+            gen.writeNumberField("count", result.count);
+        } else {
+            gen.writeStringField("error", result.error);
+        }
+        gen.writeEndObject();
+        gen.writeRaw('\n');
+    }
+
+    private static TableResult await(Future<TableResult> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Export interrupted", e);
+        } catch (ExecutionException e) {
+            return TableResult.failed(e.getCause().getMessage(), 0);
+        }
+    }
+
+    private static String findDeltaColumn(EntityType<?> entity) {
+        for (String column : new String[] {"updatedAt", "createdAt"}) {
+            if (entity.getAttributes().stream().anyMatch(a -> a.getName().equals(column) && a.getJavaType() == LocalDateTime.class)) {
+                return column;
+            }
+        }
+        return null;
+    }
+
+    private static long copy(Path file, OutputStream out, MessageDigest digest) throws IOException {
+        long bytes = 0;
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                digest.update(buffer, 0, read);
+                bytes += read;
+            }
+        }
+        return bytes;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static void deleteDirectory(Path dir) {
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(DataExportStreamService::deleteQuietly);
+        } catch (IOException e) {
+            logger.warn("Data export: failed to clean up {}: {}", dir, e.getMessage());
+        }
+        deleteQuietly(dir);
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Data export: failed to delete {}: {}", path, e.getMessage());
+        }
+    }
+
+    @FunctionalInterface
+    private interface TableConsumer {
+        void accept(String name, TableResult result) throws IOException;
+    }
+
+    /**
+     * Kết quả export của một bảng (được ghi vào manifest)
+     */
+    public static final class TableResult {
+        private final long count;
+        private final long elapsedMillis;
+        private final String error;
+        private final Path file;
+
+        private TableResult(long count, long elapsedMillis, String error, Path file) {
+            this.count = count;
+            this.elapsedMillis = elapsedMillis;
+            this.error = error;
+            this.file = file;
+        }
+
+        static TableResult completed(long count, long elapsedMillis) {
+            return new TableResult(count, elapsedMillis, null, null);
+        }
+
+        static TableResult failed(String error, long elapsedMillis) {
+            return new TableResult(0, elapsedMillis, error != null ? error : "Unknown error", null);
+        }
+
+        TableResult withFile(Path file) {
+            return new TableResult(count, elapsedMillis, error, file);
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public String getError() {
+            return error;
+        }
+    }
+
+    /**
+     * Transaction giữ snapshot đã export; phải mở cho tới khi mọi bảng đọc xong
+     * (các transaction import snapshot chỉ cần bắt đầu khi transaction này còn mở)
+     */
+    private static final class ExportedSnapshot implements AutoCloseable {
+        private final Connection connection;
+        private final String id;
+
+        private ExportedSnapshot(Connection connection, String id) {
+            this.connection = connection;
+            this.id = id;
+        }
+
+        static ExportedSnapshot open(DataSource dataSource) throws IOException {
+            Connection connection = null;
+            try {
+                connection = dataSource.getConnection();
+                connection.setAutoCommit(false);
+                connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+                connection.setReadOnly(true);
+                String id;
+                try (Statement statement = connection.createStatement();
+                     ResultSet rs = statement.executeQuery("SELECT pg_export_snapshot()")) {
+                    rs.next();
+                    id = rs.getString(1);
+                }
+                if (id == null || !SNAPSHOT_ID.matcher(id).matches()) {
+                    throw new SQLException("Unexpected snapshot id: " + id);
+                }
+                return new ExportedSnapshot(connection, id);
+            } catch (SQLException e) {
+                if (connection != null) {
+                    try {
+                        connection.close();
+                    } catch (SQLException ignored) {
+                        // connection đã hỏng
+                    }
+                }
+                throw new IOException("Failed to export database snapshot: " + e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                connection.rollback();
+            } catch (SQLException e) {
+                logger.warn("Data export: failed to end snapshot transaction: {}", e.getMessage());
+            } finally {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    logger.warn("Data export: failed to release snapshot connection: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static ObjectMapper createExportMapper(ObjectMapper objectMapper, PersistenceUnitUtil unitUtil) {
+        SimpleModule module = new SimpleModule("export-entity-references");
+        module.setSerializerModifier(new BeanSerializerModifier() {
+            @Override
+            public List<BeanPropertyWriter> changeProperties(SerializationConfig config, BeanDescription beanDesc,
+                                                             List<BeanPropertyWriter> beanProperties) {
+                for (BeanPropertyWriter property : beanProperties) {
+                    if (property.getType().getRawClass().isAnnotationPresent(jakarta.persistence.Entity.class)) {
+                        property.assignSerializer(new EntityReferenceSerializer(unitUtil));
+                    }
+                }
+                return beanProperties;
+            }
+        });
+        ObjectMapper mapper = objectMapper.copy();
+        // Quan hệ bị @JsonIgnore trong API (vd. DealerOrderItem.dealerOrder) vẫn phải có trong archive để import lại được
+        mapper.setAnnotationIntrospector(new JacksonAnnotationIntrospector() {
+            @Override
+            public boolean hasIgnoreMarker(AnnotatedMember member) {
+                if (member.hasAnnotation(ManyToOne.class) || member.hasAnnotation(OneToOne.class)) {
+                    return false;
+                }
+                return super.hasIgnoreMarker(member);
+            }
+        });
+        return mapper
+            .registerModule(module)
+            .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+            .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
+    }
+
+    /**
+     * Ghi quan hệ ManyToOne/OneToOne dưới dạng id; lấy id từ proxy nên không query thêm
+     */
+    private static final class EntityReferenceSerializer extends JsonSerializer<Object> {
+        private final PersistenceUnitUtil unitUtil;
+
+        private EntityReferenceSerializer(PersistenceUnitUtil unitUtil) {
+            this.unitUtil = unitUtil;
+        }
+
+        @Override
+        public void serialize(Object value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            serializers.defaultSerializeValue(unitUtil.getIdentifier(value), gen);
+        }
+    }
+
+    private static Map<String, Class<?>> exportEntities() {
+        Map<String, Class<?>> entities = new LinkedHashMap<>();
+        entities.put("Customer", Customer.class);
+        entities.put("Order", Order.class);
+        entities.put("Quotation", Quotation.class);
+        entities.put("Dealer", Dealer.class);
+        entities.put("DealerOrder", DealerOrder.class);
+        entities.put("DealerQuotation", DealerQuotation.class);
+        entities.put("DealerInvoice", DealerInvoice.class);
+        entities.put("DealerPayment", DealerPayment.class);
+        entities.put("CustomerPayment", CustomerPayment.class);
+        entities.put("VehicleDelivery", VehicleDelivery.class);
+        entities.put("Appointment", Appointment.class);
+        entities.put("SalesContract", SalesContract.class);
+        entities.put("VehicleInventory", VehicleInventory.class);
+        entities.put("InstallmentPlan", InstallmentPlan.class);
+        entities.put("InstallmentSchedule", InstallmentSchedule.class);
+        entities.put("Promotion", Promotion.class);
+        entities.put("PricingPolicy", PricingPolicy.class);
+        entities.put("DealerTarget", DealerTarget.class);
+        entities.put("DealerContract", DealerContract.class);
+        entities.put("CustomerFeedback", CustomerFeedback.class);
+        entities.put("User", User.class);
+        entities.put("VehicleBrand", VehicleBrand.class);
+        entities.put("VehicleModel", VehicleModel.class);
+        entities.put("VehicleVariant", VehicleVariant.class);
+        entities.put("VehicleColor", VehicleColor.class);
+        entities.put("Warehouse", Warehouse.class);
+        entities.put("DealerDiscountPolicy", DealerDiscountPolicy.class);
+        entities.put("DealerInstallmentSchedule", DealerInstallmentSchedule.class);
+        entities.put("DealerOrderItem", DealerOrderItem.class);
+        entities.put("DealerQuotationItem", DealerQuotationItem.class);
+        entities.put("TestDriveSchedule", TestDriveSchedule.class);
+        entities.put("DealerInstallmentPlan", DealerInstallmentPlan.class);
+        return java.util.Collections.unmodifiableMap(entities);
+    }
+}
@@ -0,0 +1,527 @@
+package com.evdealer.service;
+
+import com.evdealer.enums.ImportMode;
+import com.evdealer.enums.ReportDataDomain;
+import com.evdealer.util.PrincipalCache;
+import com.evdealer.util.ReportCache;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.type.BasicType;
+import org.hibernate.type.EntityType;
+import org.hibernate.type.Type;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Nạp lại export archive (xem DataExportStreamService.exportArchive) bằng PostgreSQL COPY FROM STDIN.
+ * Các bảng được nạp theo thứ tự phụ thuộc khóa ngoại lấy từ JPA metamodel, trong một transaction duy nhất.
+ * Tên cột và cách chuyển giá trị (enum, AttributeConverter) lấy từ mapping của Hibernate nên archive
+ * được đọc đúng như lúc export. Checksum trong manifest.json được kiểm tra cho từng file.
+ * <p>
+ * Dữ liệu nạp bằng COPY bỏ qua entity listener, nên sau khi import các bảng/bộ nhớ dẫn xuất
+ * (rollup, daily sales fact, counters, report cache, sales cube) được dựng lại.
+ */
+@Service
+public class DataImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataImportService.class);
+
+    private static final int COPY_BUFFER_BYTES = 256 * 1024;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final SessionFactoryImplementor sessionFactory;
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper exportMapper;
+    private final TransactionTemplate importTransaction;
+    private final ReportService reportService;
+    private final ReportCache reportCache;
+    private final InventoryStatusCounterService inventoryStatusCounterService;
+    private final SalesCubeService salesCubeService;
+    private final InventoryFacetIndex inventoryFacetIndex;
+    private final PrincipalCache principalCache;
+    private final Path importDir;
+    // Chỉ cho phép một import chạy tại một thời điểm
+    private final Semaphore importSlot = new Semaphore(1);
+
+    public DataImportService(EntityManagerFactory entityManagerFactory,
+                             ObjectMapper objectMapper,
+                             DataExportStreamService dataExportStreamService,
+                             PlatformTransactionManager transactionManager,
+                             ReportService reportService,
+                             ReportCache reportCache,
+                             InventoryStatusCounterService inventoryStatusCounterService,
+                             SalesCubeService salesCubeService,
+                             InventoryFacetIndex inventoryFacetIndex,
+                             PrincipalCache principalCache,
+                             @Value("${app.import.dir:imports}") String importDir) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        this.objectMapper = objectMapper;
+        this.exportMapper = dataExportStreamService.getExportMapper();
+        this.importTransaction = new TransactionTemplate(transactionManager);
+        this.reportService = reportService;
+        this.reportCache = reportCache;
+        this.inventoryStatusCounterService = inventoryStatusCounterService;
+        this.salesCubeService = salesCubeService;
+        this.inventoryFacetIndex = inventoryFacetIndex;
+        this.principalCache = principalCache;
+        this.importDir = Paths.get(importDir).toAbsolutePath().normalize();
+    }
+
+    public boolean tryAcquireSlot() {
+        return importSlot.tryAcquire();
+    }
+
+    public void releaseSlot() {
+        importSlot.release();
+    }
+
+    /**
+     * Đường dẫn tới archive nằm trong app.import.dir (không cho phép thoát ra ngoài thư mục này)
+     */
+    public Path resolveArchive(String fileName) {
+        Path path = importDir.resolve(fileName).normalize();
+        if (!path.startsWith(importDir) || !path.toFile().isFile()) {
+            throw new IllegalArgumentException("Archive not found in import directory: " + fileName);
+        }
+        return path;
+    }
+
+    /**
+     * Import archive.
+     *
+     * @param mode            INSERT, UPSERT (theo khóa chính) hoặc REPLACE (TRUNCATE các bảng được import trước)
+     * @param disableTriggers true = tắt trigger và kiểm tra khóa ngoại trong lúc nạp
+     *                        (session_replication_role = replica, cần quyền superuser)
+     * @param entities        tên entity cần import (rỗng = mọi entity có trong archive)
+     * @return số dòng và thời gian theo từng bảng
+     */
+    public Map<String, Object> importArchive(Path archive, ImportMode mode, boolean disableTriggers, Collection<String> entities) {
+        long started = System.currentTimeMillis();
+        Set<String> selected = new LinkedHashSet<>();
+        if (entities != null) {
+            for (String name : entities) {
+                if (!DataExportStreamService.EXPORT_ENTITIES.containsKey(name)) {
+                    throw new IllegalArgumentException("Unknown entity: " + name);
+                }
+                selected.add(name);
+            }
+        }
+
+        Map<String, Object> tables = new LinkedHashMap<>();
+        List<TablePlan> order;
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            JsonNode manifest = readManifest(zip);
+            List<TablePlan> plans = new ArrayList<>();
+            for (Map.Entry<String, Class<?>> entity : DataExportStreamService.EXPORT_ENTITIES.entrySet()) {
+                String name = entity.getKey();
+                if (!selected.isEmpty() && !selected.contains(name)) {
+                    continue;
+                }
+                ZipEntry entry = zip.getEntry(name + ".ndjson");
+                if (entry == null) {
+                    if (selected.contains(name)) {
+                        throw new IllegalArgumentException("Archive does not contain " + name);
+                    }
+                    continue;
+                }
+                String checksum = manifest != null ? manifest.path("tables").path(name).path("sha256").asText(null) : null;
+                plans.add(createPlan(name, entity.getValue(), entry, checksum));
+            }
+            order = dependencyOrder(plans);
+
+            importTransaction.executeWithoutResult(status -> entityManager.unwrap(Session.class).doWork(connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    if (disableTriggers) {
+                        statement.execute("SET LOCAL session_replication_role = replica");
+                    }
+                    if (mode == ImportMode.REPLACE && !order.isEmpty()) {
+                        List<String> tableNames = new ArrayList<>();
+                        for (TablePlan plan : order) {
+                            tableNames.add(plan.table);
+                        }
+                        statement.execute("TRUNCATE " + String.join(", ", tableNames));
+                    }
+                }
+                CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+                for (TablePlan plan : order) {
+                    long tableStarted = System.currentTimeMillis();
+                    long rows = loadTable(connection, copyManager, zip, plan, mode);
+                    Map<String, Object> table = new LinkedHashMap<>();
+                    table.put("table", plan.table);
+                    table.put("rows", rows);
+                    table.put("elapsedMillis", System.currentTimeMillis() - tableStarted);
+                    tables.put(plan.name, table);
+                    logger.info("Data import: {} rows into {} ({} ms)", rows, plan.table, System.currentTimeMillis() - tableStarted);
+                }
+            }));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot read archive: " + e.getMessage(), e);
+        } catch (UncheckedIOException e) {
+            throw new IllegalArgumentException("Cannot read archive: " + e.getCause().getMessage(), e);
+        }
+
+        boolean derivedDataRefreshed = refreshDerivedData();
+
+        long totalRecords = 0;
+        for (Object table : tables.values()) {
+            totalRecords += (Long) ((Map<?, ?>) table).get("rows");
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("mode", mode.getValue());
+        result.put("disableTriggers", disableTriggers);
+        result.put("order", order.stream().map(plan -> plan.name).toList());
+        result.put("tables", tables);
+        result.put("totalRecords", totalRecords);
+        result.put("derivedDataRefreshed", derivedDataRefreshed);
+        result.put("elapsedMillis", System.currentTimeMillis() - started);
+        logger.info("Data import ({}) finished: {} records in {} ms", mode.getValue(), totalRecords, System.currentTimeMillis() - started);
+        return result;
+    }
+
+    private long loadTable(Connection connection, CopyManager copyManager, ZipFile zip, TablePlan plan, ImportMode mode)
+            throws SQLException {
+        String columns = String.join(", ", plan.columnNames());
+        String target = plan.table;
+        if (mode == ImportMode.UPSERT) {
+            target = "import_stage_" + plan.table.replaceAll("[^A-Za-z0-9_]", "_");
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TEMP TABLE " + target + " (LIKE " + plan.table + " INCLUDING DEFAULTS) ON COMMIT DROP");
+            }
+        }
+
+        long copied;
+        MessageDigest digest = sha256();
+        try (InputStream in = new DigestInputStream(new BufferedInputStream(zip.getInputStream(plan.entry)), digest)) {
+            copied = copy(copyManager, "COPY " + target + " (" + columns + ") FROM STDIN WITH (FORMAT csv)", in, plan);
+            // Đọc hết phần còn lại (nếu có) để checksum tính trên toàn bộ file
+            in.transferTo(OutputStream.nullOutputStream());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (plan.checksum != null && !plan.checksum.equalsIgnoreCase(HexFormat.of().formatHex(digest.digest()))) {
+            throw new IllegalArgumentException("Checksum mismatch for " + plan.name + ", archive is corrupted");
+        }
+
+        if (mode != ImportMode.UPSERT) {
+            return copied;
+        }
+        List<String> updates = new ArrayList<>();
+        for (ColumnPlan column : plan.columns) {
+            if (!plan.idColumns.contains(column.column)) {
+                updates.add(column.column + " = EXCLUDED." + column.column);
+            }
+        }
+        String sql = "INSERT INTO " + plan.table + " (" + columns + ") SELECT " + columns + " FROM " + target
+            + " ON CONFLICT (" + String.join(", ", plan.idColumns) + ") "
+            + (updates.isEmpty() ? "DO NOTHING" : "DO UPDATE SET " + String.join(", ", updates));
+        try (Statement statement = connection.createStatement()) {
+            return statement.executeUpdate(sql);
+        }
+    }
+
+    /**
+     * Đọc từng record NDJSON và đẩy sang COPY dạng CSV theo từng khối COPY_BUFFER_BYTES
+     */
+    private long copy(CopyManager copyManager, String sql, InputStream in, TablePlan plan) throws SQLException, IOException {
+        CopyIn copyIn = copyManager.copyIn(sql);
+        try {
+            StringBuilder buffer = new StringBuilder(COPY_BUFFER_BYTES);
+            try (MappingIterator<JsonNode> records = objectMapper.readerFor(JsonNode.class).readValues(in)) {
+                while (records.hasNext()) {
+                    JsonNode data = records.next().path("data");
+                    if (!data.isObject()) {
+                        continue;
+                    }
+                    for (int i = 0; i < plan.columns.size(); i++) {
+                        if (i > 0) {
+                            buffer.append(',');
+                        }
+                        ColumnPlan column = plan.columns.get(i);
+                        appendCsv(buffer, column.converter.apply(data.get(column.jsonName)));
+                    }
+                    buffer.append('\n');
+                    if (buffer.length() >= COPY_BUFFER_BYTES) {
+                        writeToCopy(copyIn, buffer);
+                    }
+                }
+            }
+            writeToCopy(copyIn, buffer);
+            return copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private static void writeToCopy(CopyIn copyIn, StringBuilder buffer) throws SQLException {
+        if (buffer.length() == 0) {
+            return;
+        }
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+
+    // CSV của COPY: NULL = trường rỗng không có dấu nháy, mọi giá trị khác đều được đặt trong nháy kép
+    private static void appendCsv(StringBuilder buffer, String value) {
+        if (value == null) {
+            return;
+        }
+        buffer.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                buffer.append('"');
+            }
+            buffer.append(c);
+        }
+        buffer.append('"');
+    }
+
+    /**
+     * Dựng lại dữ liệu dẫn xuất mà entity listener bình thường duy trì.
+     * Dùng chung cho các thao tác bulk bằng SQL (import, purge).
+     *
+     * @return false nếu có lỗi (đã được log)
+     */
+    public boolean refreshDerivedData() {
+        // User bị xóa/thay bằng SQL: principal đã cache không còn đúng (làm trước để không bị bỏ qua nếu bước sau lỗi)
+        principalCache.clear();
+        try {
+            reportService.rebuildDealerSalesRollup();
+            reportService.backfillDailySalesFact(null, null);
+            inventoryStatusCounterService.reload();
+            inventoryFacetIndex.reload();
+            salesCubeService.invalidate();
+            for (ReportDataDomain domain : ReportDataDomain.values()) {
+                reportCache.invalidate(domain);
+            }
+            return true;
+        } catch (RuntimeException e) {
+            logger.error("Data import: failed to refresh derived report data: {}", e.getMessage(), e);
+            return false;
+        }
+    }
+
+    private JsonNode readManifest(ZipFile zip) throws IOException {
+        ZipEntry entry = zip.getEntry("manifest.json");
+        if (entry == null) {
+            return null;
+        }
+        try (InputStream in = zip.getInputStream(entry)) {
+            return objectMapper.readTree(in);
+        }
+    }
+
+    // ===== Mapping =====
+
+    private TablePlan createPlan(String name, Class<?> type, ZipEntry entry, String checksum) {
+        AbstractEntityPersister persister = (AbstractEntityPersister) sessionFactory.getMappingMetamodel().getEntityDescriptor(type);
+
+        // Tên thuộc tính Java -> tên field JSON (theo đúng mapper đã ghi archive)
+        BeanDescription description = exportMapper.getSerializationConfig().introspect(exportMapper.constructType(type));
+        Map<String, String> jsonNames = new HashMap<>();
+        for (BeanPropertyDefinition property : description.findProperties()) {
+            jsonNames.put(property.getInternalName(), property.getName());
+        }
+
+        List<ColumnPlan> columns = new ArrayList<>();
+        Set<Class<?>> dependencies = new LinkedHashSet<>();
+        String idProperty = persister.getIdentifierPropertyName();
+        String[] idColumns = persister.getIdentifierColumnNames();
+        if (jsonNames.containsKey(idProperty) && idColumns.length == 1) {
+            columns.add(new ColumnPlan(idColumns[0], jsonNames.get(idProperty), DataImportService::asText));
+        }
+        String[] properties = persister.getPropertyNames();
+        Type[] propertyTypes = persister.getPropertyTypes();
+        for (int i = 0; i < properties.length; i++) {
+            String property = properties[i];
+            Type propertyType = propertyTypes[i];
+            String[] propertyColumns = persister.getPropertyColumnNames(property);
+            String jsonName = jsonNames.get(property);
+            if (propertyType.isCollectionType() || propertyColumns.length != 1 || jsonName == null) {
+                continue;
+            }
+            if (propertyType.isEntityType()) {
+                // Quan hệ được export dưới dạng id của entity đích
+                String targetEntity = ((EntityType) propertyType).getAssociatedEntityName();
+                Class<?> target = sessionFactory.getMappingMetamodel().getEntityDescriptor(targetEntity).getMappedClass();
+                if (target != type) {
+                    dependencies.add(target);
+                }
+                columns.add(new ColumnPlan(propertyColumns[0], jsonName, DataImportService::asText));
+            } else if (propertyType instanceof BasicType<?> basicType
+                    && (basicType.getReturnedClass().isEnum() || basicType.getValueConverter() != null)) {
+                columns.add(new ColumnPlan(propertyColumns[0], jsonName, convertedValue(basicType)));
+            } else {
+                columns.add(new ColumnPlan(propertyColumns[0], jsonName, DataImportService::asText));
+            }
+        }
+        return new TablePlan(name, type, persister.getTableName(), List.of(idColumns), columns, dependencies, entry, checksum);
+    }
+
+    /**
+     * Giá trị cần chuyển đổi (enum, AttributeConverter): JSON -> giá trị Java -> giá trị lưu trong DB.
+     * Số giá trị khác nhau nhỏ nên kết quả được cache.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Function<JsonNode, String> convertedValue(BasicType<?> basicType) {
+        Map<String, Optional<String>> cache = new ConcurrentHashMap<>();
+        return node -> {
+            if (node == null || node.isNull() || node.isMissingNode()) {
+                return null;
+            }
+            return cache.computeIfAbsent(node.asText(), key -> {
+                Object domainValue = objectMapper.convertValue(node, basicType.getReturnedClass());
+                Object relational = ((BasicType) basicType).convertToRelationalValue(domainValue);
+                if (relational == null) {
+                    return Optional.empty();
+                }
+                if (relational instanceof Enum<?> enumValue) {
+                    return Optional.of(basicType.getJdbcType().isInteger()
+                        ? String.valueOf(enumValue.ordinal()) : enumValue.name());
+                }
+                return Optional.of(relational.toString());
+            }).orElse(null);
+        };
+    }
+
+    private static String asText(JsonNode node) {
+        if (node == null || node.isNull() || node.isMissingNode()) {
+            return null;
+        }
+        return node.isValueNode() ? node.asText() : node.toString();
+    }
+
+    /**
+     * Sắp xếp topo theo khóa ngoại (bảng được tham chiếu nạp trước). Quan hệ vòng được giữ theo thứ tự
+     * export và chỉ nạp được khi tắt kiểm tra khóa ngoại (disableTriggers).
+     */
+    private static List<TablePlan> dependencyOrder(List<TablePlan> plans) {
+        Map<Class<?>, TablePlan> byType = new LinkedHashMap<>();
+        for (TablePlan plan : plans) {
+            byType.put(plan.type, plan);
+        }
+        List<TablePlan> ordered = new ArrayList<>();
+        Set<Class<?>> done = new LinkedHashSet<>();
+        while (ordered.size() < plans.size()) {
+            boolean progressed = false;
+            for (TablePlan plan : plans) {
+                if (done.contains(plan.type)) {
+                    continue;
+                }
+                boolean ready = plan.dependencies.stream().noneMatch(dep -> byType.containsKey(dep) && !done.contains(dep));
+                if (ready) {
+                    ordered.add(plan);
+                    done.add(plan.type);
+                    progressed = true;
+                }
+            }
+            if (!progressed) {
+                for (TablePlan plan : plans) {
+                    if (done.add(plan.type)) {
+                        logger.warn("Data import: foreign key cycle involving {}", plan.name);
+                        ordered.add(plan);
+                    }
+                }
+            }
+        }
+        return ordered;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static final class ColumnPlan {
+        private final String column;
+        private final String jsonName;
+        private final Function<JsonNode, String> converter;
+
+        private ColumnPlan(String column, String jsonName, Function<JsonNode, String> converter) {
+            this.column = column;
+            this.jsonName = jsonName;
+            this.converter = converter;
+        }
+    }
+
+    private static final class TablePlan {
+        private final String name;
+        private final Class<?> type;
+        private final String table;
+        private final List<String> idColumns;
+        private final List<ColumnPlan> columns;
+        private final Set<Class<?>> dependencies;
+        private final ZipEntry entry;
+        private final String checksum;
+
+        private TablePlan(String name, Class<?> type, String table, List<String> idColumns, List<ColumnPlan> columns,
+                          Set<Class<?>> dependencies, ZipEntry entry, String checksum) {
+            this.name = name;
+            this.type = type;
+            this.table = table;
+            this.idColumns = idColumns;
+            this.columns = columns;
+            this.dependencies = dependencies;
+            this.entry = entry;
+            this.checksum = checksum;
+        }
+
+        private List<String> columnNames() {
+            return columns.stream().map(column -> column.column).toList();
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.evdealer.service;
+
+import com.evdealer.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.type.EntityType;
+import org.hibernate.type.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Xóa toàn bộ dữ liệu nghiệp vụ bằng câu lệnh set-based thay vì xóa từng entity.
+ * Quan hệ khóa ngoại lấy từ Hibernate metamodel:
+ * <ul>
+ *   <li>Bảng chỉ bị tham chiếu bởi các bảng cũng bị TRUNCATE được xóa bằng một lệnh TRUNCATE duy nhất.</li>
+ *   <li>Bảng còn bị tham chiếu bởi dòng được giữ lại (vd. dealers &lt;- users của admin) được xóa bằng DELETE
+ *       theo thứ tự bảng con trước.</li>
+ *   <li>users: một DELETE với điều kiện username, tài khoản admin được giữ lại.</li>
+ * </ul>
+ * Không dùng TRUNCATE ... CASCADE vì CASCADE sẽ kéo theo cả bảng users (users.dealer_id -> dealers).
+ * Mọi thứ chạy trong một transaction; purge bỏ qua entity listener nên dữ liệu dẫn xuất được dựng lại sau commit.
+ */
+@Service
+public class DataPurgeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataPurgeService.class);
+
+    public static final String PRESERVED_USERNAME = "admin";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final SessionFactoryImplementor sessionFactory;
+    private final TransactionTemplate purgeTransaction;
+    private final DataImportService dataImportService;
+
+    public DataPurgeService(EntityManagerFactory entityManagerFactory,
+                            PlatformTransactionManager transactionManager,
+                            DataImportService dataImportService) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        this.purgeTransaction = new TransactionTemplate(transactionManager);
+        this.dataImportService = dataImportService;
+    }
+
+    /**
+     * Xóa dữ liệu của mọi entity trong DataExportStreamService.EXPORT_ENTITIES, giữ lại user admin.
+     *
+     * @return số dòng đã xóa theo entity (entity trong truncatedEntities: số ước lượng từ pg_stat_user_tables)
+     */
+    public Map<String, Object> purgeAll() {
+        long started = System.currentTimeMillis();
+
+        // Bảng -> tên entity, và các khóa ngoại giữa các bảng (toàn bộ metamodel, không chỉ các bảng bị xóa)
+        Map<String, String> entityByTable = new LinkedHashMap<>();
+        for (Map.Entry<String, Class<?>> entity : DataExportStreamService.EXPORT_ENTITIES.entrySet()) {
+            entityByTable.put(persister(entity.getValue()).getTableName(), entity.getKey());
+        }
+        String userTable = persister(User.class).getTableName();
+        List<ForeignKey> foreignKeys = foreignKeys();
+
+        // TRUNCATE được khi mọi bảng tham chiếu tới nó cũng bị TRUNCATE
+        Set<String> truncateTables = new LinkedHashSet<>(entityByTable.keySet());
+        truncateTables.remove(userTable);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (ForeignKey foreignKey : foreignKeys) {
+                if (!truncateTables.contains(foreignKey.fromTable) && truncateTables.remove(foreignKey.toTable)) {
+                    changed = true;
+                }
+            }
+        }
+
+        Map<String, Long> deletedCounts = new LinkedHashMap<>();
+        List<String> truncated = new ArrayList<>();
+        boolean[] adminPreserved = new boolean[1];
+        purgeTransaction.executeWithoutResult(status -> entityManager.unwrap(Session.class).doWork(connection -> {
+            Set<String> deleteTables = new LinkedHashSet<>(entityByTable.keySet());
+            if (!truncateTables.isEmpty()) {
+                Map<String, Long> estimates = estimateRows(connection, truncateTables);
+                Savepoint savepoint = connection.setSavepoint();
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("TRUNCATE " + String.join(", ", truncateTables) + " RESTART IDENTITY");
+                    connection.releaseSavepoint(savepoint);
+                    for (String table : truncateTables) {
+                        deletedCounts.put(entityByTable.get(table), estimates.getOrDefault(table, 0L));
+                        truncated.add(entityByTable.get(table));
+                    }
+                    deleteTables.removeAll(truncateTables);
+                } catch (SQLException e) {
+                    // Ràng buộc trong DB không có trong metamodel: xóa tất cả bằng DELETE
+                    connection.rollback(savepoint);
+                    logger.warn("Data purge: TRUNCATE failed ({}), falling back to DELETE", e.getMessage());
+                }
+            }
+
+            for (String table : deleteOrder(deleteTables, foreignKeys)) {
+                if (table.equals(userTable)) {
+                    deletedCounts.put(entityByTable.get(table), deletePreservedUsers(connection, userTable, foreignKeys, entityByTable.keySet()));
+                } else {
+                    try (Statement statement = connection.createStatement()) {
+                        deletedCounts.put(entityByTable.get(table), (long) statement.executeUpdate("DELETE FROM " + table));
+                    }
+                }
+            }
+
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT EXISTS (SELECT 1 FROM " + userTable + " WHERE username = ?)")) {
+                statement.setString(1, PRESERVED_USERNAME);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    adminPreserved[0] = resultSet.next() && resultSet.getBoolean(1);
+                }
+            }
+        }));
+
+        boolean derivedDataRefreshed = dataImportService.refreshDerivedData();
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("deletedCounts", deletedCounts);
+        result.put("totalDeleted", deletedCounts.values().stream().mapToLong(Long::longValue).sum());
+        result.put("truncatedEntities", truncated);
+        result.put("errors", new ArrayList<String>());
+        result.put("adminUserPreserved", adminPreserved[0]);
+        result.put("derivedDataRefreshed", derivedDataRefreshed);
+        result.put("elapsedMillis", System.currentTimeMillis() - started);
+        logger.info("Data purge finished in {} ms: {} tables truncated, {} tables deleted",
+            System.currentTimeMillis() - started, truncated.size(), deletedCounts.size() - truncated.size());
+        return result;
+    }
+
+    /**
+     * Xóa mọi user trừ admin bằng một câu lệnh; khóa ngoại nullable từ user được giữ lại tới các bảng sắp bị xóa
+     * (vd. dealer_id) được set NULL để các bảng đó xóa được.
+     */
+    private long deletePreservedUsers(Connection connection, String userTable, List<ForeignKey> foreignKeys,
+                                      Set<String> purgedTables) throws SQLException {
+        long deleted;
+        try (PreparedStatement statement = connection.prepareStatement(
+                "DELETE FROM " + userTable + " WHERE username IS DISTINCT FROM ?")) {
+            statement.setString(1, PRESERVED_USERNAME);
+            deleted = statement.executeUpdate();
+        }
+        for (ForeignKey foreignKey : foreignKeys) {
+            if (foreignKey.fromTable.equals(userTable) && foreignKey.nullable && purgedTables.contains(foreignKey.toTable)) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.executeUpdate("UPDATE " + userTable + " SET " + foreignKey.column + " = NULL WHERE "
+                        + foreignKey.column + " IS NOT NULL");
+                }
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Thứ tự DELETE: một bảng chỉ bị xóa sau mọi bảng (trong tập) tham chiếu tới nó
+     */
+    private static List<String> deleteOrder(Set<String> tables, List<ForeignKey> foreignKeys) {
+        List<String> ordered = new ArrayList<>();
+        Set<String> remaining = new LinkedHashSet<>(tables);
+        while (!remaining.isEmpty()) {
+            List<String> ready = new ArrayList<>();
+            for (String table : remaining) {
+                boolean referenced = false;
+                for (ForeignKey foreignKey : foreignKeys) {
+                    if (foreignKey.toTable.equals(table) && !foreignKey.fromTable.equals(table)
+                            && remaining.contains(foreignKey.fromTable)) {
+                        referenced = true;
+                        break;
+                    }
+                }
+                if (!referenced) {
+                    ready.add(table);
+                }
+            }
+            if (ready.isEmpty()) {
+                // Quan hệ vòng: giữ thứ tự hiện tại, DB sẽ báo lỗi nếu thực sự vi phạm khóa ngoại
+                logger.warn("Data purge: foreign key cycle among {}", remaining);
+                ready.addAll(remaining);
+            }
+            ordered.addAll(ready);
+            remaining.removeAll(ready);
+        }
+        return ordered;
+    }
+
+    /**
+     * Số dòng ước lượng (không quét bảng) cho các bảng bị TRUNCATE, vì TRUNCATE không trả về số dòng
+     */
+    private static Map<String, Long> estimateRows(Connection connection, Set<String> tables) throws SQLException {
+        Map<String, Long> estimates = new HashMap<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT c.relname, COALESCE(s.n_live_tup, GREATEST(c.reltuples, 0)::bigint) " +
+                "FROM pg_class c " +
+                "JOIN pg_namespace n ON n.oid = c.relnamespace " +
+                "LEFT JOIN pg_stat_user_tables s ON s.relid = c.oid " +
+                "WHERE n.nspname = current_schema() AND c.relname = ANY (?)")) {
+            statement.setArray(1, connection.createArrayOf("text", tables.toArray()));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    estimates.put(resultSet.getString(1), resultSet.getLong(2));
+                }
+            }
+        }
+        return estimates;
+    }
+
+    private List<ForeignKey> foreignKeys() {
+        List<ForeignKey> foreignKeys = new ArrayList<>();
+        sessionFactory.getMappingMetamodel().forEachEntityDescriptor(descriptor -> {
+            AbstractEntityPersister persister = (AbstractEntityPersister) descriptor;
+            String[] properties = persister.getPropertyNames();
+            Type[] types = persister.getPropertyTypes();
+            boolean[] nullability = persister.getPropertyNullability();
+            for (int i = 0; i < properties.length; i++) {
+                Type type = types[i];
+                String[] columns = persister.getPropertyColumnNames(properties[i]);
+                // Chỉ phía sở hữu (có cột khóa ngoại); mappedBy không có cột
+                if (type.isEntityType() && columns.length == 1) {
+                    String target = ((EntityType) type).getAssociatedEntityName();
+                    String targetTable = ((AbstractEntityPersister) sessionFactory.getMappingMetamodel()
+                        .getEntityDescriptor(target)).getTableName();
+                    foreignKeys.add(new ForeignKey(persister.getTableName(), columns[0], targetTable, nullability[i]));
+                }
+            }
+        });
+        return foreignKeys;
+    }
+
+    private AbstractEntityPersister persister(Class<?> type) {
+        return (AbstractEntityPersister) sessionFactory.getMappingMetamodel().getEntityDescriptor(type);
+    }
+
+    private static final class ForeignKey {
+        private final String fromTable;
+        private final String column;
+        private final String toTable;
+        private final boolean nullable;
+
+        private ForeignKey(String fromTable, String column, String toTable, boolean nullable) {
+            this.fromTable = fromTable;
+            this.column = column;
+            this.toTable = toTable;
+            this.nullable = nullable;
+        }
+    }
+}
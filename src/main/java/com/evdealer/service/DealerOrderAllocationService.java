@@ -0,0 +1,242 @@
+package com.evdealer.service;
+
+import com.evdealer.dto.DealerOrderAllocationDTO;
+import com.evdealer.dto.DealerOrderAllocationLineDTO;
+import com.evdealer.entity.DealerOrder;
+import com.evdealer.entity.DealerOrderItem;
+import com.evdealer.entity.InventoryFacetListener;
+import com.evdealer.entity.InventoryFacetSnapshot;
+import com.evdealer.entity.InventoryStatusListener;
+import com.evdealer.entity.InventoryStatusSnapshot;
+import com.evdealer.entity.ReportDataChangeListener;
+import com.evdealer.enums.DealerOrderItemStatus;
+import com.evdealer.enums.DealerOrderStatus;
+import com.evdealer.enums.ReportDataDomain;
+import com.evdealer.enums.VehicleStatus;
+import com.evdealer.repository.DealerOrderItemRepository;
+import com.evdealer.repository.DealerOrderRepository;
+import com.evdealer.repository.VehicleInventoryRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Phân bổ xe trong kho cho đơn hàng đại lý: mỗi dòng (variant, color, quantity) nhận tối đa số xe còn thiếu
+ * bằng MỘT câu lệnh (SELECT ... FOR UPDATE SKIP LOCKED LIMIT n + UPDATE hàng loạt, xem
+ * VehicleInventoryRepository.allocateUnits), dù đơn hàng có hàng trăm xe.
+ * <p>
+ * Xe được chuyển sang RESERVED, giữ cho dealer và gắn với dòng đơn hàng (allocated_order_item_id). Các lần
+ * phân bổ đồng thời cho dealer khác nhau bỏ qua dòng đang bị khóa nên không chặn nhau và không phân bổ trùng;
+ * các lần phân bổ cho cùng một đơn chạy tuần tự (khóa dealer order). Gọi lại chỉ phân bổ phần còn thiếu.
+ * UPDATE bằng SQL không qua entity nên bộ đếm trạng thái, facet index và cache báo cáo được báo trực tiếp.
+ */
+@Service
+@Transactional
+public class DealerOrderAllocationService {
+
+    // Không có kho ưu tiên: id không trùng kho nào
+    private static final UUID NO_WAREHOUSE = new UUID(0L, 0L);
+
+    private static final Set<DealerOrderStatus> CLOSED_STATUSES =
+        EnumSet.of(DealerOrderStatus.REJECTED, DealerOrderStatus.CANCELLED, DealerOrderStatus.DELIVERED);
+
+    private final DealerOrderRepository dealerOrderRepository;
+    private final DealerOrderItemRepository dealerOrderItemRepository;
+    private final VehicleInventoryRepository vehicleInventoryRepository;
+
+    public DealerOrderAllocationService(DealerOrderRepository dealerOrderRepository,
+                                        DealerOrderItemRepository dealerOrderItemRepository,
+                                        VehicleInventoryRepository vehicleInventoryRepository) {
+        this.dealerOrderRepository = dealerOrderRepository;
+        this.dealerOrderItemRepository = dealerOrderItemRepository;
+        this.vehicleInventoryRepository = vehicleInventoryRepository;
+    }
+
+    /**
+     * Phân bổ xe cho các dòng chưa đủ của đơn hàng.
+     *
+     * @param preferredWarehouseId kho ưu tiên lấy xe trước (null = không ưu tiên)
+     * @param allowPartial         false: nếu có dòng không đủ xe thì không phân bổ gì (rollback) và báo lỗi
+     */
+    public DealerOrderAllocationDTO allocate(UUID dealerOrderId, UUID preferredWarehouseId, boolean allowPartial) {
+        DealerOrder order = dealerOrderRepository.lockById(dealerOrderId)
+                .orElseThrow(() -> new RuntimeException("Dealer order not found with id: " + dealerOrderId));
+        if (order.getStatus() != null && CLOSED_STATUSES.contains(order.getStatus())) {
+            throw new IllegalArgumentException("Cannot allocate inventory for a dealer order with status " + order.getStatus().getValue());
+        }
+        UUID dealerId = order.getDealer() != null ? order.getDealer().getDealerId() : null;
+
+        List<DealerOrderItem> items = allocatableItems(dealerOrderId);
+        Map<UUID, Integer> allocatedCounts = countAllocated(items);
+
+        LocalDateTime now = LocalDateTime.now();
+        List<DealerOrderAllocationLineDTO> lines = new ArrayList<>();
+        List<Object[]> changedRows = new ArrayList<>();
+        List<UUID> changedDealers = new ArrayList<>();
+        for (DealerOrderItem item : items) {
+            int requested = item.getQuantity() != null ? item.getQuantity() : 0;
+            int previously = allocatedCounts.getOrDefault(item.getItemId(), 0);
+            int missing = Math.max(0, requested - previously);
+
+            DealerOrderAllocationLineDTO line = new DealerOrderAllocationLineDTO();
+            line.setItemId(item.getItemId());
+            line.setVariantId(item.getVariant() != null ? item.getVariant().getVariantId() : null);
+            line.setColorId(item.getColor() != null ? item.getColor().getColorId() : null);
+            line.setRequested(requested);
+            line.setPreviouslyAllocated(previously);
+
+            List<UUID> inventoryIds = new ArrayList<>();
+            Map<UUID, Integer> byWarehouse = new LinkedHashMap<>();
+            if (missing > 0 && line.getVariantId() != null && line.getColorId() != null) {
+                List<Object[]> rows = vehicleInventoryRepository.allocateUnits(
+                    item.getItemId(), dealerId, line.getVariantId(), line.getColorId(),
+                    preferredWarehouseId != null ? preferredWarehouseId : NO_WAREHOUSE, missing,
+                    VehicleStatus.AVAILABLE.getValue(), VehicleStatus.RESERVED.getValue(), now);
+                for (Object[] row : rows) {
+                    inventoryIds.add((UUID) row[0]);
+                    if (row[1] != null) {
+                        byWarehouse.merge((UUID) row[1], 1, Integer::sum);
+                    }
+                    changedRows.add(row);
+                    changedDealers.add(dealerId);
+                }
+            }
+            line.setAllocatedNow(inventoryIds.size());
+            line.setShortfall(Math.max(0, missing - inventoryIds.size()));
+            line.setAllocatedInventoryIds(inventoryIds);
+            line.setAllocatedByWarehouse(byWarehouse);
+            lines.add(line);
+        }
+
+        DealerOrderAllocationDTO result = summarize(dealerOrderId, preferredWarehouseId, lines);
+        if (!allowPartial && !result.isFullyAllocated()) {
+            // Ném lỗi để rollback toàn bộ, các xe vừa khóa được trả lại
+            throw new IllegalStateException(String.format(
+                "Insufficient inventory to fully allocate dealer order %s: %d of %d units available",
+                dealerOrderId, result.getAllocated(), result.getRequested()));
+        }
+        publishChanges(changedRows, changedDealers, VehicleStatus.AVAILABLE, VehicleStatus.RESERVED);
+        return result;
+    }
+
+    /**
+     * Trả các xe đã phân bổ (còn RESERVED) của đơn hàng về AVAILABLE, vd. khi hủy đơn. Trả về số xe đã trả.
+     * Gọi trong transaction hủy/từ chối/xóa đơn để xe được trả cùng lúc với thay đổi trạng thái.
+     */
+    public int releaseAllocation(UUID dealerOrderId) {
+        dealerOrderRepository.lockById(dealerOrderId)
+                .orElseThrow(() -> new RuntimeException("Dealer order not found with id: " + dealerOrderId));
+        List<UUID> itemIds = new ArrayList<>();
+        for (DealerOrderItem item : dealerOrderItemRepository.findByDealerOrderId(dealerOrderId)) {
+            itemIds.add(item.getItemId());
+        }
+        return releaseItems(itemIds);
+    }
+
+    /**
+     * Trả các xe đã phân bổ cho một dòng đơn hàng (vd. khi hủy hoặc xóa dòng). Trả về số xe đã trả.
+     */
+    public int releaseItemAllocation(DealerOrderItem item) {
+        // Khóa đơn hàng như allocate để không chạy xen với một lần phân bổ cho cùng đơn
+        if (item.getDealerOrder() != null) {
+            dealerOrderRepository.lockById(item.getDealerOrder().getDealerOrderId());
+        }
+        return releaseItems(List.of(item.getItemId()));
+    }
+
+    private int releaseItems(List<UUID> itemIds) {
+        if (itemIds.isEmpty()) {
+            return 0;
+        }
+        List<Object[]> rows = vehicleInventoryRepository.releaseAllocatedUnits(
+            itemIds, VehicleStatus.RESERVED.getValue(), VehicleStatus.AVAILABLE.getValue());
+        List<UUID> dealers = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            dealers.add(null);
+        }
+        publishChanges(rows, dealers, VehicleStatus.RESERVED, VehicleStatus.AVAILABLE);
+        return rows.size();
+    }
+
+    private List<DealerOrderItem> allocatableItems(UUID dealerOrderId) {
+        List<DealerOrderItem> items = new ArrayList<>();
+        for (DealerOrderItem item : dealerOrderItemRepository.findByDealerOrderId(dealerOrderId)) {
+            if (item.getStatus() != DealerOrderItemStatus.CANCELLED && item.getStatus() != DealerOrderItemStatus.DELIVERED) {
+                items.add(item);
+            }
+        }
+        return items;
+    }
+
+    private Map<UUID, Integer> countAllocated(List<DealerOrderItem> items) {
+        Map<UUID, Integer> counts = new HashMap<>();
+        if (items.isEmpty()) {
+            return counts;
+        }
+        List<UUID> itemIds = new ArrayList<>();
+        for (DealerOrderItem item : items) {
+            itemIds.add(item.getItemId());
+        }
+        for (Object[] row : vehicleInventoryRepository.countAllocatedByItemIds(itemIds)) {
+            counts.put((UUID) row[0], ((Number) row[1]).intValue());
+        }
+        return counts;
+    }
+
+    private static DealerOrderAllocationDTO summarize(UUID dealerOrderId, UUID preferredWarehouseId,
+                                                      List<DealerOrderAllocationLineDTO> lines) {
+        int requested = 0;
+        int allocated = 0;
+        int allocatedNow = 0;
+        int shortfall = 0;
+        for (DealerOrderAllocationLineDTO line : lines) {
+            requested += line.getRequested();
+            allocated += line.getPreviouslyAllocated() + line.getAllocatedNow();
+            allocatedNow += line.getAllocatedNow();
+            shortfall += line.getShortfall();
+        }
+        DealerOrderAllocationDTO result = new DealerOrderAllocationDTO();
+        result.setDealerOrderId(dealerOrderId);
+        result.setPreferredWarehouseId(preferredWarehouseId);
+        result.setRequested(requested);
+        result.setAllocated(allocated);
+        result.setAllocatedNow(allocatedNow);
+        result.setShortfall(shortfall);
+        result.setFullyAllocated(shortfall == 0);
+        result.setLines(lines);
+        return result;
+    }
+
+    // rows: (inventory_id, warehouse_id, variant_id, color_id, selling_price, reserved_for_dealer cũ)
+    private static void publishChanges(List<Object[]> rows, List<UUID> newDealers, VehicleStatus from, VehicleStatus to) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            Object[] row = rows.get(i);
+            UUID inventoryId = (UUID) row[0];
+            UUID warehouseId = (UUID) row[1];
+            Integer variantId = row[2] != null ? ((Number) row[2]).intValue() : null;
+            Integer colorId = row[3] != null ? ((Number) row[3]).intValue() : null;
+            BigDecimal sellingPrice = (BigDecimal) row[4];
+            UUID previousDealer = (UUID) row[5];
+            InventoryStatusListener.notifyHandlers(
+                new InventoryStatusSnapshot(from, warehouseId, variantId, previousDealer),
+                new InventoryStatusSnapshot(to, warehouseId, variantId, newDealers.get(i)));
+            InventoryFacetListener.notifyHandlers(
+                new InventoryFacetSnapshot(inventoryId, from, variantId, colorId, warehouseId, sellingPrice),
+                new InventoryFacetSnapshot(inventoryId, to, variantId, colorId, warehouseId, sellingPrice));
+        }
+        ReportDataChangeListener.notifyHandlers(ReportDataDomain.INVENTORY);
+    }
+}
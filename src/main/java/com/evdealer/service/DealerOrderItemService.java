@@ -35,6 +35,9 @@ public class DealerOrderItemService {
     @Autowired
     private VehicleInventoryRepository vehicleInventoryRepository;
     
+    @Autowired
+    private DealerOrderAllocationService dealerOrderAllocationService;
+    
     @Transactional(readOnly = true)
     public List<DealerOrderItem> getAllItems() {
         try {
@@ -84,6 +87,10 @@ public class DealerOrderItemService {
             item.setNotes(itemDetails.getNotes());
         }
         if (itemDetails.getStatus() != null) {
+            // Dòng vừa bị hủy: trả xe đã phân bổ cho dòng này
+            if (itemDetails.getStatus() == DealerOrderItemStatus.CANCELLED && item.getStatus() != DealerOrderItemStatus.CANCELLED) {
+                dealerOrderAllocationService.releaseItemAllocation(item);
+            }
             item.setStatus(itemDetails.getStatus());
         }
         
@@ -102,6 +109,7 @@ public class DealerOrderItemService {
             throw new RuntimeException("Cannot delete confirmed or delivered items");
         }
         
+        dealerOrderAllocationService.releaseItemAllocation(item);
         dealerOrderItemRepository.delete(item);
     }
     
@@ -145,11 +153,8 @@ public class DealerOrderItemService {
     }
     
     private void checkInventoryAvailability(Integer variantId, Integer colorId, Integer requestedQuantity) {
-        // Get available inventory for this variant and color
-        List<com.evdealer.entity.VehicleInventory> availableInventory = 
-            vehicleInventoryRepository.findByVariantVariantIdAndColorColorIdAndStatus(variantId, colorId, VehicleStatus.AVAILABLE);
-        
-        int availableQuantity = availableInventory.size();
+        // Count available inventory for this variant and color
+        int availableQuantity = (int) vehicleInventoryRepository.countByVariantColorAndStatus(variantId, colorId, VehicleStatus.AVAILABLE);
         
         // Get pending orders for this variant
         Long pendingQuantity = sumPendingQuantityByVariant(variantId);
@@ -65,6 +65,9 @@ public class DealerOrderService {
     @Autowired
     private PricingPolicyService pricingPolicyService;
     
+    @Autowired
+    private DealerOrderAllocationService dealerOrderAllocationService;
+    
     @Transactional(readOnly = true)
     public List<DealerOrder> getAllDealerOrders() {
         try {
@@ -133,6 +136,7 @@ public class DealerOrderService {
             throw new RuntimeException("Dealer order number already exists: " + dealerOrderDetails.getDealerOrderNumber());
         }
         
+        DealerOrderStatus previousStatus = dealerOrder.getStatus();
         dealerOrder.setDealerOrderNumber(dealerOrderDetails.getDealerOrderNumber());
         dealerOrder.setEvmStaff(dealerOrderDetails.getEvmStaff());
         dealerOrder.setOrderDate(dealerOrderDetails.getOrderDate());
@@ -142,6 +146,7 @@ public class DealerOrderService {
         dealerOrder.setStatus(dealerOrderDetails.getStatus());
         dealerOrder.setPriority(dealerOrderDetails.getPriority());
         dealerOrder.setNotes(dealerOrderDetails.getNotes());
+        releaseAllocationIfClosed(dealerOrder, previousStatus);
         
         return dealerOrderRepository.save(dealerOrder);
     }
@@ -157,6 +162,8 @@ public class DealerOrderService {
             dealerInvoiceRepository.save(invoice);
         }
         
+        // Trả xe đã phân bổ trước khi xóa các dòng đơn hàng
+        dealerOrderAllocationService.releaseAllocation(dealerOrderId);
         dealerOrderRepository.delete(dealerOrder);
     }
     
@@ -164,10 +171,20 @@ public class DealerOrderService {
         DealerOrder dealerOrder = dealerOrderRepository.findById(dealerOrderId)
                 .orElseThrow(() -> new RuntimeException("Dealer order not found with id: " + dealerOrderId));
         DealerOrderStatus statusEnum = DealerOrderStatus.fromString(status);
+        DealerOrderStatus previousStatus = dealerOrder.getStatus();
         dealerOrder.setStatus(statusEnum);
+        releaseAllocationIfClosed(dealerOrder, previousStatus);
         return dealerOrderRepository.save(dealerOrder);
     }
     
+    // Đơn vừa chuyển sang CANCELLED/REJECTED: trả xe đã phân bổ trong cùng transaction
+    private void releaseAllocationIfClosed(DealerOrder dealerOrder, DealerOrderStatus previousStatus) {
+        DealerOrderStatus status = dealerOrder.getStatus();
+        if ((status == DealerOrderStatus.CANCELLED || status == DealerOrderStatus.REJECTED) && status != previousStatus) {
+            dealerOrderAllocationService.releaseAllocation(dealerOrder.getDealerOrderId());
+        }
+    }
+    
     // ==================== NEW IMPROVED METHODS ====================
     
     public CreateDealerOrderResponse createDetailedDealerOrder(CreateDealerOrderRequest request) {
@@ -368,6 +385,7 @@ public class DealerOrderService {
             item.setStatus(DealerOrderItemStatus.CANCELLED);
             dealerOrderItemService.updateDealerOrderItem(item.getItemId(), item);
         }
+        dealerOrderAllocationService.releaseAllocation(dealerOrderId);
         
         return dealerOrderRepository.save(dealerOrder);
     }
@@ -0,0 +1,148 @@
+package com.evdealer.service;
+
+import com.evdealer.entity.OrderSalesSnapshot;
+import com.evdealer.enums.OrderStatus;
+import com.evdealer.repository.DealerSalesRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Duy trì bảng dealer_sales_rollup (doanh số theo dealer × năm × tháng).
+ * Mỗi khi một Order ở trạng thái được tính doanh số thay đổi, bucket (dealer, tháng) liên quan
+ * được tính lại ngay trước commit, trong cùng transaction với thay đổi của Order.
+ */
+@Service
+public class DealerSalesRollupService extends OrderSalesAggregator<DealerSalesRollupService.SalesKey> {
+
+    private static final Logger logger = LoggerFactory.getLogger(DealerSalesRollupService.class);
+
+    private final DealerSalesRollupRepository rollupRepository;
+
+    public DealerSalesRollupService(DealerSalesRollupRepository rollupRepository) {
+        this.rollupRepository = rollupRepository;
+    }
+
+    @Override
+    protected void collectKeys(OrderSalesSnapshot previous, OrderSalesSnapshot current, Set<SalesKey> keys) {
+        // Chỉ order ở trạng thái được tính doanh số mới ảnh hưởng rollup
+        if (previous != null && previous.isRevenueRecognized()) {
+            keys.add(new SalesKey(previous.getUserId(), previous.getOrderDate()));
+        }
+        if (current != null && current.isRevenueRecognized()) {
+            keys.add(new SalesKey(current.getUserId(), current.getOrderDate()));
+        }
+    }
+
+    /**
+     * Xóa và dựng lại toàn bộ rollup từ bảng orders (backfill)
+     */
+    @Transactional
+    public int rebuild() {
+        rollupRepository.lockTable();
+        int deleted = rollupRepository.deleteAllRows();
+        int inserted = rollupRepository.rebuildFromOrders(OrderStatus.revenueRecognizedValues());
+        logger.info("Dealer sales rollup rebuilt: {} old buckets removed, {} buckets created", deleted, inserted);
+        return inserted;
+    }
+
+    @Override
+    protected void apply(Set<SalesKey> pending) {
+        Set<UUID> userIds = new HashSet<>();
+        for (SalesKey key : pending) {
+            if (key.userId != null && key.orderDate != null) {
+                userIds.add(key.userId);
+            }
+        }
+        if (userIds.isEmpty()) {
+            return;
+        }
+
+        Map<UUID, UUID> dealerByUser = new HashMap<>();
+        for (Object[] row : rollupRepository.findDealerIdsByUserIds(userIds)) {
+            dealerByUser.put((UUID) row[0], (UUID) row[1]);
+        }
+
+        // Sắp xếp bucket để các transaction luôn khóa theo cùng thứ tự (tránh deadlock)
+        Set<Bucket> buckets = new TreeSet<>();
+        for (SalesKey key : pending) {
+            UUID dealerId = dealerByUser.get(key.userId);
+            if (dealerId != null && key.orderDate != null) {
+                buckets.add(new Bucket(dealerId, YearMonth.from(key.orderDate)));
+            }
+        }
+
+        List<String> statuses = OrderStatus.revenueRecognizedValues();
+        for (Bucket bucket : buckets) {
+            int year = bucket.month.getYear();
+            int month = bucket.month.getMonthValue();
+            rollupRepository.insertBucketIfAbsent(bucket.dealerId, year, month);
+            rollupRepository.lockBucket(bucket.dealerId, year, month);
+            rollupRepository.recomputeBucket(bucket.dealerId, year, month,
+                bucket.month.atDay(1), bucket.month.plusMonths(1).atDay(1), statuses);
+        }
+    }
+
+    static final class SalesKey {
+        private final UUID userId;
+        private final LocalDate orderDate;
+
+        private SalesKey(UUID userId, LocalDate orderDate) {
+            this.userId = userId;
+            this.orderDate = orderDate;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof SalesKey)) return false;
+            SalesKey that = (SalesKey) o;
+            return java.util.Objects.equals(userId, that.userId) && java.util.Objects.equals(orderDate, that.orderDate);
+        }
+
+        @Override
+        public int hashCode() {
+            return java.util.Objects.hash(userId, orderDate);
+        }
+    }
+
+    private static final class Bucket implements Comparable<Bucket> {
+        private final UUID dealerId;
+        private final YearMonth month;
+
+        private Bucket(UUID dealerId, YearMonth month) {
+            this.dealerId = dealerId;
+            this.month = month;
+        }
+
+        @Override
+        public int compareTo(Bucket other) {
+            int cmp = dealerId.compareTo(other.dealerId);
+            return cmp != 0 ? cmp : month.compareTo(other.month);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Bucket)) return false;
+            Bucket that = (Bucket) o;
+            return dealerId.equals(that.dealerId) && month.equals(that.month);
+        }
+
+        @Override
+        public int hashCode() {
+            return java.util.Objects.hash(dealerId, month);
+        }
+    }
+}
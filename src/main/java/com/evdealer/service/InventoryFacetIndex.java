@@ -0,0 +1,597 @@
+package com.evdealer.service;
+
+import com.evdealer.dto.FacetCountDTO;
+import com.evdealer.dto.VehicleSearchFilter;
+import com.evdealer.entity.InventoryFacetListener;
+import com.evdealer.entity.InventoryFacetSnapshot;
+import com.evdealer.enums.VehicleStatus;
+import com.evdealer.repository.VehicleInventoryRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Facet index trong bộ nhớ cho các xe còn hàng (status AVAILABLE) của trang công khai.
+ * <p>
+ * Mỗi xe được gán một row id dày đặc (row id của xe đã rời index được dùng lại), mỗi giá trị facet
+ * (brand, model, variant, color, warehouse, khoảng giá) là một BitSet các row id. Lọc = AND/OR giữa
+ * các BitSet, đếm = số bit giao nhau, nên trả facet count không cần query PostgreSQL.
+ * <p>
+ * Seed từ DB khi dùng lần đầu, cập nhật theo InventoryFacetListener sau khi transaction commit và dựng lại
+ * định kỳ (bắt các bulk update bỏ qua listener và thay đổi tên brand/model/color).
+ */
+@Service
+public class InventoryFacetIndex implements InventoryFacetListener.Handler {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventoryFacetIndex.class);
+
+    // Số lần thử seed lại nếu có thay đổi commit trong lúc đang seed
+    private static final int MAX_LOAD_ATTEMPTS = 3;
+
+    public enum Facet {
+        BRAND(VehicleSearchService.FACET_BRAND),
+        MODEL(VehicleSearchService.FACET_MODEL),
+        VARIANT(VehicleSearchService.FACET_VARIANT),
+        COLOR(VehicleSearchService.FACET_COLOR),
+        WAREHOUSE(VehicleSearchService.FACET_WAREHOUSE),
+        PRICE(VehicleSearchService.FACET_PRICE);
+
+        private final String value;
+
+        Facet(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+    }
+
+    private final Object pendingKey = new Object();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final VehicleInventoryRepository vehicleInventoryRepository;
+    private final TransactionTemplate readTransaction;
+    private final List<BigDecimal> priceBuckets;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Guarded by lock
+    private Index index;
+    private long changeSequence;
+    // Có xe tham chiếu variant/color/warehouse chưa có trong catalog: dựng lại ở lần đọc tới
+    private boolean stale;
+
+    private final Object buildLock = new Object();
+    private final AtomicBoolean building = new AtomicBoolean();
+
+    public InventoryFacetIndex(VehicleInventoryRepository vehicleInventoryRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${app.search.price-buckets:500000000,1000000000,1500000000,2000000000}") String priceBuckets) {
+        this.vehicleInventoryRepository = vehicleInventoryRepository;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.priceBuckets = Arrays.stream(priceBuckets.split(","))
+            .map(String::trim)
+            .filter(value -> !value.isEmpty())
+            .map(BigDecimal::new)
+            .sorted()
+            .distinct()
+            .toList();
+    }
+
+    @PostConstruct
+    public void registerListener() {
+        InventoryFacetListener.register(this);
+    }
+
+    /**
+     * Mốc chia khoảng giá (tăng dần) của facet price
+     */
+    public List<BigDecimal> getPriceBuckets() {
+        return priceBuckets;
+    }
+
+    /**
+     * Tổng số xe khớp bộ lọc và số đếm theo từng facet (disjunctive: facet không áp dụng bộ lọc của chính nó).
+     *
+     * @return null nếu không seed được index (caller dùng query SQL)
+     */
+    public FacetCounts count(VehicleSearchFilter filter) {
+        if (!ensureLoaded()) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            Index current = index;
+            Map<Facet, BitSet> selections = new EnumMap<>(Facet.class);
+            addNameSelection(selections, current, Facet.BRAND, filter.getBrands());
+            addNameSelection(selections, current, Facet.MODEL, filter.getModels());
+            addNameSelection(selections, current, Facet.VARIANT, filter.getVariants());
+            addNameSelection(selections, current, Facet.COLOR, filter.getColors());
+            if (filter.getMinPrice() != null || filter.getMaxPrice() != null) {
+                selections.put(Facet.PRICE, current.priceRange(filter.getMinPrice(), filter.getMaxPrice()));
+            }
+
+            Map<String, List<FacetCountDTO>> facets = new LinkedHashMap<>();
+            for (Facet facet : Facet.values()) {
+                facets.put(facet.getValue(), countFacet(current, facet, matching(current, selections, facet)));
+            }
+            return new FacetCounts(matching(current, selections, null).cardinality(), facets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void onInventoryFacetChanged(InventoryFacetSnapshot previous, InventoryFacetSnapshot current) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            applyChanges(Collections.singletonList(new InventoryFacetSnapshot[] {previous, current}));
+            return;
+        }
+        getOrBindPending().add(new InventoryFacetSnapshot[] {previous, current});
+    }
+
+    /**
+     * Dựng lại index từ DB định kỳ
+     */
+    @Scheduled(fixedDelayString = "${app.inventory.facet-index.rebuild-interval-ms:600000}",
+               initialDelayString = "${app.inventory.facet-index.rebuild-interval-ms:600000}")
+    public void scheduledRebuild() {
+        lock.readLock().lock();
+        try {
+            if (index == null) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        reload();
+    }
+
+    /**
+     * Seed lại index từ DB (gọi sau các bulk update bỏ qua entity listener)
+     */
+    public void reload() {
+        lock.writeLock().lock();
+        try {
+            stale = true;
+            // Lần dựng đang chạy (nếu có) có thể đã đọc dữ liệu trước thay đổi: buộc dựng lại
+            changeSequence++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        ensureLoaded();
+    }
+
+    /**
+     * @return true nếu có index để đọc. Index đã stale vẫn được dùng trong lúc một thread dựng lại,
+     * để trang công khai không dồn nhiều lần dựng index cùng lúc.
+     */
+    private boolean ensureLoaded() {
+        boolean hasIndex;
+        lock.readLock().lock();
+        try {
+            if (index != null && !stale) {
+                return true;
+            }
+            hasIndex = index != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (hasIndex) {
+            if (building.compareAndSet(false, true)) {
+                try {
+                    rebuild();
+                } finally {
+                    building.set(false);
+                }
+            }
+            return true;
+        }
+        synchronized (buildLock) {
+            rebuild();
+        }
+        lock.readLock().lock();
+        try {
+            return index != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void rebuild() {
+        for (int attempt = 1; ; attempt++) {
+            long sequence;
+            lock.readLock().lock();
+            try {
+                if (index != null && !stale) {
+                    return;
+                }
+                sequence = changeSequence;
+            } finally {
+                lock.readLock().unlock();
+            }
+            Index fresh;
+            try {
+                fresh = readTransaction.execute(status -> loadFromDatabase());
+            } catch (RuntimeException e) {
+                // Index cũ (nếu có) vẫn được dùng cho tới lần dựng lại sau
+                logger.error("Failed to build inventory facet index: {}", e.getMessage(), e);
+                return;
+            }
+            lock.writeLock().lock();
+            try {
+                if (changeSequence == sequence || attempt >= MAX_LOAD_ATTEMPTS) {
+                    index = fresh;
+                    stale = false;
+                    logger.info("Inventory facet index built: {} available vehicles", fresh.live.cardinality());
+                    return;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private Index loadFromDatabase() {
+        Catalog catalog = new Catalog();
+        for (Object[] row : query("SELECT b.brandId, b.brandName FROM VehicleBrand b")) {
+            catalog.brandNames.put((Integer) row[0], (String) row[1]);
+        }
+        for (Object[] row : query("SELECT m.modelId, m.modelName, b.brandId FROM VehicleModel m LEFT JOIN m.brand b")) {
+            catalog.modelNames.put((Integer) row[0], (String) row[1]);
+            catalog.modelBrand.put((Integer) row[0], (Integer) row[2]);
+        }
+        for (Object[] row : query("SELECT v.variantId, v.variantName, m.modelId, v.priceBase FROM VehicleVariant v LEFT JOIN v.model m")) {
+            catalog.variantNames.put((Integer) row[0], (String) row[1]);
+            catalog.variantModel.put((Integer) row[0], (Integer) row[2]);
+            catalog.variantPrice.put((Integer) row[0], (BigDecimal) row[3]);
+        }
+        for (Object[] row : query("SELECT c.colorId, c.colorName FROM VehicleColor c")) {
+            catalog.colorNames.put((Integer) row[0], (String) row[1]);
+        }
+        for (Object[] row : query("SELECT w.warehouseId, w.warehouseName FROM Warehouse w")) {
+            catalog.warehouseNames.put((UUID) row[0], (String) row[1]);
+        }
+
+        Index fresh = new Index(catalog, priceBuckets);
+        for (Object[] row : vehicleInventoryRepository.findFacetRowsByStatus(VehicleStatus.AVAILABLE)) {
+            fresh.add((UUID) row[0], (Integer) row[1], (Integer) row[2], (UUID) row[3], (BigDecimal) row[4]);
+        }
+        return fresh;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> query(String jpql) {
+        return entityManager.createQuery(jpql).getResultList();
+    }
+
+    private void applyChanges(List<InventoryFacetSnapshot[]> changes) {
+        lock.writeLock().lock();
+        try {
+            changeSequence++;
+            if (index == null) {
+                // Chưa seed: lần seed tới sẽ đọc trạng thái mới từ DB
+                return;
+            }
+            for (InventoryFacetSnapshot[] change : changes) {
+                InventoryFacetSnapshot previous = change[0];
+                InventoryFacetSnapshot current = change[1];
+                if (previous != null && previous.getInventoryId() != null) {
+                    index.remove(previous.getInventoryId());
+                }
+                if (current != null && current.getInventoryId() != null) {
+                    index.remove(current.getInventoryId());
+                    if (current.getStatus() == VehicleStatus.AVAILABLE
+                            && !index.add(current.getInventoryId(), current.getVariantId(), current.getColorId(),
+                                          current.getWarehouseId(), current.getSellingPrice())) {
+                        stale = true;
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<InventoryFacetSnapshot[]> getOrBindPending() {
+        List<InventoryFacetSnapshot[]> pending =
+            (List<InventoryFacetSnapshot[]>) TransactionSynchronizationManager.getResource(pendingKey);
+        if (pending == null) {
+            List<InventoryFacetSnapshot[]> newPending = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(pendingKey, newPending);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    // Chỉ áp dụng thay đổi đã commit
+                    applyChanges(newPending);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(pendingKey);
+                }
+            });
+            pending = newPending;
+        }
+        return pending;
+    }
+
+    /**
+     * Bộ lọc theo tên (đã lowercase): OR của các giá trị facet có tên khớp; không khớp giá trị nào = tập rỗng
+     */
+    private static void addNameSelection(Map<Facet, BitSet> selections, Index index, Facet facet, List<String> names) {
+        if (names == null || names.isEmpty()) {
+            return;
+        }
+        BitSet selected = new BitSet();
+        for (Map.Entry<Object, BitSet> value : index.values(facet).entrySet()) {
+            String name = index.name(facet, value.getKey());
+            if (name != null && names.contains(name.toLowerCase())) {
+                selected.or(value.getValue());
+            }
+        }
+        selections.put(facet, selected);
+    }
+
+    /**
+     * Các xe khớp mọi bộ lọc trừ bộ lọc của excludeFacet (null = áp dụng tất cả)
+     */
+    private static BitSet matching(Index index, Map<Facet, BitSet> selections, Facet excludeFacet) {
+        BitSet result = (BitSet) index.live.clone();
+        for (Map.Entry<Facet, BitSet> selection : selections.entrySet()) {
+            if (selection.getKey() != excludeFacet) {
+                result.and(selection.getValue());
+            }
+        }
+        return result;
+    }
+
+    private static List<FacetCountDTO> countFacet(Index index, Facet facet, BitSet base) {
+        long[] baseWords = base.toLongArray();
+        if (facet == Facet.PRICE) {
+            List<FacetCountDTO> counts = new ArrayList<>();
+            for (int band = 0; band <= index.priceBuckets.size(); band++) {
+                BigDecimal from = band == 0 ? null : index.priceBuckets.get(band - 1);
+                BigDecimal to = band == index.priceBuckets.size() ? null : index.priceBuckets.get(band);
+                BitSet rows = index.values(facet).get(band);
+                counts.add(new FacetCountDTO(priceLabel(from, to), rows != null ? andCardinality(baseWords, rows) : 0L, from, to));
+            }
+            return counts;
+        }
+
+        // Gộp theo tên hiển thị (vd. hai model cùng tên ở hai năm khác nhau)
+        Map<String, Long> byName = new HashMap<>();
+        for (Map.Entry<Object, BitSet> value : index.values(facet).entrySet()) {
+            String name = index.name(facet, value.getKey());
+            if (name == null) {
+                continue;
+            }
+            long count = andCardinality(baseWords, value.getValue());
+            if (count > 0) {
+                byName.merge(name, count, Long::sum);
+            }
+        }
+        List<FacetCountDTO> counts = new ArrayList<>();
+        byName.forEach((name, count) -> counts.add(new FacetCountDTO(name, count)));
+        counts.sort(Comparator.comparingLong(FacetCountDTO::getCount).reversed().thenComparing(FacetCountDTO::getValue));
+        return counts;
+    }
+
+    // Số row của rows có trong base: duyệt bit của rows, không cấp phát. Các BitSet của một facet chia nhau
+    // các row nên tổng chi phí cả facet là O(số xe trong index), không phụ thuộc số giá trị
+    private static long andCardinality(long[] baseWords, BitSet rows) {
+        long count = 0;
+        for (int rowId = rows.nextSetBit(0); rowId >= 0; rowId = rows.nextSetBit(rowId + 1)) {
+            int word = rowId >>> 6;
+            if (word < baseWords.length && (baseWords[word] & (1L << rowId)) != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static String priceLabel(BigDecimal from, BigDecimal to) {
+        return (from != null ? from.toPlainString() : "") + "-" + (to != null ? to.toPlainString() : "");
+    }
+
+    /**
+     * Kết quả đếm của index
+     */
+    public static final class FacetCounts {
+        private final long totalCount;
+        private final Map<String, List<FacetCountDTO>> facets;
+
+        private FacetCounts(long totalCount, Map<String, List<FacetCountDTO>> facets) {
+            this.totalCount = totalCount;
+            this.facets = facets;
+        }
+
+        public long getTotalCount() {
+            return totalCount;
+        }
+
+        public Map<String, List<FacetCountDTO>> getFacets() {
+            return facets;
+        }
+    }
+
+    /**
+     * Tên và quan hệ của các bảng danh mục (brand, model, variant, color, warehouse)
+     */
+    private static final class Catalog {
+        private final Map<Integer, String> brandNames = new HashMap<>();
+        private final Map<Integer, String> modelNames = new HashMap<>();
+        private final Map<Integer, Integer> modelBrand = new HashMap<>();
+        private final Map<Integer, String> variantNames = new HashMap<>();
+        private final Map<Integer, Integer> variantModel = new HashMap<>();
+        private final Map<Integer, BigDecimal> variantPrice = new HashMap<>();
+        private final Map<Integer, String> colorNames = new HashMap<>();
+        private final Map<UUID, String> warehouseNames = new HashMap<>();
+    }
+
+    /**
+     * Giá trị facet của một row (để xóa bit khi xe rời index)
+     */
+    private static final class Row {
+        private final Object[] keys = new Object[Facet.values().length];
+    }
+
+    private static final class Index {
+        private final Catalog catalog;
+        private final List<BigDecimal> priceBuckets;
+        private final Map<UUID, Integer> rowByInventory = new HashMap<>();
+        private final ArrayDeque<Integer> freeRows = new ArrayDeque<>();
+        private final List<Row> rows = new ArrayList<>();
+        private final BitSet live = new BitSet();
+        private final Map<Facet, Map<Object, BitSet>> bitmaps = new EnumMap<>(Facet.class);
+        // Giá của từng row (NaN = không có giá), dùng cho bộ lọc khoảng giá tùy ý
+        private double[] prices = new double[1024];
+
+        private Index(Catalog catalog, List<BigDecimal> priceBuckets) {
+            this.catalog = catalog;
+            this.priceBuckets = priceBuckets;
+            for (Facet facet : Facet.values()) {
+                bitmaps.put(facet, new HashMap<>());
+            }
+        }
+
+        private Map<Object, BitSet> values(Facet facet) {
+            return bitmaps.get(facet);
+        }
+
+        private String name(Facet facet, Object key) {
+            return switch (facet) {
+                case BRAND -> catalog.brandNames.get(key);
+                case MODEL -> catalog.modelNames.get(key);
+                case VARIANT -> catalog.variantNames.get(key);
+                case COLOR -> catalog.colorNames.get(key);
+                case WAREHOUSE -> catalog.warehouseNames.get(key);
+                case PRICE -> null;
+            };
+        }
+
+        /**
+         * @return false nếu xe tham chiếu giá trị chưa có trong catalog (cần dựng lại index)
+         */
+        private boolean add(UUID inventoryId, Integer variantId, Integer colorId, UUID warehouseId, BigDecimal sellingPrice) {
+            int rowId = freeRows.isEmpty() ? rows.size() : freeRows.pop();
+            Row row = new Row();
+            if (rowId == rows.size()) {
+                rows.add(row);
+            } else {
+                rows.set(rowId, row);
+            }
+            rowByInventory.put(inventoryId, rowId);
+            live.set(rowId);
+
+            boolean known = true;
+            Integer modelId = null;
+            Integer brandId = null;
+            if (variantId != null) {
+                known &= catalog.variantNames.containsKey(variantId);
+                modelId = catalog.variantModel.get(variantId);
+                brandId = modelId != null ? catalog.modelBrand.get(modelId) : null;
+            }
+            if (colorId != null) {
+                known &= catalog.colorNames.containsKey(colorId);
+            }
+            if (warehouseId != null) {
+                known &= catalog.warehouseNames.containsKey(warehouseId);
+            }
+            BigDecimal price = sellingPrice != null ? sellingPrice : (variantId != null ? catalog.variantPrice.get(variantId) : null);
+
+            setKey(row, rowId, Facet.BRAND, brandId);
+            setKey(row, rowId, Facet.MODEL, modelId);
+            setKey(row, rowId, Facet.VARIANT, variantId);
+            setKey(row, rowId, Facet.COLOR, colorId);
+            setKey(row, rowId, Facet.WAREHOUSE, warehouseId);
+            setKey(row, rowId, Facet.PRICE, price != null ? priceBand(price) : null);
+            if (rowId >= prices.length) {
+                prices = Arrays.copyOf(prices, Math.max(prices.length * 2, rowId + 1));
+            }
+            prices[rowId] = price != null ? price.doubleValue() : Double.NaN;
+            return known;
+        }
+
+        private void remove(UUID inventoryId) {
+            Integer rowId = rowByInventory.remove(inventoryId);
+            if (rowId == null) {
+                return;
+            }
+            Row row = rows.get(rowId);
+            for (Facet facet : Facet.values()) {
+                Object key = row.keys[facet.ordinal()];
+                if (key != null) {
+                    BitSet bits = bitmaps.get(facet).get(key);
+                    bits.clear(rowId);
+                    if (bits.isEmpty()) {
+                        bitmaps.get(facet).remove(key);
+                    }
+                }
+            }
+            live.clear(rowId);
+            prices[rowId] = Double.NaN;
+            rows.set(rowId, null);
+            freeRows.push(rowId);
+        }
+
+        private void setKey(Row row, int rowId, Facet facet, Object key) {
+            if (key == null) {
+                return;
+            }
+            row.keys[facet.ordinal()] = key;
+            bitmaps.get(facet).computeIfAbsent(key, k -> new BitSet()).set(rowId);
+        }
+
+        private int priceBand(BigDecimal price) {
+            int band = 0;
+            while (band < priceBuckets.size() && price.compareTo(priceBuckets.get(band)) >= 0) {
+                band++;
+            }
+            return band;
+        }
+
+        // Quét mảng giá (min/max bao gồm), cùng ngữ nghĩa với bộ lọc giá của query SQL
+        private BitSet priceRange(BigDecimal min, BigDecimal max) {
+            double low = min != null ? min.doubleValue() : Double.NEGATIVE_INFINITY;
+            double high = max != null ? max.doubleValue() : Double.POSITIVE_INFINITY;
+            BitSet result = new BitSet();
+            for (int rowId = live.nextSetBit(0); rowId >= 0; rowId = live.nextSetBit(rowId + 1)) {
+                double price = prices[rowId];
+                if (price >= low && price <= high) {
+                    result.set(rowId);
+                }
+            }
+            return result;
+        }
+    }
+}
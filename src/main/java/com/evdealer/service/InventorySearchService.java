@@ -0,0 +1,135 @@
+package com.evdealer.service;
+
+import com.evdealer.dto.VinSuggestionDTO;
+import com.evdealer.entity.VehicleInventory;
+import com.evdealer.repository.VehicleInventoryRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Tìm xe trong kho theo một phần VIN / số khung / biển số cho nhân viên bãi xe.
+ * <p>
+ * Query tìm kiếm chỉ trả id (native, ILIKE dùng index trigram GIN - xem db/inventory_trigram_indexes.sql),
+ * có giới hạn số kết quả; entity cùng quan hệ chỉ được load cho các id đó. Từ khóa ngắn hơn 3 ký tự
+ * không tạo được trigram đầy đủ nên chỉ khớp đầu chuỗi.
+ */
+@Service
+@Transactional(readOnly = true)
+public class InventorySearchService {
+
+    public static final int MAX_LIMIT = 200;
+    public static final int MAX_TYPEAHEAD_LIMIT = 50;
+
+    private static final int MIN_CONTAINS_LENGTH = 3;
+
+    private final VehicleInventoryRepository vehicleInventoryRepository;
+    private final int defaultLimit;
+    private final int defaultTypeaheadLimit;
+
+    public InventorySearchService(VehicleInventoryRepository vehicleInventoryRepository,
+                                  @Value("${app.inventory.search.max-results:50}") int defaultLimit,
+                                  @Value("${app.inventory.search.typeahead-limit:10}") int defaultTypeaheadLimit) {
+        this.vehicleInventoryRepository = vehicleInventoryRepository;
+        this.defaultLimit = defaultLimit;
+        this.defaultTypeaheadLimit = defaultTypeaheadLimit;
+    }
+
+    /**
+     * Tìm đồng thời trên VIN, số khung và biển số, xếp hạng: khớp chính xác, khớp đầu chuỗi, chứa từ khóa.
+     */
+    public List<VehicleInventory> search(String keyword, Integer limit) {
+        String term = normalize(keyword);
+        int max = resolveLimit(limit, defaultLimit, MAX_LIMIT);
+        List<UUID> ids = vehicleInventoryRepository.searchRankedIds(
+                term.toUpperCase(Locale.ROOT), containsPattern(term), prefixPattern(term), max);
+        return loadInOrder(ids);
+    }
+
+    public List<VehicleInventory> searchByVin(String vin, Integer limit) {
+        String term = normalize(vin);
+        int max = resolveLimit(limit, defaultLimit, MAX_LIMIT);
+        return loadInOrder(vehicleInventoryRepository.searchIdsByVin(containsPattern(term), prefixPattern(term), max));
+    }
+
+    public List<VehicleInventory> searchByChassisNumber(String chassisNumber, Integer limit) {
+        String term = normalize(chassisNumber);
+        int max = resolveLimit(limit, defaultLimit, MAX_LIMIT);
+        return loadInOrder(vehicleInventoryRepository.searchIdsByChassisNumber(containsPattern(term), prefixPattern(term), max));
+    }
+
+    /**
+     * Gợi ý VIN khi đang gõ: chỉ (id, VIN), VIN bắt đầu bằng từ khóa đứng trước.
+     */
+    public List<VinSuggestionDTO> suggestVins(String prefix, Integer limit) {
+        String term = normalize(prefix);
+        int max = resolveLimit(limit, defaultTypeaheadLimit, MAX_TYPEAHEAD_LIMIT);
+        List<Object[]> rows = vehicleInventoryRepository.findVinSuggestions(containsPattern(term), prefixPattern(term), max);
+        List<VinSuggestionDTO> suggestions = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            suggestions.add(new VinSuggestionDTO((UUID) row[0], (String) row[1]));
+        }
+        return suggestions;
+    }
+
+    private List<VehicleInventory> loadInOrder(List<UUID> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<UUID, VehicleInventory> byId = new HashMap<>();
+        for (VehicleInventory inventory : vehicleInventoryRepository.findAllWithRelationshipsByIdIn(ids)) {
+            byId.put(inventory.getInventoryId(), inventory);
+        }
+        List<VehicleInventory> result = new ArrayList<>(ids.size());
+        for (UUID id : ids) {
+            VehicleInventory inventory = byId.get(id);
+            if (inventory != null) {
+                result.add(inventory);
+            }
+        }
+        return result;
+    }
+
+    private static String normalize(String keyword) {
+        String term = keyword == null ? "" : keyword.trim();
+        if (term.isEmpty()) {
+            throw new IllegalArgumentException("Search keyword is required");
+        }
+        return term;
+    }
+
+    private static int resolveLimit(Integer limit, int defaultLimit, int maxLimit) {
+        if (limit == null) {
+            return Math.min(defaultLimit, maxLimit);
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        return Math.min(limit, maxLimit);
+    }
+
+    private static String containsPattern(String term) {
+        // Từ khóa quá ngắn: chỉ khớp đầu chuỗi để vẫn dùng được index
+        if (term.length() < MIN_CONTAINS_LENGTH) {
+            return prefixPattern(term);
+        }
+        return "%" + escapeLike(term) + "%";
+    }
+
+    private static String prefixPattern(String term) {
+        return escapeLike(term) + "%";
+    }
+
+    // Escape ký tự đại diện của LIKE (PostgreSQL mặc định dùng '\' làm ký tự escape)
+    private static String escapeLike(String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
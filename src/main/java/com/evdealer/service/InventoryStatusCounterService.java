@@ -0,0 +1,232 @@
+package com.evdealer.service;
+
+import com.evdealer.dto.InventoryStatusCountsDTO;
+import com.evdealer.entity.InventoryStatusListener;
+import com.evdealer.entity.InventoryStatusSnapshot;
+import com.evdealer.enums.VehicleStatus;
+import com.evdealer.repository.VehicleInventoryRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Bộ đếm số xe theo trạng thái (tổng, theo warehouse, theo variant, theo dealer giữ chỗ) giữ trong bộ nhớ.
+ * Seed bằng một query GROUP BY, cập nhật theo InventoryStatusListener sau khi transaction commit,
+ * và reconcile định kỳ với DB để sửa sai lệch do bulk update/native query.
+ */
+@Service
+public class InventoryStatusCounterService implements InventoryStatusListener.Handler {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventoryStatusCounterService.class);
+
+    // Số lần thử seed lại nếu có thay đổi commit trong lúc đang seed
+    private static final int MAX_LOAD_ATTEMPTS = 3;
+
+    private final Object pendingKey = new Object();
+
+    private final VehicleInventoryRepository vehicleInventoryRepository;
+
+    // Guarded by this
+    private Map<InventoryStatusSnapshot, Long> cells = new HashMap<>();
+    private boolean loaded;
+    private long changeSequence;
+
+    // Kết quả đã tổng hợp cho phía đọc, null khi counters vừa thay đổi
+    private volatile InventoryStatusCountsDTO view;
+
+    public InventoryStatusCounterService(VehicleInventoryRepository vehicleInventoryRepository) {
+        this.vehicleInventoryRepository = vehicleInventoryRepository;
+    }
+
+    @PostConstruct
+    public void registerListener() {
+        InventoryStatusListener.register(this);
+    }
+
+    /**
+     * Số xe theo trạng thái và theo từng chiều (warehouse, variant, dealer giữ chỗ)
+     */
+    public InventoryStatusCountsDTO getCounts() {
+        InventoryStatusCountsDTO current = view;
+        if (current != null) {
+            return current;
+        }
+        ensureLoaded();
+        synchronized (this) {
+            if (view == null) {
+                view = buildView(cells);
+            }
+            return view;
+        }
+    }
+
+    @Override
+    public void onInventoryChanged(InventoryStatusSnapshot previous, InventoryStatusSnapshot current) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            applyDeltas(Collections.singletonList(new InventoryStatusSnapshot[] {previous, current}));
+            return;
+        }
+        getOrBindPending().add(new InventoryStatusSnapshot[] {previous, current});
+    }
+
+    /**
+     * Đối chiếu counters với DB. Bỏ qua lần này nếu có thay đổi commit trong lúc đang query
+     * (không phân biệt được thay đổi đó đã nằm trong kết quả query hay chưa).
+     */
+    @Scheduled(fixedDelayString = "${app.inventory.status-counters.reconcile-interval-ms:300000}",
+               initialDelayString = "${app.inventory.status-counters.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        long sequence;
+        synchronized (this) {
+            if (!loaded) {
+                return;
+            }
+            sequence = changeSequence;
+        }
+        Map<InventoryStatusSnapshot, Long> fresh = loadFromDatabase();
+        synchronized (this) {
+            if (changeSequence != sequence) {
+                logger.debug("Inventory status counters changed during reconciliation; retrying next cycle");
+                return;
+            }
+            if (!fresh.equals(cells)) {
+                logger.warn("Inventory status counters drifted from database; counters reset");
+                cells = fresh;
+                view = null;
+            }
+        }
+    }
+
+    /**
+     * Seed lại counters từ DB (gọi sau các bulk update bỏ qua entity listener)
+     */
+    public void reload() {
+        synchronized (this) {
+            loaded = false;
+        }
+        ensureLoaded();
+    }
+
+    private void ensureLoaded() {
+        for (int attempt = 1; ; attempt++) {
+            long sequence;
+            synchronized (this) {
+                if (loaded) {
+                    return;
+                }
+                sequence = changeSequence;
+            }
+            Map<InventoryStatusSnapshot, Long> fresh = loadFromDatabase();
+            synchronized (this) {
+                if (loaded) {
+                    return;
+                }
+                if (changeSequence == sequence || attempt >= MAX_LOAD_ATTEMPTS) {
+                    cells = fresh;
+                    loaded = true;
+                    view = null;
+                    return;
+                }
+            }
+        }
+    }
+
+    private Map<InventoryStatusSnapshot, Long> loadFromDatabase() {
+        Map<InventoryStatusSnapshot, Long> fresh = new HashMap<>();
+        for (Object[] row : vehicleInventoryRepository.countByStatusGroups()) {
+            InventoryStatusSnapshot cell = new InventoryStatusSnapshot(
+                (VehicleStatus) row[0], (UUID) row[1], (Integer) row[2], (UUID) row[3]);
+            fresh.put(cell, ((Number) row[4]).longValue());
+        }
+        return fresh;
+    }
+
+    private synchronized void applyDeltas(List<InventoryStatusSnapshot[]> changes) {
+        changeSequence++;
+        if (!loaded) {
+            // Chưa seed: lần seed tới sẽ đọc trạng thái mới từ DB
+            return;
+        }
+        for (InventoryStatusSnapshot[] change : changes) {
+            if (change[0] != null) {
+                cells.merge(change[0], -1L, Long::sum);
+                if (cells.get(change[0]) <= 0) {
+                    cells.remove(change[0]);
+                }
+            }
+            if (change[1] != null) {
+                cells.merge(change[1], 1L, Long::sum);
+            }
+        }
+        view = null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<InventoryStatusSnapshot[]> getOrBindPending() {
+        List<InventoryStatusSnapshot[]> pending =
+            (List<InventoryStatusSnapshot[]>) TransactionSynchronizationManager.getResource(pendingKey);
+        if (pending == null) {
+            List<InventoryStatusSnapshot[]> newPending = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(pendingKey, newPending);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    // Chỉ đếm thay đổi đã commit
+                    applyDeltas(newPending);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(pendingKey);
+                }
+            });
+            pending = newPending;
+        }
+        return pending;
+    }
+
+    private static InventoryStatusCountsDTO buildView(Map<InventoryStatusSnapshot, Long> cells) {
+        long total = 0;
+        Map<String, Long> statusCounts = new TreeMap<>();
+        Map<UUID, Map<String, Long>> byWarehouse = new HashMap<>();
+        Map<Integer, Map<String, Long>> byVariant = new TreeMap<>();
+        Map<UUID, Map<String, Long>> byReservedDealer = new HashMap<>();
+
+        for (Map.Entry<InventoryStatusSnapshot, Long> entry : cells.entrySet()) {
+            InventoryStatusSnapshot cell = entry.getKey();
+            long count = entry.getValue();
+            String status = cell.getStatus() != null ? cell.getStatus().getValue() : "unknown";
+            total += count;
+            statusCounts.merge(status, count, Long::sum);
+            if (cell.getWarehouseId() != null) {
+                byWarehouse.computeIfAbsent(cell.getWarehouseId(), k -> new TreeMap<>()).merge(status, count, Long::sum);
+            }
+            if (cell.getVariantId() != null) {
+                byVariant.computeIfAbsent(cell.getVariantId(), k -> new TreeMap<>()).merge(status, count, Long::sum);
+            }
+            if (cell.getReservedDealerId() != null) {
+                byReservedDealer.computeIfAbsent(cell.getReservedDealerId(), k -> new TreeMap<>()).merge(status, count, Long::sum);
+            }
+        }
+
+        InventoryStatusCountsDTO dto = new InventoryStatusCountsDTO();
+        dto.setTotalVehicles(total);
+        dto.setStatusCounts(Collections.unmodifiableMap(statusCounts));
+        dto.setByWarehouse(Collections.unmodifiableMap(byWarehouse));
+        dto.setByVariant(Collections.unmodifiableMap(byVariant));
+        dto.setByReservedDealer(Collections.unmodifiableMap(byReservedDealer));
+        return dto;
+    }
+}
@@ -0,0 +1,89 @@
+package com.evdealer.service;
+
+import com.evdealer.entity.OrderSalesListener;
+import com.evdealer.entity.OrderSalesSnapshot;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Base class cho các bảng tổng hợp doanh số được duy trì theo thay đổi của Order.
+ * Gom các key bị ảnh hưởng trong transaction hiện tại rồi gọi {@link #apply(Set)} ngay trước commit
+ * (sau khi flush), nên bảng tổng hợp được cập nhật cùng transaction với Order.
+ *
+ * @param <K> key của phần dữ liệu tổng hợp cần tính lại
+ */
+public abstract class OrderSalesAggregator<K> implements OrderSalesListener.Handler {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderSalesAggregator.class);
+
+    // Mỗi subclass bind tập key riêng vào transaction
+    private final Object pendingKey = new Object();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @PostConstruct
+    public void registerListener() {
+        OrderSalesListener.register(this);
+    }
+
+    @Override
+    public void onOrderChanged(OrderSalesSnapshot previous, OrderSalesSnapshot current) {
+        Set<K> keys = new HashSet<>();
+        collectKeys(previous, current, keys);
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            logger.warn("Order {} changed outside a transaction; {} not updated",
+                current != null ? current.getOrderId() : previous.getOrderId(), getClass().getSimpleName());
+            return;
+        }
+        getOrBindPending().addAll(keys);
+    }
+
+    /**
+     * Xác định các key cần tính lại cho một thay đổi. previous = null khi insert, current = null khi delete.
+     */
+    protected abstract void collectKeys(OrderSalesSnapshot previous, OrderSalesSnapshot current, Set<K> keys);
+
+    /**
+     * Tính lại các key đã gom, chạy trong transaction hiện tại ngay trước commit
+     */
+    protected abstract void apply(Set<K> keys);
+
+    @SuppressWarnings("unchecked")
+    private Set<K> getOrBindPending() {
+        Set<K> pending = (Set<K>) TransactionSynchronizationManager.getResource(pendingKey);
+        if (pending == null) {
+            Set<K> newPending = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(pendingKey, newPending);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    // Flush trước để listener ghi nhận hết thay đổi Order còn trong persistence context
+                    entityManager.flush();
+                    if (!newPending.isEmpty()) {
+                        apply(newPending);
+                    }
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(pendingKey);
+                }
+            });
+            pending = newPending;
+        }
+        return pending;
+    }
+}
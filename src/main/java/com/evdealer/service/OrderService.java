@@ -1,12 +1,13 @@
 package com.evdealer.service;
 
+import com.evdealer.dto.CursorPageDTO;
 import com.evdealer.dto.OrderRequest;
 import com.evdealer.entity.*;
 import com.evdealer.repository.*;
 import com.evdealer.enums.DealerQuotationStatus;
 import com.evdealer.enums.DeliveryStatus;
 import com.evdealer.enums.OrderStatus;
-import com.evdealer.enums.VehicleStatus;
+import com.evdealer.util.OrderCursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -19,6 +20,7 @@ import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Function;
 
 @Service
 @Transactional
@@ -39,6 +41,9 @@ public class OrderService {
     @Autowired
     private VehicleInventoryRepository vehicleInventoryRepository;
     
+    @Autowired
+    private ReservationService reservationService;
+    
     @PersistenceContext
     private EntityManager entityManager;
     
@@ -65,6 +70,20 @@ public class OrderService {
         }
     }
     
+    /**
+     * Danh sách order phân trang theo cursor (order_date DESC, order_id DESC).
+     * Chi phí mỗi trang không phụ thuộc trang sâu bao nhiêu, khác với offset.
+     */
+    @Transactional(readOnly = true)
+    public <T> CursorPageDTO<T> getOrdersPage(String cursor, Integer size, Function<Order, T> mapper) {
+        int pageSize = OrderCursor.validateSize(size);
+        OrderCursor after = OrderCursor.decode(cursor);
+        List<Order> fetched = after == null
+            ? orderRepository.findOrderPageFirst(OrderCursor.fetchLimit(pageSize))
+            : orderRepository.findOrderPageAfter(after.getOrderDate(), after.getOrderId(), OrderCursor.fetchLimit(pageSize));
+        return OrderCursor.toPage(fetched, pageSize, mapper);
+    }
+    
     public Optional<Order> getOrderById(UUID orderId) {
         return orderRepository.findById(orderId);
     }
@@ -113,29 +132,22 @@ public class OrderService {
                     .orElseThrow(() -> new RuntimeException("User not found with id: " + order.getUser().getUserId())));
         }
         
-        // Use pessimistic lock to prevent concurrent reservation
+        // Giữ chỗ kiểu compare-and-set (không khóa dòng trước), xác nhận sau khi save order
+        VehicleInventory inventory = null;
         if (order.getInventory() != null && order.getInventory().getInventoryId() != null) {
-            VehicleInventory inventory = vehicleInventoryRepository.lockById(order.getInventory().getInventoryId())
-                    .orElseThrow(() -> new RuntimeException("Vehicle inventory not found with id: " + order.getInventory().getInventoryId()));
+            inventory = reservationService.findAvailable(order.getInventory().getInventoryId());
             
-            // Validate inventory availability
-            if (inventory.getStatus() != VehicleStatus.AVAILABLE) {
-                throw new RuntimeException("Vehicle inventory is not available. Current status: " + 
-                    (inventory.getStatus() != null ? inventory.getStatus().getValue() : "null"));
-            }
-            
-            // Reserve inventory
-            inventory.setStatus(VehicleStatus.RESERVED);
-            if (order.getCustomer() != null) {
-                inventory.setReservedForCustomer(order.getCustomer());
-            }
-            inventory.setReservedDate(java.time.LocalDateTime.now());
-            vehicleInventoryRepository.save(inventory);
+            // Reserve inventory (giữ chỗ có hạn, sweeper nhả khi hết hạn)
+            reservationService.hold(inventory, order.getCustomer());
             
             order.setInventory(inventory);
         }
 
-        return orderRepository.save(order);
+        Order savedOrder = orderRepository.save(order);
+        if (inventory != null) {
+            reservationService.confirmHolds();
+        }
+        return savedOrder;
     }
     
     public Order createOrderFromRequest(OrderRequest request) {
@@ -162,18 +174,10 @@ public class OrderService {
                     .orElseThrow(() -> new RuntimeException("User not found with ID: " + request.getUserId()));
         }
         
-        // Validate inventory availability with pessimistic lock to prevent race condition
+        // Validate inventory availability (không khóa dòng; race được xử lý bởi compare-and-set khi confirmHolds)
         VehicleInventory inventory = null;
         if (request.getInventoryId() != null) {
-            // Use pessimistic lock to prevent concurrent reservation
-            inventory = vehicleInventoryRepository.lockById(request.getInventoryId())
-                    .orElseThrow(() -> new RuntimeException("Vehicle inventory not found with ID: " + request.getInventoryId()));
-            
-            // Validate inventory availability
-            if (inventory.getStatus() != VehicleStatus.AVAILABLE) {
-                throw new RuntimeException("Vehicle inventory is not available. Current status: " + 
-                    (inventory.getStatus() != null ? inventory.getStatus().getValue() : "null"));
-            }
+            inventory = reservationService.findAvailable(request.getInventoryId());
         }
         
         // Create order entity
@@ -219,16 +223,15 @@ public class OrderService {
         
         // Update inventory status when creating order
         if (inventory != null) {
-            // Set inventory status to "reserved" when order is created
-            inventory.setStatus(VehicleStatus.RESERVED);
-            if (customer != null) {
-                inventory.setReservedForCustomer(customer);
-            }
-            inventory.setReservedDate(java.time.LocalDateTime.now());
-            vehicleInventoryRepository.save(inventory);
+            // Set inventory status to "reserved" when order is created (giữ chỗ có hạn)
+            reservationService.hold(inventory, customer);
         }
         
-        return orderRepository.save(order);
+        Order savedOrder = orderRepository.save(order);
+        if (inventory != null) {
+            reservationService.confirmHolds();
+        }
+        return savedOrder;
     }
     
     private String generateOrderNumber() {
@@ -468,13 +471,7 @@ public class OrderService {
                     .orElseThrow(() -> new RuntimeException("Vehicle inventory not found with id: " + order.getInventory().getInventoryId()));
             
             // Only revert to available if inventory was reserved or sold for this order
-            if (inventory.getStatus() == VehicleStatus.RESERVED || inventory.getStatus() == VehicleStatus.SOLD) {
-                inventory.setStatus(VehicleStatus.AVAILABLE);
-                inventory.setReservedForCustomer(null);
-                inventory.setReservedDate(null);
-                inventory.setReservedExpiryDate(null);
-                vehicleInventoryRepository.save(inventory);
-            }
+            reservationService.release(inventory, order.getCustomer());
         }
         
         return orderRepository.save(order);
@@ -0,0 +1,119 @@
+package com.evdealer.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chạy BCrypt trên một thread pool riêng có giới hạn: số phép BCrypt chạy đồng thời không vượt quá số thread
+ * của pool, phần dư xếp hàng trong queue có giới hạn. Khi queue đầy sẽ từ chối ngay (caller trả 503 + Retry-After).
+ * Login dùng {@link #matchesAsync}: request thread được trả về Tomcat trong lúc chờ hash (servlet async).
+ */
+@Service
+public class PasswordHashingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHashingService.class);
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    // Hủy các matchesAsync quá timeout
+    private final ScheduledExecutorService delayer;
+    private final long timeoutMillis;
+    private final int retryAfterSeconds;
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder,
+                                  @Value("${app.security.password-hashing.threads:0}") int threads,
+                                  @Value("${app.security.password-hashing.queue-capacity:200}") int queueCapacity,
+                                  @Value("${app.security.password-hashing.timeout-ms:10000}") long timeoutMillis,
+                                  @Value("${app.security.password-hashing.retry-after-seconds:2}") int retryAfterSeconds) {
+        this.passwordEncoder = passwordEncoder;
+        this.timeoutMillis = timeoutMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        // threads <= 0: dùng số CPU
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                poolSize, poolSize,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        ScheduledThreadPoolExecutor timeoutExecutor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "password-hashing-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Timeout bị hủy khi hash xong sớm thì bỏ khỏi queue luôn
+        timeoutExecutor.setRemoveOnCancelPolicy(true);
+        this.delayer = timeoutExecutor;
+    }
+
+    /**
+     * So khớp password trên hashing pool, không chặn thread gọi. Future hoàn tất với RejectedExecutionException
+     * nếu queue đầy hoặc chờ quá timeout; task đã quá hạn mà vẫn còn trong queue thì bỏ qua, không chạy BCrypt.
+     */
+    public CompletableFuture<Boolean> matchesAsync(String rawPassword, String encodedPassword) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                if (result.isDone()) {
+                    return;
+                }
+                try {
+                    result.complete(passwordEncoder.matches(rawPassword, encodedPassword));
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+        ScheduledFuture<?> timeout = delayer.schedule(() -> result.completeExceptionally(
+                new RejectedExecutionException("Password hashing timed out after " + timeoutMillis + "ms")),
+            timeoutMillis, TimeUnit.MILLISECONDS);
+        result.whenComplete((matched, error) -> timeout.cancel(false));
+        return result;
+    }
+
+    /**
+     * Hash password bất đồng bộ cho các tác vụ batch. Nếu queue đầy thì hash ngay trên
+     * thread gọi thay vì từ chối, để batch không bị fail một phần.
+     */
+    public CompletableFuture<String> encodeAsync(String rawPassword) {
+        try {
+            return CompletableFuture.supplyAsync(() -> passwordEncoder.encode(rawPassword), executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(passwordEncoder.encode(rawPassword));
+        }
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        logger.info("Shutting down password hashing executor");
+        executor.shutdown();
+        delayer.shutdownNow();
+    }
+}
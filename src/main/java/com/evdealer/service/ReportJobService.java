@@ -0,0 +1,395 @@
+package com.evdealer.service;
+
+import com.evdealer.dto.YearRangeSalesSummaryDTO;
+import com.evdealer.entity.ReportJob;
+import com.evdealer.enums.ReportJobStatus;
+import com.evdealer.enums.ReportJobType;
+import com.evdealer.enums.TimeBucket;
+import com.evdealer.repository.ReportJobRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chạy các báo cáo nặng trên một thread pool riêng có giới hạn (không chiếm request threads).
+ * Metadata job lưu trong bảng report_jobs, kết quả JSON ghi ra file và được giữ trong
+ * app.reports.jobs.retention-hours. Mỗi user chỉ được có tối đa max-active-per-user job chưa xong.
+ */
+@Service
+public class ReportJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportJobService.class);
+
+    private final ReportJobRepository reportJobRepository;
+    private final ReportService reportService;
+    private final ObjectMapper objectMapper;
+    private final ThreadPoolExecutor executor;
+    private final int maxActivePerUser;
+    private final long retentionHours;
+    private final Path resultDir;
+
+    // Số job chưa xong theo user; chỉ đọc/ghi qua compute để kiểm tra + tăng/giảm là một bước nguyên tử
+    private final Map<UUID, Integer> activeJobsByUser = new ConcurrentHashMap<>();
+
+    public ReportJobService(ReportJobRepository reportJobRepository,
+                            ReportService reportService,
+                            ObjectMapper objectMapper,
+                            @Value("${app.reports.jobs.threads:2}") int threads,
+                            @Value("${app.reports.jobs.queue-capacity:50}") int queueCapacity,
+                            @Value("${app.reports.jobs.max-active-per-user:3}") int maxActivePerUser,
+                            @Value("${app.reports.jobs.retention-hours:24}") long retentionHours,
+                            @Value("${app.reports.jobs.result-dir:report-jobs}") String resultDir) {
+        this.reportJobRepository = reportJobRepository;
+        this.reportService = reportService;
+        this.objectMapper = objectMapper;
+        this.maxActivePerUser = Math.max(1, maxActivePerUser);
+        this.retentionHours = retentionHours;
+        this.resultDir = Paths.get(resultDir);
+
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                Math.max(1, threads), Math.max(1, threads),
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "report-job-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Tạo job và đưa vào hàng đợi. Tham số được kiểm tra ngay để lỗi trả về lúc submit.
+     *
+     * @throws IllegalArgumentException   nếu tham số không hợp lệ
+     * @throws IllegalStateException      nếu user đã có quá nhiều job chưa xong
+     * @throws RejectedExecutionException nếu hàng đợi job đầy
+     */
+    public ReportJob submit(ReportJobType type, Map<String, String> parameters, UUID userId) {
+        ReportTask task = createTask(type, parameters);
+
+        if (!acquireSlot(userId)) {
+            throw new IllegalStateException("Too many active report jobs (max " + maxActivePerUser + " per user)");
+        }
+
+        ReportJob job;
+        try {
+            job = new ReportJob();
+            job.setReportType(type);
+            job.setParameters(objectMapper.writeValueAsString(parameters));
+            job.setRequestedBy(userId);
+            job.setStatus(ReportJobStatus.QUEUED);
+            job.setProgress(0);
+            job.setCreatedAt(LocalDateTime.now());
+            job = reportJobRepository.save(job);
+        } catch (JsonProcessingException | RuntimeException e) {
+            releaseSlot(userId);
+            throw new IllegalArgumentException("Invalid report parameters: " + e.getMessage(), e);
+        }
+
+        UUID jobId = job.getJobId();
+        try {
+            executor.execute(() -> run(jobId, userId, task));
+        } catch (RejectedExecutionException e) {
+            releaseSlot(userId);
+            markFailed(jobId, "Report job queue is full");
+            throw e;
+        }
+        return job;
+    }
+
+    public Optional<ReportJob> getJob(UUID jobId) {
+        return reportJobRepository.findById(jobId);
+    }
+
+    public List<ReportJob> getJobsForUser(UUID userId) {
+        return reportJobRepository.findTop50ByRequestedByOrderByCreatedAtDesc(userId);
+    }
+
+    /**
+     * File kết quả của job đã hoàn thành (empty nếu chưa xong hoặc đã hết hạn)
+     */
+    public Optional<Path> getResultFile(ReportJob job) {
+        if (job.getStatus() != ReportJobStatus.COMPLETED) {
+            return Optional.empty();
+        }
+        Path file = resultFile(job.getJobId());
+        return Files.exists(file) ? Optional.of(file) : Optional.empty();
+    }
+
+    private void run(UUID jobId, UUID userId, ReportTask task) {
+        try {
+            ReportJob job = reportJobRepository.findById(jobId).orElse(null);
+            if (job == null) {
+                return;
+            }
+            job.setStatus(ReportJobStatus.RUNNING);
+            job.setStartedAt(LocalDateTime.now());
+            reportJobRepository.save(job);
+
+            Object result = task.run(progress -> reportJobRepository.updateProgress(jobId, progress));
+            long size = writeResult(jobId, result);
+
+            job = reportJobRepository.findById(jobId).orElse(job);
+            job.setStatus(ReportJobStatus.COMPLETED);
+            job.setProgress(100);
+            job.setResultSize(size);
+            job.setCompletedAt(LocalDateTime.now());
+            job.setExpiresAt(job.getCompletedAt().plusHours(retentionHours));
+            reportJobRepository.save(job);
+        } catch (Exception e) {
+            logger.error("Report job {} failed: {}", jobId, e.getMessage(), e);
+            markFailed(jobId, e.getMessage());
+        } finally {
+            releaseSlot(userId);
+        }
+    }
+
+    private long writeResult(UUID jobId, Object result) throws IOException {
+        Files.createDirectories(resultDir);
+        Path target = resultFile(jobId);
+        Path tmp = resultDir.resolve(jobId + ".json.tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            objectMapper.writeValue(out, result);
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return Files.size(target);
+    }
+
+    private void markFailed(UUID jobId, String message) {
+        try {
+            reportJobRepository.findById(jobId).ifPresent(job -> {
+                job.setStatus(ReportJobStatus.FAILED);
+                job.setErrorMessage(message);
+                job.setCompletedAt(LocalDateTime.now());
+                job.setExpiresAt(job.getCompletedAt().plusHours(retentionHours));
+                reportJobRepository.save(job);
+            });
+        } catch (Exception e) {
+            logger.error("Could not mark report job {} as failed: {}", jobId, e.getMessage());
+        }
+    }
+
+    private boolean acquireSlot(UUID userId) {
+        boolean[] acquired = new boolean[1];
+        activeJobsByUser.compute(userId, (k, count) -> {
+            int current = count != null ? count : 0;
+            if (current >= maxActivePerUser) {
+                return count;
+            }
+            acquired[0] = true;
+            return current + 1;
+        });
+        return acquired[0];
+    }
+
+    private void releaseSlot(UUID userId) {
+        activeJobsByUser.compute(userId, (k, count) -> count == null || count <= 1 ? null : count - 1);
+    }
+
+    private Path resultFile(UUID jobId) {
+        return resultDir.resolve(jobId + ".json");
+    }
+
+    /**
+     * Job QUEUED/RUNNING còn lại từ lần chạy trước không còn executor nào xử lý
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void failInterruptedJobs() {
+        LocalDateTime now = LocalDateTime.now();
+        int count = reportJobRepository.failActiveJobs(
+            EnumSet.of(ReportJobStatus.QUEUED, ReportJobStatus.RUNNING), ReportJobStatus.FAILED,
+            "Interrupted by application restart", now, now.plusHours(retentionHours));
+        if (count > 0) {
+            logger.warn("Marked {} interrupted report jobs as failed", count);
+        }
+    }
+
+    /**
+     * Xóa job và file kết quả đã hết hạn lưu giữ
+     */
+    @Scheduled(fixedDelayString = "${app.reports.jobs.cleanup-interval-ms:3600000}")
+    public void cleanupExpiredJobs() {
+        List<ReportJob> expired = reportJobRepository.findByExpiresAtBefore(LocalDateTime.now());
+        for (ReportJob job : expired) {
+            try {
+                Files.deleteIfExists(resultFile(job.getJobId()));
+            } catch (IOException e) {
+                logger.warn("Could not delete result of report job {}: {}", job.getJobId(), e.getMessage());
+                continue;
+            }
+            reportJobRepository.delete(job);
+        }
+        if (!expired.isEmpty()) {
+            logger.info("Removed {} expired report jobs", expired.size());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        logger.info("Shutting down report job executor");
+        executor.shutdownNow();
+    }
+
+    // ===== Report tasks =====
+
+    @FunctionalInterface
+    private interface ProgressReporter {
+        void report(int percent);
+    }
+
+    @FunctionalInterface
+    private interface ReportTask {
+        Object run(ProgressReporter progress);
+    }
+
+    private ReportTask createTask(ReportJobType type, Map<String, String> params) {
+        switch (type) {
+            case SALES_BY_YEAR_RANGE: {
+                int startYear = requireInt(params, "startYear");
+                int endYear = requireInt(params, "endYear");
+                if (startYear <= 0 || startYear > endYear) {
+                    throw new IllegalArgumentException("startYear must be positive and not after endYear");
+                }
+                return progress -> salesByYearRange(startYear, endYear, progress);
+            }
+            case SALES_TIMESERIES: {
+                TimeBucket granularity = TimeBucket.fromString(params.get("granularity"));
+                LocalDate from = requireDate(params, "from");
+                LocalDate to = requireDate(params, "to");
+                UUID dealerId = optionalUuid(params, "dealerId");
+                UUID variantId = optionalUuid(params, "variantId");
+                requireOrdered(from, to);
+                return progress -> reportService.getSalesTimeSeries(granularity, from, to, dealerId, variantId);
+            }
+            case SALES_BY_STAFF: {
+                LocalDate startDate = optionalDate(params, "startDate");
+                LocalDate endDate = optionalDate(params, "endDate");
+                UUID dealerId = optionalUuid(params, "dealerId");
+                requireOrdered(startDate, endDate);
+                return progress -> reportService.getSalesReportByStaff(startDate, endDate, dealerId);
+            }
+            case DEALER_PERFORMANCE:
+                return progress -> reportService.getDealerPerformanceReport();
+            case CUSTOMER_DEBT:
+                return progress -> reportService.getCustomerDebtReport();
+            case DELIVERIES:
+                return progress -> reportService.getAllDeliveries();
+            case DELIVERIES_BY_STATUS: {
+                String status = params.get("status");
+                if (status == null || status.isBlank()) {
+                    throw new IllegalArgumentException("status is required");
+                }
+                return progress -> reportService.getDeliveriesByStatus(status);
+            }
+            case WALK_IN_PURCHASES: {
+                LocalDate startDate = optionalDate(params, "startDate");
+                LocalDate endDate = optionalDate(params, "endDate");
+                String status = params.get("status");
+                requireOrdered(startDate, endDate);
+                return progress -> reportService.getWalkInPurchases(startDate, endDate,
+                    (status != null && !status.isBlank()) ? status : null);
+            }
+            default:
+                throw new IllegalArgumentException("Unsupported report type: " + type.getValue());
+        }
+    }
+
+    // Tính từng năm để cập nhật progress
+    private YearRangeSalesSummaryDTO salesByYearRange(int startYear, int endYear, ProgressReporter progress) {
+        long totalOrders = 0;
+        BigDecimal totalRevenue = BigDecimal.ZERO;
+        int years = endYear - startYear + 1;
+        for (int year = startYear; year <= endYear; year++) {
+            YearRangeSalesSummaryDTO yearly = reportService.getSalesByYearRange(year, year);
+            totalOrders += yearly.getTotalOrders();
+            totalRevenue = totalRevenue.add(yearly.getTotalRevenue());
+            progress.report((year - startYear + 1) * 100 / years);
+        }
+        YearRangeSalesSummaryDTO summary = new YearRangeSalesSummaryDTO();
+        summary.setStartYear(startYear);
+        summary.setEndYear(endYear);
+        summary.setTotalOrders(totalOrders);
+        summary.setTotalRevenue(totalRevenue);
+        return summary;
+    }
+
+    private static int requireInt(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException(name + " is required");
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be an integer");
+        }
+    }
+
+    private static LocalDate requireDate(Map<String, String> params, String name) {
+        LocalDate date = optionalDate(params, name);
+        if (date == null) {
+            throw new IllegalArgumentException(name + " is required (yyyy-MM-dd)");
+        }
+        return date;
+    }
+
+    private static LocalDate optionalDate(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value.trim());
+        } catch (Exception e) {
+            throw new IllegalArgumentException(name + " must be a date (yyyy-MM-dd)");
+        }
+    }
+
+    private static UUID optionalUuid(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return UUID.fromString(value.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(name + " must be a UUID");
+        }
+    }
+
+    private static void requireOrdered(LocalDate from, LocalDate to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date cannot be after end date");
+        }
+    }
+}
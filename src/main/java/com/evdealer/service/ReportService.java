@@ -3,19 +3,24 @@ package com.evdealer.service;
 import com.evdealer.dto.*;
 import com.evdealer.entity.*;
 import com.evdealer.enums.OrderStatus;
+import com.evdealer.enums.TimeBucket;
 import com.evdealer.enums.VehicleStatus;
 import com.evdealer.repository.*;
+import com.evdealer.util.OrderCursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 @Service
 @Transactional
@@ -24,9 +29,6 @@ public class ReportService {
     @Autowired
     private OrderRepository orderRepository;
     
-    @Autowired
-    private UserRepository userRepository;
-    
     @Autowired
     private VehicleInventoryRepository vehicleInventoryRepository;
     
@@ -38,6 +40,24 @@ public class ReportService {
     
     @Autowired
     private InstallmentPlanRepository installmentPlanRepository;
+    
+    @Autowired
+    private DealerSalesRollupRepository dealerSalesRollupRepository;
+    
+    @Autowired
+    private DealerSalesRollupService dealerSalesRollupService;
+    
+    @Autowired
+    private DailySalesFactRepository dailySalesFactRepository;
+    
+    @Autowired
+    private DailySalesFactService dailySalesFactService;
+    
+    @Autowired
+    private InventoryStatusCounterService inventoryStatusCounterService;
+    
+    // Giới hạn số điểm của một time-series (vd. ~13 năm theo ngày)
+    private static final int MAX_TIME_SERIES_POINTS = 5000;
 
     // Map Order -> OrderDTO (local mapper for report outputs)
     private OrderDTO toOrderDTO(Order o) {
@@ -53,109 +73,94 @@ public class ReportService {
         return dto;
     }
     
-    // Sales Report by Staff - Using actual Order and User data
+    // Sales Report by Staff - một aggregate query (COUNT/SUM theo user)
     public List<SalesByStaffItemDTO> getSalesReportByStaff() {
-        List<User> salesStaff = userRepository.findByUserType(com.evdealer.enums.UserType.DEALER_STAFF);
-        List<SalesByStaffItemDTO> items = new ArrayList<>();
-
-        for (User staff : salesStaff) {
-            List<Order> staffOrders = orderRepository.findByUserId(staff.getUserId());
-            BigDecimal totalSales = staffOrders.stream()
-                .map(Order::getTotalAmount)
-                .filter(v -> v != null)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-            SalesByStaffItemDTO dto = new SalesByStaffItemDTO(
-                staff.getUserId(),
-                staff.getFirstName() + " " + staff.getLastName(),
-                staff.getUserType() != null ? staff.getUserType().toString() : "UNKNOWN",
-                staffOrders.size(),
-                totalSales
-            );
-            items.add(dto);
-        }
-
-        items.sort(Comparator.comparing(SalesByStaffItemDTO::getTotalSales).reversed());
-        return items;
+        return getSalesReportByStaff(null, null, null);
+    }
+    
+    @Transactional(readOnly = true)
+    public List<SalesByStaffItemDTO> getSalesReportByStaff(LocalDate startDate, LocalDate endDate, UUID dealerId) {
+        return orderRepository.aggregateSalesByUserType(
+            com.evdealer.enums.UserType.DEALER_STAFF, startDate, endDate, dealerId);
     }
     
     public List<SalesByStaffItemDTO> getSalesReportByRole(String roleString) {
+        return getSalesReportByRole(roleString, null, null, null);
+    }
+    
+    @Transactional(readOnly = true)
+    public List<SalesByStaffItemDTO> getSalesReportByRole(String roleString, LocalDate startDate, LocalDate endDate, UUID dealerId) {
         try {
             com.evdealer.enums.UserType userType = com.evdealer.enums.UserType.valueOf(roleString.toUpperCase());
-            List<User> users = userRepository.findByRoleString(userType);
-            List<SalesByStaffItemDTO> items = new ArrayList<>();
-
-            for (User user : users) {
-                List<Order> userOrders = orderRepository.findByUserId(user.getUserId());
-                BigDecimal totalSales = userOrders.stream()
-                    .map(Order::getTotalAmount)
-                    .filter(v -> v != null)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-                SalesByStaffItemDTO dto = new SalesByStaffItemDTO(
-                    user.getUserId(),
-                    user.getFirstName() + " " + user.getLastName(),
-                    user.getUserType() != null ? user.getUserType().toString() : "UNKNOWN",
-                    userOrders.size(),
-                    totalSales
-                );
-                items.add(dto);
-            }
-
-            items.sort(Comparator.comparing(SalesByStaffItemDTO::getTotalSales).reversed());
-            return items;
+            return orderRepository.aggregateSalesByUserType(userType, startDate, endDate, dealerId);
         } catch (IllegalArgumentException e) {
             return new ArrayList<>();
         }
     }
     
-    // Customer Debt Report - Using InstallmentPlan data
+    // Customer Debt Report - một query: plan active + customer + tổng đã trả theo installment_schedules
+    @Transactional(readOnly = true)
     public List<CustomerDebtItemDTO> getCustomerDebtReport() {
-        List<InstallmentPlan> activePlans = installmentPlanRepository.findByPlanStatus("active");
-        List<CustomerDebtItemDTO> items = new ArrayList<>();
-
-        for (InstallmentPlan plan : activePlans) {
-            if (plan.getCustomer() != null) {
-                CustomerDebtItemDTO dto = new CustomerDebtItemDTO();
-                dto.setCustomerId(plan.getCustomer().getCustomerId());
-                dto.setCustomerName(plan.getCustomer().getFirstName() + " " + plan.getCustomer().getLastName());
-                dto.setTotalAmount(plan.getTotalAmount());
-                dto.setPaidAmount(plan.getDownPaymentAmount());
-                dto.setRemainingAmount(plan.getTotalAmount().subtract(plan.getDownPaymentAmount()));
-                dto.setInstallmentCount(plan.getLoanTermMonths());
-                dto.setPlanType(plan.getPlanType());
-                items.add(dto);
-            }
-        }
-        return items;
+        return getCustomerDebtReport(false, null, null, Pageable.unpaged()).getContent();
+    }
+    
+    /**
+     * Công nợ khách hàng (sắp xếp theo số tiền còn lại giảm dần).
+     * paidAmount = tiền trả trước + tổng paid_amount của các kỳ trả góp.
+     *
+     * @param overdueOnly  chỉ lấy plan có kỳ đã quá hạn mà chưa trả
+     * @param minRemaining số tiền còn lại tối thiểu (null = không lọc)
+     * @param maxRemaining số tiền còn lại tối đa (null = không lọc)
+     */
+    @Transactional(readOnly = true)
+    public Page<CustomerDebtItemDTO> getCustomerDebtReport(boolean overdueOnly, BigDecimal minRemaining,
+                                                           BigDecimal maxRemaining, Pageable pageable) {
+        return getCustomerDebtReport(LocalDate.now(), overdueOnly, minRemaining, maxRemaining, pageable);
+    }
+    
+    /**
+     * Công nợ khách hàng tính quá hạn theo ngày asOf (kỳ có due_date trước asOf mà chưa trả là quá hạn).
+     */
+    @Transactional(readOnly = true)
+    public Page<CustomerDebtItemDTO> getCustomerDebtReport(LocalDate asOf, boolean overdueOnly, BigDecimal minRemaining,
+                                                           BigDecimal maxRemaining, Pageable pageable) {
+        return installmentPlanRepository
+            .findCustomerDebts(asOf, overdueOnly, minRemaining, maxRemaining, pageable)
+            .map(this::toCustomerDebtDTO);
+    }
+    
+    private CustomerDebtItemDTO toCustomerDebtDTO(Object[] row) {
+        CustomerDebtItemDTO dto = new CustomerDebtItemDTO();
+        dto.setCustomerId((UUID) row[0]);
+        dto.setCustomerName((String) row[1]);
+        dto.setPlanId((UUID) row[2]);
+        dto.setTotalAmount(toBigDecimal(row[3]));
+        dto.setPaidAmount(toBigDecimal(row[4]));
+        dto.setRemainingAmount(toBigDecimal(row[5]));
+        dto.setInstallmentCount(row[6] != null ? ((Number) row[6]).intValue() : null);
+        dto.setPlanType((String) row[7]);
+        dto.setOverdueInstallments(((Number) row[8]).longValue());
+        dto.setOverdueAmount(toBigDecimal(row[9]));
+        return dto;
     }
     
     public List<InstallmentPlan> getCustomersWithActiveInstallments() {
         return installmentPlanRepository.findByPlanStatus("active");
     }
     
-    // Inventory Turnover Report - Using VehicleInventory data
+    // Inventory Turnover Report - đọc từ bộ đếm trạng thái tồn kho (không load VehicleInventory)
     public InventoryTurnoverReportDTO getInventoryTurnoverReport() {
-        List<VehicleInventory> allInventory = vehicleInventoryRepository.findAll();
+        InventoryStatusCountsDTO counts = inventoryStatusCounterService.getCounts();
         InventoryTurnoverReportDTO dto = new InventoryTurnoverReportDTO();
 
-        long availableCount = allInventory.stream()
-            .filter(inv -> inv.getStatus() == VehicleStatus.AVAILABLE)
-            .count();
-        
-        long soldCount = allInventory.stream()
-            .filter(inv -> inv.getStatus() == VehicleStatus.SOLD)
-            .count();
+        long total = counts.getTotalVehicles();
+        long soldCount = counts.getStatusCounts().getOrDefault(VehicleStatus.SOLD.getValue(), 0L);
         
-        long reservedCount = allInventory.stream()
-            .filter(inv -> inv.getStatus() == VehicleStatus.RESERVED)
-            .count();
-        
-        dto.setTotalInventory(allInventory.size());
-        dto.setAvailableCount(availableCount);
+        dto.setTotalInventory((int) total);
+        dto.setAvailableCount(counts.getStatusCounts().getOrDefault(VehicleStatus.AVAILABLE.getValue(), 0L));
         dto.setSoldCount(soldCount);
-        dto.setReservedCount(reservedCount);
-        dto.setTurnoverRate(allInventory.size() > 0 ? (double) soldCount / allInventory.size() : 0.0);
+        dto.setReservedCount(counts.getStatusCounts().getOrDefault(VehicleStatus.RESERVED.getValue(), 0L));
+        dto.setTurnoverRate(total > 0 ? (double) soldCount / total : 0.0);
 
         return dto;
     }
@@ -168,42 +173,14 @@ public class ReportService {
         return vehicleInventoryRepository.findByStatus(VehicleStatus.SOLD);
     }
     
-    // Dealer Performance Report - Using DealerTarget data
+    // Dealer Performance Report - DealerTarget join dealer_sales_rollup (một query)
+    @Transactional(readOnly = true)
     public List<DealerPerformanceItemDTO> getDealerPerformanceReport() {
-        List<DealerTarget> allTargets = dealerTargetRepository.findAll();
-        List<DealerPerformanceItemDTO> items = new ArrayList<>();
-        
-        for (DealerTarget target : allTargets) {
-            if (target.getDealer() != null) {
-                DealerPerformanceItemDTO dto = new DealerPerformanceItemDTO();
-                dto.setDealerId(target.getDealer().getDealerId());
-                dto.setDealerName(target.getDealer().getDealerName());
-                dto.setTargetYear(target.getTargetYear());
-                dto.setTargetRevenue(target.getTargetAmount());
-                
-                // Calculate achievement rate (simplified)
-                // Get all users from this dealer and sum their orders
-                List<User> dealerUsers = userRepository.findByDealerDealerId(target.getDealer().getDealerId());
-                BigDecimal actualSales = BigDecimal.ZERO;
-                for (User dealerUser : dealerUsers) {
-                    List<Order> userOrders = orderRepository.findByUserId(dealerUser.getUserId());
-                    BigDecimal userSales = userOrders.stream()
-                        .map(Order::getTotalAmount)
-                        .filter(v -> v != null)
-                        .reduce(BigDecimal.ZERO, BigDecimal::add);
-                    actualSales = actualSales.add(userSales);
-                }
-                
-                double achievementRate = target.getTargetAmount().doubleValue() > 0 
-                    ? (actualSales.doubleValue() / target.getTargetAmount().doubleValue()) * 100 
-                    : 0.0;
-                
-                dto.setActualSales(actualSales);
-                dto.setAchievementRate(achievementRate);
-                items.add(dto);
-            }
-        }
-        return items;
+        return dealerSalesRollupRepository.findDealerPerformance();
+    }
+    
+    public int rebuildDealerSalesRollup() {
+        return dealerSalesRollupService.rebuild();
     }
     
     public List<DealerTarget> getPerformanceByYear(Integer year) {
@@ -212,61 +189,95 @@ public class ReportService {
     
     // Monthly Sales Summary - Using Order data
     public MonthlySalesSummaryDTO getMonthlySalesSummary(Integer year, Integer month) {
-        List<Order> orders = orderRepository.findAll();
+        LocalDate fromDate = LocalDate.of(year, month, 1);
+        Object[] totals = sumDailySalesFact(fromDate, fromDate.plusMonths(1));
         MonthlySalesSummaryDTO summary = new MonthlySalesSummaryDTO();
-        
-        long monthlyOrders = orders.stream()
-            .filter(order -> order.getOrderDate() != null 
-                && order.getOrderDate().getYear() == year 
-                && order.getOrderDate().getMonthValue() == month)
-            .count();
-        
-        BigDecimal monthlyRevenue = orders.stream()
-            .filter(order -> order.getOrderDate() != null 
-                && order.getOrderDate().getYear() == year 
-                && order.getOrderDate().getMonthValue() == month)
-            .map(Order::getTotalAmount)
-            .filter(v -> v != null)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
         summary.setYear(year);
         summary.setMonth(month);
-        summary.setTotalOrders(monthlyOrders);
-        summary.setTotalRevenue(monthlyRevenue);
+        summary.setTotalOrders(((Number) totals[0]).longValue());
+        summary.setTotalRevenue(toBigDecimal(totals[1]));
 
         return summary;
     }
     
     public YearRangeSalesSummaryDTO getSalesByYearRange(Integer startYear, Integer endYear) {
-        List<Order> orders = orderRepository.findAll();
+        Object[] totals = sumDailySalesFact(LocalDate.of(startYear, 1, 1), LocalDate.of(endYear + 1, 1, 1));
         YearRangeSalesSummaryDTO summary = new YearRangeSalesSummaryDTO();
-        
-        long totalOrders = orders.stream()
-            .filter(order -> order.getOrderDate() != null 
-                && order.getOrderDate().getYear() >= startYear 
-                && order.getOrderDate().getYear() <= endYear)
-            .count();
-        
-        BigDecimal totalRevenue = orders.stream()
-            .filter(order -> order.getOrderDate() != null 
-                && order.getOrderDate().getYear() >= startYear 
-                && order.getOrderDate().getYear() <= endYear)
-            .map(Order::getTotalAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
         summary.setStartYear(startYear);
         summary.setEndYear(endYear);
-        summary.setTotalOrders(totalOrders);
-        summary.setTotalRevenue(totalRevenue);
+        summary.setTotalOrders(((Number) totals[0]).longValue());
+        summary.setTotalRevenue(toBigDecimal(totals[1]));
         
         return summary;
     }
     
+    /**
+     * Doanh số theo bucket thời gian trong [fromDate, toDate] (tính cả hai đầu), đọc từ daily_sales_fact.
+     * Bucket không có order vẫn được trả về với giá trị 0.
+     */
+    public List<SalesTimeSeriesPointDTO> getSalesTimeSeries(TimeBucket granularity, LocalDate fromDate, LocalDate toDate,
+                                                            UUID dealerId, UUID variantId) {
+        LocalDate start = granularity.truncate(fromDate);
+        LocalDate endExclusive = toDate.plusDays(1);
+        Map<LocalDate, SalesTimeSeriesPointDTO> points = new LinkedHashMap<>();
+        for (LocalDate bucket = start; bucket.isBefore(endExclusive); bucket = granularity.next(bucket)) {
+            if (points.size() >= MAX_TIME_SERIES_POINTS) {
+                throw new IllegalArgumentException("Date range too large for granularity " + granularity.getValue()
+                    + " (max " + MAX_TIME_SERIES_POINTS + " points)");
+            }
+            points.put(bucket, new SalesTimeSeriesPointDTO(bucket, 0L, BigDecimal.ZERO, BigDecimal.ZERO));
+        }
+        
+        List<Object[]> rows = dailySalesFactRepository.findTimeSeries(
+            granularity.getValue(), fromDate, endExclusive, dealerId, variantId);
+        for (Object[] row : rows) {
+            LocalDate bucketStart = row[0] instanceof java.sql.Date
+                ? ((java.sql.Date) row[0]).toLocalDate()
+                : (LocalDate) row[0];
+            SalesTimeSeriesPointDTO point = points.get(bucketStart);
+            if (point != null) {
+                point.setOrderCount(((Number) row[1]).longValue());
+                point.setTotalRevenue(toBigDecimal(row[2]));
+                point.setTotalDeposit(toBigDecimal(row[3]));
+            }
+        }
+        return new ArrayList<>(points.values());
+    }
+    
+    /**
+     * Backfill daily_sales_fact từ orders. Chạy ngoài transaction của service này,
+     * mỗi đoạn ngày được commit riêng bởi DailySalesFactService.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int backfillDailySalesFact(LocalDate fromDate, LocalDate toDate) {
+        if (fromDate == null || toDate == null) {
+            return dailySalesFactService.backfill();
+        }
+        return dailySalesFactService.backfill(fromDate, toDate);
+    }
+    
+    // [orderCount, totalRevenue, totalDeposit] trong [fromDate, toDate)
+    private Object[] sumDailySalesFact(LocalDate fromDate, LocalDate toDate) {
+        return dailySalesFactRepository.sumRange(fromDate, toDate).get(0);
+    }
+    
+    private static BigDecimal toBigDecimal(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        return value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(value.toString());
+    }
+    
     // Delivery Tracking Report - Using VehicleDelivery data
     public List<VehicleDelivery> getAllDeliveryTrackingReports() {
         return vehicleDeliveryRepository.findAll();
     }
     
+    public List<VehicleDeliveryDTO> getAllDeliveries() {
+        return vehicleDeliveryRepository.findAll()
+                .stream().map(this::toDeliveryDTO).toList();
+    }
+    
     public List<VehicleDeliveryDTO> getDeliveriesByStatus(String status) {
         com.evdealer.enums.VehicleDeliveryStatus statusEnum = com.evdealer.enums.VehicleDeliveryStatus.fromString(status);
         return vehicleDeliveryRepository.findByDeliveryStatus(statusEnum)
@@ -309,6 +320,24 @@ public class ReportService {
                 .map(this::toOrderDTO);
     }
 
+    /**
+     * Walk-in purchases phân trang theo cursor (order_date DESC, order_id DESC)
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<OrderDTO> getWalkInPurchasesPage(LocalDate startDate, LocalDate endDate, String status,
+                                                          String cursor, Integer size) {
+        OrderStatus statusEnum = (status != null && !status.trim().isEmpty()) 
+            ? OrderStatus.fromString(status) 
+            : null;
+        int pageSize = OrderCursor.validateSize(size);
+        OrderCursor after = OrderCursor.decode(cursor);
+        List<Order> fetched = after == null
+            ? orderRepository.findWalkInOrderPageFirst(startDate, endDate, statusEnum, OrderCursor.fetchLimit(pageSize))
+            : orderRepository.findWalkInOrderPageAfter(startDate, endDate, statusEnum,
+                after.getOrderDate(), after.getOrderId(), OrderCursor.fetchLimit(pageSize));
+        return OrderCursor.toPage(fetched, pageSize, this::toOrderDTO);
+    }
+
     private VehicleDeliveryDTO toDeliveryDTO(VehicleDelivery d) {
         VehicleDeliveryDTO dto = new VehicleDeliveryDTO();
         dto.setDeliveryId(d.getDeliveryId());
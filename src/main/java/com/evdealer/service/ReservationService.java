@@ -0,0 +1,312 @@
+package com.evdealer.service;
+
+import com.evdealer.entity.Customer;
+import com.evdealer.entity.Order;
+import com.evdealer.entity.VehicleInventory;
+import com.evdealer.enums.DeliveryStatus;
+import com.evdealer.enums.OrderStatus;
+import com.evdealer.enums.PaymentStatus;
+import com.evdealer.enums.VehicleStatus;
+import com.evdealer.repository.OrderRepository;
+import com.evdealer.repository.VehicleInventoryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Vòng đời giữ chỗ xe cho khách (VehicleInventory RESERVED): tạo giữ chỗ có hạn (app.inventory.reservation.hold-hours),
+ * nhả giữ chỗ khi hủy order, và sweeper định kỳ nhả các giữ chỗ đã hết hạn.
+ * <p>
+ * Giữ chỗ là compare-and-set, không khóa dòng trước: đọc xe bình thường ({@link #findAvailable}), đánh dấu giữ chỗ
+ * ({@link #hold}), rồi {@link #confirmHolds} flush ở cuối transaction. UPDATE của Hibernate có điều kiện
+ * {@code WHERE inventory_id = ? AND version = ?} (@Version), số dòng bị ảnh hưởng = 0 nghĩa là xe đã bị
+ * order khác giữ/đổi từ lúc đọc và giữ chỗ thất bại. Khóa dòng chỉ tồn tại từ UPDATE đến commit.
+ * <p>
+ * Sweeper chạy theo lô, mỗi lô một transaction ngắn: khóa các dòng hết hạn bằng FOR UPDATE SKIP LOCKED
+ * (dòng đang bị order khóa thì để lần sau) nên không chặn việc tạo order. Order chưa xác nhận đang giữ xe
+ * vừa được nhả bị hủy cùng transaction, để không thể thanh toán tiếp trên một xe không còn giữ cho khách. Xe được cập nhật qua JPA để
+ * bộ đếm trạng thái, facet index và cache báo cáo nhận thay đổi như bình thường. Giữ chỗ không có
+ * reservedExpiryDate (tạo trước khi có hạn giữ chỗ, giữ cho dealer, hoặc đã được thanh toán - xem
+ * {@link #confirmPaidHold}) không bị sweeper đụng tới; xe có order đã xác nhận/đã trả tiền cũng được bỏ qua
+ * ngay trong query.
+ * <p>
+ * Metrics: inventory.reservation.holds, inventory.reservation.expirations, inventory.reservation.releases
+ * (đếm sau khi commit), inventory.reservation.conflicts và inventory.reservation.sweep.
+ */
+@Service
+public class ReservationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReservationService.class);
+
+    // Order ở các trạng thái này (hoặc đã trả tiền) giữ xe vô thời hạn: sweeper không được nhả
+    private static final List<String> COMMITTED_ORDER_STATUSES = List.of(
+        OrderStatus.CONFIRMED.getValue(), OrderStatus.PAID.getValue(),
+        OrderStatus.DELIVERED.getValue(), OrderStatus.COMPLETED.getValue());
+    private static final List<String> PAID_PAYMENT_STATUSES = List.of(
+        PaymentStatus.PARTIAL.name(), PaymentStatus.PAID.name());
+    // Order còn lại trên xe có giữ chỗ hết hạn (sweeper đã loại các order ở trạng thái trên)
+    private static final List<OrderStatus> OPEN_ORDER_STATUSES = List.of(OrderStatus.PENDING, OrderStatus.QUOTED);
+
+    private final VehicleInventoryRepository vehicleInventoryRepository;
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate batchTransaction;
+    private final MeterRegistry meterRegistry;
+    private final Counter holds;
+    private final Counter expirations;
+    private final Counter releases;
+    private final Counter holdConflicts;
+
+    private final Duration holdDuration;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    public ReservationService(VehicleInventoryRepository vehicleInventoryRepository,
+                              OrderRepository orderRepository,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.inventory.reservation.hold-hours:48}") long holdHours,
+                              @Value("${app.inventory.reservation.sweep-batch-size:500}") int batchSize,
+                              @Value("${app.inventory.reservation.sweep-max-batches:20}") int maxBatchesPerRun) {
+        if (holdHours <= 0) {
+            throw new IllegalArgumentException("app.inventory.reservation.hold-hours must be positive");
+        }
+        this.vehicleInventoryRepository = vehicleInventoryRepository;
+        this.orderRepository = orderRepository;
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.holdDuration = Duration.ofHours(holdHours);
+        this.batchSize = Math.max(1, batchSize);
+        this.maxBatchesPerRun = Math.max(1, maxBatchesPerRun);
+        this.holds = Counter.builder("inventory.reservation.holds")
+            .description("Vehicle holds created for customer orders")
+            .register(meterRegistry);
+        this.expirations = Counter.builder("inventory.reservation.expirations")
+            .description("Vehicle holds released by the sweeper after their expiry date")
+            .register(meterRegistry);
+        this.releases = Counter.builder("inventory.reservation.releases")
+            .description("Vehicle holds released explicitly (order cancelled)")
+            .register(meterRegistry);
+        this.holdConflicts = Counter.builder("inventory.reservation.conflicts")
+            .description("Vehicle holds rejected because another request reserved or modified the vehicle first")
+            .register(meterRegistry);
+    }
+
+    public Duration getHoldDuration() {
+        return holdDuration;
+    }
+
+    /**
+     * Đọc xe (không khóa dòng) và kiểm tra còn AVAILABLE. Gọi trong transaction của order.
+     */
+    public VehicleInventory findAvailable(UUID inventoryId) {
+        VehicleInventory inventory = vehicleInventoryRepository.findById(inventoryId)
+                .orElseThrow(() -> new RuntimeException("Vehicle inventory not found with id: " + inventoryId));
+        if (inventory.getStatus() != VehicleStatus.AVAILABLE) {
+            throw new RuntimeException("Vehicle inventory is not available. Current status: " +
+                (inventory.getStatus() != null ? inventory.getStatus().getValue() : "null"));
+        }
+        return inventory;
+    }
+
+    /**
+     * Đánh dấu giữ chỗ xe cho khách đến now + hold duration. Xe phải đang được quản lý bởi transaction hiện tại
+     * (findAvailable hoặc đã khóa); UPDATE chỉ chạy khi flush - xem {@link #confirmHolds}.
+     */
+    public void hold(VehicleInventory inventory, Customer customer) {
+        LocalDateTime now = LocalDateTime.now();
+        inventory.setStatus(VehicleStatus.RESERVED);
+        if (customer != null) {
+            inventory.setReservedForCustomer(customer);
+        }
+        inventory.setReservedDate(now);
+        inventory.setReservedExpiryDate(now.plus(holdDuration));
+        vehicleInventoryRepository.save(inventory);
+        afterCommit(holds);
+    }
+
+    /**
+     * Flush các giữ chỗ đang chờ (gọi sau khi đã save order: Hibernate insert trước rồi mới update, nên dòng
+     * inventory chỉ bị khóa ở bước cuối). Ném RuntimeException nếu xe đã bị transaction khác giữ trước.
+     */
+    public void confirmHolds() {
+        try {
+            vehicleInventoryRepository.flush();
+        } catch (OptimisticLockingFailureException e) {
+            holdConflicts.increment();
+            throw new RuntimeException("Vehicle inventory is no longer available: it was reserved or modified by another request");
+        }
+    }
+
+    /**
+     * Kiểm tra trước khi ghi nhận thanh toán: xe của order phải đang giữ (hoặc đã bán) cho khách của order.
+     * Xe đã được nhả về AVAILABLE thì giữ lại cho khách (UPDATE có điều kiện version như {@link #hold});
+     * xe đang giữ/đã bán cho khách khác, đã phân bổ cho dealer hoặc ở trạng thái khác thì ném RuntimeException
+     * để thanh toán bị từ chối.
+     */
+    public void ensureHeldFor(VehicleInventory inventory, Customer customer) {
+        if (inventory.getStatus() == VehicleStatus.AVAILABLE) {
+            hold(inventory, customer);
+            return;
+        }
+        boolean ownHold = (inventory.getStatus() == VehicleStatus.RESERVED || inventory.getStatus() == VehicleStatus.SOLD)
+            && inventory.getAllocatedOrderItemId() == null
+            && Objects.equals(customerId(inventory.getReservedForCustomer()), customerId(customer));
+        if (!ownHold) {
+            throw new RuntimeException("Vehicle inventory " + inventory.getInventoryId()
+                + " is no longer reserved for this order's customer (status: "
+                + (inventory.getStatus() != null ? inventory.getStatus().getValue() : "null") + ")");
+        }
+    }
+
+    private static UUID customerId(Customer customer) {
+        return customer != null ? customer.getCustomerId() : null;
+    }
+
+    /**
+     * Khách đã trả tiền cho order giữ xe: bỏ hạn giữ chỗ để sweeper không nhả xe nữa. UPDATE dòng inventory
+     * trong transaction thanh toán nên sweeper đang khóa xe này thì một trong hai bên thất bại (version),
+     * không thể vừa nhả vừa ghi nhận thanh toán.
+     */
+    public void confirmPaidHold(VehicleInventory inventory) {
+        if (inventory.getReservedExpiryDate() == null) {
+            return;
+        }
+        inventory.setReservedExpiryDate(null);
+        vehicleInventoryRepository.save(inventory);
+    }
+
+    /**
+     * Nhả giữ chỗ / trả xe về AVAILABLE khi hủy order. Xe RESERVED đang giữ cho khách khác
+     * (giữ chỗ của order này đã hết hạn và xe được giữ lại) thì giữ nguyên.
+     *
+     * @return true nếu xe được trả về AVAILABLE
+     */
+    public boolean release(VehicleInventory inventory, Customer orderCustomer) {
+        if (inventory.getStatus() != VehicleStatus.RESERVED && inventory.getStatus() != VehicleStatus.SOLD) {
+            return false;
+        }
+        if (inventory.getStatus() == VehicleStatus.RESERVED && orderCustomer != null
+                && inventory.getReservedForCustomer() != null
+                && !Objects.equals(inventory.getReservedForCustomer().getCustomerId(), orderCustomer.getCustomerId())) {
+            return false;
+        }
+        clearHold(inventory);
+        vehicleInventoryRepository.save(inventory);
+        afterCommit(releases);
+        return true;
+    }
+
+    /**
+     * Nhả các giữ chỗ đã hết hạn theo lô. Trả về số xe đã nhả.
+     */
+    @Scheduled(fixedDelayString = "${app.inventory.reservation.sweep-interval-ms:60000}",
+               initialDelayString = "${app.inventory.reservation.sweep-interval-ms:60000}")
+    public int releaseExpiredReservations() {
+        if (!sweeping.compareAndSet(false, true)) {
+            return 0;
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        int released = 0;
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                int[] result = batchTransaction.execute(status -> releaseBatch(now));
+                released += result[0];
+                // Lô chưa đầy: không còn dòng hết hạn nào chưa bị khóa
+                if (result[1] < batchSize) {
+                    break;
+                }
+            }
+            if (released > 0) {
+                logger.info("Released {} expired vehicle reservations", released);
+            }
+        } catch (Exception e) {
+            logger.warn("Reservation sweep failed after releasing {} vehicles: {}", released, e.getMessage());
+        } finally {
+            sample.stop(Timer.builder("inventory.reservation.sweep").register(meterRegistry));
+            sweeping.set(false);
+        }
+        return released;
+    }
+
+    // {số xe đã nhả, số dòng đã khóa}
+    private int[] releaseBatch(LocalDateTime now) {
+        List<UUID> ids = vehicleInventoryRepository.lockExpiredReservationIds(
+            VehicleStatus.RESERVED.getValue(), now, COMMITTED_ORDER_STATUSES, PAID_PAYMENT_STATUSES, batchSize);
+        if (ids.isEmpty()) {
+            return new int[] {0, 0};
+        }
+        List<UUID> releasedIds = new ArrayList<>();
+        for (VehicleInventory inventory : vehicleInventoryRepository.findAllById(ids)) {
+            if (inventory.getStatus() != VehicleStatus.RESERVED || inventory.getReservedExpiryDate() == null
+                    || inventory.getReservedExpiryDate().isAfter(now)) {
+                continue;
+            }
+            clearHold(inventory);
+            releasedIds.add(inventory.getInventoryId());
+        }
+        int released = releasedIds.size();
+        if (released > 0) {
+            cancelOpenOrders(releasedIds);
+            afterCommit(expirations, released);
+        }
+        return new int[] {released, ids.size()};
+    }
+
+    // Order chưa xác nhận mất xe khi giữ chỗ hết hạn: hủy như OrderService.cancelOrder (xe đã được nhả ở trên)
+    private void cancelOpenOrders(List<UUID> releasedIds) {
+        List<Order> orders = orderRepository.findByInventoryIdsAndStatuses(releasedIds, OPEN_ORDER_STATUSES);
+        for (Order order : orders) {
+            order.setStatus(OrderStatus.CANCELLED);
+            order.setDeliveryStatus(DeliveryStatus.CANCELLED);
+        }
+        if (!orders.isEmpty()) {
+            logger.info("Cancelled {} unconfirmed orders whose vehicle hold expired", orders.size());
+        }
+    }
+
+    private static void clearHold(VehicleInventory inventory) {
+        inventory.setStatus(VehicleStatus.AVAILABLE);
+        inventory.setReservedForCustomer(null);
+        inventory.setReservedDate(null);
+        inventory.setReservedExpiryDate(null);
+    }
+
+    private static void afterCommit(Counter counter) {
+        afterCommit(counter, 1);
+    }
+
+    // Chỉ đếm khi transaction commit; ngoài transaction thì đếm ngay
+    private static void afterCommit(Counter counter, int amount) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            counter.increment(amount);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                counter.increment(amount);
+            }
+        });
+    }
+}
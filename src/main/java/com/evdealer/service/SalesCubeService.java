@@ -0,0 +1,693 @@
+package com.evdealer.service;
+
+import com.evdealer.dto.SalesCubeResultDTO;
+import com.evdealer.dto.SalesCubeRowDTO;
+import com.evdealer.entity.OrderSalesListener;
+import com.evdealer.entity.OrderSalesSnapshot;
+import com.evdealer.enums.SalesCubeDimension;
+import com.evdealer.repository.SalesCubeRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Sales cube trong bộ nhớ: mỗi order là một dòng trong các mảng primitive theo cột
+ * (dealer, staff, variant, model, brand, status được mã hóa bằng dictionary; ngày; số tiền theo đơn vị nhỏ nhất).
+ * Query group-by/filter quét song song bằng fork-join. Cube được làm mới tăng dần theo orders.updated_at
+ * (copy-on-write: query đang chạy luôn đọc một snapshot nhất quán), order bị xóa được nhận qua
+ * OrderSalesListener và dựng lại toàn bộ định kỳ để sửa sai lệch (vd. user đổi dealer).
+ * Cube chỉ được load ở lần query đầu tiên.
+ */
+@Service
+public class SalesCubeService implements OrderSalesListener.Handler {
+
+    private static final Logger logger = LoggerFactory.getLogger(SalesCubeService.class);
+
+    private static final int BATCH_SIZE = 10000;
+    // Số dòng tối thiểu của một fork-join task
+    private static final int SCAN_THRESHOLD = 1 << 16;
+    public static final int MAX_GROUP_BY = 3;
+    // Mỗi chiều group-by chiếm 21 bit trong key kiểu long
+    private static final int KEY_BITS = 21;
+    private static final long KEY_MASK = (1L << KEY_BITS) - 1;
+    private static final int TIME_OFFSET = 1 << 20;
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final UUID ZERO_ID = new UUID(0L, 0L);
+
+    private static final SalesCubeDimension[] DICTIONARY_DIMENSIONS = {
+        SalesCubeDimension.DEALER, SalesCubeDimension.STAFF, SalesCubeDimension.VARIANT,
+        SalesCubeDimension.MODEL, SalesCubeDimension.BRAND, SalesCubeDimension.STATUS
+    };
+
+    private final SalesCubeRepository cubeRepository;
+    private final ForkJoinPool pool;
+    private final long fullRebuildIntervalMillis;
+    private final long watermarkOverlapSeconds;
+
+    // Trạng thái dưới đây chỉ được đọc/ghi trong refresh (synchronized)
+    private final Map<UUID, Integer> rowByOrder = new HashMap<>();
+    private Dictionary[] dictionaries = newDictionaries();
+    private LocalDateTime watermark = EPOCH;
+    private long lastFullRebuild;
+
+    // Order đã xóa (sau commit), áp dụng ở lần refresh kế tiếp
+    private final Queue<UUID> pendingDeletes = new ConcurrentLinkedQueue<>();
+
+    private volatile Cube cube;
+
+    public SalesCubeService(SalesCubeRepository cubeRepository,
+                            @Value("${app.reports.cube.parallelism:0}") int parallelism,
+                            @Value("${app.reports.cube.full-rebuild-interval-ms:21600000}") long fullRebuildIntervalMillis,
+                            @Value("${app.reports.cube.watermark-overlap-seconds:300}") long watermarkOverlapSeconds) {
+        this.cubeRepository = cubeRepository;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.fullRebuildIntervalMillis = fullRebuildIntervalMillis;
+        this.watermarkOverlapSeconds = watermarkOverlapSeconds;
+    }
+
+    @PostConstruct
+    public void registerListener() {
+        OrderSalesListener.register(this);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Override
+    public void onOrderChanged(OrderSalesSnapshot previous, OrderSalesSnapshot current) {
+        // Insert/update được nhận qua updated_at; chỉ cần theo dõi delete
+        if (current != null || previous == null || previous.getOrderId() == null || cube == null) {
+            return;
+        }
+        UUID orderId = previous.getOrderId();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    pendingDeletes.add(orderId);
+                }
+            });
+        } else {
+            pendingDeletes.add(orderId);
+        }
+    }
+
+    /**
+     * Làm mới định kỳ (chỉ khi cube đã được load)
+     */
+    @Scheduled(fixedDelayString = "${app.reports.cube.refresh-interval-ms:30000}")
+    public void scheduledRefresh() {
+        if (cube == null) {
+            return;
+        }
+        try {
+            refresh(System.currentTimeMillis() - lastFullRebuild >= fullRebuildIntervalMillis);
+        } catch (Exception e) {
+            logger.error("Sales cube refresh failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Làm mới cube. full = true: dựng lại từ đầu; false: chỉ đọc order có updated_at mới.
+     */
+    public synchronized void refresh(boolean full) {
+        long started = System.currentTimeMillis();
+        Cube base = cube;
+        if (full || base == null) {
+            rowByOrder.clear();
+            dictionaries = newDictionaries();
+            watermark = EPOCH;
+            pendingDeletes.clear();
+            base = null;
+        }
+
+        Builder builder = new Builder(base);
+        UUID deleted;
+        while ((deleted = pendingDeletes.poll()) != null) {
+            Integer row = rowByOrder.remove(deleted);
+            if (row != null) {
+                builder.markDeleted(row);
+            }
+        }
+
+        // Lùi watermark một khoảng để không bỏ sót transaction commit muộn hơn updated_at của nó
+        LocalDateTime afterTime = base == null ? EPOCH : watermark.minusSeconds(watermarkOverlapSeconds);
+        UUID afterId = ZERO_ID;
+        int loaded = 0;
+        List<Object[]> batch;
+        do {
+            batch = cubeRepository.findOrdersUpdatedAfter(afterTime, afterId, BATCH_SIZE);
+            for (Object[] row : batch) {
+                UUID orderId = (UUID) row[0];
+                LocalDateTime updatedAt = toLocalDateTime(row[1]);
+                upsert(builder, orderId, row);
+                afterTime = updatedAt;
+                afterId = orderId;
+                if (updatedAt.isAfter(watermark)) {
+                    watermark = updatedAt;
+                }
+            }
+            loaded += batch.size();
+        } while (batch.size() == BATCH_SIZE);
+
+        if (base != null && !builder.isChanged()) {
+            return;
+        }
+        cube = builder.build(dictionaries, loadNames());
+        if (base == null) {
+            lastFullRebuild = System.currentTimeMillis();
+        }
+        logger.info("Sales cube {} refresh: {} orders read, {} rows, {} ms",
+            base == null ? "full" : "incremental", loaded, cube.size, System.currentTimeMillis() - started);
+    }
+
+    private void upsert(Builder builder, UUID orderId, Object[] row) {
+        Integer index = rowByOrder.get(orderId);
+        int target = index != null ? index : builder.appendRow();
+        if (index == null) {
+            rowByOrder.put(orderId, target);
+        }
+        LocalDate orderDate = toLocalDate(row[2]);
+        BigDecimal amount = row[4] != null ? (BigDecimal) row[4] : BigDecimal.ZERO;
+        builder.set(target,
+            dictionaries[0].code(row[6]),
+            dictionaries[1].code(row[5]),
+            dictionaries[2].code(row[7]),
+            dictionaries[3].code(row[8]),
+            dictionaries[4].code(row[9]),
+            dictionaries[5].code(row[3]),
+            (int) orderDate.toEpochDay(),
+            orderDate.getYear() * 12 + orderDate.getMonthValue() - 1,
+            amount.movePointRight(2).longValue());
+    }
+
+    private Map<SalesCubeDimension, Map<String, String>> loadNames() {
+        Map<SalesCubeDimension, Map<String, String>> names = new EnumMap<>(SalesCubeDimension.class);
+        names.put(SalesCubeDimension.DEALER, toNameMap(cubeRepository.findDealerNames()));
+        names.put(SalesCubeDimension.STAFF, toNameMap(cubeRepository.findStaffNames()));
+        names.put(SalesCubeDimension.VARIANT, toNameMap(cubeRepository.findVariantNames()));
+        names.put(SalesCubeDimension.MODEL, toNameMap(cubeRepository.findModelNames()));
+        names.put(SalesCubeDimension.BRAND, toNameMap(cubeRepository.findBrandNames()));
+        return names;
+    }
+
+    private static Map<String, String> toNameMap(List<Object[]> rows) {
+        Map<String, String> map = new HashMap<>();
+        for (Object[] row : rows) {
+            map.put(String.valueOf(row[0]), (String) row[1]);
+        }
+        return map;
+    }
+
+    /**
+     * Cube hiện tại; load lần đầu nếu chưa có. Kiểm tra lại trong lock để nhiều query đầu tiên đồng thời
+     * chỉ dựng cube một lần (các query sau chờ rồi dùng luôn kết quả).
+     */
+    private Cube ensureLoaded() {
+        Cube current = cube;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (cube == null) {
+                refresh(true);
+            }
+            return cube;
+        }
+    }
+
+    /**
+     * Bỏ cube hiện tại (vd. sau bulk import bỏ qua entity listener); query kế tiếp sẽ load lại từ đầu
+     */
+    public synchronized void invalidate() {
+        cube = null;
+    }
+
+    /**
+     * Group-by / filter trên cube.
+     *
+     * @param groupBy tối đa {@link #MAX_GROUP_BY} chiều (rỗng = một dòng tổng)
+     * @param filters giá trị cho phép theo chiều dictionary (id hoặc status)
+     * @param from    ngày order từ (null = không giới hạn)
+     * @param to      ngày order đến, tính cả ngày này (null = không giới hạn)
+     * @param limit   số nhóm tối đa trả về, sắp theo doanh thu giảm dần
+     */
+    public SalesCubeResultDTO query(List<SalesCubeDimension> groupBy, Map<SalesCubeDimension, Set<String>> filters,
+                                    LocalDate from, LocalDate to, int limit) {
+        if (groupBy.size() > MAX_GROUP_BY) {
+            throw new IllegalArgumentException("At most " + MAX_GROUP_BY + " group-by dimensions are supported");
+        }
+        for (SalesCubeDimension dimension : filters.keySet()) {
+            if (!dimension.isDictionary()) {
+                throw new IllegalArgumentException("Use from/to to filter on time, not " + dimension.getValue());
+            }
+        }
+
+        Cube current = ensureLoaded();
+        long started = System.nanoTime();
+
+        boolean[][] allowed = new boolean[DICTIONARY_DIMENSIONS.length][];
+        for (Map.Entry<SalesCubeDimension, Set<String>> filter : filters.entrySet()) {
+            int column = filter.getKey().ordinal();
+            Object[] values = current.values[column];
+            boolean[] mask = new boolean[values.length];
+            for (int code = 1; code < values.length; code++) {
+                mask[code] = filter.getValue().contains(String.valueOf(values[code]).toLowerCase());
+            }
+            allowed[column] = mask;
+        }
+
+        ScanSpec spec = new ScanSpec(current, groupBy.toArray(new SalesCubeDimension[0]), allowed,
+            from != null ? (int) from.toEpochDay() : Integer.MIN_VALUE,
+            to != null ? (int) to.toEpochDay() : Integer.MAX_VALUE);
+        GroupAccumulator groups = pool.invoke(new ScanTask(spec, 0, current.size));
+
+        List<SalesCubeRowDTO> rows = new ArrayList<>(groups.size);
+        for (int slot = 0; slot < groups.used.length; slot++) {
+            if (groups.used[slot]) {
+                rows.add(toRow(current, spec.groupBy, groups.keys[slot], groups.counts[slot], groups.sums[slot]));
+            }
+        }
+        rows.sort((a, b) -> b.getRevenue().compareTo(a.getRevenue()));
+
+        SalesCubeResultDTO result = new SalesCubeResultDTO();
+        List<String> dimensionNames = new ArrayList<>();
+        for (SalesCubeDimension dimension : groupBy) {
+            dimensionNames.add(dimension.getValue());
+        }
+        result.setGroupBy(dimensionNames);
+        result.setTotalGroups(rows.size());
+        result.setRows(rows.size() > limit ? new ArrayList<>(rows.subList(0, limit)) : rows);
+        result.setScannedRows(current.size);
+        result.setElapsedMillis((System.nanoTime() - started) / 1_000_000);
+        result.setRefreshedAt(current.refreshedAt);
+        return result;
+    }
+
+    private static SalesCubeRowDTO toRow(Cube cube, SalesCubeDimension[] groupBy, long key, long count, long sum) {
+        Map<String, Object> keys = new LinkedHashMap<>();
+        Map<String, String> labels = new LinkedHashMap<>();
+        int[] codes = new int[groupBy.length];
+        for (int i = groupBy.length - 1; i >= 0; i--) {
+            codes[i] = (int) (key & KEY_MASK);
+            key >>>= KEY_BITS;
+        }
+        for (int i = 0; i < groupBy.length; i++) {
+            SalesCubeDimension dimension = groupBy[i];
+            int code = codes[i];
+            if (dimension.isDictionary()) {
+                Object value = cube.values[dimension.ordinal()][code];
+                keys.put(dimension.getValue(), value);
+                Map<String, String> names = cube.names.get(dimension);
+                String name = value == null ? null : names != null ? names.get(String.valueOf(value)) : String.valueOf(value);
+                labels.put(dimension.getValue(), name);
+            } else {
+                String label = timeLabel(dimension, code - TIME_OFFSET);
+                keys.put(dimension.getValue(), label);
+                labels.put(dimension.getValue(), label);
+            }
+        }
+        SalesCubeRowDTO row = new SalesCubeRowDTO();
+        row.setKeys(keys);
+        row.setLabels(labels);
+        row.setOrderCount(count);
+        row.setRevenue(BigDecimal.valueOf(sum, 2));
+        return row;
+    }
+
+    private static String timeLabel(SalesCubeDimension dimension, int value) {
+        switch (dimension) {
+            case DAY:
+                return LocalDate.ofEpochDay(value).toString();
+            case WEEK:
+                // Ngày thứ Hai đầu tuần
+                return LocalDate.ofEpochDay(value * 7L - 3).toString();
+            case MONTH:
+                return YearMonth.of(Math.floorDiv(value, 12), Math.floorMod(value, 12) + 1).toString();
+            case QUARTER:
+                return Math.floorDiv(value, 4) + "-Q" + (Math.floorMod(value, 4) + 1);
+            default:
+                return String.valueOf(value);
+        }
+    }
+
+    private static Dictionary[] newDictionaries() {
+        Dictionary[] result = new Dictionary[DICTIONARY_DIMENSIONS.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = new Dictionary();
+        }
+        return result;
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        return value instanceof Timestamp ? ((Timestamp) value).toLocalDateTime() : (LocalDateTime) value;
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        return value instanceof java.sql.Date ? ((java.sql.Date) value).toLocalDate() : (LocalDate) value;
+    }
+
+    // ===== Storage =====
+
+    /**
+     * Mã hóa giá trị thành int code (0 = null). Chỉ thêm, không xóa.
+     */
+    private static final class Dictionary {
+        private final List<Object> values = new ArrayList<>();
+        private final Map<Object, Integer> codes = new HashMap<>();
+
+        private Dictionary() {
+            values.add(null);
+        }
+
+        private int code(Object value) {
+            if (value == null) {
+                return 0;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                if (code > KEY_MASK) {
+                    throw new IllegalStateException("Too many distinct values for sales cube dimension");
+                }
+                values.add(value);
+                codes.put(value, code);
+            }
+            return code;
+        }
+    }
+
+    /**
+     * Snapshot bất biến của cube. Cột dictionary: codes[ordinal][row]; status code 0 = order đã xóa.
+     */
+    private static final class Cube {
+        private final int size;
+        private final int[][] codes;
+        private final int[] day;
+        private final int[] month;
+        private final long[] amount;
+        private final Object[][] values;
+        private final Map<SalesCubeDimension, Map<String, String>> names;
+        private final LocalDateTime refreshedAt = LocalDateTime.now();
+
+        private Cube(int size, int[][] codes, int[] day, int[] month, long[] amount,
+                     Object[][] values, Map<SalesCubeDimension, Map<String, String>> names) {
+            this.size = size;
+            this.codes = codes;
+            this.day = day;
+            this.month = month;
+            this.amount = amount;
+            this.values = values;
+            this.names = names;
+        }
+    }
+
+    /**
+     * Tạo snapshot mới từ snapshot cũ; chỉ copy mảng khi có thay đổi đầu tiên.
+     */
+    private static final class Builder {
+        private final Cube base;
+        private int size;
+        private int[][] codes;
+        private int[] day;
+        private int[] month;
+        private long[] amount;
+        private boolean changed;
+
+        private Builder(Cube base) {
+            this.base = base;
+            this.size = base != null ? base.size : 0;
+        }
+
+        private boolean isChanged() {
+            return changed;
+        }
+
+        private void copyOnWrite(int capacity) {
+            if (!changed) {
+                changed = true;
+                int newCapacity = Math.max(capacity, size + size / 4 + 16);
+                codes = new int[DICTIONARY_DIMENSIONS.length][];
+                for (int c = 0; c < codes.length; c++) {
+                    codes[c] = base != null ? Arrays.copyOf(base.codes[c], newCapacity) : new int[newCapacity];
+                }
+                day = base != null ? Arrays.copyOf(base.day, newCapacity) : new int[newCapacity];
+                month = base != null ? Arrays.copyOf(base.month, newCapacity) : new int[newCapacity];
+                amount = base != null ? Arrays.copyOf(base.amount, newCapacity) : new long[newCapacity];
+            } else if (capacity > day.length) {
+                int newCapacity = Math.max(capacity, day.length + day.length / 2);
+                for (int c = 0; c < codes.length; c++) {
+                    codes[c] = Arrays.copyOf(codes[c], newCapacity);
+                }
+                day = Arrays.copyOf(day, newCapacity);
+                month = Arrays.copyOf(month, newCapacity);
+                amount = Arrays.copyOf(amount, newCapacity);
+            }
+        }
+
+        private int appendRow() {
+            copyOnWrite(size + 1);
+            return size++;
+        }
+
+        private void set(int row, int dealer, int staff, int variant, int model, int brand, int status,
+                         int epochDay, int monthIndex, long amountMinor) {
+            // Dòng đọc lại do watermark lùi (overlap) thường không đổi: không copy cột chỉ để ghi lại giá trị cũ
+            if (holds(row, dealer, staff, variant, model, brand, status, epochDay, monthIndex, amountMinor)) {
+                return;
+            }
+            copyOnWrite(size);
+            codes[0][row] = dealer;
+            codes[1][row] = staff;
+            codes[2][row] = variant;
+            codes[3][row] = model;
+            codes[4][row] = brand;
+            codes[5][row] = status;
+            day[row] = epochDay;
+            month[row] = monthIndex;
+            amount[row] = amountMinor;
+        }
+
+        // Dòng có sẵn trong base đã mang đúng các giá trị này (đọc từ bản copy nếu builder đã ghi); dòng mới luôn được ghi
+        private boolean holds(int row, int dealer, int staff, int variant, int model, int brand, int status,
+                              int epochDay, int monthIndex, long amountMinor) {
+            if (base == null || row >= base.size) {
+                return false;
+            }
+            int[][] currentCodes = changed ? codes : base.codes;
+            int[] currentDay = changed ? day : base.day;
+            int[] currentMonth = changed ? month : base.month;
+            long[] currentAmount = changed ? amount : base.amount;
+            return currentCodes[0][row] == dealer
+                && currentCodes[1][row] == staff
+                && currentCodes[2][row] == variant
+                && currentCodes[3][row] == model
+                && currentCodes[4][row] == brand
+                && currentCodes[5][row] == status
+                && currentDay[row] == epochDay
+                && currentMonth[row] == monthIndex
+                && currentAmount[row] == amountMinor;
+        }
+
+        private void markDeleted(int row) {
+            copyOnWrite(size);
+            codes[SalesCubeDimension.STATUS.ordinal()][row] = 0;
+            amount[row] = 0;
+        }
+
+        private Cube build(Dictionary[] dictionaries, Map<SalesCubeDimension, Map<String, String>> names) {
+            copyOnWrite(size);
+            Object[][] values = new Object[dictionaries.length][];
+            for (int i = 0; i < dictionaries.length; i++) {
+                values[i] = dictionaries[i].values.toArray();
+            }
+            return new Cube(size, codes, day, month, amount, values, names);
+        }
+    }
+
+    // ===== Scan =====
+
+    private static final class ScanSpec {
+        private final Cube cube;
+        private final SalesCubeDimension[] groupBy;
+        private final boolean[][] allowed;
+        private final int fromDay;
+        private final int toDay;
+
+        private ScanSpec(Cube cube, SalesCubeDimension[] groupBy, boolean[][] allowed, int fromDay, int toDay) {
+            this.cube = cube;
+            this.groupBy = groupBy;
+            this.allowed = allowed;
+            this.fromDay = fromDay;
+            this.toDay = toDay;
+        }
+    }
+
+    private static final class ScanTask extends RecursiveTask<GroupAccumulator> {
+        private final ScanSpec spec;
+        private final int from;
+        private final int to;
+
+        private ScanTask(ScanSpec spec, int from, int to) {
+            this.spec = spec;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected GroupAccumulator compute() {
+            if (to - from <= SCAN_THRESHOLD) {
+                return scan();
+            }
+            int mid = (from + to) >>> 1;
+            ScanTask left = new ScanTask(spec, from, mid);
+            left.fork();
+            GroupAccumulator right = new ScanTask(spec, mid, to).compute();
+            GroupAccumulator merged = left.join();
+            merged.mergeFrom(right);
+            return merged;
+        }
+
+        private GroupAccumulator scan() {
+            Cube cube = spec.cube;
+            int[] status = cube.codes[SalesCubeDimension.STATUS.ordinal()];
+            GroupAccumulator acc = new GroupAccumulator(64);
+            rows:
+            for (int row = from; row < to; row++) {
+                if (status[row] == 0) {
+                    continue;
+                }
+                int day = cube.day[row];
+                if (day < spec.fromDay || day > spec.toDay) {
+                    continue;
+                }
+                for (int c = 0; c < spec.allowed.length; c++) {
+                    boolean[] mask = spec.allowed[c];
+                    if (mask != null && !mask[cube.codes[c][row]]) {
+                        continue rows;
+                    }
+                }
+                long key = 0;
+                for (SalesCubeDimension dimension : spec.groupBy) {
+                    key = (key << KEY_BITS) | (codeOf(cube, dimension, row) & KEY_MASK);
+                }
+                acc.add(key, 1, cube.amount[row]);
+            }
+            return acc;
+        }
+
+        private static int codeOf(Cube cube, SalesCubeDimension dimension, int row) {
+            switch (dimension) {
+                case DAY:
+                    return cube.day[row] + TIME_OFFSET;
+                case WEEK:
+                    // epoch day 0 là thứ Năm; +3 để tuần bắt đầu từ thứ Hai
+                    return Math.floorDiv(cube.day[row] + 3, 7) + TIME_OFFSET;
+                case MONTH:
+                    return cube.month[row] + TIME_OFFSET;
+                case QUARTER:
+                    return Math.floorDiv(cube.month[row], 3) + TIME_OFFSET;
+                case YEAR:
+                    return Math.floorDiv(cube.month[row], 12) + TIME_OFFSET;
+                default:
+                    return cube.codes[dimension.ordinal()][row];
+            }
+        }
+    }
+
+    /**
+     * Hash map long key -> (count, sum) kiểu open addressing, tránh boxing khi quét.
+     */
+    private static final class GroupAccumulator {
+        private long[] keys;
+        private long[] counts;
+        private long[] sums;
+        private boolean[] used;
+        private int size;
+
+        private GroupAccumulator(int capacity) {
+            keys = new long[capacity];
+            counts = new long[capacity];
+            sums = new long[capacity];
+            used = new boolean[capacity];
+        }
+
+        private void add(long key, long count, long sum) {
+            if (size * 2 >= keys.length) {
+                resize();
+            }
+            int mask = keys.length - 1;
+            int slot = (int) (mix(key) & mask);
+            while (used[slot] && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (!used[slot]) {
+                used[slot] = true;
+                keys[slot] = key;
+                size++;
+            }
+            counts[slot] += count;
+            sums[slot] += sum;
+        }
+
+        private void mergeFrom(GroupAccumulator other) {
+            for (int slot = 0; slot < other.used.length; slot++) {
+                if (other.used[slot]) {
+                    add(other.keys[slot], other.counts[slot], other.sums[slot]);
+                }
+            }
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            long[] oldCounts = counts;
+            long[] oldSums = sums;
+            boolean[] oldUsed = used;
+            int capacity = oldKeys.length * 2;
+            keys = new long[capacity];
+            counts = new long[capacity];
+            sums = new long[capacity];
+            used = new boolean[capacity];
+            size = 0;
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldUsed[slot]) {
+                    add(oldKeys[slot], oldCounts[slot], oldSums[slot]);
+                }
+            }
+        }
+
+        private static long mix(long key) {
+            key ^= key >>> 33;
+            key *= 0xff51afd7ed558ccdL;
+            key ^= key >>> 33;
+            return key;
+        }
+    }
+}
@@ -6,16 +6,19 @@ import com.evdealer.entity.Dealer;
 import com.evdealer.entity.User;
 import com.evdealer.repository.DealerRepository;
 import com.evdealer.repository.UserRepository;
+import com.evdealer.util.PrincipalCache;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @Transactional
@@ -24,13 +27,19 @@ public class UserService {
     private final UserRepository userRepository;
     private final DealerRepository dealerRepository;
     private final PasswordEncoder passwordEncoder;
+    private final PrincipalCache principalCache;
+    private final PasswordHashingService passwordHashingService;
     
     public UserService(UserRepository userRepository, 
                       DealerRepository dealerRepository,
-                      PasswordEncoder passwordEncoder) {
+                      PasswordEncoder passwordEncoder,
+                      PrincipalCache principalCache,
+                      PasswordHashingService passwordHashingService) {
         this.userRepository = userRepository;
         this.dealerRepository = dealerRepository;
         this.passwordEncoder = passwordEncoder;
+        this.principalCache = principalCache;
+        this.passwordHashingService = passwordHashingService;
     }
     
     @Transactional(readOnly = true)
@@ -65,6 +74,15 @@ public class UserService {
         return userRepository.findByUsername(username);
     }
     
+    /**
+     * Tìm user theo username hoặc email (một query, dùng cho login)
+     */
+    @Transactional(readOnly = true)
+    public Optional<User> getUserByUsernameOrEmail(String login) {
+        List<User> users = userRepository.findByUsernameOrEmailWithDealer(login);
+        return users.isEmpty() ? Optional.empty() : Optional.of(users.get(0));
+    }
+    
     public Optional<User> getUserByEmail(String email) {
         return userRepository.findByEmail(email);
     }
@@ -310,7 +328,9 @@ public class UserService {
             user.setIsActive(userUpdateRequest.getIsActive());
         }
         
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        principalCache.evict(userId);
+        return savedUser;
     }
     
     public void deleteUser(UUID userId) {
@@ -319,6 +339,7 @@ public class UserService {
         
         try {
             userRepository.delete(user);
+            principalCache.evict(userId);
         } catch (Exception e) {
             throw new RuntimeException("Cannot delete user: " + e.getMessage() + ". User may be referenced by other records.");
         }
@@ -329,6 +350,7 @@ public class UserService {
                 .orElseThrow(() -> new RuntimeException("User not found with id: " + userId));
         user.setIsActive(false);
         userRepository.save(user);
+        principalCache.evict(userId);
     }
     
     // Password Management methods
@@ -386,14 +408,35 @@ public class UserService {
         List<String> successList = new ArrayList<>();
         List<String> errorList = new ArrayList<>();
         
+        Map<UUID, User> usersById = new HashMap<>();
+        for (User user : userRepository.findAllById(userIds)) {
+            usersById.put(user.getUserId(), user);
+        }
+        
+        // Hash song song trên hashing pool, sau đó lưu một lần
+        Map<UUID, CompletableFuture<String>> hashes = new LinkedHashMap<>();
         for (UUID userId : userIds) {
+            if (usersById.containsKey(userId) && !hashes.containsKey(userId)) {
+                hashes.put(userId, passwordHashingService.encodeAsync("password123")); // Default password
+            }
+        }
+        
+        List<User> usersToSave = new ArrayList<>();
+        for (UUID userId : userIds) {
+            User user = usersById.get(userId);
+            if (user == null) {
+                errorList.add("Failed to reset password for user ID " + userId + ": User not found with ID: " + userId);
+                continue;
+            }
             try {
-                String message = resetUserPassword(userId, null); // Use default password
-                successList.add(message);
+                user.setPasswordHash(hashes.get(userId).join());
+                usersToSave.add(user);
+                successList.add("Password reset successfully for user: " + user.getUsername() + " with default password");
             } catch (Exception e) {
                 errorList.add("Failed to reset password for user ID " + userId + ": " + e.getMessage());
             }
         }
+        userRepository.saveAll(usersToSave);
         
         result.put("totalRequested", userIds.size());
         result.put("successful", successList.size());
@@ -404,4 +447,3 @@ public class UserService {
         return result;
     }
 }
-
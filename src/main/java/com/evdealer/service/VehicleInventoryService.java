@@ -43,6 +43,9 @@ public class VehicleInventoryService {
     @Autowired
     private com.evdealer.repository.OrderRepository orderRepository;
     
+    @Autowired
+    private InventorySearchService inventorySearchService;
+    
     @PersistenceContext
     private EntityManager entityManager;
     
@@ -128,11 +131,11 @@ public class VehicleInventoryService {
     }
     
     public List<VehicleInventory> searchByVin(String vin) {
-        return vehicleInventoryRepository.findByVinContaining(vin);
+        return inventorySearchService.searchByVin(vin, null);
     }
     
     public List<VehicleInventory> searchByChassisNumber(String chassisNumber) {
-        return vehicleInventoryRepository.findByChassisNumberContaining(chassisNumber);
+        return inventorySearchService.searchByChassisNumber(chassisNumber, null);
     }
     
     public Optional<VehicleInventory> getInventoryById(UUID inventoryId) {
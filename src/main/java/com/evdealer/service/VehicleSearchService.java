@@ -0,0 +1,288 @@
+package com.evdealer.service;
+
+import com.evdealer.dto.FacetCountDTO;
+import com.evdealer.dto.FacetedPageDTO;
+import com.evdealer.dto.VehicleSearchFilter;
+import com.evdealer.entity.VehicleBrand;
+import com.evdealer.entity.VehicleColor;
+import com.evdealer.entity.VehicleInventory;
+import com.evdealer.entity.VehicleModel;
+import com.evdealer.entity.VehicleVariant;
+import com.evdealer.enums.VehicleSearchSort;
+import com.evdealer.enums.VehicleStatus;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Fetch;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Tìm kiếm xe còn hàng (status AVAILABLE) cho trang công khai: mọi bộ lọc được đẩy xuống một query động
+ * (Criteria API) trên inventory -> variant -> model -> brand và color, kết quả phân trang.
+ * <p>
+ * Facet đếm theo kiểu "disjunctive": số đếm của một facet áp dụng mọi bộ lọc trừ bộ lọc của chính facet đó,
+ * để người dùng thấy được các lựa chọn thay thế. Tổng số và facet lấy từ InventoryFacetIndex (trong bộ nhớ,
+ * thêm facet variant và warehouse); query GROUP BY (brand, model, color, khoảng giá) chỉ dùng khi index
+ * không sẵn sàng.
+ */
+@Service
+@Transactional(readOnly = true)
+public class VehicleSearchService {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    public static final String FACET_BRAND = "brand";
+    public static final String FACET_MODEL = "model";
+    public static final String FACET_VARIANT = "variant";
+    public static final String FACET_COLOR = "color";
+    public static final String FACET_WAREHOUSE = "warehouse";
+    public static final String FACET_PRICE = "price";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final InventoryFacetIndex facetIndex;
+
+    public VehicleSearchService(InventoryFacetIndex facetIndex) {
+        this.facetIndex = facetIndex;
+    }
+
+    /**
+     * @param page           trang (bắt đầu từ 0)
+     * @param size           số kết quả mỗi trang (1..MAX_PAGE_SIZE)
+     * @param includeFacets  false = chỉ trả kết quả và tổng số (bỏ các query đếm facet)
+     * @param mapper         chuyển entity sang DTO (gọi trong transaction)
+     */
+    public <R> FacetedPageDTO<R> search(VehicleSearchFilter filter, int page, int size, VehicleSearchSort sort,
+                                        boolean includeFacets, Function<VehicleInventory, R> mapper) {
+        if (page < 0) {
+            throw new IllegalArgumentException("page must be >= 0");
+        }
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (filter.getMinPrice() != null && filter.getMaxPrice() != null
+                && filter.getMinPrice().compareTo(filter.getMaxPrice()) > 0) {
+            throw new IllegalArgumentException("minPrice cannot be greater than maxPrice");
+        }
+
+        long totalCount;
+        Map<String, List<FacetCountDTO>> facets = new LinkedHashMap<>();
+        InventoryFacetIndex.FacetCounts indexed = includeFacets ? facetIndex.count(filter) : null;
+        if (indexed != null) {
+            // Tổng số và facet từ index trong bộ nhớ, chỉ còn query lấy trang kết quả
+            totalCount = indexed.getTotalCount();
+            facets.putAll(indexed.getFacets());
+        } else {
+            totalCount = count(filter);
+            if (includeFacets) {
+                facets.put(FACET_BRAND, countByName(filter, FACET_BRAND));
+                facets.put(FACET_MODEL, countByName(filter, FACET_MODEL));
+                facets.put(FACET_COLOR, countByName(filter, FACET_COLOR));
+                facets.put(FACET_PRICE, countByPriceBucket(filter));
+            }
+        }
+
+        List<R> results = new ArrayList<>();
+        if (totalCount > (long) page * size) {
+            for (VehicleInventory inventory : findPage(filter, page, size, sort)) {
+                results.add(mapper.apply(inventory));
+            }
+        }
+        return new FacetedPageDTO<>(results, totalCount, page, size, sort.getValue(), facets);
+    }
+
+    private long count(VehicleSearchFilter filter) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        SearchPaths paths = SearchPaths.join(query.from(VehicleInventory.class));
+        query.select(cb.count(paths.root)).where(predicates(cb, paths, filter, null));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<VehicleInventory> findPage(VehicleSearchFilter filter, int page, int size, VehicleSearchSort sort) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<VehicleInventory> query = cb.createQuery(VehicleInventory.class);
+        Root<VehicleInventory> root = query.from(VehicleInventory.class);
+        // Fetch quan hệ to-one (không làm nhân bản dòng nên phân trang trong SQL vẫn đúng)
+        Fetch<VehicleInventory, VehicleVariant> variantFetch = root.fetch("variant", JoinType.LEFT);
+        Fetch<VehicleVariant, VehicleModel> modelFetch = variantFetch.fetch("model", JoinType.LEFT);
+        Fetch<VehicleModel, VehicleBrand> brandFetch = modelFetch.fetch("brand", JoinType.LEFT);
+        Fetch<VehicleInventory, VehicleColor> colorFetch = root.fetch("color", JoinType.LEFT);
+        SearchPaths paths = new SearchPaths(root,
+            (Join<VehicleInventory, VehicleVariant>) variantFetch,
+            (Join<VehicleVariant, VehicleModel>) modelFetch,
+            (Join<VehicleModel, VehicleBrand>) brandFetch,
+            (Join<VehicleInventory, VehicleColor>) colorFetch);
+
+        query.select(root).where(predicates(cb, paths, filter, null)).orderBy(orderBy(cb, paths, sort));
+        return entityManager.createQuery(query)
+            .setFirstResult(page * size)
+            .setMaxResults(size)
+            .getResultList();
+    }
+
+    private List<FacetCountDTO> countByName(VehicleSearchFilter filter, String facet) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        SearchPaths paths = SearchPaths.join(query.from(VehicleInventory.class));
+        Path<String> name = switch (facet) {
+            case FACET_BRAND -> paths.brand.get("brandName");
+            case FACET_MODEL -> paths.model.get("modelName");
+            case FACET_COLOR -> paths.color.get("colorName");
+            default -> throw new IllegalArgumentException("Unknown facet: " + facet);
+        };
+        Expression<Long> count = cb.count(paths.root);
+        query.multiselect(name, count)
+            .where(cb.and(cb.isNotNull(name), predicates(cb, paths, filter, facet)))
+            .groupBy(name)
+            .orderBy(cb.desc(count), cb.asc(name));
+
+        List<FacetCountDTO> counts = new ArrayList<>();
+        for (Tuple row : entityManager.createQuery(query).getResultList()) {
+            counts.add(new FacetCountDTO(row.get(0, String.class), row.get(1, Long.class)));
+        }
+        return counts;
+    }
+
+    /**
+     * Đếm theo khoảng giá trong một query: SUM(CASE WHEN giá thuộc khoảng THEN 1 ELSE 0 END) cho mỗi khoảng
+     */
+    private List<FacetCountDTO> countByPriceBucket(VehicleSearchFilter filter) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        SearchPaths paths = SearchPaths.join(query.from(VehicleInventory.class));
+        Expression<BigDecimal> price = paths.price(cb);
+
+        List<BigDecimal[]> ranges = new ArrayList<>();
+        List<Selection<?>> selections = new ArrayList<>();
+        List<BigDecimal> priceBuckets = facetIndex.getPriceBuckets();
+        for (int i = 0; i <= priceBuckets.size(); i++) {
+            BigDecimal from = i == 0 ? null : priceBuckets.get(i - 1);
+            BigDecimal to = i == priceBuckets.size() ? null : priceBuckets.get(i);
+            Predicate inRange = cb.and(
+                from != null ? cb.greaterThanOrEqualTo(price, from) : cb.conjunction(),
+                to != null ? cb.lessThan(price, to) : cb.conjunction());
+            selections.add(cb.sum(cb.<Integer>selectCase().when(inRange, 1).otherwise(0)));
+            ranges.add(new BigDecimal[]{from, to});
+        }
+        query.multiselect(selections).where(cb.and(cb.isNotNull(price), predicates(cb, paths, filter, FACET_PRICE)));
+
+        Tuple row = entityManager.createQuery(query).getSingleResult();
+        List<FacetCountDTO> counts = new ArrayList<>();
+        for (int i = 0; i < ranges.size(); i++) {
+            Number value = (Number) row.get(i);
+            BigDecimal from = ranges.get(i)[0];
+            BigDecimal to = ranges.get(i)[1];
+            counts.add(new FacetCountDTO(priceLabel(from, to), value != null ? value.longValue() : 0L, from, to));
+        }
+        return counts;
+    }
+
+    private static String priceLabel(BigDecimal from, BigDecimal to) {
+        return (from != null ? from.toPlainString() : "") + "-" + (to != null ? to.toPlainString() : "");
+    }
+
+    /**
+     * Điều kiện tìm kiếm; excludeFacet = bỏ bộ lọc của facet đang được đếm
+     */
+    private static Predicate predicates(CriteriaBuilder cb, SearchPaths paths, VehicleSearchFilter filter, String excludeFacet) {
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.equal(paths.root.get("status"), VehicleStatus.AVAILABLE));
+        if (!FACET_BRAND.equals(excludeFacet) && !filter.getBrands().isEmpty()) {
+            predicates.add(cb.lower(paths.brand.get("brandName")).in(filter.getBrands()));
+        }
+        if (!FACET_MODEL.equals(excludeFacet) && !filter.getModels().isEmpty()) {
+            predicates.add(cb.lower(paths.model.get("modelName")).in(filter.getModels()));
+        }
+        if (!filter.getVariants().isEmpty()) {
+            predicates.add(cb.lower(paths.variant.get("variantName")).in(filter.getVariants()));
+        }
+        if (!FACET_COLOR.equals(excludeFacet) && !filter.getColors().isEmpty()) {
+            predicates.add(cb.lower(paths.color.get("colorName")).in(filter.getColors()));
+        }
+        if (!FACET_PRICE.equals(excludeFacet)) {
+            Expression<BigDecimal> price = paths.price(cb);
+            if (filter.getMinPrice() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(price, filter.getMinPrice()));
+            }
+            if (filter.getMaxPrice() != null) {
+                predicates.add(cb.lessThanOrEqualTo(price, filter.getMaxPrice()));
+            }
+        }
+        return cb.and(predicates.toArray(new Predicate[0]));
+    }
+
+    private static List<Order> orderBy(CriteriaBuilder cb, SearchPaths paths, VehicleSearchSort sort) {
+        List<Order> orders = new ArrayList<>();
+        switch (sort) {
+            case PRICE_ASC -> orders.add(cb.asc(paths.price(cb)));
+            case PRICE_DESC -> orders.add(cb.desc(paths.price(cb)));
+            case NAME -> {
+                orders.add(cb.asc(paths.brand.get("brandName")));
+                orders.add(cb.asc(paths.model.get("modelName")));
+                orders.add(cb.asc(paths.variant.get("variantName")));
+            }
+            default -> orders.add(cb.desc(paths.root.get("createdAt")));
+        }
+        // Tie-breaker để phân trang ổn định
+        orders.add(cb.asc(paths.root.get("inventoryId")));
+        return orders;
+    }
+
+    /**
+     * Các join dùng chung cho query kết quả, count và facet
+     */
+    private static final class SearchPaths {
+        private final Root<VehicleInventory> root;
+        private final Join<VehicleInventory, VehicleVariant> variant;
+        private final Join<VehicleVariant, VehicleModel> model;
+        private final Join<VehicleModel, VehicleBrand> brand;
+        private final Join<VehicleInventory, VehicleColor> color;
+
+        private SearchPaths(Root<VehicleInventory> root,
+                            Join<VehicleInventory, VehicleVariant> variant,
+                            Join<VehicleVariant, VehicleModel> model,
+                            Join<VehicleModel, VehicleBrand> brand,
+                            Join<VehicleInventory, VehicleColor> color) {
+            this.root = root;
+            this.variant = variant;
+            this.model = model;
+            this.brand = brand;
+            this.color = color;
+        }
+
+        private static SearchPaths join(Root<VehicleInventory> root) {
+            Join<VehicleInventory, VehicleVariant> variant = root.join("variant", JoinType.LEFT);
+            Join<VehicleVariant, VehicleModel> model = variant.join("model", JoinType.LEFT);
+            Join<VehicleModel, VehicleBrand> brand = model.join("brand", JoinType.LEFT);
+            Join<VehicleInventory, VehicleColor> color = root.join("color", JoinType.LEFT);
+            return new SearchPaths(root, variant, model, brand, color);
+        }
+
+        // Giá bán của xe, nếu chưa có thì giá cơ bản của phiên bản
+        private Expression<BigDecimal> price(CriteriaBuilder cb) {
+            return cb.coalesce(root.<BigDecimal>get("sellingPrice"), variant.<BigDecimal>get("priceBase"));
+        }
+    }
+}
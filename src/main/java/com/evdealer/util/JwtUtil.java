@@ -6,9 +6,15 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import jakarta.annotation.PostConstruct;
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.function.Function;
 
@@ -21,12 +27,86 @@ public class JwtUtil {
     @Value("${jwt.expiration:3600}")
     private Long expiration;
     
+    @Value("${jwt.verification-cache.max-size:10000}")
+    private int verificationCacheMaxSize;
+    
+    private SecretKey signingKey;
+    
+    // JwtParser là immutable và thread-safe nên build một lần
+    private JwtParser parser;
+    
+    // LRU các token đã verify, key là SHA-256 của token; chỉ dùng tới khi token hết hạn
+    private final Map<String, VerifiedToken> verifiedTokens = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, VerifiedToken> eldest) {
+            return size() > verificationCacheMaxSize;
+        }
+    };
+    
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+    }
+    
     private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+        return signingKey;
+    }
+    
+    /**
+     * Verify chữ ký và hạn của token một lần, trả về claims immutable.
+     * Token đã verify được cache theo digest cho tới thời điểm exp.
+     *
+     * @throws JwtException nếu token không hợp lệ hoặc đã hết hạn
+     * @throws IllegalArgumentException nếu token rỗng
+     */
+    public VerifiedToken verify(String token) {
+        if (token == null || token.isEmpty()) {
+            throw new IllegalArgumentException("JWT token is empty");
+        }
+        
+        long now = System.currentTimeMillis();
+        String cacheKey = digest(token);
+        synchronized (verifiedTokens) {
+            VerifiedToken cached = verifiedTokens.get(cacheKey);
+            if (cached != null) {
+                if (!cached.isExpired(now)) {
+                    return cached;
+                }
+                verifiedTokens.remove(cacheKey);
+            }
+        }
+        
+        Claims claims = extractAllClaims(token);
+        VerifiedToken verified = new VerifiedToken(
+                claims.getSubject(),
+                claims.get("role", String.class),
+                claims.get("userId", String.class),
+                claims.getExpiration());
+        
+        // Token không có exp thì không cache
+        if (claims.getExpiration() != null && verificationCacheMaxSize > 0) {
+            synchronized (verifiedTokens) {
+                verifiedTokens.put(cacheKey, verified);
+            }
+        }
+        return verified;
+    }
+    
+    private static String digest(String token) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] hash = md.digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
     
     public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return verify(token).getUsername();
     }
     
     public Date extractExpiration(String token) {
@@ -39,9 +119,7 @@ public class JwtUtil {
     }
     
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
+        return parser
                 .parseClaimsJws(token)
                 .getBody();
     }
@@ -79,10 +157,7 @@ public class JwtUtil {
     
     public Boolean validateToken(String token) {
         try {
-            Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token);
+            verify(token);
             return true;
         } catch (JwtException | IllegalArgumentException e) {
             return false;
@@ -90,11 +165,11 @@ public class JwtUtil {
     }
     
     public String getRoleFromToken(String token) {
-        return extractClaim(token, claims -> claims.get("role", String.class));
+        return verify(token).getRole();
     }
     
     public String getUserIdFromToken(String token) {
-        return extractClaim(token, claims -> claims.get("userId", String.class));
+        return verify(token).getUserId();
     }
     
     public Long getExpirationTime() {
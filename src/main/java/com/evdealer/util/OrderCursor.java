@@ -0,0 +1,90 @@
+package com.evdealer.util;
+
+import com.evdealer.dto.CursorPageDTO;
+import com.evdealer.entity.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Continuation token cho keyset pagination của orders, sắp theo (order_date DESC, order_id DESC).
+ * Token là vị trí của dòng cuối trang trước, mã hóa base64url để client coi như chuỗi opaque.
+ */
+public final class OrderCursor {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 200;
+
+    private static final String VERSION = "o1";
+
+    private final LocalDate orderDate;
+    private final UUID orderId;
+
+    private OrderCursor(LocalDate orderDate, UUID orderId) {
+        this.orderDate = orderDate;
+        this.orderId = orderId;
+    }
+
+    public LocalDate getOrderDate() {
+        return orderDate;
+    }
+
+    public UUID getOrderId() {
+        return orderId;
+    }
+
+    /**
+     * Giải mã token; null/rỗng = trang đầu (trả về null)
+     */
+    public static OrderCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 3 || !VERSION.equals(parts[0])) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new OrderCursor(LocalDate.parse(parts[1]), UUID.fromString(parts[2]));
+        } catch (IllegalArgumentException | java.time.format.DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    public static String encode(Order order) {
+        String raw = VERSION + "|" + order.getOrderDate() + "|" + order.getOrderId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Pageable lấy thêm một dòng để biết còn trang sau hay không
+     */
+    public static Pageable fetchLimit(int size) {
+        return PageRequest.of(0, size + 1);
+    }
+
+    public static int validateSize(Integer size) {
+        int value = size != null ? size : DEFAULT_PAGE_SIZE;
+        if (value < 1 || value > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return value;
+    }
+
+    /**
+     * Tạo trang từ kết quả đã lấy với fetchLimit(size)
+     */
+    public static <T> CursorPageDTO<T> toPage(List<Order> fetched, int size, Function<Order, T> mapper) {
+        boolean hasMore = fetched.size() > size;
+        List<Order> page = hasMore ? fetched.subList(0, size) : fetched;
+        String nextCursor = hasMore ? encode(page.get(page.size() - 1)) : null;
+        return new CursorPageDTO<>(page.stream().map(mapper).toList(), page.size(), hasMore, nextCursor);
+    }
+}
@@ -0,0 +1,104 @@
+package com.evdealer.util;
+
+import com.evdealer.entity.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Cache ngắn hạn (TTL) và có giới hạn kích thước cho User đã xác thực, key theo userId.
+ * Dùng bởi SecurityUtils để tránh query users + dealer ở mỗi request.
+ */
+@Component
+public class PrincipalCache {
+
+    @Value("${app.security.principal-cache.ttl-seconds:30}")
+    private long ttlSeconds;
+
+    @Value("${app.security.principal-cache.max-size:1000}")
+    private int maxSize;
+
+    private final Map<UUID, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, Entry> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    // Tăng mỗi lần evict để bỏ qua kết quả load đã cũ (load chạy ngoài lock)
+    private long generation;
+
+    /**
+     * Lấy user từ cache, nếu không có hoặc đã hết hạn thì load bằng loader
+     */
+    public Optional<User> get(UUID userId, Function<UUID, Optional<User>> loader) {
+        long now = System.currentTimeMillis();
+        long loadGeneration;
+        synchronized (this) {
+            Entry entry = entries.get(userId);
+            if (entry != null) {
+                if (entry.expiresAt > now) {
+                    return Optional.of(entry.user);
+                }
+                entries.remove(userId);
+            }
+            loadGeneration = generation;
+        }
+
+        Optional<User> loaded = loader.apply(userId);
+        if (loaded.isPresent() && ttlSeconds > 0) {
+            synchronized (this) {
+                if (generation == loadGeneration) {
+                    entries.put(userId, new Entry(loaded.get(), now + ttlSeconds * 1000));
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Xóa user khỏi cache. Nếu đang trong transaction thì xóa thêm một lần sau commit
+     * để request song song không cache lại dữ liệu cũ.
+     */
+    public void evict(UUID userId) {
+        if (userId == null) {
+            return;
+        }
+        doEvict(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doEvict(userId);
+                }
+            });
+        }
+    }
+
+    public synchronized void clear() {
+        generation++;
+        entries.clear();
+    }
+
+    private synchronized void doEvict(UUID userId) {
+        generation++;
+        entries.remove(userId);
+    }
+
+    private static final class Entry {
+        private final User user;
+        private final long expiresAt;
+
+        private Entry(User user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.evdealer.util;
+
+import com.evdealer.entity.ReportDataChangeListener;
+import com.evdealer.enums.ReportDataDomain;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.YearMonth;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache kết quả báo cáo, key theo loại báo cáo + tham số đã chuẩn hóa.
+ * Mỗi entry ghi lại "generation" của các nhóm dữ liệu nguồn lúc bắt đầu tính; khi entity thuộc
+ * nhóm đó thay đổi và commit (ReportDataChangeListener) generation tăng và entry trở thành stale.
+ * Request đồng thời cho cùng một key chỉ tính một lần. Metrics: report.cache.requests (result=hit|miss|stale),
+ * report.cache.load, report.cache.invalidations, report.cache.entries.
+ */
+@Component
+public class ReportCache implements ReportDataChangeListener.Handler {
+
+    private final Object pendingKey = new Object();
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.reports.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.reports.cache.max-size:500}")
+    private int maxSize;
+
+    private final Map<ReportDataDomain, AtomicLong> generations = new EnumMap<>(ReportDataDomain.class);
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    public ReportCache(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        for (ReportDataDomain domain : ReportDataDomain.values()) {
+            generations.put(domain, new AtomicLong());
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        ReportDataChangeListener.register(this);
+        Gauge.builder("report.cache.entries", this, ReportCache::size)
+            .description("Number of cached report results")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Lấy kết quả báo cáo từ cache hoặc tính bằng loader.
+     *
+     * @param report  tên báo cáo (dùng làm key và tag metrics)
+     * @param domains các nhóm dữ liệu mà báo cáo đọc
+     * @param params  tham số của báo cáo (null = không lọc)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String report, Set<ReportDataDomain> domains, Supplier<T> loader, Object... params) {
+        if (!enabled) {
+            return loader.get();
+        }
+        String key = key(report, params);
+        long[] loadGenerations = currentGenerations(domains);
+
+        CompletableFuture<Object> future;
+        boolean owner = false;
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.isFresh(domains, loadGenerations)) {
+                future = entry.value;
+                requests(report, "hit").increment();
+            } else {
+                requests(report, entry != null ? "stale" : "miss").increment();
+                future = new CompletableFuture<>();
+                entries.put(key, new Entry(future, loadGenerations));
+                owner = true;
+            }
+        }
+
+        if (owner) {
+            try {
+                Object value = Timer.builder("report.cache.load").tag("report", report).register(meterRegistry)
+                    .recordCallable(loader::get);
+                future.complete(value);
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+                synchronized (entries) {
+                    Entry current = entries.get(key);
+                    if (current != null && current.value == future) {
+                        entries.remove(key);
+                    }
+                }
+            }
+        }
+        return (T) await(future);
+    }
+
+    /**
+     * Chuẩn hóa "tháng hiện tại" thành tháng cụ thể để key tự chuyển sang bucket mới khi sang tháng
+     */
+    public static YearMonth monthBucket(Integer year, Integer month) {
+        YearMonth now = YearMonth.now();
+        return YearMonth.of(year != null ? year : now.getYear(), month != null ? month : now.getMonthValue());
+    }
+
+    /**
+     * Invalidate thủ công (vd. sau khi rebuild/backfill bằng native query)
+     */
+    public void invalidate(ReportDataDomain domain) {
+        generations.get(domain).incrementAndGet();
+        Counter.builder("report.cache.invalidations").tag("domain", domain.getValue()).register(meterRegistry).increment();
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public void onReportDataChanged(ReportDataDomain domain) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(domain);
+            return;
+        }
+        getOrBindPending().add(domain);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<ReportDataDomain> getOrBindPending() {
+        Set<ReportDataDomain> pending = (Set<ReportDataDomain>) TransactionSynchronizationManager.getResource(pendingKey);
+        if (pending == null) {
+            Set<ReportDataDomain> newPending = EnumSet.noneOf(ReportDataDomain.class);
+            TransactionSynchronizationManager.bindResource(pendingKey, newPending);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    // Sau commit: request đọc dữ liệu mới sẽ không bị trả kết quả cũ
+                    for (ReportDataDomain domain : newPending) {
+                        invalidate(domain);
+                    }
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(pendingKey);
+                }
+            });
+            pending = newPending;
+        }
+        return pending;
+    }
+
+    private long[] currentGenerations(Set<ReportDataDomain> domains) {
+        long[] result = new long[ReportDataDomain.values().length];
+        for (ReportDataDomain domain : domains) {
+            result[domain.ordinal()] = generations.get(domain).get();
+        }
+        return result;
+    }
+
+    private Counter requests(String report, String result) {
+        return Counter.builder("report.cache.requests")
+            .tag("report", report)
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    private static String key(String report, Object... params) {
+        StringBuilder key = new StringBuilder(report);
+        for (Object param : params) {
+            key.append('|');
+            if (param == null) {
+                key.append('*');
+            } else if (param instanceof String) {
+                key.append(((String) param).trim().toLowerCase());
+            } else {
+                key.append(String.valueOf(param));
+            }
+        }
+        return key.toString();
+    }
+
+    private static Object await(CompletableFuture<Object> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for report", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Report computation failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    private static final class Entry {
+        private final CompletableFuture<Object> value;
+        private final long[] generations;
+
+        private Entry(CompletableFuture<Object> value, long[] generations) {
+            this.value = value;
+            this.generations = generations;
+        }
+
+        private boolean isFresh(Set<ReportDataDomain> domains, long[] current) {
+            for (ReportDataDomain domain : domains) {
+                if (generations[domain.ordinal()] != current[domain.ordinal()]) {
+                    return false;
+                }
+            }
+            return !value.isCompletedExceptionally();
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.evdealer.util;
 
+import com.evdealer.enums.Permission;
+import com.evdealer.enums.Role;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.type.MapType;
@@ -17,10 +19,82 @@ public class RolePermissionManager {
     private static final TypeFactory typeFactory = TypeFactory.defaultInstance();
     private static final MapType mapType = typeFactory.constructMapType(HashMap.class, String.class, List.class);
     
+    // Tra cứu Permission theo "module:action"
+    private static final Map<String, Permission> PERMISSIONS_BY_KEY = new HashMap<>();
+    
+    // Ma trận Role × Permission, build một lần khi load class
+    private static final Map<Role, Set<Permission>> ROLE_PERMISSIONS = new EnumMap<>(Role.class);
+    
+    // Dạng module -> actions (immutable) theo role, dùng cho API menu/permissions
+    private static final Map<Role, Map<String, List<String>>> ROLE_PERMISSION_MAPS = new EnumMap<>(Role.class);
+    
+    static {
+        for (Permission permission : Permission.values()) {
+            PERMISSIONS_BY_KEY.put(permission.getPermissionKey(), permission);
+        }
+        for (Role role : Role.values()) {
+            Map<String, List<String>> permissions = createPermissionMap(role.getValue());
+            EnumSet<Permission> granted = EnumSet.noneOf(Permission.class);
+            Map<String, List<String>> immutable = new TreeMap<>();
+            for (Map.Entry<String, List<String>> entry : permissions.entrySet()) {
+                for (String action : entry.getValue()) {
+                    Permission permission = PERMISSIONS_BY_KEY.get(entry.getKey() + ":" + action);
+                    if (permission != null) {
+                        granted.add(permission);
+                    }
+                }
+                immutable.put(entry.getKey(), List.copyOf(entry.getValue()));
+            }
+            ROLE_PERMISSIONS.put(role, Collections.unmodifiableSet(granted));
+            ROLE_PERMISSION_MAPS.put(role, Collections.unmodifiableMap(immutable));
+        }
+    }
+    
+    /**
+     * Kiểm tra role có permission không (O(1), không parse JSON)
+     */
+    public static boolean hasPermission(Role role, Permission permission) {
+        if (role == null || permission == null) {
+            return false;
+        }
+        return ROLE_PERMISSIONS.get(role).contains(permission);
+    }
+    
+    /**
+     * Kiểm tra role có quyền action trên module không (O(1), không parse JSON)
+     */
+    public static boolean hasPermission(Role role, String module, String action) {
+        return hasPermission(role, PERMISSIONS_BY_KEY.get(module + ":" + action));
+    }
+    
+    /**
+     * Lấy tập permissions (immutable) của role
+     */
+    public static Set<Permission> getPermissions(Role role) {
+        return role != null ? ROLE_PERMISSIONS.get(role) : Collections.emptySet();
+    }
+    
+    /**
+     * Lấy permissions của role dạng module -> actions (immutable)
+     */
+    public static Map<String, List<String>> getPermissionMap(Role role) {
+        return role != null ? ROLE_PERMISSION_MAPS.get(role) : Collections.emptyMap();
+    }
+    
     /**
      * Tạo permissions JSON string cho role
      */
     public static String createPermissionsForRole(String roleName) {
+        Map<String, List<String>> permissions = createPermissionMap(roleName);
+        
+        try {
+            return objectMapper.writeValueAsString(permissions);
+        } catch (JsonProcessingException e) {
+            return "{}";
+        }
+    }
+    
+    private static Map<String, List<String>> createPermissionMap(String roleName) {
         Map<String, List<String>> permissions = new HashMap<>();
         
         switch (roleName.toUpperCase()) {
@@ -43,11 +117,7 @@ public class RolePermissionManager {
                 permissions = createDefaultPermissions();
         }
         
-        try {
-            return objectMapper.writeValueAsString(permissions);
-        } catch (JsonProcessingException e) {
-            return "{}";
-        }
+        return permissions;
     }
     
     /**
@@ -21,9 +21,15 @@ import java.util.UUID;
 @Component
 public class SecurityUtils {
     
+    // Request attribute giữ kết quả getCurrentUser() trong suốt một request
+    private static final String CURRENT_USER_ATTRIBUTE = SecurityUtils.class.getName() + ".currentUser";
+    
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private PrincipalCache principalCache;
+    
     /**
      * Lấy userId từ SecurityContext hoặc request attribute
      */
@@ -60,20 +66,41 @@ public class SecurityUtils {
     }
     
     /**
-     * Lấy User entity hiện tại
+     * Lấy User entity hiện tại (kèm dealer).
+     * Kết quả được giữ trong request attribute nên chỉ resolve một lần mỗi request,
+     * và qua PrincipalCache giữa các request.
      */
+    @SuppressWarnings("unchecked")
     public Optional<User> getCurrentUser() {
+        HttpServletRequest request = getCurrentRequest();
+        if (request != null) {
+            Object cached = request.getAttribute(CURRENT_USER_ATTRIBUTE);
+            if (cached instanceof Optional) {
+                return (Optional<User>) cached;
+            }
+        }
+        
+        Optional<User> user = loadCurrentUser();
+        if (request != null) {
+            request.setAttribute(CURRENT_USER_ATTRIBUTE, user);
+        }
+        return user;
+    }
+    
+    private Optional<User> loadCurrentUser() {
         Optional<String> userIdOpt = getCurrentUserId();
         if (userIdOpt.isPresent()) {
             try {
                 UUID userId = UUID.fromString(userIdOpt.get());
-                // Try to get user with dealer eagerly loaded
-                Optional<User> userWithDealer = userRepository.findByIdWithDealer(userId);
-                if (userWithDealer.isPresent()) {
-                    return userWithDealer;
-                }
-                // Fallback to regular findById
-                return userRepository.findById(userId);
+                return principalCache.get(userId, id -> {
+                    // Try to get user with dealer eagerly loaded
+                    Optional<User> userWithDealer = userRepository.findByIdWithDealer(id);
+                    if (userWithDealer.isPresent()) {
+                        return userWithDealer;
+                    }
+                    // Fallback to regular findById
+                    return userRepository.findById(id);
+                });
             } catch (Exception e) {
                 return Optional.empty();
             }
@@ -81,6 +108,15 @@ public class SecurityUtils {
         return Optional.empty();
     }
     
+    private HttpServletRequest getCurrentRequest() {
+        try {
+            ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
+            return attributes != null ? attributes.getRequest() : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+    
     /**
      * Lấy username hiện tại
      */
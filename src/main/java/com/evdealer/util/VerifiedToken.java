@@ -0,0 +1,41 @@
+package com.evdealer.util;
+
+import java.util.Date;
+
+/**
+ * Claims của một JWT đã được verify chữ ký (immutable)
+ */
+public final class VerifiedToken {
+
+    private final String username;
+    private final String role;
+    private final String userId;
+    private final long expiresAtMillis;
+
+    public VerifiedToken(String username, String role, String userId, Date expiration) {
+        this.username = username;
+        this.role = role;
+        this.userId = userId;
+        this.expiresAtMillis = expiration != null ? expiration.getTime() : Long.MAX_VALUE;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public Date getExpiration() {
+        return expiresAtMillis == Long.MAX_VALUE ? null : new Date(expiresAtMillis);
+    }
+
+    public boolean isExpired(long nowMillis) {
+        return expiresAtMillis <= nowMillis;
+    }
+}
@@ -0,0 +1,7 @@
+-- Trigram (pg_trgm) GIN indexes for partial VIN / chassis number / license plate lookup.
+-- Serves LIKE/ILIKE '%x%' and 'x%' patterns; idempotent, run at startup by InventorySearchIndexInitializer.
+-- CREATE EXTENSION needs a role allowed to create extensions (or pg_trgm already installed by a DBA).
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_vehicle_inventory_vin_trgm ON vehicle_inventory USING gin (vin gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_vehicle_inventory_chassis_trgm ON vehicle_inventory USING gin (chassis_number gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_vehicle_inventory_plate_trgm ON vehicle_inventory USING gin (license_plate gin_trgm_ops);
@@ -0,0 +1,154 @@
+package com.evdealer.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark "login storm": nhiều login đồng thời trên một pool giả lập request thread của Tomcat, so sánh
+ * login chờ BCrypt trên request thread (cách cũ: request thread join kết quả, bị giữ trong lúc hash) với
+ * matchesAsync (request thread được trả về ngay). Đo throughput, p50/p99 của login, số request bị từ chối (503)
+ * và độ trễ của các request rẻ (probe) gửi vào cùng pool trong lúc có storm.
+ * <p>
+ * Không cần database; không chạy trong build thường (tên không khớp pattern của surefire):
+ * mvn test -Dtest=PasswordHashingBenchmark -Dbenchmark.login=true
+ * [-Dbenchmark.request-threads=50] [-Dbenchmark.logins=500] [-Dbenchmark.hash-threads=4]
+ */
+@EnabledIfSystemProperty(named = "benchmark.login", matches = "true")
+@DisplayName("Password hashing login storm benchmark")
+class PasswordHashingBenchmark {
+
+    private static final int REQUEST_THREADS = Integer.getInteger("benchmark.request-threads", 50);
+    private static final int LOGINS = Integer.getInteger("benchmark.logins", 500);
+    private static final int HASH_THREADS = Integer.getInteger("benchmark.hash-threads",
+        Runtime.getRuntime().availableProcessors());
+    private static final int QUEUE_CAPACITY = Integer.getInteger("benchmark.queue-capacity", 200);
+    private static final int PROBES = 50;
+    private static final String PASSWORD = "benchmark-password";
+
+    private BCryptPasswordEncoder encoder;
+    private String hash;
+    private PasswordHashingService service;
+
+    private interface Login {
+        // Chạy trên request thread; gọi done(matched, error) khi login xong
+        void run(Callback done);
+    }
+
+    private interface Callback {
+        void done(Boolean matched, Throwable error);
+    }
+
+    @BeforeEach
+    void setUp() {
+        encoder = new BCryptPasswordEncoder();
+        hash = encoder.encode(PASSWORD);
+        service = new PasswordHashingService(encoder, HASH_THREADS, QUEUE_CAPACITY, 30_000, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    @DisplayName("Blocking join vs matchesAsync() under a login storm")
+    void loginStorm() throws Exception {
+        assertTrue(service.matchesAsync(PASSWORD, hash).join());
+
+        Result blocking = run("blocking/join", done -> {
+            try {
+                done.done(service.matchesAsync(PASSWORD, hash).join(), null);
+            } catch (RuntimeException e) {
+                done.done(null, e);
+            }
+        });
+        Result async = run("async/matchesAsync", done ->
+            service.matchesAsync(PASSWORD, hash).whenComplete(done::done));
+
+        // Request thread không bị giữ trong lúc hash: request rẻ không phải xếp hàng sau các login
+        assertTrue(async.probeP99Nanos < blocking.probeP99Nanos);
+    }
+
+    private Result run(String name, Login login) throws Exception {
+        ExecutorService requestPool = Executors.newFixedThreadPool(REQUEST_THREADS);
+        CountDownLatch finished = new CountDownLatch(LOGINS);
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        List<Long> probeLatencies = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        try {
+            long wallStart = System.nanoTime();
+            for (int i = 0; i < LOGINS; i++) {
+                long submitted = System.nanoTime();
+                requestPool.execute(() -> login.run((matched, error) -> {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    if (cause instanceof RejectedExecutionException) {
+                        rejected.incrementAndGet();
+                    } else if (cause != null || !Boolean.TRUE.equals(matched)) {
+                        failed.incrementAndGet();
+                    } else {
+                        completed.incrementAndGet();
+                        latencies.add(System.nanoTime() - submitted);
+                    }
+                    finished.countDown();
+                }));
+            }
+            // Request rẻ (vd. GET danh sách) đến trong lúc storm: đo thời gian chờ được request thread xử lý
+            for (int i = 0; i < PROBES; i++) {
+                long submitted = System.nanoTime();
+                requestPool.execute(() -> probeLatencies.add(System.nanoTime() - submitted));
+                Thread.sleep(5);
+            }
+            assertTrue(finished.await(10, TimeUnit.MINUTES), "login storm did not finish");
+            long wallNanos = System.nanoTime() - wallStart;
+
+            assertEquals(LOGINS, completed.get() + rejected.get() + failed.get());
+            assertEquals(0, failed.get());
+            List<Long> sorted = new ArrayList<>(latencies);
+            Collections.sort(sorted);
+            List<Long> probes = new ArrayList<>(probeLatencies);
+            Collections.sort(probes);
+
+            Result result = new Result();
+            result.probeP99Nanos = percentile(probes, 0.99);
+            System.out.printf("[PasswordHashingBenchmark] %-20s requestThreads=%d hashThreads=%d logins=%d ok=%d rejected=%d "
+                    + "throughput=%.1f logins/s p50=%.1fms p99=%.1fms probeP50=%.2fms probeP99=%.2fms%n",
+                name, REQUEST_THREADS, HASH_THREADS, LOGINS, completed.get(), rejected.get(),
+                completed.get() / (wallNanos / 1e9),
+                percentile(sorted, 0.5) / 1e6, percentile(sorted, 0.99) / 1e6,
+                percentile(probes, 0.5) / 1e6, result.probeP99Nanos / 1e6);
+            return result;
+        } finally {
+            requestPool.shutdownNow();
+        }
+    }
+
+    private static long percentile(List<Long> sorted, double p) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        return sorted.get(Math.min(sorted.size() - 1, (int) (sorted.size() * p)));
+    }
+
+    private static final class Result {
+        long probeP99Nanos;
+    }
+}
@@ -0,0 +1,173 @@
+package com.evdealer.service;
+
+import com.evdealer.entity.VehicleInventory;
+import com.evdealer.enums.VehicleStatus;
+import com.evdealer.repository.VehicleInventoryRepository;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark tranh chấp giữ chỗ xe: nhiều thread cùng giữ chỗ MỘT xe và mỗi thread một xe khác nhau,
+ * so sánh khóa PESSIMISTIC_WRITE (lockById, giữ khóa trong suốt phần việc của order) với compare-and-set
+ * của ReservationService (đọc không khóa, UPDATE có điều kiện version ở cuối).
+ * <p>
+ * Cần PostgreSQL thật với đủ xe AVAILABLE; các xe được trả về AVAILABLE sau mỗi kịch bản.
+ * Không chạy trong build thường (tên không khớp pattern của surefire):
+ * mvn test -Dtest=ReservationContentionBenchmark -Dbenchmark.reservation=true
+ * [-Dbenchmark.threads=16] [-Dbenchmark.work-ms=20]
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark.reservation", matches = "true")
+@DisplayName("Reservation contention benchmark")
+class ReservationContentionBenchmark {
+
+    private static final int THREADS = Integer.getInteger("benchmark.threads", 16);
+    // Thời gian giả lập phần việc còn lại của order (load customer/quotation/user, insert order)
+    private static final long WORK_MS = Long.getLong("benchmark.work-ms", 20);
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private VehicleInventoryRepository vehicleInventoryRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transaction;
+    private List<UUID> available;
+
+    private interface Strategy {
+        void reserve(UUID inventoryId) throws InterruptedException;
+    }
+
+    @BeforeEach
+    void setUp() {
+        transaction = new TransactionTemplate(transactionManager);
+        available = new ArrayList<>();
+        for (VehicleInventory inventory : vehicleInventoryRepository.findByStatus(VehicleStatus.AVAILABLE)) {
+            available.add(inventory.getInventoryId());
+        }
+        Assumptions.assumeTrue(available.size() >= THREADS,
+            "Need at least " + THREADS + " available vehicles, found " + available.size());
+    }
+
+    @Test
+    @DisplayName("Many threads race for the same vehicle: exactly one wins")
+    void sameVehicle() throws Exception {
+        List<UUID> targets = Collections.nCopies(THREADS, available.get(0));
+        Result pessimistic = run("pessimistic/same", targets, this::reservePessimistic);
+        Result cas = run("cas/same", targets, this::reserveCompareAndSet);
+        assertEquals(1, pessimistic.successes);
+        assertEquals(1, cas.successes);
+    }
+
+    @Test
+    @DisplayName("Many threads reserve different vehicles: all win")
+    void differentVehicles() throws Exception {
+        List<UUID> targets = available.subList(0, THREADS);
+        Result pessimistic = run("pessimistic/different", targets, this::reservePessimistic);
+        Result cas = run("cas/different", targets, this::reserveCompareAndSet);
+        assertEquals(THREADS, pessimistic.successes);
+        assertEquals(THREADS, cas.successes);
+    }
+
+    // Cách cũ của OrderService: khóa dòng trước, giữ khóa trong khi làm phần còn lại của order
+    private void reservePessimistic(UUID inventoryId) throws InterruptedException {
+        VehicleInventory inventory = vehicleInventoryRepository.lockById(inventoryId).orElseThrow();
+        if (inventory.getStatus() != VehicleStatus.AVAILABLE) {
+            throw new IllegalStateException("not available");
+        }
+        Thread.sleep(WORK_MS);
+        reservationService.hold(inventory, null);
+    }
+
+    private void reserveCompareAndSet(UUID inventoryId) throws InterruptedException {
+        VehicleInventory inventory = reservationService.findAvailable(inventoryId);
+        reservationService.hold(inventory, null);
+        Thread.sleep(WORK_MS);
+        reservationService.confirmHolds();
+    }
+
+    private Result run(String name, List<UUID> targets, Strategy strategy) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(targets.size());
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> futures = new ArrayList<>();
+        try {
+            for (UUID target : targets) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    long begin = System.nanoTime();
+                    try {
+                        transaction.executeWithoutResult(status -> {
+                            try {
+                                strategy.reserve(target);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                throw new IllegalStateException(e);
+                            }
+                        });
+                        return System.nanoTime() - begin;
+                    } catch (RuntimeException e) {
+                        // Thua cuộc: trả về độ trễ âm để phân biệt
+                        return -(System.nanoTime() - begin);
+                    }
+                }));
+            }
+            long wallStart = System.nanoTime();
+            start.countDown();
+            Result result = new Result();
+            List<Long> latencies = new ArrayList<>();
+            for (Future<Long> future : futures) {
+                long latency = future.get(2, TimeUnit.MINUTES);
+                if (latency >= 0) {
+                    result.successes++;
+                } else {
+                    result.failures++;
+                }
+                latencies.add(Math.abs(latency));
+            }
+            long wallMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - wallStart);
+            Collections.sort(latencies);
+            System.out.printf("[ReservationContentionBenchmark] %-22s threads=%d work=%dms wins=%d losses=%d wall=%dms p50=%.1fms max=%.1fms%n",
+                name, targets.size(), WORK_MS, result.successes, result.failures, wallMs,
+                latencies.get(latencies.size() / 2) / 1e6, latencies.get(latencies.size() - 1) / 1e6);
+            return result;
+        } finally {
+            executor.shutdownNow();
+            restore(targets);
+        }
+    }
+
+    private void restore(List<UUID> targets) {
+        transaction.executeWithoutResult(status -> {
+            for (VehicleInventory inventory : vehicleInventoryRepository.findAllById(new java.util.HashSet<>(targets))) {
+                reservationService.release(inventory, null);
+            }
+        });
+    }
+
+    private static final class Result {
+        int successes;
+        int failures;
+    }
+}
@@ -0,0 +1,144 @@
+package com.evdealer.util;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark chi phí xác thực JWT trong JwtAuthenticationFilter: cách cũ (extractUsername, validateToken,
+ * getRoleFromToken, getUserIdFromToken - bốn lần build key + parser + verify chữ ký) so với một lần
+ * JwtUtil.verify(), có và không có cache token đã verify.
+ * <p>
+ * Không cần database; không chạy trong build thường (tên không khớp pattern của surefire):
+ * mvn test -Dtest=JwtVerificationBenchmark -Dbenchmark.jwt=true
+ * [-Dbenchmark.threads=8] [-Dbenchmark.iterations=200000]
+ */
+@EnabledIfSystemProperty(named = "benchmark.jwt", matches = "true")
+@DisplayName("JWT verification benchmark")
+class JwtVerificationBenchmark {
+
+    private static final String SECRET = "mySecretKey123456789012345678901234567890";
+    private static final int THREADS = Integer.getInteger("benchmark.threads", 8);
+    private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 200_000);
+    private static final int WARMUP = Math.max(1_000, ITERATIONS / 10);
+
+    private JwtUtil cachedJwtUtil;
+    private JwtUtil uncachedJwtUtil;
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        cachedJwtUtil = newJwtUtil(10_000);
+        uncachedJwtUtil = newJwtUtil(0);
+        token = cachedJwtUtil.generateToken("benchmark-user", "ADMIN", "00000000-0000-0000-0000-000000000001");
+    }
+
+    @Test
+    @DisplayName("Old four-parse filter path vs verify()")
+    void filterCost() throws Exception {
+        assertEquals("benchmark-user", legacyFilterPath(token));
+        assertEquals("benchmark-user", cachedJwtUtil.verify(token).getUsername());
+
+        Result legacy = measure("legacy/4-parse", () -> legacyFilterPath(token));
+        Result uncached = measure("verify/no-cache", () -> uncachedJwtUtil.verify(token).getUsername());
+        Result cached = measure("verify/cached", () -> cachedJwtUtil.verify(token).getUsername());
+
+        // Một lần verify phải rẻ hơn bốn lần parse
+        assertTrue(uncached.opsPerSecond > legacy.opsPerSecond);
+        assertTrue(cached.opsPerSecond > legacy.opsPerSecond);
+    }
+
+    private static JwtUtil newJwtUtil(int cacheSize) {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 3600L);
+        ReflectionTestUtils.setField(jwtUtil, "verificationCacheMaxSize", cacheSize);
+        jwtUtil.init();
+        return jwtUtil;
+    }
+
+    // Bản sao đường xử lý trước đây của filter: mỗi lời gọi tạo key + parser và verify chữ ký lại từ đầu
+    private static String legacyFilterPath(String jwt) {
+        String username = legacyClaims(jwt).getSubject();
+        legacyClaims(jwt);
+        String role = legacyClaims(jwt).get("role", String.class);
+        String userId = legacyClaims(jwt).get("userId", String.class);
+        return role != null && userId != null ? username : null;
+    }
+
+    private static Claims legacyClaims(String jwt) {
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                .build()
+                .parseClaimsJws(jwt)
+                .getBody();
+    }
+
+    private interface Operation {
+        Object run();
+    }
+
+    private Result measure(String name, Operation operation) throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            operation.run();
+        }
+        int perThread = Math.max(1, ITERATIONS / THREADS);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    long[] latencies = new long[perThread];
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        long begin = System.nanoTime();
+                        operation.run();
+                        latencies[i] = System.nanoTime() - begin;
+                    }
+                    return latencies;
+                }));
+            }
+            long wallStart = System.nanoTime();
+            start.countDown();
+            long[] all = new long[perThread * THREADS];
+            int offset = 0;
+            for (Future<long[]> future : futures) {
+                long[] latencies = future.get(10, TimeUnit.MINUTES);
+                System.arraycopy(latencies, 0, all, offset, latencies.length);
+                offset += latencies.length;
+            }
+            long wallNanos = System.nanoTime() - wallStart;
+            Arrays.sort(all);
+
+            Result result = new Result();
+            result.opsPerSecond = all.length / (wallNanos / 1e9);
+            System.out.printf("[JwtVerificationBenchmark] %-16s threads=%d ops=%d throughput=%.0f ops/s p50=%.1fus p99=%.1fus%n",
+                name, THREADS, all.length, result.opsPerSecond,
+                all[all.length / 2] / 1e3, all[(int) (all.length * 0.99)] / 1e3);
+            return result;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static final class Result {
+        double opsPerSecond;
+    }
+}